@@ -3,6 +3,7 @@ USE petstore;
 
 DROP TABLE IF EXISTS pets;
 DROP TABLE IF EXISTS users;
+DROP TABLE IF EXISTS sequences;
 
 --
 -- Table structure for table `users`
@@ -12,6 +13,7 @@ CREATE TABLE users
     role     VARCHAR(10)  NOT NULL,
     login    VARCHAR(100) NOT NULL,
     password VARCHAR(255) NOT NULL,
+    version  BIGINT       NOT NULL DEFAULT 0,
     PRIMARY KEY (login)
 ) ENGINE = InnoDB
   DEFAULT CHARSET = utf8mb4;
@@ -21,17 +23,37 @@ CREATE TABLE users
 --
 CREATE TABLE pets
 (
-    id     INT                         NOT NULL AUTO_INCREMENT,
+    id     INT                         NOT NULL,
     animal ENUM ('BIRD', 'CAT', 'DOG') NOT NULL,
     birth  DATETIME                    NOT NULL,
     name   VARCHAR(100)                NOT NULL,
     owner  VARCHAR(100)                NOT NULL,
+    version BIGINT                     NOT NULL DEFAULT 0,
     PRIMARY KEY (id),
     KEY `FK_Pet_Owner` (owner),
+    KEY `IDX_Pet_Name_Owner` (name, owner),
+    KEY `IDX_Pet_Owner_Name` (owner, name),
+    KEY `IDX_Pet_Owner_Birth` (owner, birth),
+    KEY `IDX_Pet_Owner_Animal_Birth` (owner, animal, birth),
+    KEY `IDX_Pet_Animal_Birth` (animal, birth),
+    KEY `IDX_Pet_Birth` (birth),
     CONSTRAINT `FK_Pet_Owner_login` FOREIGN KEY (owner) REFERENCES users (login)
 ) ENGINE = InnoDB
   DEFAULT CHARSET = utf8mb4;
 
+--
+-- Table structure for table `sequences`
+-- Each row stores the first identifier of the next block reserved by a table
+-- generator.
+--
+CREATE TABLE sequences
+(
+    name     VARCHAR(255) NOT NULL,
+    next_val BIGINT,
+    PRIMARY KEY (name)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
+
 --
 -- User creation
 --
@@ -52,10 +74,16 @@ VALUES ('ADMIN', 'jose', 'A3F6F4B40B24E2FD61F08923ED452F34'),   -- password: 'jo
 --
 -- Data for table `pets`
 --
-INSERT INTO pets (animal, birth, name, owner)
-VALUES ('CAT', '2000-01-01 01:01:01', 'Pepecat', 'pepe'),
-       ('CAT', '2000-01-01 01:01:01', 'Max', 'juan'),
-       ('DOG', '2000-01-01 01:01:01', 'Juandog', 'juan'),
-       ('CAT', '2000-01-01 01:01:01', 'Anacat', 'ana'),
-       ('DOG', '2000-01-01 01:01:01', 'Max', 'ana'),
-       ('BIRD', '2000-01-01 01:01:01', 'Anabird', 'ana');
+INSERT INTO pets (id, animal, birth, name, owner)
+VALUES (1, 'CAT', '2000-01-01 01:01:01', 'Pepecat', 'pepe'),
+       (2, 'CAT', '2000-01-01 01:01:01', 'Max', 'juan'),
+       (3, 'DOG', '2000-01-01 01:01:01', 'Juandog', 'juan'),
+       (4, 'CAT', '2000-01-01 01:01:01', 'Anacat', 'ana'),
+       (5, 'DOG', '2000-01-01 01:01:01', 'Max', 'ana'),
+       (6, 'BIRD', '2000-01-01 01:01:01', 'Anabird', 'ana');
+
+--
+-- Data for table `sequences`
+--
+INSERT INTO sequences (name, next_val)
+VALUES ('pets', 7);
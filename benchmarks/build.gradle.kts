@@ -0,0 +1,30 @@
+plugins {
+    alias(libs.plugins.jmh)
+}
+
+dependencies {
+    jmh(project(":domain"))
+    jmh(project(":security"))
+    jmh(project(":rest"))
+
+    // Jakarta APIs and implementations provided by the server at runtime
+    jmh(platform(libs.jakarta.bom))
+    jmh(libs.jakarta.persistence.api)
+    jmh(libs.jakarta.jsonb.api)
+    jmh(libs.jakarta.json.api)
+    jmh(libs.jakarta.ws.rs.api)
+    jmh(libs.jakarta.security.enterprise.api)
+    jmh(libs.jakarta.cdi.api)
+    jmh(libs.jakarta.inject.api)
+    jmh(libs.yasson)
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh.asProvider()
+    // Allocation rate per operation, so allocation-free paths can be checked
+    profilers = listOf("gc")
+    // Machine-readable results, so runs can be compared over time
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    humanOutputFile = layout.buildDirectory.file("results/jmh/human.txt")
+}
@@ -0,0 +1,136 @@
+package pablog.petstore.benchmarks;
+
+import jakarta.security.enterprise.credential.UsernamePasswordCredential;
+import jakarta.security.enterprise.identitystore.CredentialValidationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pablog.petstore.domain.entities.Owner;
+import pablog.petstore.security.AuthenticationCache;
+import pablog.petstore.security.BasicAuthorizationParser;
+import pablog.petstore.security.MD5PasswordHash;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Credential path of a Basic authenticated request: parsing the
+ * {@code Authorization} header and verifying the password against the stored
+ * MD5 hash, or looking up the result cached for the header. Hashing of the
+ * passwords when they are changed is measured too.
+ * <p>
+ * The {@code legacy} benchmarks reproduce the previous implementation, based
+ * on strings. Run with the {@code gc} profiler, parsing, verifying and cached
+ * validations should report a {@code gc.alloc.rate.norm} close to 0 bytes per
+ * operation. Parsing and verifying only allocates the credential passed to
+ * the identity store, its username and the copies of its password.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CredentialsBenchmark {
+    private static final String HEADER = "Basic " + Base64.getEncoder()
+            .encodeToString("pepe:pepepass".getBytes(StandardCharsets.UTF_8));
+
+    private static final char[] PASSWORD = "pepepass".toCharArray();
+
+    private Owner owner;
+    private MD5PasswordHash passwordHash;
+    private String hashedPassword;
+    private AuthenticationCache authenticationCache;
+    private CredentialValidationResult result;
+
+    @Setup
+    public void setUp() {
+        this.owner = new Owner("pepe", "pepepass");
+        this.passwordHash = new MD5PasswordHash();
+        this.hashedPassword = this.passwordHash.generate(PASSWORD);
+
+        this.authenticationCache = new AuthenticationCache();
+        this.result = new CredentialValidationResult("pepe", Set.of("OWNER"));
+        this.authenticationCache.validate(HEADER, () -> this.result);
+    }
+
+    @Benchmark
+    public UsernamePasswordCredential legacyParse() {
+        return legacyParseBasicHeader(HEADER);
+    }
+
+    @Benchmark
+    public boolean fastParse() {
+        final BasicAuthorizationParser parser = BasicAuthorizationParser.forCurrentThread();
+
+        try {
+            return parser.parse(HEADER);
+        } finally {
+            parser.clear();
+        }
+    }
+
+    @Benchmark
+    public boolean legacyParseAndVerify() throws NoSuchAlgorithmException {
+        final UsernamePasswordCredential credential = legacyParseBasicHeader(HEADER);
+
+        return legacyVerify(credential.getPassword().getValue(), this.hashedPassword);
+    }
+
+    @Benchmark
+    public boolean fastParseAndVerify() {
+        final BasicAuthorizationParser parser = BasicAuthorizationParser.forCurrentThread();
+
+        try {
+            // The identity store receives the credential, as it does on a miss of the cache
+            return parser.parse(HEADER) && this.passwordHash.verify(
+                    parser.toCredential().getPassword().getValue(), this.hashedPassword);
+        } finally {
+            parser.clear();
+        }
+    }
+
+    @Benchmark
+    public Owner changePassword() {
+        this.owner.changePassword("pepepass");
+
+        return this.owner;
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return this.passwordHash.verify(PASSWORD, this.hashedPassword);
+    }
+
+    @Benchmark
+    public CredentialValidationResult cachedValidation() {
+        return this.authenticationCache.validate(HEADER, () -> this.result);
+    }
+
+    private static UsernamePasswordCredential legacyParseBasicHeader(String authHeader) {
+        final String base64 = authHeader.substring(6).trim();
+        final String token = new String(Base64.getDecoder().decode(base64), StandardCharsets.UTF_8);
+        final int colon = token.indexOf(':');
+
+        return new UsernamePasswordCredential(token.substring(0, colon), token.substring(colon + 1));
+    }
+
+    private static boolean legacyVerify(char[] password, String hashedPassword) throws NoSuchAlgorithmException {
+        final MessageDigest digester = MessageDigest.getInstance("MD5");
+        final byte[] hash = digester.digest(new String(password).getBytes(StandardCharsets.UTF_8));
+
+        return HexFormat.of().formatHex(hash).toUpperCase().equals(hashedPassword);
+    }
+}
@@ -0,0 +1,135 @@
+package pablog.petstore.benchmarks;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.entities.Owner;
+import pablog.petstore.domain.entities.Pet;
+import pablog.petstore.rest.EntityJsonReader;
+import pablog.petstore.rest.EntityJsonWriter;
+import pablog.petstore.rest.entity.PetData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Serialization of the entities returned by the REST API with JSON-B and with
+ * the {@link EntityJsonWriter}, and deserialization of the data received with
+ * JSON-B and with the {@link EntityJsonReader}. Both write to the same
+ * reusable byte stream, as the response body would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityJsonBenchmark {
+    private static final Annotation[] ANNOTATIONS = new Annotation[0];
+
+    @Param({"1", "100"})
+    private int petCount;
+
+    private Jsonb jsonb;
+    private EntityJsonWriter writer;
+    private EntityJsonReader reader;
+    private MultivaluedMap<String, Object> headers;
+    private ByteArrayOutputStream output;
+
+    private Owner owner;
+    private List<Owner> owners;
+    private byte[] petDataJson;
+
+    @Setup
+    public void setUp() {
+        this.jsonb = JsonbBuilder.create();
+        this.writer = new EntityJsonWriter();
+        this.reader = new EntityJsonReader();
+        this.headers = new MultivaluedHashMap<>();
+        this.output = new ByteArrayOutputStream(64 * 1024);
+
+        final Date birth = new Date(946684861000L);
+        this.owners = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final Owner listedOwner = new Owner("owner" + i, "ownerpass");
+            for (int j = 0; j < this.petCount; j++) {
+                new Pet("Pet " + j, AnimalType.values()[j % AnimalType.values().length], birth, listedOwner);
+            }
+            this.owners.add(listedOwner);
+        }
+        this.owner = this.owners.get(0);
+        this.petDataJson = this.jsonb.toJson(new PetData("Pepecat", AnimalType.CAT, birth)).getBytes(UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.jsonb.close();
+    }
+
+    @Benchmark
+    public int ownerWithJsonb() {
+        this.output.reset();
+        this.jsonb.toJson(this.owner, this.output);
+
+        return this.output.size();
+    }
+
+    @Benchmark
+    public int ownerWithEntityWriter() throws IOException {
+        this.output.reset();
+        this.writer.writeTo(this.owner, Owner.class, Owner.class, ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE, this.headers, this.output);
+
+        return this.output.size();
+    }
+
+    @Benchmark
+    public int ownerListWithJsonb() {
+        this.output.reset();
+        this.jsonb.toJson(this.owners, this.output);
+
+        return this.output.size();
+    }
+
+    @Benchmark
+    public int ownerListWithEntityWriter() throws IOException {
+        this.output.reset();
+        this.writer.writeTo(this.owners, ArrayList.class, ArrayList.class, ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE, this.headers, this.output);
+
+        return this.output.size();
+    }
+
+    @Benchmark
+    public PetData petDataWithJsonb() {
+        return this.jsonb.fromJson(new ByteArrayInputStream(this.petDataJson), PetData.class);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Object petDataWithEntityReader() {
+        return this.reader.readFrom((Class<Object>) (Class<?>) PetData.class, PetData.class, ANNOTATIONS,
+                MediaType.APPLICATION_JSON_TYPE, null, new ByteArrayInputStream(this.petDataJson));
+    }
+}
@@ -0,0 +1,82 @@
+package pablog.petstore.benchmarks;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.entities.Owner;
+import pablog.petstore.domain.entities.Pet;
+import pablog.petstore.rest.entity.UserCredentials;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON-B serialization of the entities returned by the REST API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonbBenchmark {
+    @Param({"1", "100"})
+    private int petCount;
+
+    private Jsonb jsonb;
+    private Owner owner;
+    private Pet pet;
+    private UserCredentials credentials;
+    private String ownerJson;
+
+    @Setup
+    public void setUp() {
+        this.jsonb = JsonbBuilder.create();
+
+        final Date birth = new Date(0);
+        this.owner = new Owner("pepe", "pepepass");
+        for (int i = 0; i < this.petCount; i++) {
+            new Pet("Pet " + i, AnimalType.values()[i % AnimalType.values().length], birth, this.owner);
+        }
+        this.pet = this.owner.getPets().iterator().next();
+        this.credentials = new UserCredentials(this.owner);
+        this.ownerJson = this.jsonb.toJson(this.owner);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.jsonb.close();
+    }
+
+    @Benchmark
+    public String serializeOwner() {
+        return this.jsonb.toJson(this.owner);
+    }
+
+    @Benchmark
+    public String serializePet() {
+        return this.jsonb.toJson(this.pet);
+    }
+
+    @Benchmark
+    public String serializeUserCredentials() {
+        return this.jsonb.toJson(this.credentials);
+    }
+
+    @Benchmark
+    public Owner deserializeOwner() {
+        return this.jsonb.fromJson(this.ownerJson, Owner.class);
+    }
+}
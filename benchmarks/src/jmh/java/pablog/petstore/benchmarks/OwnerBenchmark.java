@@ -0,0 +1,77 @@
+package pablog.petstore.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.entities.Owner;
+import pablog.petstore.domain.entities.Pet;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Management of the pets of owners with thousands of pets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OwnerBenchmark {
+    @Param({"1000", "10000"})
+    private int petCount;
+
+    private Owner owner;
+    private Pet ownedPet;
+    private Pet foreignPet;
+    private Pet newPet;
+
+    @Setup
+    public void setUp() {
+        final Date birth = new Date(0);
+
+        this.owner = new Owner("pepe", "pepepass");
+        for (int i = 0; i < this.petCount; i++) {
+            this.owner.addPet(new Pet("Pet " + i, AnimalType.values()[i % AnimalType.values().length], birth));
+        }
+
+        this.ownedPet = new Pet("Owned", AnimalType.DOG, birth, this.owner);
+        this.foreignPet = new Pet("Foreign", AnimalType.CAT, birth, new Owner("juan", "juanpass"));
+        this.newPet = new Pet("New", AnimalType.BIRD, birth);
+    }
+
+    @Benchmark
+    public boolean ownsOwnedPet() {
+        return this.owner.ownsPet(this.ownedPet);
+    }
+
+    @Benchmark
+    public boolean ownsForeignPet() {
+        return this.owner.ownsPet(this.foreignPet);
+    }
+
+    @Benchmark
+    public Owner addAndRemovePet() {
+        this.owner.addPet(this.newPet);
+        this.owner.removePet(this.newPet);
+
+        return this.owner;
+    }
+
+    @Benchmark
+    public Owner addOwnedPet() {
+        this.owner.addPet(this.ownedPet);
+
+        return this.owner;
+    }
+}
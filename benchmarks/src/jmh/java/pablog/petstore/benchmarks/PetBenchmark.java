@@ -0,0 +1,74 @@
+package pablog.petstore.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.entities.Owner;
+import pablog.petstore.domain.entities.Pet;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction and validation of pets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PetBenchmark {
+    private Date birth;
+    private Owner owner;
+    private Pet pet;
+
+    @Setup
+    public void setUp() {
+        this.birth = new Date(0);
+        this.owner = new Owner("pepe", "pepepass");
+        this.pet = new Pet("Rex", AnimalType.DOG, this.birth);
+    }
+
+    @Benchmark
+    public Pet create() {
+        return new Pet("Rex", AnimalType.DOG, this.birth);
+    }
+
+    @Benchmark
+    public Pet createWithOwner() {
+        final Pet created = new Pet("Rex", AnimalType.DOG, this.birth, this.owner);
+        created.setOwner(null);
+
+        return created;
+    }
+
+    @Benchmark
+    public Pet setName() {
+        this.pet.setName("Max");
+
+        return this.pet;
+    }
+
+    @Benchmark
+    public Pet setAnimal() {
+        this.pet.setAnimal(AnimalType.CAT);
+
+        return this.pet;
+    }
+
+    @Benchmark
+    public Pet setBirth() {
+        this.pet.setBirth(this.birth);
+
+        return this.pet;
+    }
+}
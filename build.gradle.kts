@@ -75,8 +75,8 @@ subprojects {
         systemProperty("jboss.home", jbossHome)
     }
 
-    // Apply JaCoCo to all subprojects except tests and jsf
-    val excludedFromCoverage = listOf("tests", "jsf", "ear")
+    // Apply JaCoCo to all subprojects except tests, jsf and benchmarks
+    val excludedFromCoverage = listOf("tests", "jsf", "ear", "benchmarks")
     if (name !in excludedFromCoverage) {
         apply(plugin = "jacoco")
 
@@ -131,7 +131,7 @@ tasks.register<JacocoReport>("jacocoRootReport") {
     group = "Verification"
     description = "Aggregates JaCoCo coverage across all subprojects"
 
-    val excludedProjects = listOf("tests", "jsf", "ear")
+    val excludedProjects = listOf("tests", "jsf", "ear", "benchmarks")
     val coveredProjects = subprojects.filter { it.name !in excludedProjects }
 
     dependsOn(coveredProjects.map { it.tasks.named("test") })
@@ -2,6 +2,8 @@ dependencies {
     compileOnly(platform(libs.jakarta.bom))
     compileOnly(libs.jakarta.persistence.api)
     compileOnly(libs.jakarta.jsonb.api)
+    compileOnly(libs.hibernate.core)
+    compileOnly(libs.jakarta.transaction.api)
 
     implementation(libs.commons.lang3)
 
@@ -11,6 +13,8 @@ dependencies {
     testRuntimeOnly(libs.junit.platform.launcher)
     // Hamcrest
     testImplementation(libs.hamcrest)
+    // Statement inspector interface of the statement counter
+    testImplementation(libs.hibernate.core)
 }
 
 tasks.test {
@@ -1,6 +1,10 @@
 package pablog.petstore.domain.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import pablog.petstore.domain.search.SuggestionListener;
+import pablog.petstore.domain.statistics.FacetListener;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -19,16 +23,32 @@ import static java.util.Objects.requireNonNull;
  */
 @Entity
 @DiscriminatorValue("OWNER")
+@NamedEntityGraph(
+        name = Owner.WITH_PETS,
+        attributeNodes = @NamedAttributeNode("pets")
+)
+@EntityListeners({SuggestionListener.class, FacetListener.class})
 public class Owner extends User implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Name of the entity graph that fetches the owner together with its pets.
+     */
+    public static final String WITH_PETS = "Owner.withPets";
+
+    /**
+     * Name of the second-level cache region of the pets of each owner.
+     */
+    public static final String PETS_CACHE_REGION = "petstore.owner-pets";
+
     @OneToMany(
             mappedBy = "owner",
             cascade = CascadeType.ALL,
             orphanRemoval = true,
-            fetch = FetchType.EAGER
+            fetch = FetchType.LAZY
     )
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Owner.PETS_CACHE_REGION)
     private Set<Pet> pets = new HashSet<>();
 
     // Required for JPA
@@ -2,6 +2,10 @@ package pablog.petstore.domain.entities;
 
 import jakarta.json.bind.annotation.JsonbTransient;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import pablog.petstore.domain.search.SuggestionListener;
+import pablog.petstore.domain.statistics.FacetListener;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -16,13 +20,49 @@ import static org.apache.commons.lang3.Validate.inclusiveBetween;
  * @author Miguel Reboiro-Jato
  */
 @Entity
-@Table(name = "pets")
+// The indexes resolve each combination of filters of the pet search with a
+// range scan: owners always search their own pets, while administrators may
+// search the pets of every owner.
+@Table(
+        name = "pets",
+        indexes = {
+                @Index(name = "IDX_Pet_Name_Owner", columnList = "name, owner"),
+                @Index(name = "IDX_Pet_Owner_Name", columnList = "owner, name"),
+                @Index(name = "IDX_Pet_Owner_Birth", columnList = "owner, birth"),
+                @Index(name = "IDX_Pet_Owner_Animal_Birth", columnList = "owner, animal, birth"),
+                @Index(name = "IDX_Pet_Animal_Birth", columnList = "animal, birth"),
+                @Index(name = "IDX_Pet_Birth", columnList = "birth")
+        }
+)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Pet.CACHE_REGION)
+@EntityListeners({SuggestionListener.class, FacetListener.class})
 public class Pet implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Name of the second-level cache region of the pets.
+     */
+    public static final String CACHE_REGION = "petstore.pets";
+
+    /**
+     * Name of the generator of pet identifiers.
+     */
+    public static final String ID_GENERATOR = "pets_id";
+
+    // Identifiers are reserved in blocks from a table, so that pets can be
+    // inserted using JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = Pet.ID_GENERATOR)
+    @TableGenerator(
+            name = Pet.ID_GENERATOR,
+            table = "sequences",
+            pkColumnName = "name",
+            valueColumnName = "next_val",
+            pkColumnValue = "pets",
+            allocationSize = 50
+    )
     private int id;
 
     @Column(length = 100, nullable = false)
@@ -41,6 +81,11 @@ public class Pet implements Serializable {
     @JsonbTransient
     private Owner owner;
 
+    @Version
+    @Column(nullable = false)
+    @JsonbTransient
+    private long version;
+
     // Required for JPA.
     protected Pet() {
     }
@@ -173,6 +218,16 @@ public class Pet implements Serializable {
         this.birth = birth;
     }
 
+    /**
+     * Returns the version of this pet, that is increased each time the pet is
+     * updated.
+     *
+     * @return the version of this pet.
+     */
+    public long getVersion() {
+        return version;
+    }
+
     /**
      * Returns the owner of this pet. The value returned can be {@code null},
      * meaning that the pet has no owner.
@@ -199,4 +254,23 @@ public class Pet implements Serializable {
         if (this.owner != null)
             this.owner.internalAddPet(this);
     }
+
+    /**
+     * Sets the owner of a pet that has no owner, without adding the pet to the
+     * pets of the owner. This way, the pets of the owner are not loaded when
+     * the owner is a reference to a persistent owner, but the pets of the
+     * owner will not include this pet until they are read again.
+     *
+     * @param owner the new owner of the pet. This parameter can not be
+     *              {@code null}.
+     * @throws NullPointerException  if a {@code null} value is passed.
+     * @throws IllegalStateException if the pet already has an owner.
+     */
+    public void attachTo(Owner owner) {
+        requireNonNull(owner, "owner can't be null");
+        if (this.owner != null)
+            throw new IllegalStateException("pet already has an owner");
+
+        this.owner = owner;
+    }
 }
@@ -1,6 +1,9 @@
 package pablog.petstore.domain.entities;
 
+import jakarta.json.bind.annotation.JsonbTransient;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -15,6 +18,8 @@ import static org.apache.commons.lang3.Validate.matchesPattern;
 
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
 @Inheritance
 @DiscriminatorColumn(
         name = "role",
@@ -25,6 +30,11 @@ public abstract class User implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Name of the second-level cache region of the users.
+     */
+    public static final String CACHE_REGION = "petstore.users";
+
     @Id
     @Column(length = 100, nullable = false)
     protected String login;
@@ -35,6 +45,11 @@ public abstract class User implements Serializable {
     @Column(name = "role", insertable = false, updatable = false)
     protected String role;
 
+    @Version
+    @Column(nullable = false)
+    @JsonbTransient
+    private long version;
+
     protected User() {
     }
 
@@ -91,6 +106,16 @@ public abstract class User implements Serializable {
         return role;
     }
 
+    /**
+     * Returns the version of the user, that is increased by JPA each time the
+     * user is updated.
+     *
+     * @return the version of the user.
+     */
+    public long getVersion() {
+        return version;
+    }
+
     /**
      * Returns the MD5 of the user's password. Capital letters are used
      * in the returned string.
@@ -0,0 +1,100 @@
+package pablog.petstore.domain.persistence;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs actions once the JTA transaction of the current thread is committed,
+ * so state kept outside the database is only changed with the data it
+ * mirrors. Actions registered without an active transaction, including the
+ * ones registered where the transaction registry is not available, are run
+ * immediately. Actions registered in a transaction that is rolled back are
+ * discarded.
+ * <p>
+ * Actions are run in the order they were registered, after the transaction
+ * is completed, so they must not access the persistence context.
+ */
+public final class AfterCommit {
+    private static final String REGISTRY_NAME = "java:comp/TransactionSynchronizationRegistry";
+
+    private static volatile TransactionSynchronizationRegistry registry;
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Runs an action once the transaction of the current thread is
+     * committed or, if there is no active transaction, immediately.
+     *
+     * @param action the action to run.
+     */
+    public static void run(Runnable action) {
+        final TransactionSynchronizationRegistry registry = registry();
+
+        if (registry == null) {
+            action.run();
+            return;
+        }
+
+        final int status = registry.getTransactionStatus();
+        if (status == Status.STATUS_MARKED_ROLLBACK) return;
+        if (status != Status.STATUS_ACTIVE) {
+            action.run();
+            return;
+        }
+
+        Actions actions = (Actions) registry.getResource(Actions.class);
+        if (actions == null) {
+            actions = new Actions();
+
+            try {
+                registry.registerInterposedSynchronization(actions);
+            } catch (IllegalStateException ise) {
+                // The transaction is already completing
+                action.run();
+                return;
+            }
+
+            registry.putResource(Actions.class, actions);
+        }
+
+        actions.add(action);
+    }
+
+    private static TransactionSynchronizationRegistry registry() {
+        if (registry == null) {
+            try {
+                registry = (TransactionSynchronizationRegistry) new InitialContext().lookup(REGISTRY_NAME);
+            } catch (NamingException | NoClassDefFoundError e) {
+                return null;
+            }
+        }
+
+        return registry;
+    }
+
+    private static final class Actions implements Synchronization {
+        private final List<Runnable> actions = new ArrayList<>();
+
+        void add(Runnable action) {
+            this.actions.add(action);
+        }
+
+        @Override
+        public void beforeCompletion() {
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status == Status.STATUS_COMMITTED) {
+                this.actions.forEach(Runnable::run);
+            }
+        }
+    }
+}
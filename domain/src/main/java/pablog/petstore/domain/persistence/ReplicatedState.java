@@ -0,0 +1,107 @@
+package pablog.petstore.domain.persistence;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Holds in-memory state derived from the database, such as an index or
+ * aggregated counters, shared by every component of the deployment.
+ * <p>
+ * Changes are applied once the transaction that makes them is committed,
+ * using {@link AfterCommit}. While the state is being rebuilt, changes are
+ * applied to the current state and recorded, so they are also applied to the
+ * new state before it replaces the current one. Changes must be idempotent,
+ * so applying a change already included in the new state is harmless.
+ * <p>
+ * Changes are applied without locking while no rebuild is running, as the
+ * loader of a later rebuild reads them from the database. During a rebuild,
+ * changes share the read side of a lock, so they are applied concurrently,
+ * and the replacement of the state takes the write side, so no change is
+ * recorded once the recorded ones have been replayed.
+ *
+ * @param <T> the type of the state. It must be thread-safe.
+ */
+public final class ReplicatedState<T> {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildLock = new Object();
+
+    private volatile T current;
+    private volatile Queue<Consumer<T>> pending;
+
+    /**
+     * Creates a new holder.
+     *
+     * @param initial the initial state.
+     */
+    public ReplicatedState(T initial) {
+        this.current = initial;
+    }
+
+    /**
+     * Returns the current state.
+     *
+     * @return the current state.
+     */
+    public T get() {
+        return current;
+    }
+
+    /**
+     * Applies a change to the state once the transaction of the current
+     * thread is committed or, if there is no active transaction, immediately.
+     *
+     * @param change the change to apply.
+     */
+    public void afterCommit(Consumer<T> change) {
+        AfterCommit.run(() -> this.apply(change));
+    }
+
+    /**
+     * Replaces the state with a new one filled by a loader. The loader must
+     * read the database after this method is called, so the changes committed
+     * meanwhile are not lost. Concurrent rebuilds are run one after another.
+     *
+     * @param state  the new, empty, state.
+     * @param loader the loader that fills the new state.
+     */
+    public void rebuild(T state, Consumer<T> loader) {
+        synchronized (rebuildLock) {
+            this.pending = new ConcurrentLinkedQueue<>();
+
+            try {
+                loader.accept(state);
+
+                lock.writeLock().lock();
+                try {
+                    this.pending.forEach(change -> change.accept(state));
+                    this.current = state;
+                    this.pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } finally {
+                this.pending = null;
+            }
+        }
+    }
+
+    private void apply(Consumer<T> change) {
+        if (pending == null) {
+            change.accept(current);
+            return;
+        }
+
+        lock.readLock().lock();
+        try {
+            change.accept(current);
+
+            final Queue<Consumer<T>> recorded = pending;
+            if (recorded != null) recorded.add(change);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
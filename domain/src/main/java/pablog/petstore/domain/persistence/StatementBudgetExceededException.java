@@ -0,0 +1,29 @@
+package pablog.petstore.domain.persistence;
+
+import java.io.Serial;
+
+/**
+ * Thrown when a statement exceeds the budget of an enforced
+ * {@link StatementCounter.Scope}. The statement is not executed.
+ */
+public class StatementBudgetExceededException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final long budget;
+
+    public StatementBudgetExceededException(long budget, String sql) {
+        super("Statement budget of " + budget + " exceeded by: " + sql);
+
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the number of statements allowed.
+     *
+     * @return the number of statements allowed.
+     */
+    public long getBudget() {
+        return budget;
+    }
+}
@@ -0,0 +1,193 @@
+package pablog.petstore.domain.persistence;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the SQL statements prepared by the persistence unit in each thread.
+ * It must be configured as the statement inspector of the persistence unit
+ * with the {@code hibernate.session_factory.statement_inspector} property.
+ * <p>
+ * Statements are counted in the {@link Scope}s bound to the thread that
+ * prepares them: the scope opened by {@link #open()} and every enclosing
+ * scope. Each scope has a budget of statements, increased with
+ * {@link Scope#allow(long)}. If a scope is enforced, the statement that
+ * exceeds its budget is rejected with a
+ * {@link StatementBudgetExceededException}, so it is never executed.
+ * <p>
+ * Statements sent in a JDBC batch are prepared only once, so they are counted
+ * once. Statements that Hibernate runs on its own connections, like the ones
+ * that reserve blocks of identifiers from a table, are not prepared by the
+ * persistence unit, so they are not counted.
+ */
+public class StatementCounter implements StatementInspector {
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Counts the statement in the scopes bound to the current thread.
+     *
+     * @param sql the SQL of the statement.
+     * @return the same SQL.
+     * @throws StatementBudgetExceededException if the statement exceeds the
+     *                                          budget of an enforced scope.
+     */
+    @Override
+    public String inspect(String sql) {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.statementPrepared(sql);
+        }
+
+        return sql;
+    }
+
+    /**
+     * Opens a new scope bound to the current thread, nested in the scope
+     * currently bound, if any. The scope must be closed in the same thread.
+     *
+     * @return the new scope.
+     */
+    public static Scope open() {
+        final Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+
+        return scope;
+    }
+
+    /**
+     * Returns the innermost scope bound to the current thread.
+     *
+     * @return the innermost scope bound to the current thread or {@code null}
+     * if there is none.
+     */
+    public static Scope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Increases the budget of the innermost scope bound to the current thread,
+     * if any. Used by the methods whose number of statements depends on the
+     * data they process, once they know it.
+     *
+     * @param statements the number of statements to allow.
+     * @throws IllegalArgumentException if {@code statements} is negative.
+     */
+    public static void allow(long statements) {
+        final Scope scope = CURRENT.get();
+
+        if (scope != null) scope.allow(statements);
+    }
+
+    /**
+     * Scope where statements are counted.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final Scope parent;
+        private final AtomicLong count;
+        private final AtomicLong budget;
+        private volatile boolean enforced;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+            this.count = new AtomicLong();
+            this.budget = new AtomicLong();
+        }
+
+        /**
+         * Returns the number of statements prepared while the scope was
+         * bound.
+         *
+         * @return the number of statements prepared.
+         */
+        public long getCount() {
+            return this.count.get();
+        }
+
+        /**
+         * Returns the number of statements allowed in the scope.
+         *
+         * @return the number of statements allowed in the scope.
+         */
+        public long getBudget() {
+            return this.budget.get();
+        }
+
+        /**
+         * Returns whether the scope has prepared more statements than allowed.
+         *
+         * @return {@code true} if the scope has prepared more statements than
+         * allowed. {@code false} otherwise.
+         */
+        public boolean isOverBudget() {
+            return this.getCount() > this.getBudget();
+        }
+
+        /**
+         * Increases the number of statements allowed in the scope.
+         *
+         * @param statements the number of statements to allow.
+         * @throws IllegalArgumentException if {@code statements} is negative.
+         */
+        public void allow(long statements) {
+            if (statements < 0)
+                throw new IllegalArgumentException("statements can't be negative");
+
+            this.budget.addAndGet(statements);
+        }
+
+        /**
+         * Makes the scope reject any statement that exceeds its budget.
+         */
+        public void enforce() {
+            this.enforced = true;
+        }
+
+        /**
+         * Binds the scope to the current thread, so the statements prepared by
+         * the thread are counted in it. Used to count the statements prepared
+         * by other threads on behalf of the thread that opened the scope.
+         *
+         * @return the binding, that must be closed in the same thread.
+         */
+        public Binding bind() {
+            final Scope previous = CURRENT.get();
+            CURRENT.set(this);
+
+            return () -> restore(previous);
+        }
+
+        /**
+         * Closes the scope, restoring the enclosing scope in the current
+         * thread.
+         */
+        @Override
+        public void close() {
+            restore(this.parent);
+        }
+
+        private void statementPrepared(String sql) {
+            final long prepared = this.count.incrementAndGet();
+
+            if (this.enforced && prepared > this.budget.get()) {
+                throw new StatementBudgetExceededException(this.budget.get(), sql);
+            }
+        }
+
+        private static void restore(Scope scope) {
+            if (scope == null) CURRENT.remove();
+            else CURRENT.set(scope);
+        }
+    }
+
+    /**
+     * Binding of a scope to a thread.
+     */
+    @FunctionalInterface
+    public interface Binding extends AutoCloseable {
+        /**
+         * Unbinds the scope from the thread.
+         */
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,70 @@
+package pablog.petstore.domain.search;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * A term suggested by a {@link TermIndex}: the login of an owner or the name
+ * of one or more pets.
+ */
+public class Suggestion implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Kinds of terms that can be suggested.
+     */
+    public enum Kind {
+        OWNER, PET
+    }
+
+    private final Kind kind;
+    private final String text;
+    private final int count;
+
+    /**
+     * Creates a new suggestion.
+     *
+     * @param kind  the kind of the term.
+     * @param text  the term.
+     * @param count the number of entities with the term.
+     */
+    public Suggestion(Kind kind, String text, int count) {
+        this.kind = kind;
+        this.text = text;
+        this.count = count;
+    }
+
+    /**
+     * Returns the kind of the term.
+     *
+     * @return the kind of the term.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the term, as it is stored in the entities.
+     *
+     * @return the term.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the number of entities with the term: 1 for the login of an
+     * owner and the number of pets with the name for a pet name.
+     *
+     * @return the number of entities with the term.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return kind + ":" + text;
+    }
+}
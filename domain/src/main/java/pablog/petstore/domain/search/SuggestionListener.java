@@ -0,0 +1,54 @@
+package pablog.petstore.domain.search;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import pablog.petstore.domain.entities.Owner;
+import pablog.petstore.domain.entities.Pet;
+
+/**
+ * Entity listener that keeps the {@link Suggestions} index in sync with the
+ * owners and pets written through the entity manager. Bulk updates and
+ * deletes do not notify entity listeners, so they must change the index
+ * explicitly.
+ */
+public class SuggestionListener {
+    /**
+     * Indexes an owner or a pet after it is inserted or updated.
+     *
+     * @param entity the owner or pet saved.
+     */
+    @PostPersist
+    @PostUpdate
+    void saved(Object entity) {
+        if (entity instanceof Pet pet) {
+            final int id = pet.getId();
+            final String name = pet.getName();
+            final String owner = pet.getOwner() == null ? null : pet.getOwner().getLogin();
+
+            Suggestions.afterCommit(index -> index.putPet(id, name, owner));
+        } else if (entity instanceof Owner owner) {
+            final String login = owner.getLogin();
+
+            Suggestions.afterCommit(index -> index.putOwner(login));
+        }
+    }
+
+    /**
+     * Removes an owner or a pet from the index after it is deleted.
+     *
+     * @param entity the owner or pet deleted.
+     */
+    @PostRemove
+    void removed(Object entity) {
+        if (entity instanceof Pet pet) {
+            final int id = pet.getId();
+
+            Suggestions.afterCommit(index -> index.removePet(id));
+        } else if (entity instanceof Owner owner) {
+            final String login = owner.getLogin();
+
+            Suggestions.afterCommit(index -> index.removeOwner(login));
+        }
+    }
+}
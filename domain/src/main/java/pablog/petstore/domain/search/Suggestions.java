@@ -0,0 +1,47 @@
+package pablog.petstore.domain.search;
+
+import pablog.petstore.domain.persistence.ReplicatedState;
+
+import java.util.function.Consumer;
+
+/**
+ * Holds the {@link TermIndex} of the application, shared by every component
+ * of the deployment. Changes are applied once the transaction that makes them
+ * is committed, as described in {@link ReplicatedState}.
+ */
+public final class Suggestions {
+    private static final ReplicatedState<TermIndex> INDEX = new ReplicatedState<>(new TermIndex());
+
+    private Suggestions() {
+    }
+
+    /**
+     * Returns the current index.
+     *
+     * @return the current index.
+     */
+    public static TermIndex index() {
+        return INDEX.get();
+    }
+
+    /**
+     * Applies a change to the index once the transaction of the current
+     * thread is committed or, if there is no active transaction, immediately.
+     *
+     * @param change the change to apply.
+     */
+    public static void afterCommit(Consumer<TermIndex> change) {
+        INDEX.afterCommit(change);
+    }
+
+    /**
+     * Replaces the index with a new one filled by a loader. The loader must
+     * read the entities after this method is called, so the changes committed
+     * meanwhile are not lost. Concurrent rebuilds are run one after another.
+     *
+     * @param loader the loader that fills the new index.
+     */
+    public static void rebuild(Consumer<TermIndex> loader) {
+        INDEX.rebuild(new TermIndex(), loader);
+    }
+}
@@ -0,0 +1,732 @@
+package pablog.petstore.domain.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of the logins of the owners and the names of the pets,
+ * that finds the terms containing a text, ignoring case.
+ * <p>
+ * Each distinct term is stored once, identified by an integer. The index maps
+ * the trigrams of the terms, and their first one and two characters, to the
+ * arrays of the identifiers of the terms that contain them. Texts of one or
+ * two characters are resolved with the postings of the prefix, that are
+ * sorted like the suggestions, so they only find terms that start with them
+ * and stop once the limit is reached. Longer texts are resolved intersecting
+ * the postings of their trigrams, sorted by identifier, starting with the
+ * shortest, and checking the candidates.
+ * <p>
+ * The pets are indexed by identifier, and the pets of each owner by the term
+ * of its login, so renaming or removing a pet only needs its identifier and
+ * removing an owner only visits its pets. Grams and pets are kept in open
+ * addressing tables of primitive keys. Terms that are no longer used are
+ * removed from their postings as soon as the last pet or owner that uses them
+ * is removed, and their identifiers are reused.
+ * <p>
+ * This class is thread-safe. Searches run concurrently, and changes are
+ * exclusive.
+ */
+public final class TermIndex {
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Order of the terms in the postings of the prefixes and in the suggestions
+    private static final Comparator<String> TERM_ORDER = String.CASE_INSENSITIVE_ORDER
+            .thenComparing(Comparator.naturalOrder());
+
+    private static final Comparator<Match> BEST_FIRST = Comparator.comparing((Match match) -> !match.prefix)
+            .thenComparing(match -> match.text, TERM_ORDER)
+            .thenComparing(match -> match.kind);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private String[] terms = new String[INITIAL_CAPACITY];
+    private int[] petCounts = new int[INITIAL_CAPACITY];
+    private IntList[] ownedPets = new IntList[INITIAL_CAPACITY];
+    private final BitSet owners = new BitSet();
+    private final IntList freeIds = new IntList();
+    private int termCount;
+    private int nextId;
+
+    private final GramTable grams = new GramTable();
+
+    // Name and owner terms of each pet, packed in a long
+    private final PetTable pets = new PetTable();
+
+    /**
+     * Adds a pet to the index or, if it is already indexed, replaces its name
+     * and owner.
+     *
+     * @param id    the identifier of the pet.
+     * @param name  the name of the pet.
+     * @param owner the login of the owner of the pet. May be {@code null}.
+     * @throws NullPointerException if {@code name} is {@code null}.
+     */
+    public void putPet(int id, String name, String owner) {
+        if (name == null) throw new NullPointerException("name can't be null");
+
+        lock.writeLock().lock();
+        try {
+            final int nameTerm = this.intern(name);
+            final int ownerTerm = owner == null ? -1 : this.intern(owner);
+
+            final long previous = pets.put(id, pack(nameTerm, ownerTerm));
+            if (previous != PetTable.ABSENT) this.unlink(id, previous);
+
+            this.petCounts[nameTerm]++;
+            if (ownerTerm >= 0) this.ownedPets[ownerTerm].add(id);
+
+            if (previous != PetTable.ABSENT) this.releaseTerms(previous);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a pet from the index. Nothing is done if the pet is not
+     * indexed.
+     *
+     * @param id the identifier of the pet.
+     */
+    public void removePet(int id) {
+        lock.writeLock().lock();
+        try {
+            final long previous = pets.remove(id);
+
+            if (previous != PetTable.ABSENT) {
+                this.unlink(id, previous);
+                this.releaseTerms(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the login of an owner to the index.
+     *
+     * @param login the login of the owner.
+     * @throws NullPointerException if {@code login} is {@code null}.
+     */
+    public void putOwner(String login) {
+        if (login == null) throw new NullPointerException("login can't be null");
+
+        lock.writeLock().lock();
+        try {
+            this.owners.set(this.intern(login));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an owner and all its pets from the index.
+     *
+     * @param login the login of the owner.
+     */
+    public void removeOwner(String login) {
+        lock.writeLock().lock();
+        try {
+            final Integer term = termIds.get(login);
+            if (term == null) return;
+
+            this.owners.clear(term);
+
+            // Names are released once the owner has no pets left
+            final IntList owned = this.ownedPets[term];
+            final int[] names = new int[owned.size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = nameOf(pets.remove(owned.get(i)));
+                this.petCounts[names[i]]--;
+            }
+            owned.clear();
+
+            for (int name : names) this.release(name);
+            this.release(term);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the terms that contain a text, ignoring case. Texts of one or
+     * two characters only find the terms that start with them. Terms that
+     * start with the text are returned first and, then, terms are sorted
+     * alphabetically, ignoring case. A term that is both a login and a pet
+     * name is returned once for each kind.
+     *
+     * @param text  the text to find.
+     * @param kind  the kind of terms to return. If {@code null}, terms of
+     *              every kind are returned.
+     * @param limit the maximum number of terms to return.
+     * @return the terms found, sorted from best to worst.
+     * @throws NullPointerException     if {@code text} is {@code null}.
+     * @throws IllegalArgumentException if {@code limit} is not positive.
+     */
+    public List<Suggestion> suggest(String text, Suggestion.Kind kind, int limit) {
+        if (text == null) throw new NullPointerException("text can't be null");
+        if (limit <= 0) throw new IllegalArgumentException("limit must be positive");
+
+        final String query = normalize(text.strip());
+        if (query.isEmpty()) return List.of();
+
+        lock.readLock().lock();
+        try {
+            return query.length() < 3 ? this.suggestPrefix(query, kind, limit) : this.suggestTrigrams(query, kind, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of distinct terms in use.
+     *
+     * @return the number of distinct terms in use.
+     */
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return termCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of pets indexed.
+     *
+     * @return the number of pets indexed.
+     */
+    public int getPetCount() {
+        lock.readLock().lock();
+        try {
+            return pets.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of owners indexed.
+     *
+     * @return the number of owners indexed.
+     */
+    public int getOwnerCount() {
+        lock.readLock().lock();
+        try {
+            return owners.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The postings of the prefixes are sorted like the suggestions, so the
+    // first terms found are the best ones
+    private List<Suggestion> suggestPrefix(String query, Suggestion.Kind kind, int limit) {
+        final Postings postings = grams.get(prefixKey(query, query.length()));
+        if (postings == null) return List.of();
+
+        final List<Suggestion> suggestions = new ArrayList<>(Math.min(limit, postings.size()));
+        for (int i = 0; i < postings.size() && suggestions.size() < limit; i++) {
+            final int term = postings.get(i);
+
+            if (kind != Suggestion.Kind.PET && owners.get(term)) {
+                suggestions.add(new Suggestion(Suggestion.Kind.OWNER, terms[term], 1));
+            }
+            if (kind != Suggestion.Kind.OWNER && petCounts[term] > 0 && suggestions.size() < limit) {
+                suggestions.add(new Suggestion(Suggestion.Kind.PET, terms[term], petCounts[term]));
+            }
+        }
+
+        return suggestions;
+    }
+
+    private List<Suggestion> suggestTrigrams(String query, Suggestion.Kind kind, int limit) {
+        // Worst match on top, so it is the one discarded when the queue is full
+        final PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+
+        for (int term : this.candidates(query)) {
+            final String candidate = terms[term];
+            final boolean prefix;
+
+            if (candidate.regionMatches(true, 0, query, 0, query.length())) {
+                prefix = true;
+            } else if (contains(candidate, query)) {
+                prefix = false;
+            } else {
+                continue;
+            }
+
+            if (kind != Suggestion.Kind.PET && owners.get(term)) {
+                offer(best, new Match(Suggestion.Kind.OWNER, candidate, 1, prefix), limit);
+            }
+            if (kind != Suggestion.Kind.OWNER && petCounts[term] > 0) {
+                offer(best, new Match(Suggestion.Kind.PET, candidate, petCounts[term], prefix), limit);
+            }
+        }
+
+        final List<Match> matches = new ArrayList<>(best);
+        matches.sort(BEST_FIRST);
+
+        final List<Suggestion> suggestions = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            suggestions.add(new Suggestion(match.kind, match.text, match.count));
+        }
+
+        return suggestions;
+    }
+
+    private int[] candidates(String query) {
+        final List<Postings> lists = new ArrayList<>(query.length() - 2);
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            final Postings postings = grams.get(trigramKey(query, i));
+            if (postings == null) return new int[0];
+
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingInt(Postings::size));
+
+        int[] candidates = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = lists.get(i).intersect(candidates);
+        }
+
+        return candidates;
+    }
+
+    private int intern(String term) {
+        final Integer existing = termIds.get(term);
+        if (existing != null) return existing;
+
+        final int id;
+        if (freeIds.size() > 0) {
+            id = freeIds.pop();
+        } else {
+            id = nextId++;
+
+            if (id == terms.length) {
+                this.terms = Arrays.copyOf(terms, id * 2);
+                this.petCounts = Arrays.copyOf(petCounts, id * 2);
+                this.ownedPets = Arrays.copyOf(ownedPets, id * 2);
+            }
+        }
+        this.terms[id] = term;
+        this.ownedPets[id] = new IntList();
+        this.termIds.put(term, id);
+        this.termCount++;
+
+        final String normalized = normalize(term);
+        for (int length = 1; length <= Math.min(2, normalized.length()); length++) {
+            final Postings postings = this.grams.computeIfAbsent(prefixKey(normalized, length));
+
+            postings.insert(this.position(postings, term), id);
+        }
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            this.grams.computeIfAbsent(trigramKey(normalized, i)).add(id);
+        }
+
+        return id;
+    }
+
+    // Removes the pet from the counts of its name and the pets of its owner
+    private void unlink(int id, long pet) {
+        this.petCounts[nameOf(pet)]--;
+
+        if (ownerOf(pet) >= 0) this.ownedPets[ownerOf(pet)].remove(id);
+    }
+
+    private void releaseTerms(long pet) {
+        this.release(nameOf(pet));
+
+        if (ownerOf(pet) >= 0) this.release(ownerOf(pet));
+    }
+
+    // Removes a term from its postings if no owner or pet uses it anymore.
+    // Nothing is done if the term was already released
+    private void release(int id) {
+        if (terms[id] == null || owners.get(id) || petCounts[id] > 0 || ownedPets[id].size() > 0) return;
+
+        final String term = terms[id];
+        final String normalized = normalize(term);
+        for (int length = 1; length <= Math.min(2, normalized.length()); length++) {
+            final long key = prefixKey(normalized, length);
+            final Postings postings = this.grams.get(key);
+
+            postings.removeAt(this.position(postings, term));
+            if (postings.size() == 0) this.grams.remove(key);
+        }
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            final long key = trigramKey(normalized, i);
+            final Postings postings = this.grams.get(key);
+
+            // A trigram repeated in the term was already removed
+            if (postings != null && postings.removeId(id) && postings.size() == 0) this.grams.remove(key);
+        }
+
+        this.termIds.remove(term);
+        this.terms[id] = null;
+        this.ownedPets[id] = null;
+        this.freeIds.add(id);
+        this.termCount--;
+    }
+
+    // Position of a term in the postings of a prefix or, if it is not there,
+    // the position where it has to be inserted
+    private int position(Postings postings, String term) {
+        int low = 0;
+        int high = postings.size();
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (TERM_ORDER.compare(terms[postings.get(middle)], term) < 0) low = middle + 1;
+            else high = middle;
+        }
+
+        return low;
+    }
+
+    private static void offer(PriorityQueue<Match> best, Match match, int limit) {
+        best.offer(match);
+
+        if (best.size() > limit) best.poll();
+    }
+
+    private static boolean contains(String term, String query) {
+        for (int i = 1; i + query.length() <= term.length(); i++) {
+            if (term.regionMatches(true, i, query, 0, query.length())) return true;
+        }
+
+        return false;
+    }
+
+    // Characters are lowered one by one, so positions do not change
+    private static String normalize(String text) {
+        final char[] chars = text.toCharArray();
+
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+
+        return new String(chars);
+    }
+
+    private static long trigramKey(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    // Prefixes are tagged with their length, so they never collide with trigrams
+    private static long prefixKey(String text, int length) {
+        long key = (long) length << 48;
+
+        for (int i = 0; i < length; i++) {
+            key |= (long) text.charAt(i) << (16 * (length - 1 - i));
+        }
+
+        return key;
+    }
+
+    private static long pack(int name, int owner) {
+        return ((long) name << 32) | (owner & 0xFFFFFFFFL);
+    }
+
+    private static int nameOf(long pet) {
+        return (int) (pet >>> 32);
+    }
+
+    private static int ownerOf(long pet) {
+        return (int) pet;
+    }
+
+    // Spreads the bits of a key over the slots of a table of a given mask
+    private static int slot(long key, int mask) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private record Match(Suggestion.Kind kind, String text, int count, boolean prefix) {
+    }
+
+    /**
+     * Unordered list of integers.
+     */
+    private static final class IntList {
+        private int[] values = new int[2];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+
+            values[size++] = value;
+        }
+
+        int pop() {
+            return values[--size];
+        }
+
+        // The last value takes the place of the one removed
+        void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    return;
+                }
+            }
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Identifiers of the terms that contain a gram, sorted by identifier for
+     * the trigrams and by term for the prefixes.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(int index) {
+            return ids[index];
+        }
+
+        // Identifiers usually grow, so they are appended unless one is reused
+        void add(int id) {
+            if (size == 0 || ids[size - 1] < id) this.insert(size, id);
+            else this.insert(-Arrays.binarySearch(ids, 0, size, id) - 1, id);
+        }
+
+        void insert(int position, int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        boolean removeId(int id) {
+            final int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) return false;
+
+            this.removeAt(position);
+            return true;
+        }
+
+        void removeAt(int position) {
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        int[] intersect(int[] sorted) {
+            final int[] result = new int[Math.min(size, sorted.length)];
+            int count = 0;
+
+            for (int i = 0, j = 0; i < size && j < sorted.length; ) {
+                if (ids[i] < sorted[j]) i++;
+                else if (ids[i] > sorted[j]) j++;
+                else {
+                    result[count++] = ids[i];
+                    i++;
+                    j++;
+                }
+            }
+
+            return Arrays.copyOf(result, count);
+        }
+    }
+
+    /**
+     * Open addressing table, with linear probing, from the keys of the grams
+     * to their postings.
+     */
+    private static final class GramTable {
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Postings[] values = new Postings[INITIAL_CAPACITY];
+        private int size;
+
+        Postings get(long key) {
+            final int mask = keys.length - 1;
+
+            for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+            }
+
+            return null;
+        }
+
+        Postings computeIfAbsent(long key) {
+            final int mask = keys.length - 1;
+
+            int i = slot(key, mask);
+            for (; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+            }
+
+            final Postings postings = new Postings();
+            keys[i] = key;
+            values[i] = postings;
+
+            // Tables are kept at most half full, so probes are short
+            if (++size * 2 > keys.length) this.resize();
+
+            return postings;
+        }
+
+        void remove(long key) {
+            final int mask = keys.length - 1;
+
+            int hole = slot(key, mask);
+            while (keys[hole] != key) hole = (hole + 1) & mask;
+
+            // Following entries are moved back unless it places them before
+            // their slot, so probes never find a gap before the key
+            for (int i = (hole + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+                if (((i - slot(keys[i], mask)) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    hole = i;
+                }
+            }
+
+            values[hole] = null;
+            size--;
+        }
+
+        private void resize() {
+            final long[] oldKeys = keys;
+            final Postings[] oldValues = values;
+
+            this.keys = new long[oldKeys.length * 2];
+            this.values = new Postings[oldValues.length * 2];
+
+            final int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] == null) continue;
+
+                int i = slot(oldKeys[j], mask);
+                while (values[i] != null) i = (i + 1) & mask;
+
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Open addressing table, with linear probing, from the identifiers of the
+     * pets to their packed terms. Packed terms are never negative, as names
+     * always have a term.
+     */
+    private static final class PetTable {
+        static final long ABSENT = -1L;
+
+        private int[] keys = new int[INITIAL_CAPACITY];
+        private long[] values = filled(INITIAL_CAPACITY);
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        long put(int key, long value) {
+            final int mask = keys.length - 1;
+
+            int i = slot(key, mask);
+            for (; values[i] != ABSENT; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    final long previous = values[i];
+                    values[i] = value;
+
+                    return previous;
+                }
+            }
+
+            keys[i] = key;
+            values[i] = value;
+
+            // Tables are kept at most half full, so probes are short
+            if (++size * 2 > keys.length) this.resize();
+
+            return ABSENT;
+        }
+
+        long remove(int key) {
+            final int mask = keys.length - 1;
+
+            int hole = slot(key, mask);
+            for (; values[hole] != ABSENT; hole = (hole + 1) & mask) {
+                if (keys[hole] == key) break;
+            }
+            if (values[hole] == ABSENT) return ABSENT;
+
+            final long previous = values[hole];
+
+            // Following entries are moved back unless it places them before
+            // their slot, so probes never find a gap before the key
+            for (int i = (hole + 1) & mask; values[i] != ABSENT; i = (i + 1) & mask) {
+                if (((i - slot(keys[i], mask)) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    hole = i;
+                }
+            }
+
+            values[hole] = ABSENT;
+            size--;
+
+            return previous;
+        }
+
+        private void resize() {
+            final int[] oldKeys = keys;
+            final long[] oldValues = values;
+
+            this.keys = new int[oldKeys.length * 2];
+            this.values = filled(oldValues.length * 2);
+
+            final int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] == ABSENT) continue;
+
+                int i = slot(oldKeys[j], mask);
+                while (values[i] != ABSENT) i = (i + 1) & mask;
+
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+
+        private static long[] filled(int length) {
+            final long[] values = new long[length];
+            Arrays.fill(values, ABSENT);
+
+            return values;
+        }
+    }
+}
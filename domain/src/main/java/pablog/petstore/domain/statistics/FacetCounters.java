@@ -0,0 +1,245 @@
+package pablog.petstore.domain.statistics;
+
+import pablog.petstore.domain.entities.AnimalType;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of owners and pets aggregated by type of animal, number of pets per
+ * owner and age, maintained incrementally as owners and pets change.
+ * <p>
+ * Aggregates are kept in striped {@link LongAdder}s, so concurrent changes do
+ * not contend on a single counter, and a {@link #snapshot()} reads a fixed
+ * number of counters, regardless of the number of owners and pets. Ages
+ * change with time, so pets are counted by month of birth and grouped by age
+ * when the snapshot is taken.
+ * <p>
+ * Bulk updates and deletes do not provide the previous values of the pets, so
+ * the type of animal, month of birth and owner of each pet are kept to
+ * subtract them when the pet changes. The identifiers of the pets are also
+ * indexed by owner, so removing an owner only visits its pets. Changes are
+ * idempotent: putting a pet
+ * with the same values or removing a pet twice does not change the counts.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class FacetCounters {
+    // Lower bounds of the ranges of pets per owner and of ages, in years
+    private static final int[] PET_COUNT_BOUNDS = {0, 1, 2, 3, 6, 11, 21};
+    private static final int[] AGE_BOUNDS = {0, 1, 3, 6, 11, 16};
+
+    private final Clock clock;
+
+    private final LongAdder owners = new LongAdder();
+    private final LongAdder pets = new LongAdder();
+    private final LongAdder[] petsByAnimal = adders(AnimalType.values().length);
+    private final LongAdder[] ownersByPetCount = adders(PET_COUNT_BOUNDS.length);
+    private final Map<Integer, LongAdder> petsByBirthMonth = new ConcurrentHashMap<>();
+
+    private final Map<String, Integer> petCounts = new ConcurrentHashMap<>();
+    private final Map<Integer, PetFacts> petFacts = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> petsByOwner = new ConcurrentHashMap<>();
+
+    /**
+     * Creates new empty counters that compute ages with the system clock, in
+     * UTC.
+     */
+    public FacetCounters() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Creates new empty counters.
+     *
+     * @param clock the clock used to compute the ages of the pets.
+     */
+    public FacetCounters(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Counts an owner. Nothing is done if the owner is already counted.
+     *
+     * @param login the login of the owner.
+     */
+    public void putOwner(String login) {
+        this.changePetCount(login, 0);
+    }
+
+    /**
+     * Stops counting an owner and all its pets.
+     *
+     * @param login the login of the owner.
+     */
+    public void removeOwner(String login) {
+        final Integer count = this.petCounts.remove(login);
+        if (count == null) return;
+
+        this.owners.decrement();
+        this.ownersByPetCount[bucket(PET_COUNT_BOUNDS, count)].decrement();
+
+        final Set<Integer> ids = this.petsByOwner.remove(login);
+        if (ids == null) return;
+
+        for (Integer id : ids) {
+            this.petFacts.computeIfPresent(id, (key, facts) -> {
+                if (!login.equals(facts.owner())) return facts;
+
+                this.subtract(id, facts, false);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Counts a pet or, if it is already counted, replaces its values.
+     *
+     * @param id     the identifier of the pet.
+     * @param owner  the login of the owner of the pet. May be {@code null}.
+     * @param animal the type of animal of the pet.
+     * @param birth  the date of birth of the pet.
+     * @throws NullPointerException if {@code animal} or {@code birth} are
+     *                              {@code null}.
+     */
+    public void putPet(int id, String owner, AnimalType animal, Date birth) {
+        final PetFacts facts = new PetFacts(owner, animal, monthOf(birth.getTime()));
+
+        this.petFacts.compute(id, (key, previous) -> {
+            if (facts.equals(previous)) return previous;
+
+            if (previous != null) this.subtract(id, previous, true);
+            this.add(id, facts);
+
+            return facts;
+        });
+    }
+
+    /**
+     * Stops counting a pet. Nothing is done if the pet is not counted.
+     *
+     * @param id the identifier of the pet.
+     */
+    public void removePet(int id) {
+        this.petFacts.computeIfPresent(id, (key, facts) -> {
+            this.subtract(id, facts, true);
+            return null;
+        });
+    }
+
+    /**
+     * Returns the current counts. The cost of this method does not depend on
+     * the number of owners and pets, only on the number of different months
+     * of birth.
+     *
+     * @return the current counts.
+     */
+    public FacetCounts snapshot() {
+        final Map<AnimalType, Long> byAnimal = new EnumMap<>(AnimalType.class);
+        for (AnimalType animal : AnimalType.values()) {
+            byAnimal.put(animal, this.petsByAnimal[animal.ordinal()].sum());
+        }
+
+        final Map<String, Long> byPetCount = new LinkedHashMap<>();
+        for (int i = 0; i < PET_COUNT_BOUNDS.length; i++) {
+            byPetCount.put(label(PET_COUNT_BOUNDS, i), this.ownersByPetCount[i].sum());
+        }
+
+        final long[] ages = new long[AGE_BOUNDS.length];
+        final int currentMonth = monthOf(this.clock.millis());
+        this.petsByBirthMonth.forEach((month, count) -> {
+            ages[bucket(AGE_BOUNDS, Math.max(0, currentMonth - month) / 12)] += count.sum();
+        });
+
+        final Map<String, Long> byAge = new LinkedHashMap<>();
+        for (int i = 0; i < AGE_BOUNDS.length; i++) {
+            byAge.put(label(AGE_BOUNDS, i), ages[i]);
+        }
+
+        return new FacetCounts(this.owners.sum(), this.pets.sum(), byAnimal, byPetCount, byAge);
+    }
+
+    private void add(int id, PetFacts facts) {
+        this.pets.increment();
+        this.petsByAnimal[facts.animal().ordinal()].increment();
+        this.petsByBirthMonth.computeIfAbsent(facts.birthMonth(), month -> new LongAdder()).increment();
+
+        if (facts.owner() != null) {
+            this.changePetCount(facts.owner(), 1);
+            this.petsByOwner.computeIfAbsent(facts.owner(), owner -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private void subtract(int id, PetFacts facts, boolean fromOwner) {
+        this.pets.decrement();
+        this.petsByAnimal[facts.animal().ordinal()].decrement();
+        // Empty months are kept, as they are bounded by the range of births
+        this.petsByBirthMonth.get(facts.birthMonth()).decrement();
+
+        if (fromOwner && facts.owner() != null) {
+            this.changePetCount(facts.owner(), -1);
+            this.petsByOwner.computeIfPresent(facts.owner(), (owner, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    // Pets may be counted before their new owner, so unknown owners are added
+    private void changePetCount(String login, int delta) {
+        this.petCounts.compute(login, (key, count) -> {
+            if (count == null) {
+                this.owners.increment();
+                this.ownersByPetCount[0].increment();
+                count = 0;
+            }
+
+            final int newCount = Math.max(0, count + delta);
+            if (newCount != count) {
+                this.ownersByPetCount[bucket(PET_COUNT_BOUNDS, count)].decrement();
+                this.ownersByPetCount[bucket(PET_COUNT_BOUNDS, newCount)].increment();
+            }
+
+            return newCount;
+        });
+    }
+
+    private static int monthOf(long millis) {
+        final YearMonth month = YearMonth.from(Instant.ofEpochMilli(millis).atOffset(ZoneOffset.UTC));
+
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    private static int bucket(int[] bounds, int value) {
+        int bucket = 0;
+        while (bucket + 1 < bounds.length && value >= bounds[bucket + 1]) bucket++;
+
+        return bucket;
+    }
+
+    private static String label(int[] bounds, int bucket) {
+        if (bucket + 1 == bounds.length) return bounds[bucket] + "+";
+
+        final int last = bounds[bucket + 1] - 1;
+        return last == bounds[bucket] ? Integer.toString(last) : bounds[bucket] + "-" + last;
+    }
+
+    private static LongAdder[] adders(int count) {
+        final LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) adders[i] = new LongAdder();
+
+        return adders;
+    }
+
+    private record PetFacts(String owner, AnimalType animal, int birthMonth) {
+    }
+}
@@ -0,0 +1,95 @@
+package pablog.petstore.domain.statistics;
+
+import pablog.petstore.domain.entities.AnimalType;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Snapshot of the aggregated counts of owners and pets maintained by
+ * {@link FacetCounters}. Each count is exact, but counts are read one by one,
+ * so a snapshot taken while pets are changing may mix values before and after
+ * a change.
+ */
+public class FacetCounts implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final long owners;
+    private final long pets;
+    private final Map<AnimalType, Long> petsByAnimal;
+    private final Map<String, Long> ownersByPetCount;
+    private final Map<String, Long> petsByAge;
+
+    /**
+     * Creates a new snapshot.
+     *
+     * @param owners           the number of owners.
+     * @param pets             the number of pets.
+     * @param petsByAnimal     the number of pets of each type of animal.
+     * @param ownersByPetCount the number of owners with each range of number
+     *                         of pets.
+     * @param petsByAge        the number of pets in each range of age, in
+     *                         years.
+     */
+    public FacetCounts(
+            long owners, long pets, Map<AnimalType, Long> petsByAnimal,
+            Map<String, Long> ownersByPetCount, Map<String, Long> petsByAge
+    ) {
+        this.owners = owners;
+        this.pets = pets;
+        this.petsByAnimal = petsByAnimal;
+        this.ownersByPetCount = ownersByPetCount;
+        this.petsByAge = petsByAge;
+    }
+
+    /**
+     * Returns the number of owners.
+     *
+     * @return the number of owners.
+     */
+    public long getOwners() {
+        return owners;
+    }
+
+    /**
+     * Returns the number of pets.
+     *
+     * @return the number of pets.
+     */
+    public long getPets() {
+        return pets;
+    }
+
+    /**
+     * Returns the number of pets of each type of animal, including the types
+     * without pets.
+     *
+     * @return the number of pets of each type of animal.
+     */
+    public Map<AnimalType, Long> getPetsByAnimal() {
+        return petsByAnimal;
+    }
+
+    /**
+     * Returns the distribution of the number of pets per owner: the number of
+     * owners with each range of number of pets, such as {@code 0} or
+     * {@code 3-5}, in ascending order.
+     *
+     * @return the number of owners with each range of number of pets.
+     */
+    public Map<String, Long> getOwnersByPetCount() {
+        return ownersByPetCount;
+    }
+
+    /**
+     * Returns the number of pets in each range of age, in complete years,
+     * such as {@code 0} or {@code 1-2}, in ascending order.
+     *
+     * @return the number of pets in each range of age.
+     */
+    public Map<String, Long> getPetsByAge() {
+        return petsByAge;
+    }
+}
@@ -0,0 +1,58 @@
+package pablog.petstore.domain.statistics;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.entities.Owner;
+import pablog.petstore.domain.entities.Pet;
+
+import java.util.Date;
+
+/**
+ * Entity listener that keeps the {@link Facets} counters in sync with the
+ * owners and pets written through the entity manager. Bulk updates and
+ * deletes do not notify entity listeners, so they must change the counters
+ * explicitly.
+ */
+public class FacetListener {
+    /**
+     * Counts an owner or a pet after it is inserted or updated.
+     *
+     * @param entity the owner or pet saved.
+     */
+    @PostPersist
+    @PostUpdate
+    void saved(Object entity) {
+        if (entity instanceof Pet pet) {
+            final int id = pet.getId();
+            final String owner = pet.getOwner() == null ? null : pet.getOwner().getLogin();
+            final AnimalType animal = pet.getAnimal();
+            final Date birth = pet.getBirth();
+
+            Facets.afterCommit(counters -> counters.putPet(id, owner, animal, birth));
+        } else if (entity instanceof Owner owner) {
+            final String login = owner.getLogin();
+
+            Facets.afterCommit(counters -> counters.putOwner(login));
+        }
+    }
+
+    /**
+     * Stops counting an owner or a pet after it is deleted.
+     *
+     * @param entity the owner or pet deleted.
+     */
+    @PostRemove
+    void removed(Object entity) {
+        if (entity instanceof Pet pet) {
+            final int id = pet.getId();
+
+            Facets.afterCommit(counters -> counters.removePet(id));
+        } else if (entity instanceof Owner owner) {
+            final String login = owner.getLogin();
+
+            Facets.afterCommit(counters -> counters.removeOwner(login));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package pablog.petstore.domain.statistics;
+
+import pablog.petstore.domain.persistence.ReplicatedState;
+
+import java.util.function.Consumer;
+
+/**
+ * Holds the {@link FacetCounters} of the application, shared by every
+ * component of the deployment. Changes are applied once the transaction that
+ * makes them is committed, as described in {@link ReplicatedState}.
+ */
+public final class Facets {
+    private static final ReplicatedState<FacetCounters> COUNTERS = new ReplicatedState<>(new FacetCounters());
+
+    private Facets() {
+    }
+
+    /**
+     * Returns the current counters.
+     *
+     * @return the current counters.
+     */
+    public static FacetCounters counters() {
+        return COUNTERS.get();
+    }
+
+    /**
+     * Applies a change to the counters once the transaction of the current
+     * thread is committed or, if there is no active transaction, immediately.
+     *
+     * @param change the change to apply.
+     */
+    public static void afterCommit(Consumer<FacetCounters> change) {
+        COUNTERS.afterCommit(change);
+    }
+
+    /**
+     * Replaces the counters with new ones filled by a loader. The loader must
+     * read the entities after this method is called, so the changes committed
+     * meanwhile are not lost. Concurrent rebuilds are run one after another.
+     *
+     * @param loader the loader that fills the new counters.
+     */
+    public static void rebuild(Consumer<FacetCounters> loader) {
+        COUNTERS.rebuild(new FacetCounters(), loader);
+    }
+}
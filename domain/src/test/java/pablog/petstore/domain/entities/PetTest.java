@@ -217,4 +217,28 @@ public class PetTest {
 		assertThat(pet.getOwner(), is(nullValue()));
 		assertThat(owner.ownsPet(pet), is(false));
 	}
+
+	@Test
+	public void testAttachTo() {
+		final Pet pet = new Pet(name, animalType, birth);
+		
+		pet.attachTo(owner);
+		
+		assertThat(pet.getOwner(), is(equalTo(owner)));
+		assertThat(owner.ownsPet(pet), is(false));
+	}
+
+	@Test
+	public void testAttachToNull() {
+		final Pet pet = new Pet(name, animalType, birth);
+		
+		assertThrows(NullPointerException.class, () -> pet.attachTo(null));
+	}
+
+	@Test
+	public void testAttachToWithOwner() {
+		final Pet pet = new Pet(name, animalType, birth, owner);
+		
+		assertThrows(IllegalStateException.class, () -> pet.attachTo(newOwner));
+	}
 }
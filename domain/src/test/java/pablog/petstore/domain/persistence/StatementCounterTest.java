@@ -0,0 +1,109 @@
+package pablog.petstore.domain.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StatementCounterTest {
+	private static final String SQL = "select 1";
+
+	private final StatementCounter counter = new StatementCounter();
+
+	@Test
+	public void testInspectWithoutScope() {
+		assertThat(counter.inspect(SQL), is(SQL));
+		assertThat(StatementCounter.current(), is(nullValue()));
+	}
+
+	@Test
+	public void testNestedScopes() {
+		try (StatementCounter.Scope outer = StatementCounter.open()) {
+			counter.inspect(SQL);
+
+			try (StatementCounter.Scope inner = StatementCounter.open()) {
+				assertThat(StatementCounter.current(), is(sameInstance(inner)));
+
+				counter.inspect(SQL);
+				assertThat(inner.getCount(), is(1L));
+			}
+
+			assertThat(StatementCounter.current(), is(sameInstance(outer)));
+			assertThat(outer.getCount(), is(2L));
+		}
+
+		assertThat(StatementCounter.current(), is(nullValue()));
+	}
+
+	@Test
+	public void testBudget() {
+		try (StatementCounter.Scope scope = StatementCounter.open()) {
+			scope.allow(1);
+			scope.allow(1);
+
+			counter.inspect(SQL);
+			counter.inspect(SQL);
+			assertThat(scope.isOverBudget(), is(false));
+
+			counter.inspect(SQL);
+			assertThat(scope.getBudget(), is(2L));
+			assertThat(scope.isOverBudget(), is(true));
+		}
+	}
+
+	@Test
+	public void testEnforcedBudget() {
+		try (StatementCounter.Scope scope = StatementCounter.open()) {
+			scope.allow(1);
+			scope.enforce();
+
+			counter.inspect(SQL);
+
+			final StatementBudgetExceededException exception =
+				assertThrows(StatementBudgetExceededException.class, () -> counter.inspect(SQL));
+			assertThat(exception.getBudget(), is(1L));
+		}
+	}
+
+	@Test
+	public void testNegativeBudget() {
+		try (StatementCounter.Scope scope = StatementCounter.open()) {
+			assertThrows(IllegalArgumentException.class, () -> scope.allow(-1));
+		}
+	}
+
+	@Test
+	public void testBindInOtherThread() throws Exception {
+		try (StatementCounter.Scope scope = StatementCounter.open();
+			 ExecutorService executor = Executors.newSingleThreadExecutor()) {
+			executor.submit(() -> {
+				try (StatementCounter.Binding ignored = scope.bind()) {
+					counter.inspect(SQL);
+				}
+
+				assertThat(StatementCounter.current(), is(nullValue()));
+			}).get();
+
+			assertThat(scope.getCount(), is(1L));
+		}
+	}
+
+	@Test
+	public void testAllowCurrentScope() {
+		StatementCounter.allow(1);
+
+		try (StatementCounter.Scope outer = StatementCounter.open();
+		     StatementCounter.Scope inner = StatementCounter.open()) {
+			StatementCounter.allow(2);
+
+			assertThat(inner.getBudget(), is(2L));
+			assertThat(outer.getBudget(), is(0L));
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package pablog.petstore.domain.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TermIndexTest {
+	private TermIndex index;
+
+	@BeforeEach
+	public void setUp() {
+		index = new TermIndex();
+
+		index.putOwner("pepe");
+		index.putOwner("juan");
+		index.putOwner("ana");
+		index.putPet(1, "Pepecat", "pepe");
+		index.putPet(2, "Max", "juan");
+		index.putPet(3, "Juandog", "juan");
+		index.putPet(4, "Anacat", "ana");
+		index.putPet(5, "Max", "ana");
+		index.putPet(6, "Anabird", "ana");
+	}
+
+	@Test
+	public void testSuggestShortPrefix() {
+		assertThat(texts(index.suggest("a", null, 10)), contains("OWNER:ana", "PET:Anabird", "PET:Anacat"));
+		assertThat(texts(index.suggest("JU", null, 10)), contains("OWNER:juan", "PET:Juandog"));
+	}
+
+	@Test
+	public void testSuggestShortTextOnlyMatchesPrefixes() {
+		assertThat(index.suggest("ax", null, 10), is(empty()));
+	}
+
+	@Test
+	public void testSuggestPrefixesBeforeInfixes() {
+		assertThat(texts(index.suggest("CAT", null, 10)), contains("PET:Anacat", "PET:Pepecat"));
+		assertThat(texts(index.suggest("ana", null, 10)), contains("OWNER:ana", "PET:Anabird", "PET:Anacat"));
+		assertThat(texts(index.suggest("uan", null, 10)), contains("OWNER:juan", "PET:Juandog"));
+	}
+
+	@Test
+	public void testSuggestVerifiesCandidates() {
+		index.putPet(7, "abcxbcd", "ana");
+
+		assertThat(index.suggest("abcd", null, 10), is(empty()));
+	}
+
+	@Test
+	public void testSuggestByKind() {
+		assertThat(texts(index.suggest("an", Suggestion.Kind.OWNER, 10)), contains("OWNER:ana"));
+		assertThat(texts(index.suggest("an", Suggestion.Kind.PET, 10)), contains("PET:Anabird", "PET:Anacat"));
+	}
+
+	@Test
+	public void testSuggestLimit() {
+		assertThat(texts(index.suggest("a", null, 2)), contains("OWNER:ana", "PET:Anabird"));
+	}
+
+	@Test
+	public void testSuggestCountsPetsWithTheSameName() {
+		final List<Suggestion> suggestions = index.suggest("max", null, 10);
+
+		assertThat(suggestions.size(), is(1));
+		assertThat(suggestions.get(0).getCount(), is(2));
+	}
+
+	@Test
+	public void testRenamePet() {
+		index.putPet(2, "Rex", "juan");
+
+		assertThat(index.suggest("max", null, 10).get(0).getCount(), is(1));
+		assertThat(texts(index.suggest("re", null, 10)), contains("PET:Rex"));
+		assertThat(index.getPetCount(), is(6));
+	}
+
+	@Test
+	public void testRemovePet() {
+		index.removePet(1);
+		index.removePet(100);
+
+		assertThat(index.suggest("pepec", null, 10), is(empty()));
+		assertThat(index.getPetCount(), is(5));
+	}
+
+	@Test
+	public void testRemoveOwnerRemovesItsPets() {
+		index.removeOwner("ana");
+		index.removeOwner("unknown");
+
+		assertThat(index.suggest("an", null, 10), is(empty()));
+		assertThat(index.suggest("max", null, 10).get(0).getCount(), is(1));
+		assertThat(index.getOwnerCount(), is(2));
+		assertThat(index.getPetCount(), is(3));
+	}
+
+	@Test
+	public void testSuggestShortPrefixLimitIsSorted() {
+		index.putPet(7, "aaron", "pepe");
+		index.putPet(8, "Abby", "pepe");
+
+		assertThat(texts(index.suggest("a", null, 3)), contains("PET:aaron", "PET:Abby", "OWNER:ana"));
+	}
+
+	@Test
+	public void testRemoveOwnerReleasesUnusedTerms() {
+		final int terms = index.getTermCount();
+
+		index.putOwner("lorena");
+		index.putPet(7, "Lorenacat", "lorena");
+		index.putPet(8, "lorena", "lorena");
+		index.removeOwner("lorena");
+
+		assertThat(index.getTermCount(), is(terms));
+		assertThat(index.suggest("lo", null, 10), is(empty()));
+		assertThat(index.suggest("ena", null, 10), is(empty()));
+	}
+
+	@Test
+	public void testReleasedTermsAreReused() {
+		index.removePet(2);
+		index.removePet(5);
+		index.putPet(7, "Maxi", "juan");
+		index.putPet(8, "Rex", "juan");
+
+		assertThat(texts(index.suggest("max", null, 10)), contains("PET:Maxi"));
+		assertThat(texts(index.suggest("rex", null, 10)), contains("PET:Rex"));
+		assertThat(texts(index.suggest("r", null, 10)), contains("PET:Rex"));
+	}
+
+	@Test
+	public void testSuggestBlankText() {
+		assertThat(index.suggest("  ", null, 10), is(empty()));
+	}
+
+	@Test
+	public void testSuggestInvalidArguments() {
+		assertThrows(NullPointerException.class, () -> index.suggest(null, null, 10));
+		assertThrows(IllegalArgumentException.class, () -> index.suggest("a", null, 0));
+	}
+
+	private static List<String> texts(List<Suggestion> suggestions) {
+		return suggestions.stream().map(Suggestion::toString).toList();
+	}
+}
@@ -0,0 +1,131 @@
+package pablog.petstore.domain.statistics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pablog.petstore.domain.entities.AnimalType;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+public class FacetCountersTest {
+	private static final Instant NOW = Instant.parse("2020-06-15T00:00:00Z");
+
+	private FacetCounters counters;
+
+	@BeforeEach
+	public void setUp() {
+		counters = new FacetCounters(Clock.fixed(NOW, ZoneOffset.UTC));
+
+		counters.putOwner("pepe");
+		counters.putOwner("juan");
+		counters.putOwner("ana");
+		counters.putOwner("lorena");
+		counters.putPet(1, "pepe", AnimalType.CAT, born("2020-01-01"));
+		counters.putPet(2, "juan", AnimalType.CAT, born("2019-01-01"));
+		counters.putPet(3, "juan", AnimalType.DOG, born("2015-01-01"));
+		counters.putPet(4, "ana", AnimalType.CAT, born("2010-01-01"));
+		counters.putPet(5, "ana", AnimalType.DOG, born("2000-01-01"));
+		counters.putPet(6, "ana", AnimalType.BIRD, born("2000-01-01"));
+	}
+
+	@Test
+	public void testSnapshot() {
+		final FacetCounts counts = counters.snapshot();
+
+		assertThat(counts.getOwners(), is(4L));
+		assertThat(counts.getPets(), is(6L));
+		assertThat(counts.getPetsByAnimal(), is(Map.of(AnimalType.DOG, 2L, AnimalType.CAT, 3L, AnimalType.BIRD, 1L)));
+		assertThat(counts.getOwnersByPetCount().keySet(), contains("0", "1", "2", "3-5", "6-10", "11-20", "21+"));
+		assertThat(List.copyOf(counts.getOwnersByPetCount().values()), contains(1L, 1L, 1L, 1L, 0L, 0L, 0L));
+		assertThat(counts.getPetsByAge().keySet(), contains("0", "1-2", "3-5", "6-10", "11-15", "16+"));
+		assertThat(List.copyOf(counts.getPetsByAge().values()), contains(1L, 1L, 1L, 1L, 0L, 2L));
+	}
+
+	@Test
+	public void testPutOwnerTwice() {
+		counters.putOwner("juan");
+
+		assertThat(counters.snapshot().getOwners(), is(4L));
+		assertThat(counters.snapshot().getOwnersByPetCount().get("2"), is(1L));
+	}
+
+	@Test
+	public void testUpdatePet() {
+		counters.putPet(3, "juan", AnimalType.BIRD, born("2020-01-01"));
+
+		final FacetCounts counts = counters.snapshot();
+		assertThat(counts.getPets(), is(6L));
+		assertThat(counts.getPetsByAnimal().get(AnimalType.DOG), is(1L));
+		assertThat(counts.getPetsByAnimal().get(AnimalType.BIRD), is(2L));
+		assertThat(counts.getPetsByAge().get("0"), is(2L));
+		assertThat(counts.getPetsByAge().get("3-5"), is(0L));
+	}
+
+	@Test
+	public void testPutPetTwiceCountsItOnce() {
+		counters.putPet(1, "pepe", AnimalType.CAT, born("2020-01-01"));
+
+		assertThat(counters.snapshot().getPets(), is(6L));
+		assertThat(counters.snapshot().getOwnersByPetCount().get("1"), is(1L));
+	}
+
+	@Test
+	public void testMovePetToOtherOwner() {
+		counters.putPet(1, "lorena", AnimalType.CAT, born("2020-01-01"));
+
+		final FacetCounts counts = counters.snapshot();
+		assertThat(counts.getOwnersByPetCount().get("0"), is(1L));
+		assertThat(counts.getOwnersByPetCount().get("1"), is(1L));
+	}
+
+	@Test
+	public void testRemovePet() {
+		counters.removePet(6);
+		counters.removePet(6);
+		counters.removePet(100);
+
+		final FacetCounts counts = counters.snapshot();
+		assertThat(counts.getPets(), is(5L));
+		assertThat(counts.getPetsByAnimal().get(AnimalType.BIRD), is(0L));
+		assertThat(counts.getOwnersByPetCount().get("2"), is(2L));
+		assertThat(counts.getOwnersByPetCount().get("3-5"), is(0L));
+		assertThat(counts.getPetsByAge().get("16+"), is(1L));
+	}
+
+	@Test
+	public void testRemoveOwnerRemovesItsPets() {
+		counters.removeOwner("ana");
+		counters.removeOwner("unknown");
+
+		final FacetCounts counts = counters.snapshot();
+		assertThat(counts.getOwners(), is(3L));
+		assertThat(counts.getPets(), is(3L));
+		assertThat(counts.getPetsByAnimal(), is(Map.of(AnimalType.DOG, 1L, AnimalType.CAT, 2L, AnimalType.BIRD, 0L)));
+		assertThat(counts.getOwnersByPetCount().get("3-5"), is(0L));
+		assertThat(counts.getPetsByAge().get("16+"), is(0L));
+	}
+
+	@Test
+	public void testRemoveOwnerKeepsPetsMovedToOtherOwner() {
+		counters.putPet(4, "lorena", AnimalType.CAT, born("2010-01-01"));
+		counters.removeOwner("ana");
+		counters.removeOwner("lorena");
+
+		final FacetCounts counts = counters.snapshot();
+		assertThat(counts.getOwners(), is(2L));
+		assertThat(counts.getPets(), is(3L));
+		assertThat(counts.getPetsByAge().get("6-10"), is(0L));
+	}
+
+	private static Date born(String date) {
+		return Date.from(Instant.parse(date + "T00:00:00Z"));
+	}
+}
@@ -7,6 +7,7 @@ plugins {
 dependencies {
     implementation(project(":domain"))
     implementation(project(":service"))
+    compileOnly(project(":security"))
 
     compileOnly(platform(libs.jakarta.bom))
     compileOnly(libs.jakarta.faces.api)
@@ -15,18 +15,21 @@ import jakarta.security.enterprise.credential.UsernamePasswordCredential;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import pablog.petstore.security.AccessEvent;
+import pablog.petstore.security.AccessLog;
 
-import java.util.logging.Logger;
+import java.security.Principal;
 
 @Named
 @RequestScoped
 public class LoginManagedBean {
 
-    private static final Logger log = Logger.getLogger(LoginManagedBean.class.getName());
-
     @Inject
     private SecurityContext securityContext;
 
+    @Inject
+    private AccessLog accessLog;
+
     private String username;
     private String password;
 
@@ -48,29 +51,25 @@ public class LoginManagedBean {
                     AuthenticationParameters.withParams().credential(credential)
             );
 
-            log.info(String.format("AuthenticationStatus for user '%s': %s", username, status));
-
+            // Successful and failed logins are recorded by the authentication mechanism
             switch (status) {
                 case SEND_CONTINUE:
-                    log.info("Container will handle authentication (redirect/forward). Stopping JSF lifecycle.");
                     facesContext.responseComplete();
                     return null;
                 case SEND_FAILURE:
-                    log.info(String.format("Authentication failed for user '%s'. Possible reasons: bad credentials, account locked, etc.", username));
                     facesContext.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR,
                             "Login Failed", "Invalid credentials or account issue"));
                     return null;
                 case SUCCESS:
-                    log.info(String.format("User '%s' successfully authenticated.", username));
                     return "/index.xhtml?faces-redirect=true";
                 default:
-                    log.info(String.format("Unexpected AuthenticationStatus '%s' for user '%s'", status, username));
+                    accessLog.log(AccessEvent.LOGIN_FAILED, request, username, "unexpected status " + status);
                     facesContext.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR,
                             "Login Failed", "Unexpected status: " + status));
                     return null;
             }
         } catch (Exception e) {
-            log.info(String.format("Unexpected exception during authentication for user '%s': %s", username, e.getMessage()));
+            accessLog.log(AccessEvent.LOGIN_FAILED, request, username, e.toString());
             facesContext.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR,
                     "Login Failed", "Unexpected error: " + e.getMessage()));
             return null;
@@ -81,6 +80,11 @@ public class LoginManagedBean {
         FacesContext context = FacesContext.getCurrentInstance();
         HttpServletRequest request = (HttpServletRequest) context.getExternalContext().getRequest();
 
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            accessLog.log(AccessEvent.LOGOUT, request, principal.getName(), null);
+        }
+
         try {
             request.logout();
             request.getSession().invalidate();
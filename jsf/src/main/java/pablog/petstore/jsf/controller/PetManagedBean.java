@@ -11,6 +11,7 @@ import pablog.petstore.domain.entities.Pet;
 import pablog.petstore.service.PetService;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -41,14 +42,16 @@ public class PetManagedBean implements Serializable {
         try {
             Pet pet = new Pet(name, type, birth);
             // The service will assign the owner based on the logged-in user
-            petService.create(pet);
+            Pet created = petService.create(pet);
             
             // Reset form
             this.name = null;
             this.type = null;
             this.birth = null;
             
-            loadPets();
+            // The new pet is appended instead of reading all the pets again
+            this.pets = new ArrayList<>(this.pets);
+            this.pets.add(created);
             
             FacesContext.getCurrentInstance().addMessage(null, 
                 new FacesMessage(FacesMessage.SEVERITY_INFO, "Success", "Pet added successfully"));
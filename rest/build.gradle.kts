@@ -5,14 +5,22 @@ plugins {
 dependencies {
     implementation(project(":domain"))
     implementation(project(":service"))
+    compileOnly(project(":security"))
 
     compileOnly(platform(libs.jakarta.bom))
     compileOnly(libs.jakarta.ws.rs.api)
+    compileOnly(libs.jakarta.annotation.api)
+    compileOnly(libs.jakarta.concurrency.api)
+    compileOnly(libs.jakarta.jsonb.api)
+    compileOnly(libs.jakarta.json.api)
     compileOnly(libs.jakarta.ejb.api)
     compileOnly(libs.jakarta.persistence.api)
     compileOnly(libs.jakarta.inject.api)
     compileOnly(libs.jakarta.cdi.api)
     compileOnly(libs.jakarta.security.enterprise.api)
+    compileOnly(libs.jakarta.servlet.api)
+    // Statement inspector interface of the statement counter
+    compileOnly(libs.hibernate.core)
 
     // Test support from tests module
     testImplementation(project(":tests"))
@@ -21,11 +29,20 @@ dependencies {
     // Jakarta APIs for test compilation
     testImplementation(platform(libs.jakarta.bom))
     testImplementation(libs.jakarta.ws.rs.api)
+    testImplementation(libs.jakarta.annotation.api)
+    testImplementation(libs.jakarta.concurrency.api)
     testImplementation(libs.jakarta.ejb.api)
     testImplementation(libs.jakarta.persistence.api)
     testImplementation(libs.jakarta.inject.api)
     testImplementation(libs.jakarta.cdi.api)
     testImplementation(libs.jakarta.security.enterprise.api)
+    testImplementation(libs.jakarta.servlet.api)
+    testImplementation(libs.jakarta.jsonb.api)
+    testImplementation(libs.jakarta.json.api)
+    testImplementation(libs.hibernate.core)
+
+    // JSON-B implementation, to check that the entity writers produce the same output
+    testImplementation(libs.yasson)
 
     // JUnit 5
     testImplementation(platform(libs.junit.bom))
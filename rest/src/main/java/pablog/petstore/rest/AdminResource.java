@@ -0,0 +1,239 @@
+package pablog.petstore.rest;
+
+import jakarta.ejb.EJB;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import pablog.petstore.domain.statistics.FacetCounts;
+import pablog.petstore.security.AccessLog;
+import pablog.petstore.security.AccessLogStatistics;
+import pablog.petstore.security.AuthenticationCache;
+import pablog.petstore.security.AuthenticationCacheStatistics;
+import pablog.petstore.service.CacheRegion;
+import pablog.petstore.service.CacheService;
+import pablog.petstore.service.FacetService;
+import pablog.petstore.service.OrmStatistics;
+import pablog.petstore.service.OrmStatisticsMonitor;
+import pablog.petstore.service.SuggestionService;
+
+/**
+ * Resource that exposes the administration operations of the application.
+ */
+@Path("admin")
+@Produces(MediaType.APPLICATION_JSON)
+public class AdminResource {
+    @EJB
+    private CacheService cacheService;
+
+    @EJB
+    private OrmStatisticsMonitor ormStatisticsMonitor;
+
+    @EJB
+    private SuggestionService suggestionService;
+
+    @EJB
+    private FacetService facetService;
+
+    @Inject
+    private AuthenticationCache authenticationCache;
+
+    @Inject
+    private AccessLog accessLog;
+
+    @Inject
+    private CompressionInterceptor compressionInterceptor;
+
+    @Inject
+    private LatencyFilter latencyFilter;
+
+    /**
+     * Returns the usage statistics of every second-level and query cache
+     * region.
+     *
+     * @return an {@code OK} response containing the list of
+     * {@link CacheRegion}s.
+     */
+    @Path("cache")
+    @GET
+    public Response getCacheRegions() {
+        return Response.ok(this.cacheService.getRegions()).build();
+    }
+
+    /**
+     * Removes all the elements stored in the cache regions.
+     *
+     * @return an empty {@code OK} response.
+     */
+    @Path("cache")
+    @DELETE
+    public Response evictCache() {
+        this.cacheService.evictAll();
+
+        return Response.ok().build();
+    }
+
+    /**
+     * Removes all the elements stored in a cache region.
+     *
+     * @param region the name of the region.
+     * @return an empty {@code OK} response.
+     * @throws IllegalArgumentException if {@code region} is {@code null} or
+     *                                  it does not identify a cache region.
+     */
+    @Path("cache/{region}")
+    @DELETE
+    public Response evictCacheRegion(@PathParam("region") String region) {
+        if (region == null) throw new IllegalArgumentException("region can't be null");
+
+        if (this.cacheService.evict(region)) return Response.ok().build();
+        else throw new IllegalArgumentException("Cache region not found: " + region);
+    }
+
+    /**
+     * Returns the statistics of the persistence unit: statements, queries,
+     * entity and collection loads, and cache hit ratios.
+     *
+     * @return an {@code OK} response containing the {@link OrmStatistics}.
+     */
+    @Path("orm")
+    @GET
+    public Response getOrmStatistics() {
+        return Response.ok(this.ormStatisticsMonitor.getStatistics()).build();
+    }
+
+    /**
+     * Resets the statistics of the persistence unit.
+     *
+     * @return an empty {@code OK} response.
+     */
+    @Path("orm")
+    @DELETE
+    public Response clearOrmStatistics() {
+        this.ormStatisticsMonitor.clear();
+
+        return Response.ok().build();
+    }
+
+    /**
+     * Returns the usage statistics of the cache of authentication results.
+     *
+     * @return an {@code OK} response containing the
+     * {@link AuthenticationCacheStatistics}.
+     */
+    @Path("auth-cache")
+    @GET
+    public Response getAuthenticationCacheStatistics() {
+        return Response.ok(this.authenticationCache.getStatistics()).build();
+    }
+
+    /**
+     * Removes all the cached authentication results.
+     *
+     * @return an empty {@code OK} response.
+     */
+    @Path("auth-cache")
+    @DELETE
+    public Response clearAuthenticationCache() {
+        this.authenticationCache.clear();
+
+        return Response.ok().build();
+    }
+
+    /**
+     * Reloads the index of typeahead suggestions from the database. The
+     * current index keeps serving suggestions while the new one is loaded.
+     *
+     * @return an empty {@code OK} response.
+     */
+    @Path("suggestions")
+    @POST
+    public Response rebuildSuggestions() {
+        this.suggestionService.rebuild();
+
+        return Response.ok().build();
+    }
+
+    /**
+     * Returns the number of owners and pets, the number of pets of each type
+     * of animal and in each range of age, and the number of owners with each
+     * range of number of pets. Counts are maintained in memory as owners and
+     * pets change, so they are read without accessing the database.
+     *
+     * @return an {@code OK} response containing the {@link FacetCounts}.
+     */
+    @Path("facets")
+    @GET
+    public Response getFacetCounts() {
+        return Response.ok(this.facetService.getCounts()).build();
+    }
+
+    /**
+     * Recomputes the counts of owners and pets from the database. The current
+     * counts keep being served while the new ones are computed.
+     *
+     * @return an empty {@code OK} response.
+     */
+    @Path("facets")
+    @POST
+    public Response rebuildFacetCounts() {
+        this.facetService.rebuild();
+
+        return Response.ok().build();
+    }
+
+    /**
+     * Returns the usage statistics of the access log: events recorded,
+     * written, dropped because the buffer was full and discarded by sampling.
+     *
+     * @return an {@code OK} response containing the
+     * {@link AccessLogStatistics}.
+     */
+    @Path("access-log")
+    @GET
+    public Response getAccessLogStatistics() {
+        return Response.ok(this.accessLog.getStatistics()).build();
+    }
+
+    /**
+     * Returns the usage statistics of the compression of responses.
+     *
+     * @return an {@code OK} response containing the
+     * {@link CompressionStatistics}.
+     */
+    @Path("compression")
+    @GET
+    public Response getCompressionStatistics() {
+        return Response.ok(this.compressionInterceptor.getStatistics()).build();
+    }
+
+    /**
+     * Returns the latency statistics of every endpoint requested.
+     *
+     * @return an {@code OK} response containing the list of
+     * {@link EndpointLatency}s.
+     */
+    @Path("latency")
+    @GET
+    public Response getLatencyStatistics() {
+        return Response.ok(this.latencyFilter.getStatistics()).build();
+    }
+
+    /**
+     * Returns the latency statistics of every endpoint requested in the
+     * Prometheus text format, so they can be scraped by a Prometheus server.
+     *
+     * @return an {@code OK} response containing the metrics.
+     */
+    @Path("metrics")
+    @GET
+    @Produces(PrometheusFormat.CONTENT_TYPE)
+    public Response getMetrics() {
+        return Response.ok(PrometheusFormat.format(this.latencyFilter.getStatistics())).build();
+    }
+}
@@ -0,0 +1,185 @@
+package pablog.petstore.rest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ContextService;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.core.Response;
+import pablog.petstore.domain.persistence.StatementCounter;
+import pablog.petstore.service.RequestStatistics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Executor of the asynchronous resource methods. Each task runs in its own
+ * virtual thread, so requests waiting on the database do not hold a worker
+ * thread of the container.
+ * <p>
+ * Tasks are wrapped by the default {@link ContextService} of the container,
+ * so they run with the security identity, naming and class loader of the
+ * request that submitted them. This way, services such as {@code PetService}
+ * see the same caller principal as in synchronous requests. The
+ * {@link RequestStatistics} and the {@link StatementCounter.Scope} bound to
+ * the request thread, if any, are also bound to the thread that runs the task.
+ * <p>
+ * The executor is configured with the following system properties:
+ * <ul>
+ *   <li>{@value #TIMEOUT_PROPERTY}: maximum time, in seconds, a request can
+ *   wait for its task. Requests that time out receive a
+ *   {@code SERVICE_UNAVAILABLE} response and their tasks are cancelled,
+ *   interrupting the thread that runs them. 0 disables the timeout. Defaults to
+ *   {@value #DEFAULT_TIMEOUT_SECONDS}.</li>
+ *   <li>{@value #VIRTUAL_THREADS_PROPERTY}: if {@code false}, tasks run in
+ *   the default {@link ManagedExecutorService} of the container instead of
+ *   virtual threads. Defaults to {@code true}.</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class AsyncExecutor {
+    /**
+     * System property with the maximum time, in seconds, a request can wait
+     * for its task.
+     */
+    public static final String TIMEOUT_PROPERTY = "petstore.async.timeout-seconds";
+    /**
+     * System property that selects whether tasks run in virtual threads or in
+     * the default {@link ManagedExecutorService} of the container.
+     */
+    public static final String VIRTUAL_THREADS_PROPERTY = "petstore.async.virtual-threads";
+
+    private static final long DEFAULT_TIMEOUT_SECONDS = 30;
+
+    @Resource
+    private ContextService contextService;
+
+    @Resource
+    private ManagedExecutorService managedExecutor;
+
+    private ExecutorService executor;
+    private ExecutorService virtualThreads;
+    private long timeoutSeconds;
+
+    /**
+     * Creates a new executor. The executor of the tasks and the timeout are
+     * configured when the bean is started by the container.
+     */
+    public AsyncExecutor() {
+    }
+
+    AsyncExecutor(ContextService contextService, ExecutorService executor, long timeoutSeconds) {
+        this.contextService = contextService;
+        this.executor = executor;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @PostConstruct
+    void start() {
+        this.timeoutSeconds = Long.getLong(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT_SECONDS);
+
+        if (Boolean.parseBoolean(System.getProperty(VIRTUAL_THREADS_PROPERTY, "true"))) {
+            this.virtualThreads = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("petstore-rest-", 0).factory()
+            );
+            this.executor = this.virtualThreads;
+        } else {
+            this.executor = this.managedExecutor;
+        }
+    }
+
+    /**
+     * Runs a task asynchronously and resumes the response with its result. If
+     * the task throws an exception, the response is resumed with it, so it is
+     * mapped as if it had been thrown by a synchronous resource method.
+     *
+     * @param asyncResponse the suspended response.
+     * @param task          the task that produces the entity or the
+     *                      {@link Response} to send.
+     */
+    public void submit(AsyncResponse asyncResponse, Supplier<?> task) {
+        final AtomicReference<Future<?>> running = new AtomicReference<>();
+
+        if (this.timeoutSeconds > 0) {
+            asyncResponse.setTimeoutHandler(timedOut -> {
+                timedOut.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+
+                // The task is interrupted, so it stops waiting for the database. If it is not
+                // submitted yet, it is cancelled by submit, as the response is already done
+                final Future<?> future = running.get();
+                if (future != null) future.cancel(true);
+            });
+            asyncResponse.setTimeout(this.timeoutSeconds, TimeUnit.SECONDS);
+        }
+
+        final StatementCounter.Scope statements = StatementCounter.current();
+        final RequestStatistics statistics = RequestStatistics.current();
+        final Runnable contextualTask = this.contextService.contextualRunnable(() -> {
+            // The response may have timed out while the task was waiting to run
+            if (asyncResponse.isDone()) return;
+
+            final StatementCounter.Binding statementsBinding = statements == null ? null : statements.bind();
+            final RequestStatistics.Binding statisticsBinding = statistics == null ? null : statistics.bind();
+            try {
+                this.resume(asyncResponse, task);
+            } finally {
+                if (statisticsBinding != null) statisticsBinding.close();
+                if (statementsBinding != null) statementsBinding.close();
+            }
+        });
+
+        final Future<?> future;
+        try {
+            future = this.executor.submit(contextualTask);
+        } catch (RejectedExecutionException ree) {
+            asyncResponse.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+            return;
+        }
+
+        running.set(future);
+        // The timeout handler may have run before the task was stored
+        if (asyncResponse.isDone()) future.cancel(true);
+    }
+
+    /**
+     * Returns the default {@link ManagedExecutorService} of the container, for
+     * the work that a task splits in parallel. Unlike the common fork-join
+     * pool, its threads are managed by the container.
+     *
+     * @return the default {@link ManagedExecutorService} of the container.
+     */
+    public ManagedExecutorService getManagedExecutor() {
+        return this.managedExecutor;
+    }
+
+    /**
+     * Runs a task in the current thread and resumes the response with its
+     * result. If the task throws an exception, the response is resumed with
+     * it.
+     *
+     * @param asyncResponse the suspended response.
+     * @param task          the task that produces the entity or the
+     *                      {@link Response} to send.
+     */
+    public void resume(AsyncResponse asyncResponse, Supplier<?> task) {
+        try {
+            asyncResponse.resume(task.get());
+        } catch (RuntimeException re) {
+            asyncResponse.resume(re);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (this.virtualThreads != null) {
+            this.virtualThreads.shutdown();
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package pablog.petstore.rest;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compresses the response bodies with {@code gzip} or {@code deflate}, as
+ * negotiated with the {@code Accept-Encoding} header of the request.
+ * <p>
+ * The body is buffered until it reaches a minimum size, so small responses
+ * are sent uncompressed. {@link Deflater}s are taken from a pool, so the
+ * native zlib memory is not allocated for each response. The statistics of
+ * the interceptor, including the bytes saved and the CPU time spent
+ * compressing, are available through {@link #getStatistics()}. The JVM does
+ * not measure the CPU time of virtual threads, so the time spent compressing
+ * on them, as the responses resumed by the {@link AsyncExecutor}, is measured
+ * as wall time.
+ * <p>
+ * A compressed body is a different representation, so the content coding is
+ * appended to the value of its {@code ETag}, like {@code "3-gzip"}.
+ * {@link EntityTags} removes the suffix when the tag is sent back in an
+ * {@code If-None-Match} or {@code If-Match} header.
+ * <p>
+ * The interceptor is configured with the following system properties:
+ * <ul>
+ *   <li>{@value #MIN_SIZE_PROPERTY}: minimum size, in bytes, of the
+ *   responses compressed. Defaults to {@value #DEFAULT_MIN_SIZE}.</li>
+ *   <li>{@value #LEVEL_PROPERTY}: compression level, from 0 to 9. Defaults
+ *   to the zlib default level.</li>
+ *   <li>{@value #POOL_SIZE_PROPERTY}: maximum number of idle
+ *   {@code Deflater}s kept for each encoding. Defaults to twice the number of
+ *   processors.</li>
+ * </ul>
+ */
+@Provider
+@ApplicationScoped
+@Priority(Priorities.ENTITY_CODER)
+public class CompressionInterceptor implements ContainerResponseFilter, WriterInterceptor {
+    public static final String MIN_SIZE_PROPERTY = "petstore.compression.min-size";
+    public static final String LEVEL_PROPERTY = "petstore.compression.level";
+    public static final String POOL_SIZE_PROPERTY = "petstore.compression.pool-size";
+
+    private static final int DEFAULT_MIN_SIZE = 1024;
+    private static final int BUFFER_SIZE = 8192;
+    // Request property where the filter leaves the encoding negotiated
+    private static final String ENCODING_PROPERTY = CompressionInterceptor.class.getName() + ".encoding";
+
+    private static final byte[] GZIP_HEADER = {
+            0x1F, (byte) 0x8B, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xFF
+    };
+
+    /**
+     * Content codings supported.
+     */
+    enum Encoding {
+        GZIP("gzip"), DEFLATE("deflate");
+
+        private final String token;
+
+        Encoding(String token) {
+            this.token = token;
+        }
+
+        String token() {
+            return token;
+        }
+
+        /**
+         * Returns the entity tag of the representation of a body compressed
+         * with this encoding.
+         *
+         * @param tag the entity tag of the uncompressed body.
+         * @return the entity tag of the compressed body.
+         */
+        EntityTag tag(EntityTag tag) {
+            return new EntityTag(tag.getValue() + "-" + token, tag.isWeak());
+        }
+    }
+
+    private final int minSize;
+    private final LongSupplier cpuClock;
+    private final DeflaterPool gzipDeflaters;
+    private final DeflaterPool deflateDeflaters;
+
+    private final LongAdder compressed;
+    private final LongAdder uncompressed;
+    private final LongAdder bytesIn;
+    private final LongAdder bytesOut;
+    private final LongAdder cpuTime;
+
+    public CompressionInterceptor() {
+        this(
+                Integer.getInteger(MIN_SIZE_PROPERTY, DEFAULT_MIN_SIZE),
+                Integer.getInteger(LEVEL_PROPERTY, Deflater.DEFAULT_COMPRESSION),
+                Integer.getInteger(POOL_SIZE_PROPERTY, 2 * Runtime.getRuntime().availableProcessors()),
+                threadCpuClock()
+        );
+    }
+
+    CompressionInterceptor(int minSize, int level, int poolSize, LongSupplier cpuClock) {
+        if (minSize < 0)
+            throw new IllegalArgumentException("minSize can't be negative");
+
+        this.minSize = minSize;
+        this.cpuClock = cpuClock;
+        this.gzipDeflaters = new DeflaterPool(level, true, poolSize);
+        this.deflateDeflaters = new DeflaterPool(level, false, poolSize);
+
+        this.compressed = new LongAdder();
+        this.uncompressed = new LongAdder();
+        this.bytesIn = new LongAdder();
+        this.bytesOut = new LongAdder();
+        this.cpuTime = new LongAdder();
+    }
+
+    /**
+     * Negotiates the encoding of the response body, which will be applied
+     * when it is written.
+     *
+     * @param requestContext  the context of the request.
+     * @param responseContext the context of the response.
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (!responseContext.hasEntity() || responseContext.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return;
+        }
+
+        responseContext.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        final Encoding encoding = negotiate(requestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding != null) {
+            requestContext.setProperty(ENCODING_PROPERTY, encoding);
+        }
+    }
+
+    /**
+     * Writes the response body compressed with the encoding negotiated, if it
+     * is not smaller than the minimum size.
+     *
+     * @param context the context of the response body.
+     * @throws IOException if an error happens while writing the body.
+     */
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        if (!(context.getProperty(ENCODING_PROPERTY) instanceof Encoding encoding)
+                || context.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            context.proceed();
+            return;
+        }
+
+        final OutputStream out = context.getOutputStream();
+        final CompressingOutputStream compressing = new CompressingOutputStream(context, out, encoding);
+
+        context.setOutputStream(compressing);
+        try {
+            context.proceed();
+            compressing.finish();
+        } finally {
+            compressing.release();
+            context.setOutputStream(out);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the usage statistics of the interceptor.
+     *
+     * @return a snapshot of the usage statistics of the interceptor.
+     */
+    public CompressionStatistics getStatistics() {
+        return new CompressionStatistics(
+                compressed.sum(),
+                uncompressed.sum(),
+                bytesIn.sum(),
+                bytesOut.sum(),
+                cpuTime.sum()
+        );
+    }
+
+    @PreDestroy
+    void close() {
+        this.gzipDeflaters.clear();
+        this.deflateDeflaters.clear();
+    }
+
+    /**
+     * Chooses the encoding preferred by an {@code Accept-Encoding} header.
+     * {@code gzip} is chosen when both encodings have the same quality.
+     *
+     * @param acceptEncoding the value of the {@code Accept-Encoding} header.
+     * May be {@code null}.
+     * @return the encoding preferred or {@code null} if no supported encoding
+     * is accepted.
+     */
+    static Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) return null;
+
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            final String[] parameters = coding.split(";");
+            final double quality = quality(parameters);
+
+            switch (parameters[0].trim().toLowerCase(Locale.ROOT)) {
+                case "gzip", "x-gzip" -> gzip = Math.max(gzip, quality);
+                case "deflate" -> deflate = Math.max(deflate, quality);
+                case "*" -> any = Math.max(any, quality);
+                default -> {
+                }
+            }
+        }
+
+        if (gzip < 0) gzip = any;
+        if (deflate < 0) deflate = any;
+
+        if (gzip <= 0 && deflate <= 0) return null;
+        else return gzip >= deflate ? Encoding.GZIP : Encoding.DEFLATE;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            final String parameter = parameters[i].trim();
+
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException nfe) {
+                    return 0;
+                }
+            }
+        }
+
+        return 1;
+    }
+
+    /**
+     * Returns a clock of the CPU time of the current thread, in nanoseconds.
+     * On virtual threads, or if the JVM does not measure the CPU time of the
+     * threads, it returns {@link System#nanoTime()}, so the differences are
+     * wall time.
+     *
+     * @return a clock of the CPU time of the current thread.
+     */
+    static LongSupplier threadCpuClock() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if (threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled()) {
+            // The CPU time of virtual threads is always -1
+            return () -> Thread.currentThread().isVirtual() ? System.nanoTime() : threads.getCurrentThreadCpuTime();
+        } else {
+            return System::nanoTime;
+        }
+    }
+
+    /**
+     * Stream that buffers the body until it reaches the minimum size. If the
+     * body is smaller, it is written uncompressed when the stream is finished.
+     * Otherwise, the {@code Content-Encoding} header is set, as nothing has
+     * been written yet, and the body is compressed.
+     */
+    private final class CompressingOutputStream extends OutputStream {
+        private final WriterInterceptorContext context;
+        private final OutputStream out;
+        private final Encoding encoding;
+        private final byte[] buffer;
+        private final byte[] singleByte;
+        private int count;
+        private boolean finished;
+
+        private DeflaterPool pool;
+        private Deflater deflater;
+        private CountingOutputStream counting;
+        private DeflaterOutputStream deflating;
+        private CRC32 crc;
+        private long written;
+        private long cpuNanos;
+
+        CompressingOutputStream(WriterInterceptorContext context, OutputStream out, Encoding encoding) {
+            this.context = context;
+            this.out = out;
+            this.encoding = encoding;
+            this.buffer = new byte[minSize];
+            this.singleByte = new byte[1];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.singleByte[0] = (byte) b;
+            this.write(this.singleByte, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (this.deflating == null) {
+                if (len <= this.buffer.length - this.count) {
+                    System.arraycopy(b, off, this.buffer, this.count, len);
+                    this.count += len;
+                    return;
+                }
+
+                this.start();
+                this.compress(this.buffer, 0, this.count);
+            }
+
+            this.compress(b, off, len);
+        }
+
+        // Headers can not be changed once the body is flushed, so nothing is
+        // flushed until compression has been decided
+        @Override
+        public void flush() throws IOException {
+            if (this.deflating != null) {
+                final long start = cpuClock.getAsLong();
+                this.deflating.flush();
+                this.cpuNanos += cpuClock.getAsLong() - start;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.finish();
+            this.out.close();
+        }
+
+        void finish() throws IOException {
+            if (this.finished) return;
+            this.finished = true;
+
+            if (this.deflating == null) {
+                this.out.write(this.buffer, 0, this.count);
+                uncompressed.increment();
+                return;
+            }
+
+            final long start = cpuClock.getAsLong();
+            this.deflating.finish();
+            if (this.crc != null) {
+                writeIntLittleEndian(this.counting, (int) this.crc.getValue());
+                writeIntLittleEndian(this.counting, (int) this.written);
+            }
+            this.cpuNanos += cpuClock.getAsLong() - start;
+
+            compressed.increment();
+            bytesIn.add(this.written);
+            bytesOut.add(this.counting.count);
+            cpuTime.add(this.cpuNanos);
+        }
+
+        void release() {
+            if (this.deflater != null) {
+                this.pool.release(this.deflater);
+                this.deflater = null;
+            }
+        }
+
+        private void start() throws IOException {
+            this.context.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, this.encoding.token());
+            this.context.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            this.tagEncoding();
+
+            this.pool = this.encoding == Encoding.GZIP ? gzipDeflaters : deflateDeflaters;
+            this.deflater = this.pool.acquire();
+            this.counting = new CountingOutputStream(this.out);
+
+            if (this.encoding == Encoding.GZIP) {
+                this.crc = new CRC32();
+                this.counting.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+            }
+
+            this.deflating = new DeflaterOutputStream(this.counting, this.deflater, BUFFER_SIZE, true);
+        }
+
+        private void tagEncoding() {
+            final Object etag = this.context.getHeaders().getFirst(HttpHeaders.ETAG);
+            if (etag == null) return;
+
+            final List<EntityTag> tags = etag instanceof EntityTag tag ? List.of(tag) : EntityTags.parse(etag.toString());
+            if (!tags.isEmpty()) {
+                this.context.getHeaders().putSingle(HttpHeaders.ETAG, this.encoding.tag(tags.getFirst()));
+            }
+        }
+
+        private void compress(byte[] b, int off, int len) throws IOException {
+            final long start = cpuClock.getAsLong();
+            this.deflating.write(b, off, len);
+            if (this.crc != null) this.crc.update(b, off, len);
+            this.cpuNanos += cpuClock.getAsLong() - start;
+
+            this.written += len;
+        }
+    }
+
+    private static void writeIntLittleEndian(OutputStream out, int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write(value >>> 8 & 0xFF);
+        out.write(value >>> 16 & 0xFF);
+        out.write(value >>> 24 & 0xFF);
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package pablog.petstore.rest;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Snapshot of the usage statistics of the {@link CompressionInterceptor}.
+ */
+public class CompressionStatistics implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final long compressedCount;
+    private final long uncompressedCount;
+    private final long bytesIn;
+    private final long bytesOut;
+    private final long cpuTimeNanos;
+
+    public CompressionStatistics(long compressedCount, long uncompressedCount, long bytesIn, long bytesOut, long cpuTimeNanos) {
+        this.compressedCount = compressedCount;
+        this.uncompressedCount = uncompressedCount;
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+        this.cpuTimeNanos = cpuTimeNanos;
+    }
+
+    /**
+     * Returns the number of responses compressed.
+     *
+     * @return the number of responses compressed.
+     */
+    public long getCompressedCount() {
+        return compressedCount;
+    }
+
+    /**
+     * Returns the number of responses that accepted compression but were sent
+     * uncompressed because they were smaller than the minimum size.
+     *
+     * @return the number of responses sent uncompressed.
+     */
+    public long getUncompressedCount() {
+        return uncompressedCount;
+    }
+
+    /**
+     * Returns the size of the compressed responses before compressing them.
+     *
+     * @return the size of the compressed responses before compressing them, in
+     * bytes.
+     */
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    /**
+     * Returns the size of the compressed responses sent.
+     *
+     * @return the size of the compressed responses sent, in bytes.
+     */
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * Returns the number of bytes saved by compressing responses.
+     *
+     * @return the number of bytes saved by compressing responses.
+     */
+    public long getBytesSaved() {
+        return bytesIn - bytesOut;
+    }
+
+    /**
+     * Returns the CPU time spent compressing responses. The time spent on
+     * virtual threads, whose CPU time is not measured by the JVM, is wall
+     * time.
+     *
+     * @return the CPU time spent compressing responses, in nanoseconds.
+     */
+    public long getCpuTimeNanos() {
+        return cpuTimeNanos;
+    }
+
+    /**
+     * Returns the ratio between the size of the compressed responses and their
+     * original size.
+     *
+     * @return the ratio between the size of the compressed responses and their
+     * original size, or 1 if no response was compressed.
+     */
+    public double getCompressionRatio() {
+        return bytesIn == 0 ? 1d : (double) bytesOut / bytesIn;
+    }
+}
@@ -0,0 +1,81 @@
+package pablog.petstore.rest;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Bounded pool of {@link Deflater}s with the same configuration. Each
+ * {@code Deflater} holds native zlib memory, so reusing them avoids allocating
+ * and releasing that memory for every response.
+ * <p>
+ * When the pool is empty a new {@code Deflater} is created, and when it is
+ * full the {@code Deflater}s released are ended.
+ */
+final class DeflaterPool {
+    private final int level;
+    private final boolean nowrap;
+    private final BlockingQueue<Deflater> deflaters;
+
+    /**
+     * Creates a new pool.
+     *
+     * @param level    the compression level of the {@code Deflater}s.
+     * @param nowrap   if {@code true}, the {@code Deflater}s will not write
+     *                 the zlib header and checksum, as required by GZIP.
+     * @param capacity the maximum number of idle {@code Deflater}s kept.
+     * @throws IllegalArgumentException if {@code capacity} is lower than 1.
+     */
+    DeflaterPool(int level, boolean nowrap, int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive");
+
+        this.level = level;
+        this.nowrap = nowrap;
+        this.deflaters = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Takes an idle {@code Deflater} from the pool or creates a new one.
+     *
+     * @return a {@code Deflater} ready to compress a new stream.
+     */
+    Deflater acquire() {
+        final Deflater deflater = this.deflaters.poll();
+
+        return deflater == null ? new Deflater(this.level, this.nowrap) : deflater;
+    }
+
+    /**
+     * Returns a {@code Deflater} to the pool. If the pool is full, the
+     * {@code Deflater} is ended.
+     *
+     * @param deflater a {@code Deflater} obtained from {@link #acquire()}.
+     */
+    void release(Deflater deflater) {
+        deflater.reset();
+
+        if (!this.deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Returns the number of idle {@code Deflater}s in the pool.
+     *
+     * @return the number of idle {@code Deflater}s in the pool.
+     */
+    int size() {
+        return this.deflaters.size();
+    }
+
+    /**
+     * Ends every idle {@code Deflater} of the pool.
+     */
+    void clear() {
+        Deflater deflater;
+        while ((deflater = this.deflaters.poll()) != null) {
+            deflater.end();
+        }
+    }
+}
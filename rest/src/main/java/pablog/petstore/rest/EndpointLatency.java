@@ -0,0 +1,137 @@
+package pablog.petstore.rest;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Snapshot of the latency statistics of a REST endpoint, recorded by the
+ * {@link LatencyFilter}.
+ */
+public class EndpointLatency implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String method;
+    private final String path;
+    private final long count;
+    private final long sumNanos;
+    private final long maxNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final Map<Integer, Long> statusCounts;
+
+    public EndpointLatency(
+            String method, String path,
+            long count, long sumNanos, long maxNanos,
+            long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos,
+            Map<Integer, Long> statusCounts
+    ) {
+        this.method = method;
+        this.path = path;
+        this.count = count;
+        this.sumNanos = sumNanos;
+        this.maxNanos = maxNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.statusCounts = Collections.unmodifiableMap(new TreeMap<>(statusCounts));
+    }
+
+    /**
+     * Returns the HTTP method of the endpoint.
+     *
+     * @return the HTTP method of the endpoint.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the path template of the endpoint, relative to the application
+     * path (e.g. {@code /owners/{login}}).
+     *
+     * @return the path template of the endpoint.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the number of requests served.
+     *
+     * @return the number of requests served.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the total time spent serving requests.
+     *
+     * @return the total time spent serving requests, in nanoseconds.
+     */
+    public long getSumNanos() {
+        return sumNanos;
+    }
+
+    /**
+     * Returns the latency of the slowest request.
+     *
+     * @return the latency of the slowest request, in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Returns the median latency.
+     *
+     * @return the median latency, in nanoseconds.
+     */
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    /**
+     * Returns the 90th percentile of the latency.
+     *
+     * @return the 90th percentile of the latency, in nanoseconds.
+     */
+    public long getP90Nanos() {
+        return p90Nanos;
+    }
+
+    /**
+     * Returns the 99th percentile of the latency.
+     *
+     * @return the 99th percentile of the latency, in nanoseconds.
+     */
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    /**
+     * Returns the 99.9th percentile of the latency.
+     *
+     * @return the 99.9th percentile of the latency, in nanoseconds.
+     */
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    /**
+     * Returns the number of responses sent with each HTTP status code.
+     *
+     * @return the number of responses sent, indexed by status code, in
+     * ascending order of status code.
+     */
+    public Map<Integer, Long> getStatusCounts() {
+        return statusCounts;
+    }
+}
@@ -0,0 +1,151 @@
+package pablog.petstore.rest;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.json.Json;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParserFactory;
+import jakarta.json.stream.JsonParsingException;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.Provider;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.rest.entity.OwnerCreationData;
+import pablog.petstore.rest.entity.OwnerEditionData;
+import pablog.petstore.rest.entity.PetData;
+
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads the {@link OwnerCreationData}, {@link OwnerEditionData} and
+ * {@link PetData} sent to the REST API, without the reflection of JSON-B.
+ * <p>
+ * The documents are parsed as JSON-B does with its default configuration:
+ * unknown properties are ignored, enums are read by name and dates are read
+ * in the default JSON-B format, with UTC as the zone when the date has none.
+ * Malformed documents are rejected with a {@link BadRequestException}.
+ */
+@Provider
+@ApplicationScoped
+@Consumes(MediaType.APPLICATION_JSON)
+public class EntityJsonReader implements MessageBodyReader<Object> {
+    private static final JsonParserFactory PARSERS = Json.createParserFactory(Map.of());
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_DATE_TIME.withZone(ZoneId.of("UTC"));
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == PetData.class || type == OwnerCreationData.class || type == OwnerEditionData.class;
+    }
+
+    @Override
+    public Object readFrom(
+            Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, String> httpHeaders, InputStream entityStream
+    ) {
+        try (JsonParser parser = PARSERS.createParser(entityStream, UTF_8)) {
+            if (!parser.hasNext()) return null;
+
+            final JsonParser.Event event = parser.next();
+            if (event == JsonParser.Event.VALUE_NULL) return null;
+            if (event != JsonParser.Event.START_OBJECT)
+                throw new BadRequestException("JSON object expected");
+
+            if (type.equals(PetData.class)) return readPetData(parser);
+            else if (type.equals(OwnerCreationData.class)) return readOwnerCreationData(parser);
+            else return readOwnerEditionData(parser);
+        } catch (JsonParsingException | IllegalStateException | NoSuchElementException e) {
+            throw new BadRequestException("Invalid JSON: " + e.getMessage(), e);
+        }
+    }
+
+    private static PetData readPetData(JsonParser parser) {
+        String name = null;
+        AnimalType animal = null;
+        Date birth = null;
+
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            switch (parser.getString()) {
+                case "name" -> name = readString(parser);
+                case "animal" -> {
+                    final String value = readString(parser);
+
+                    try {
+                        animal = value == null ? null : AnimalType.valueOf(value);
+                    } catch (IllegalArgumentException iae) {
+                        throw new BadRequestException("Invalid animal: " + value);
+                    }
+                }
+                case "birth" -> {
+                    final String value = readString(parser);
+
+                    try {
+                        birth = value == null ? null : Date.from(Instant.from(DATE_FORMATTER.parse(value)));
+                    } catch (DateTimeParseException dtpe) {
+                        throw new BadRequestException("Invalid birth: " + value);
+                    }
+                }
+                default -> skipValue(parser);
+            }
+        }
+
+        return new PetData(name, animal, birth);
+    }
+
+    private static OwnerCreationData readOwnerCreationData(JsonParser parser) {
+        String login = null;
+        String password = null;
+
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            switch (parser.getString()) {
+                case "login" -> login = readString(parser);
+                case "password" -> password = readString(parser);
+                default -> skipValue(parser);
+            }
+        }
+
+        return new OwnerCreationData(login, password);
+    }
+
+    private static OwnerEditionData readOwnerEditionData(JsonParser parser) {
+        String password = null;
+
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            if (parser.getString().equals("password")) password = readString(parser);
+            else skipValue(parser);
+        }
+
+        return new OwnerEditionData(password);
+    }
+
+    private static String readString(JsonParser parser) {
+        return switch (parser.next()) {
+            case VALUE_STRING -> parser.getString();
+            case VALUE_NULL -> null;
+            default -> throw new BadRequestException("JSON string expected");
+        };
+    }
+
+    private static void skipValue(JsonParser parser) {
+        switch (parser.next()) {
+            case START_OBJECT -> parser.skipObject();
+            case START_ARRAY -> parser.skipArray();
+            default -> {
+                // Scalar values are already consumed
+            }
+        }
+    }
+}
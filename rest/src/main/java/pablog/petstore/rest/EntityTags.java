@@ -0,0 +1,119 @@
+package pablog.petstore.rest;
+
+import jakarta.ws.rs.core.EntityTag;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser and evaluator of the entity tags of the {@code If-Match} and
+ * {@code If-None-Match} headers.
+ * <p>
+ * Headers are evaluated without the current request, so conditional requests
+ * can be evaluated by the thread that reads the entity instead of the one
+ * that received the request.
+ * <p>
+ * The {@link CompressionInterceptor} appends the content coding to the tags of
+ * compressed bodies, like {@code "3-gzip"}. That suffix is removed from the
+ * tags parsed, so a tag received with a compressed body matches the tag of
+ * the entity. The tags of the application never end with a content coding,
+ * as they are made of numbers and hexadecimal hashes.
+ */
+final class EntityTags {
+    /**
+     * Value of the headers that matches any entity tag.
+     */
+    static final String ANY = "*";
+
+    private EntityTags() {
+    }
+
+    /**
+     * Checks if a header matches any entity tag.
+     *
+     * @param header the value of an {@code If-Match} or {@code If-None-Match}
+     *               header.
+     * @return {@code true} if the header is {@value #ANY}.
+     */
+    static boolean isAny(String header) {
+        return header.strip().equals(ANY);
+    }
+
+    /**
+     * Evaluates an {@code If-None-Match} header, that uses the weak
+     * comparison of entity tags.
+     *
+     * @param ifNoneMatch the value of the {@code If-None-Match} header.
+     * @param current     the entity tag of the current representation.
+     * @return {@code true} if the header matches the current tag, so a
+     * {@code GET} request must be answered with {@code NOT_MODIFIED}.
+     */
+    static boolean matchesWeakly(String ifNoneMatch, EntityTag current) {
+        if (isAny(ifNoneMatch)) return true;
+
+        for (EntityTag tag : parse(ifNoneMatch)) {
+            if (tag.getValue().equals(current.getValue())) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Evaluates an {@code If-Match} header, that uses the strong comparison
+     * of entity tags, so weak tags never match.
+     *
+     * @param ifMatch the value of the {@code If-Match} header.
+     * @param current the entity tag of the current representation.
+     * @return {@code true} if the header matches the current tag, so the
+     * request can be processed.
+     */
+    static boolean matchesStrongly(String ifMatch, EntityTag current) {
+        if (isAny(ifMatch)) return true;
+        if (current.isWeak()) return false;
+
+        for (EntityTag tag : parse(ifMatch)) {
+            if (!tag.isWeak() && tag.getValue().equals(current.getValue())) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Parses the comma separated list of entity tags of a header, removing
+     * the content coding of the tags of compressed bodies. Malformed tags are
+     * ignored.
+     *
+     * @param header the value of an {@code If-Match} or {@code If-None-Match}
+     *               header.
+     * @return the entity tags of the header, in the same order.
+     */
+    static List<EntityTag> parse(String header) {
+        final List<EntityTag> tags = new ArrayList<>();
+
+        int position = 0;
+        while (position < header.length()) {
+            final int start = header.indexOf('"', position);
+            if (start < 0) break;
+
+            final int end = header.indexOf('"', start + 1);
+            if (end < 0) break;
+
+            final boolean weak = start >= 2 && header.startsWith("W/", start - 2);
+            tags.add(new EntityTag(withoutEncoding(header.substring(start + 1, end)), weak));
+
+            position = end + 1;
+        }
+
+        return tags;
+    }
+
+    private static String withoutEncoding(String value) {
+        for (CompressionInterceptor.Encoding encoding : CompressionInterceptor.Encoding.values()) {
+            final String suffix = "-" + encoding.token();
+
+            if (value.endsWith(suffix)) return value.substring(0, value.length() - suffix.length());
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,131 @@
+package pablog.petstore.rest;
+
+import pablog.petstore.service.OwnerService;
+import pablog.petstore.service.PetService;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Sparse fieldset requested with the {@code fields} and {@code embed} query
+ * parameters.
+ * <p>
+ * The {@code fields} parameter is a comma separated list of the fields to
+ * return. The fields of the pets of an owner can be requested with the
+ * {@code pets.} prefix, and {@code pets} requests all of them. The
+ * {@code embed} parameter is a comma separated list of the associations to
+ * return, with all their fields, that may only include {@code pets}. The
+ * identifiers of the owners and pets are always returned.
+ */
+final class Fieldset {
+    private static final String PETS = OwnerService.PETS_FIELD;
+    private static final String PETS_PREFIX = PETS + ".";
+
+    private final Set<String> fields;
+    private final Set<String> petFields;
+
+    private Fieldset(Set<String> fields, Set<String> petFields) {
+        this.fields = fields;
+        this.petFields = petFields;
+    }
+
+    /**
+     * Parses the fieldset of the owners.
+     *
+     * @param fields the value of the {@code fields} parameter. If
+     *               {@code null}, all the fields of the owners will be
+     *               returned.
+     * @param embed  the value of the {@code embed} parameter.
+     * @return the requested fieldset or {@code null} if none of the parameters
+     * is provided.
+     * @throws IllegalArgumentException if any field or association is not
+     *                                  valid.
+     */
+    static Fieldset ofOwners(String fields, String embed) {
+        if (fields == null && embed == null) return null;
+
+        final Set<String> ownerFields = new LinkedHashSet<>();
+        Set<String> petFields = null;
+
+        if (fields == null) {
+            ownerFields.addAll(OwnerService.FIELDS);
+        } else {
+            for (String field : split(fields)) {
+                if (field.equals(PETS)) {
+                    petFields = new LinkedHashSet<>(PetService.FIELDS);
+                } else if (field.startsWith(PETS_PREFIX)) {
+                    if (petFields == null) petFields = new LinkedHashSet<>();
+
+                    petFields.add(check(field.substring(PETS_PREFIX.length()), PetService.FIELDS));
+                } else {
+                    ownerFields.add(check(field, OwnerService.FIELDS));
+                }
+            }
+        }
+
+        if (embed != null) {
+            for (String association : split(embed)) {
+                if (!association.equals(PETS))
+                    throw new IllegalArgumentException("Unknown association: " + association);
+
+                if (petFields == null) petFields = new LinkedHashSet<>(PetService.FIELDS);
+            }
+        }
+
+        return new Fieldset(ownerFields, petFields);
+    }
+
+    /**
+     * Parses the fieldset of the pets.
+     *
+     * @param fields the value of the {@code fields} parameter.
+     * @return the requested fields or {@code null} if the parameter is not
+     * provided.
+     * @throws IllegalArgumentException if any field is not valid.
+     */
+    static Set<String> ofPets(String fields) {
+        if (fields == null) return null;
+
+        final Set<String> petFields = new LinkedHashSet<>();
+        for (String field : split(fields)) {
+            petFields.add(check(field, PetService.FIELDS));
+        }
+
+        return petFields;
+    }
+
+    /**
+     * Returns the fields of the owners.
+     *
+     * @return the fields of the owners.
+     */
+    Set<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * Returns the fields of the pets of the owners.
+     *
+     * @return the fields of the pets of the owners or {@code null} if pets
+     * are not requested.
+     */
+    Set<String> getPetFields() {
+        return petFields;
+    }
+
+    private static List<String> split(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .toList();
+    }
+
+    private static String check(String field, List<String> valid) {
+        if (!valid.contains(field))
+            throw new IllegalArgumentException("Unknown field: " + field);
+
+        return field;
+    }
+}
@@ -0,0 +1,290 @@
+package pablog.petstore.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Buffered output that writes JSON values as UTF-8 bytes, producing the same
+ * bytes as JSON-B with its default configuration.
+ * <p>
+ * Strings are escaped as JSON-P does: quotation marks, reverse solidi and
+ * control characters are escaped, and any other character is written as is.
+ * Dates are written in the default JSON-B format, i.e. ISO date-time in UTC
+ * with the zone ID (e.g. {@code 2000-01-01T00:00:00Z[UTC]}), without creating
+ * a formatter for each date.
+ * <p>
+ * Closing the output flushes it, but does not close the underlying stream, so
+ * JSON-B can write values in the middle of the output.
+ */
+final class JsonOutput extends OutputStream {
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+    private static final byte[] DATE_ZONE = ascii("Z[UTC]");
+
+    private static final long SECONDS_PER_DAY = 86400;
+    // Epoch second of 10000-01-01T00:00:00Z, the first one that needs more than four digits for the year
+    private static final long MAX_FAST_EPOCH_SECOND = 253402300800L;
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_DATE_TIME.withZone(ZoneId.of("UTC"));
+
+    private final OutputStream output;
+    private final byte[] buffer;
+    private int position;
+
+    JsonOutput(OutputStream output) {
+        this.output = output;
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Encodes a string containing only ASCII characters, such as a property
+     * name, so it can be written with {@link #write(byte[])}.
+     *
+     * @param value the string.
+     * @return the bytes of the string.
+     */
+    static byte[] ascii(String value) {
+        return value.getBytes(UTF_8);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (this.position == this.buffer.length) this.flushBuffer();
+
+        this.buffer[this.position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes) throws IOException {
+        this.write(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (length > this.buffer.length - this.position) {
+            this.flushBuffer();
+
+            if (length > this.buffer.length) {
+                this.output.write(bytes, offset, length);
+                return;
+            }
+        }
+
+        System.arraycopy(bytes, offset, this.buffer, this.position, length);
+        this.position += length;
+    }
+
+    /**
+     * Writes {@code null}.
+     *
+     * @throws IOException if an error happens writing the value.
+     */
+    void writeNull() throws IOException {
+        this.write(NULL);
+    }
+
+    /**
+     * Writes a number.
+     *
+     * @param value the number.
+     * @throws IOException if an error happens writing the value.
+     */
+    void writeNumber(long value) throws IOException {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                this.write(ascii(Long.toString(value)));
+                return;
+            }
+
+            this.write('-');
+            value = -value;
+        }
+
+        this.ensureCapacity(19);
+
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) digits++;
+
+        for (int i = this.position + digits - 1; i >= this.position; i--) {
+            this.buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        this.position += digits;
+    }
+
+    /**
+     * Writes a string, or {@code null} if the string is {@code null}.
+     *
+     * @param value the string.
+     * @throws IOException if an error happens writing the value.
+     */
+    void writeString(String value) throws IOException {
+        if (value == null) {
+            this.writeNull();
+            return;
+        }
+
+        this.write('"');
+
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                this.write(c);
+            } else if (c < 0x80) {
+                this.writeEscaped(c);
+            } else if (c < 0x800) {
+                this.ensureCapacity(2);
+                this.buffer[this.position++] = (byte) (0xC0 | c >> 6);
+                this.buffer[this.position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+
+                this.ensureCapacity(4);
+                this.buffer[this.position++] = (byte) (0xF0 | codePoint >> 18);
+                this.buffer[this.position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                this.buffer[this.position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                this.buffer[this.position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates are replaced, as the UTF-8 encoder does
+                this.write('?');
+            } else {
+                this.ensureCapacity(3);
+                this.buffer[this.position++] = (byte) (0xE0 | c >> 12);
+                this.buffer[this.position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                this.buffer[this.position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+
+        this.write('"');
+    }
+
+    /**
+     * Writes a date as a string in the default JSON-B format, or {@code null}
+     * if the date is {@code null}.
+     *
+     * @param date the date.
+     * @throws IOException if an error happens writing the value.
+     */
+    void writeDate(Date date) throws IOException {
+        if (date == null) {
+            this.writeNull();
+            return;
+        }
+
+        // java.sql.Timestamp includes its nanoseconds in the instant
+        final Instant instant = date.toInstant();
+        final long epochSecond = instant.getEpochSecond();
+
+        if (epochSecond < 0 || epochSecond >= MAX_FAST_EPOCH_SECOND) {
+            this.writeString(DATE_FORMATTER.format(instant));
+            return;
+        }
+
+        final long epochDay = epochSecond / SECONDS_PER_DAY;
+        final int secondOfDay = (int) (epochSecond % SECONDS_PER_DAY);
+
+        // Civil date from days since the epoch (H. Hinnant, "chrono-Compatible Low-Level Date Algorithms")
+        final long days = epochDay + 719468;
+        final long era = days / 146097;
+        final int dayOfEra = (int) (days - era * 146097);
+        final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        final int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        final int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        final int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+
+        this.ensureCapacity(38);
+        this.buffer[this.position++] = '"';
+        this.writeDigits(year, 4);
+        this.buffer[this.position++] = '-';
+        this.writeDigits(month, 2);
+        this.buffer[this.position++] = '-';
+        this.writeDigits(day, 2);
+        this.buffer[this.position++] = 'T';
+        this.writeDigits(secondOfDay / 3600, 2);
+        this.buffer[this.position++] = ':';
+        this.writeDigits(secondOfDay / 60 % 60, 2);
+        this.buffer[this.position++] = ':';
+        this.writeDigits(secondOfDay % 60, 2);
+
+        int nanos = instant.getNano();
+        if (nanos > 0) {
+            // The fraction is written with the minimum number of digits
+            int digits = 9;
+            while (nanos % 10 == 0) {
+                nanos /= 10;
+                digits--;
+            }
+
+            this.buffer[this.position++] = '.';
+            this.writeDigits(nanos, digits);
+        }
+
+        System.arraycopy(DATE_ZONE, 0, this.buffer, this.position, DATE_ZONE.length);
+        this.position += DATE_ZONE.length;
+        this.buffer[this.position++] = '"';
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.flushBuffer();
+        this.output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.flush();
+    }
+
+    private void writeEscaped(char c) throws IOException {
+        this.ensureCapacity(6);
+        this.buffer[this.position++] = '\\';
+
+        switch (c) {
+            case '"', '\\' -> this.buffer[this.position++] = (byte) c;
+            case '\b' -> this.buffer[this.position++] = 'b';
+            case '\f' -> this.buffer[this.position++] = 'f';
+            case '\n' -> this.buffer[this.position++] = 'n';
+            case '\r' -> this.buffer[this.position++] = 'r';
+            case '\t' -> this.buffer[this.position++] = 't';
+            default -> {
+                this.buffer[this.position++] = 'u';
+                this.buffer[this.position++] = '0';
+                this.buffer[this.position++] = '0';
+                this.buffer[this.position++] = HEX[c >> 4];
+                this.buffer[this.position++] = HEX[c & 0xF];
+            }
+        }
+    }
+
+    // Writes a non-negative number padded with zeros. The buffer must have room for it
+    private void writeDigits(int value, int digits) {
+        for (int i = this.position + digits - 1; i >= this.position; i--) {
+            this.buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        this.position += digits;
+    }
+
+    private void ensureCapacity(int length) throws IOException {
+        if (this.buffer.length - this.position < length) this.flushBuffer();
+    }
+
+    private void flushBuffer() throws IOException {
+        if (this.position > 0) {
+            this.output.write(this.buffer, 0, this.position);
+            this.position = 0;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package pablog.petstore.rest;
+
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Response body that writes the elements provided by a source as they are
+ * produced, instead of building the whole list in memory. Elements can be
+ * written as a JSON array or as newline delimited JSON (NDJSON).
+ * <p>
+ * Each element is serialized with the {@link EntityJsonWriter}, so the output
+ * is the same as the one produced when a list is returned as the response
+ * entity.
+ *
+ * @param <T> the type of the elements written.
+ */
+public final class JsonStreamingOutput<T> implements StreamingOutput {
+    /**
+     * Media type of newline delimited JSON.
+     */
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    // Number of elements written between flushes of the output.
+    private static final int FLUSH_INTERVAL = 64;
+
+    private final Consumer<Consumer<? super T>> source;
+    private final boolean ndjson;
+
+    private JsonStreamingOutput(Consumer<Consumer<? super T>> source, boolean ndjson) {
+        this.source = source;
+        this.ndjson = ndjson;
+    }
+
+    /**
+     * Creates a response body that writes the elements as a JSON array.
+     *
+     * @param source the source of the elements. It receives the action that
+     *               writes an element and must call it for each element.
+     * @param <T>    the type of the elements written.
+     * @return a response body that writes the elements as a JSON array.
+     */
+    public static <T> JsonStreamingOutput<T> jsonArray(Consumer<Consumer<? super T>> source) {
+        return new JsonStreamingOutput<>(source, false);
+    }
+
+    /**
+     * Creates a response body that writes each element as a JSON document in
+     * its own line.
+     *
+     * @param source the source of the elements. It receives the action that
+     *               writes an element and must call it for each element.
+     * @param <T>    the type of the elements written.
+     * @return a response body that writes the elements as NDJSON.
+     */
+    public static <T> JsonStreamingOutput<T> ndjson(Consumer<Consumer<? super T>> source) {
+        return new JsonStreamingOutput<>(source, true);
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        final JsonOutput writer = new JsonOutput(output);
+        final ElementWriter elementWriter = new ElementWriter(writer);
+
+        if (!this.ndjson) writer.write('[');
+
+        try {
+            this.source.accept(elementWriter);
+        } catch (RuntimeException re) {
+            // Write errors may reach here wrapped by JSON-B or by the EJB container
+            for (Throwable cause = re; cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException ioe) throw ioe;
+            }
+            throw re;
+        }
+
+        if (!this.ndjson) writer.write(']');
+        writer.flush();
+    }
+
+    private final class ElementWriter implements Consumer<T> {
+        private final JsonOutput writer;
+        private long count;
+
+        private ElementWriter(JsonOutput writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void accept(T element) {
+            try {
+                if (ndjson) {
+                    EntityJsonWriter.write(element, this.writer);
+                    this.writer.write('\n');
+                } else {
+                    if (this.count > 0) this.writer.write(',');
+                    EntityJsonWriter.write(element, this.writer);
+                }
+
+                if (++this.count % FLUSH_INTERVAL == 0) this.writer.flush();
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package pablog.petstore.rest;
+
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Records the latency of the requests served by each resource method, from
+ * the moment the request is matched until the response body is written.
+ * <p>
+ * Latencies are recorded in a {@link LatencyHistogram} for each endpoint,
+ * identified by its HTTP method and path template, together with the number
+ * of responses sent with each status code. Recording is lock-free and the
+ * histograms are allocated only the first time an endpoint is requested, so
+ * the filter can be left enabled permanently. The start time of each request
+ * is stored in a holder taken from a preallocated pool and returned when the
+ * latency is recorded, so requests do not allocate a boxed {@code Long}. The
+ * statistics are available through {@link #getStatistics()}.
+ */
+@Provider
+@ApplicationScoped
+@Priority(Priorities.AUTHENTICATION)
+public class LatencyFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+    // Request properties where the request filter leaves the start time and the endpoint
+    private static final String START_PROPERTY = LatencyFilter.class.getName() + ".start";
+    private static final String ENDPOINT_PROPERTY = LatencyFilter.class.getName() + ".endpoint";
+
+    private static final int MAX_STATUS = 599;
+
+    // Size of the pool of start times, a power of two, and number of holders
+    // checked before allocating a new one
+    private static final int START_POOL_SIZE = 1024;
+    private static final int MAX_START_PROBES = 8;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    private final LongSupplier clock;
+    private final Map<Method, Endpoint> endpointsByResourceMethod;
+    private final Map<String, Endpoint> endpoints;
+    private final Start[] starts;
+    private final AtomicInteger nextStart;
+
+    public LatencyFilter() {
+        this(null, System::nanoTime);
+    }
+
+    LatencyFilter(ResourceInfo resourceInfo, LongSupplier clock) {
+        this.resourceInfo = resourceInfo;
+        this.clock = clock;
+        this.endpointsByResourceMethod = new ConcurrentHashMap<>();
+        this.endpoints = new ConcurrentHashMap<>();
+        this.starts = new Start[START_POOL_SIZE];
+        for (int i = 0; i < START_POOL_SIZE; i++) {
+            this.starts[i] = new Start();
+        }
+        this.nextStart = new AtomicInteger();
+    }
+
+    /**
+     * Stores the start time and the endpoint of a request that has been
+     * matched to a resource method.
+     *
+     * @param requestContext the context of the request.
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        final Method resourceMethod = this.resourceInfo.getResourceMethod();
+        if (resourceMethod == null) return;
+
+        requestContext.setProperty(ENDPOINT_PROPERTY, this.endpointOf(resourceMethod));
+        requestContext.setProperty(START_PROPERTY, this.start(this.clock.getAsLong()));
+    }
+
+    /**
+     * Counts the status of the response. If the response has no body, its
+     * latency is recorded. Otherwise, it is recorded once the body is written.
+     *
+     * @param requestContext  the context of the request.
+     * @param responseContext the context of the response.
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (!(requestContext.getProperty(ENDPOINT_PROPERTY) instanceof Endpoint endpoint)) return;
+
+        endpoint.countStatus(responseContext.getStatus());
+
+        if (!responseContext.hasEntity() || HttpMethod.HEAD.equals(requestContext.getMethod())) {
+            this.record(endpoint, requestContext.getProperty(START_PROPERTY));
+            requestContext.removeProperty(ENDPOINT_PROPERTY);
+            requestContext.removeProperty(START_PROPERTY);
+        }
+    }
+
+    /**
+     * Writes the response body and records the latency of the request.
+     *
+     * @param context the context of the response body.
+     * @throws IOException if an error happens while writing the body.
+     */
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        try {
+            context.proceed();
+        } finally {
+            if (context.getProperty(ENDPOINT_PROPERTY) instanceof Endpoint endpoint) {
+                this.record(endpoint, context.getProperty(START_PROPERTY));
+                context.removeProperty(ENDPOINT_PROPERTY);
+                context.removeProperty(START_PROPERTY);
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the latency statistics of every endpoint
+     * requested, sorted by path and method.
+     *
+     * @return a snapshot of the latency statistics of every endpoint
+     * requested.
+     */
+    public List<EndpointLatency> getStatistics() {
+        return this.endpoints.values().stream()
+                .map(Endpoint::snapshot)
+                .sorted(Comparator.comparing(EndpointLatency::getPath).thenComparing(EndpointLatency::getMethod))
+                .toList();
+    }
+
+    private Start start(long nanos) {
+        final int first = this.nextStart.getAndIncrement();
+
+        for (int i = 0; i < MAX_START_PROBES; i++) {
+            final Start start = this.starts[(first + i) & (START_POOL_SIZE - 1)];
+
+            if (start.claim()) {
+                start.nanos = nanos;
+                return start;
+            }
+        }
+
+        // Only when the holders checked are used by other requests
+        final Start start = new Start();
+        start.nanos = nanos;
+        return start;
+    }
+
+    private void record(Endpoint endpoint, Object start) {
+        if (start instanceof Start requestStart) {
+            endpoint.histogram.record(this.clock.getAsLong() - requestStart.nanos);
+            requestStart.release();
+        }
+    }
+
+    private Endpoint endpointOf(Method resourceMethod) {
+        final Endpoint endpoint = this.endpointsByResourceMethod.get(resourceMethod);
+
+        return endpoint == null
+                ? this.endpointsByResourceMethod.computeIfAbsent(resourceMethod, this::newEndpoint)
+                : endpoint;
+    }
+
+    // Resource methods with the same HTTP method and path (e.g. the JSON and
+    // NDJSON lists) share the same endpoint
+    private Endpoint newEndpoint(Method resourceMethod) {
+        final String method = httpMethodOf(resourceMethod);
+        final String path = pathOf(resourceMethod.getDeclaringClass()) + pathOf(resourceMethod);
+
+        return this.endpoints.computeIfAbsent(method + " " + path, key -> new Endpoint(method, path));
+    }
+
+    private static String httpMethodOf(Method resourceMethod) {
+        for (Annotation annotation : resourceMethod.getAnnotations()) {
+            final HttpMethod httpMethod = annotation.annotationType().getAnnotation(HttpMethod.class);
+
+            if (httpMethod != null) return httpMethod.value();
+        }
+
+        return "*";
+    }
+
+    private static String pathOf(AnnotatedElement element) {
+        final Path path = element.getAnnotation(Path.class);
+        if (path == null) return "";
+
+        final String value = path.value();
+        final String trimmed = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+
+        return trimmed.startsWith("/") ? trimmed : "/" + trimmed;
+    }
+
+    /**
+     * Start time of a request. A holder is claimed by the request filter and
+     * released when the latency is recorded. A holder that is never released,
+     * for example because the body of the response is not written, is only
+     * lost to the pool.
+     */
+    private static final class Start {
+        private static final AtomicIntegerFieldUpdater<Start> IN_USE =
+                AtomicIntegerFieldUpdater.newUpdater(Start.class, "inUse");
+
+        private volatile int inUse;
+        // Written before the holder is stored in the request, which publishes it
+        private long nanos;
+
+        private boolean claim() {
+            return this.inUse == 0 && IN_USE.compareAndSet(this, 0, 1);
+        }
+
+        private void release() {
+            this.inUse = 0;
+        }
+    }
+
+    private static final class Endpoint {
+        private final String method;
+        private final String path;
+        private final LatencyHistogram histogram;
+        private final AtomicLongArray statusCounts;
+
+        private Endpoint(String method, String path) {
+            this.method = method;
+            this.path = path;
+            this.histogram = new LatencyHistogram();
+            this.statusCounts = new AtomicLongArray(MAX_STATUS + 1);
+        }
+
+        private void countStatus(int status) {
+            if (status >= 0 && status <= MAX_STATUS) {
+                this.statusCounts.incrementAndGet(status);
+            }
+        }
+
+        private EndpointLatency snapshot() {
+            final long[] counts = this.histogram.counts();
+
+            long count = 0;
+            for (long bucketCount : counts) {
+                count += bucketCount;
+            }
+
+            final Map<Integer, Long> statuses = new HashMap<>();
+            for (int status = 0; status <= MAX_STATUS; status++) {
+                final long statusCount = this.statusCounts.get(status);
+
+                if (statusCount > 0) statuses.put(status, statusCount);
+            }
+
+            return new EndpointLatency(
+                    this.method, this.path,
+                    count, this.histogram.sum(), this.histogram.max(),
+                    LatencyHistogram.valueAtQuantile(counts, count, 0.5),
+                    LatencyHistogram.valueAtQuantile(counts, count, 0.9),
+                    LatencyHistogram.valueAtQuantile(counts, count, 0.99),
+                    LatencyHistogram.valueAtQuantile(counts, count, 0.999),
+                    statuses
+            );
+        }
+    }
+}
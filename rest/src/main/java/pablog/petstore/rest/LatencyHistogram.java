@@ -0,0 +1,116 @@
+package pablog.petstore.rest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies, in nanoseconds.
+ * <p>
+ * Values are counted in log-linear buckets, as in HdrHistogram: each power
+ * of two is split in {@value #SUB_BUCKET_COUNT} buckets, so percentiles are
+ * reported with a relative error below 1/{@value #SUB_BUCKET_COUNT}. Values
+ * over {@value #MAX_VALUE} ns (about 68 seconds) are counted in the last
+ * bucket. Recording a value does not lock nor allocate memory.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 36;
+    static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    static final int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts;
+    private final LongAdder sum;
+    private final AtomicLong max;
+
+    LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.sum = new LongAdder();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency, in nanoseconds. Negative values are recorded
+     *              as 0.
+     */
+    void record(long nanos) {
+        final long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+
+        this.counts.incrementAndGet(indexOf(value));
+        this.sum.add(value);
+
+        long current;
+        while (value > (current = this.max.get()) && !this.max.compareAndSet(current, value)) {
+            // Another thread updated the maximum
+        }
+    }
+
+    /**
+     * Returns a copy of the counts of each bucket.
+     *
+     * @return a copy of the counts of each bucket.
+     */
+    long[] counts() {
+        final long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = this.counts.get(i);
+        }
+
+        return copy;
+    }
+
+    long sum() {
+        return this.sum.sum();
+    }
+
+    long max() {
+        return this.max.get();
+    }
+
+    /**
+     * Returns the value at a quantile of the counts of a histogram.
+     *
+     * @param counts   the counts of each bucket, as returned by
+     *                 {@link #counts()}.
+     * @param total    the sum of {@code counts}.
+     * @param quantile the quantile, between 0 and 1.
+     * @return the highest value of the bucket that contains the quantile, or
+     * 0 if {@code total} is 0.
+     */
+    static long valueAtQuantile(long[] counts, long total, double quantile) {
+        if (total == 0) return 0;
+
+        final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+
+        long accumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            accumulated += counts[i];
+            if (accumulated >= rank) return highestValueOf(i);
+        }
+
+        return MAX_VALUE;
+    }
+
+    static int indexOf(long value) {
+        // Values lower than 2 * SUB_BUCKET_COUNT are counted exactly
+        final int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long lowestValueOf(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) return index;
+
+        final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        final long subBucket = (index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT;
+
+        return subBucket << shift;
+    }
+
+    static long highestValueOf(int index) {
+        return index + 1 < BUCKET_COUNT ? lowestValueOf(index + 1) - 1 : MAX_VALUE;
+    }
+}
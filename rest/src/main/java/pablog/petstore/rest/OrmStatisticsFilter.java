@@ -0,0 +1,125 @@
+package pablog.petstore.rest;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.ext.Provider;
+import pablog.petstore.domain.persistence.StatementCounter;
+import pablog.petstore.service.RequestStatistics;
+
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Reports the persistence work done by each request.
+ * <p>
+ * The collection roles suspected of N+1 selects by the
+ * {@link RequestStatistics} of a request, and the requests that prepare more
+ * statements than their budget, are logged as warnings. In debug mode, the
+ * suspected roles are also sent in the {@value #N_PLUS_ONE_HEADER} header,
+ * the statements prepared and the budget in the {@value #STATEMENTS_HEADER}
+ * header, and a summary of the work of the request in the
+ * {@value #STATISTICS_HEADER} header: the statements prepared, the entities
+ * loaded and the collections initialized. The summary only includes the work
+ * counted for the request by the {@link RequestStatisticsBinder}, so it is not
+ * affected by the requests served concurrently.
+ * <p>
+ * Debug mode is enabled with the {@value #DEBUG_PROPERTY} system property.
+ * Defaults to {@code false}.
+ */
+@Provider
+@ApplicationScoped
+public class OrmStatisticsFilter implements ContainerResponseFilter {
+    public static final String DEBUG_PROPERTY = "petstore.orm.debug";
+
+    public static final String STATISTICS_HEADER = "X-ORM-Statistics";
+    public static final String N_PLUS_ONE_HEADER = "X-ORM-N-Plus-One";
+    public static final String STATEMENTS_HEADER = "X-ORM-Statements";
+
+    private static final Logger LOG = Logger.getLogger(OrmStatisticsFilter.class.getName());
+
+    private final boolean debug;
+
+    public OrmStatisticsFilter() {
+        this(Boolean.getBoolean(DEBUG_PROPERTY));
+    }
+
+    OrmStatisticsFilter(boolean debug) {
+        this.debug = debug;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        final RequestStatistics requestStatistics =
+                requestContext.getProperty(RequestStatisticsBinder.STATISTICS_ATTRIBUTE) instanceof RequestStatistics bound ? bound : null;
+        final StatementCounter.Scope statements =
+                requestContext.getProperty(RequestStatisticsBinder.STATEMENTS_ATTRIBUTE) instanceof StatementCounter.Scope bound ? bound : null;
+
+        if (requestStatistics != null) {
+            final Set<String> roles = requestStatistics.getSuspectedNPlusOneRoles();
+
+            if (!roles.isEmpty()) {
+                LOG.warning(() -> String.format("Suspected N+1 selects in %s %s: %s",
+                        requestContext.getMethod(), requestContext.getUriInfo().getPath(), describe(requestStatistics, roles)));
+
+                if (this.debug) {
+                    responseContext.getHeaders().putSingle(N_PLUS_ONE_HEADER, String.join(", ", roles));
+                }
+            }
+        }
+
+        if (statements != null) {
+            if (statements.isOverBudget()) {
+                LOG.warning(() -> String.format("Statement budget exceeded in %s %s: %d statements, budget %d",
+                        requestContext.getMethod(), requestContext.getUriInfo().getPath(),
+                        statements.getCount(), statements.getBudget()));
+            }
+
+            if (this.debug) {
+                responseContext.getHeaders().putSingle(STATEMENTS_HEADER, statements.getCount() + "/" + statements.getBudget());
+            }
+        }
+
+        if (this.debug && (requestStatistics != null || statements != null)) {
+            responseContext.getHeaders().putSingle(STATISTICS_HEADER, summary(requestStatistics, statements));
+        }
+    }
+
+    /**
+     * Formats the work of a request as the value of the
+     * {@value #STATISTICS_HEADER} header. The counts that are not available
+     * are left out.
+     *
+     * @param statistics the statistics of the request. May be {@code null}.
+     * @param statements the statements of the request. May be {@code null}.
+     * @return the value of the header.
+     */
+    static String summary(RequestStatistics statistics, StatementCounter.Scope statements) {
+        final StringBuilder summary = new StringBuilder();
+
+        if (statements != null) {
+            summary.append("statements=").append(statements.getCount());
+        }
+
+        if (statistics != null) {
+            if (!summary.isEmpty()) summary.append(", ");
+
+            summary.append("entity-loads=").append(statistics.getEntityLoadCount())
+                    .append(", collection-loads=").append(statistics.getCollectionLoadCount());
+        }
+
+        return summary.toString();
+    }
+
+    private static String describe(RequestStatistics statistics, Set<String> roles) {
+        final StringBuilder description = new StringBuilder();
+        for (String role : roles) {
+            if (!description.isEmpty()) description.append(", ");
+
+            description.append(role).append(" loaded ").append(statistics.getCollectionLoadCount(role)).append(" times");
+        }
+
+        return description.toString();
+    }
+}
@@ -0,0 +1,217 @@
+package pablog.petstore.rest;
+
+import jakarta.ejb.EJBAccessException;
+import jakarta.ejb.EJBException;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbException;
+import pablog.petstore.domain.entities.Owner;
+import pablog.petstore.rest.entity.OwnerImportData;
+import pablog.petstore.rest.entity.OwnerImportReport;
+import pablog.petstore.service.OwnerService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Imports owners, with their pets, from newline delimited JSON. Each line
+ * must contain an {@link OwnerImportData} document.
+ * <p>
+ * The import is done as a pipeline that processes the input in chunks: while
+ * a chunk is being stored, the next one is parsed, validated and has its
+ * passwords hashed in parallel, split in slices that run in the provided
+ * executor. Each chunk is stored in its own transaction.
+ * Invalid records, duplicated logins and logins already in use are reported
+ * without aborting the import.
+ */
+final class OwnerImporter {
+    /**
+     * Default number of records stored in each transaction.
+     */
+    static final int CHUNK_SIZE = 1000;
+
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
+    private final OwnerService service;
+    private final int chunkSize;
+    private final Executor executor;
+    private final int parallelism;
+
+    /**
+     * Creates a new importer.
+     *
+     * @param service   the service that stores the owners.
+     * @param chunkSize the number of records stored in each transaction.
+     * @param executor  the executor of the stages that do not access the
+     *                  database, usually the {@code ManagedExecutorService}
+     *                  of the container.
+     */
+    OwnerImporter(OwnerService service, int chunkSize, Executor executor) {
+        this.service = service;
+        this.chunkSize = chunkSize;
+        this.executor = executor;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Imports the owners read from {@code input}. The stages that do not
+     * access the database run in the executor of the importer, while chunks
+     * are stored from the calling thread, so the caller's security context is
+     * used.
+     *
+     * @param input the NDJSON input.
+     * @return the report of the import.
+     * @throws IOException if an error happens while reading the input.
+     */
+    OwnerImportReport importFrom(Reader input) throws IOException {
+        final BufferedReader reader = new BufferedReader(input);
+        final OwnerImportReport report = new OwnerImportReport();
+        final Set<String> logins = new HashSet<>();
+
+        long lineNumber = 0;
+        List<Line> lines = new ArrayList<>(this.chunkSize);
+        CompletableFuture<List<Record>> pending = null;
+
+        String text;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            if (!text.isBlank()) lines.add(new Line(lineNumber, text));
+
+            if (lines.size() == this.chunkSize) {
+                final CompletableFuture<List<Record>> prepared = prepareAsync(lines);
+                if (pending != null) store(join(pending), logins, report);
+
+                pending = prepared;
+                lines = new ArrayList<>(this.chunkSize);
+            }
+        }
+
+        final CompletableFuture<List<Record>> prepared = lines.isEmpty() ? null : prepareAsync(lines);
+        if (pending != null) store(join(pending), logins, report);
+        if (prepared != null) store(join(prepared), logins, report);
+
+        return report;
+    }
+
+    private CompletableFuture<List<Record>> prepareAsync(List<Line> lines) {
+        final int sliceSize = Math.ceilDiv(lines.size(), this.parallelism);
+
+        final List<CompletableFuture<List<Record>>> slices = new ArrayList<>(this.parallelism);
+        for (int from = 0; from < lines.size(); from += sliceSize) {
+            final List<Line> slice = lines.subList(from, Math.min(from + sliceSize, lines.size()));
+
+            slices.add(CompletableFuture.supplyAsync(() -> prepare(slice), this.executor));
+        }
+
+        return CompletableFuture.allOf(slices.toArray(CompletableFuture[]::new))
+                .thenApply(completed -> {
+                    final List<Record> records = new ArrayList<>(lines.size());
+                    for (CompletableFuture<List<Record>> slice : slices) {
+                        records.addAll(slice.join());
+                    }
+
+                    return records;
+                });
+    }
+
+    private static List<Record> prepare(List<Line> lines) {
+        final List<Record> records = new ArrayList<>(lines.size());
+        for (Line line : lines) {
+            records.add(prepare(line));
+        }
+
+        return records;
+    }
+
+    private static List<Record> join(CompletableFuture<List<Record>> chunk) {
+        try {
+            return chunk.join();
+        } catch (CompletionException ce) {
+            if (ce.getCause() instanceof RuntimeException re) throw re;
+            else throw ce;
+        }
+    }
+
+    // Parses and validates a record. The password is hashed when the owner is
+    // built, which is the most expensive step.
+    private static Record prepare(Line line) {
+        String login = null;
+        try {
+            final OwnerImportData data = JSONB.fromJson(line.text(), OwnerImportData.class);
+            if (data == null) {
+                return Record.invalid(line.number(), null, "record can't be null");
+            }
+
+            login = data.getLogin();
+            return Record.valid(line.number(), data.toOwner());
+        } catch (JsonbException je) {
+            return Record.invalid(line.number(), login, "invalid JSON: " + je.getMessage());
+        } catch (NullPointerException | IllegalArgumentException e) {
+            return Record.invalid(line.number(), login, e.getMessage());
+        }
+    }
+
+    private void store(List<Record> records, Set<String> logins, OwnerImportReport report) {
+        final List<Record> valid = new ArrayList<>(records.size());
+        for (Record record : records) {
+            if (record.error() != null) {
+                report.addError(record.line(), record.login(), record.error());
+            } else if (!logins.add(record.login())) {
+                report.addError(record.line(), record.login(), "duplicated login in the import");
+            } else {
+                valid.add(record);
+            }
+        }
+
+        if (valid.isEmpty()) return;
+
+        try {
+            final Set<String> existing = this.service.importOwners(valid.stream()
+                    .map(Record::owner)
+                    .toList());
+
+            report.addImported(valid.size() - existing.size());
+            for (Record record : valid) {
+                if (existing.contains(record.login())) {
+                    report.addError(record.line(), record.login(), "The owner already exists");
+                }
+            }
+        } catch (EJBAccessException eae) {
+            throw eae;
+        } catch (EJBException ee) {
+            // The whole chunk is rolled back, but the import goes on
+            final String message = "The owner could not be stored: " + rootMessage(ee);
+            for (Record record : valid) {
+                report.addError(record.line(), record.login(), message);
+            }
+        }
+    }
+
+    private static String rootMessage(Throwable throwable) {
+        Throwable root = throwable;
+        while (root.getCause() != null) root = root.getCause();
+
+        return root.getMessage();
+    }
+
+    private record Line(long number, String text) {
+    }
+
+    private record Record(long line, String login, Owner owner, String error) {
+        static Record valid(long line, Owner owner) {
+            return new Record(line, owner.getLogin(), owner, null);
+        }
+
+        static Record invalid(long line, String login, String error) {
+            return new Record(line, login, null, error);
+        }
+    }
+}
@@ -1,18 +1,35 @@
 package pablog.petstore.rest;
 
 import jakarta.ejb.EJB;
+import jakarta.ejb.EJBException;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriBuilder;
 import jakarta.ws.rs.core.UriInfo;
 import pablog.petstore.domain.entities.Owner;
 import pablog.petstore.rest.entity.OwnerCreationData;
 import pablog.petstore.rest.entity.OwnerEditionData;
+import pablog.petstore.rest.entity.OwnerImportReport;
 import pablog.petstore.service.OwnerService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * Resource that represents the owners in the application.
@@ -23,62 +40,207 @@ import java.net.URI;
 @Consumes(MediaType.APPLICATION_JSON)
 @Produces(MediaType.APPLICATION_JSON)
 public class OwnerResource {
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+
     @EJB
     private OwnerService service;
 
     @Context
     private UriInfo uriInfo;
 
+    @Inject
+    private AsyncExecutor async;
+
     /**
-     * Returns the owner identified by the login.
+     * Returns the owner identified by the login. The response includes a
+     * strong {@code ETag} that changes whenever the owner or any of its pets
+     * changes. If the request includes an {@code If-None-Match} header, only
+     * the versions of the owner and its pets are read and, if the tag matches,
+     * a {@code NOT_MODIFIED} response is returned without loading the owner.
+     * Conditional requests are also evaluated by the executor, so the request
+     * thread never waits for the database.
+     * <p>
+     * The response is resumed with an {@code OK} response containing the
+     * {@link Owner} with the provided login, or a {@code NOT_MODIFIED}
+     * response if the owner has not changed. It is resumed with an
+     * {@link IllegalArgumentException} if {@code login} is {@code null} or if
+     * it does not correspond with any owner.
      *
-     * @param login the login of an owner.
-     * @return an {@code OK} response containing the {@link Owner} with the
-     * provided login.
-     * @throws IllegalArgumentException if {@code login} is {@code null} or
-     *                                  if it does not correspond with any owner.
+     * @param login         the login of an owner.
+     * @param ifNoneMatch   the value of the {@code If-None-Match} header.
+     * @param asyncResponse the response, resumed when the owner is read.
      */
     @Path("{login}")
     @GET
-    public Response get(@PathParam("login") String login) {
+    public void getAsync(
+            @PathParam("login") String login,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @Suspended AsyncResponse asyncResponse
+    ) {
+        this.async.submit(asyncResponse, () -> this.get(login, ifNoneMatch));
+    }
+
+    private Response get(String login, String ifNoneMatch) {
         if (login == null) throw new IllegalArgumentException("login can't be null");
 
+        if (ifNoneMatch != null) {
+            final EntityTag versionTag = this.getVersionTag(login);
+
+            if (EntityTags.matchesWeakly(ifNoneMatch, versionTag)) return Response.notModified(versionTag).build();
+        }
+
         final Owner owner = this.service.get(login);
 
         if (owner == null) throw new IllegalArgumentException("Owner not found: " + login);
-        else return Response.ok(owner).build();
+        else return Response.ok(owner).tag(versionTag(owner)).build();
+    }
+
+    /**
+     * Returns the list of owners stored in the application. If any of the
+     * pagination parameters is provided, only a page of owners sorted by login
+     * will be returned. In that case, if there may be more owners after the
+     * returned page, the response will include a {@code Link} header with the
+     * {@code next} relation pointing to the next page.
+     * <p>
+     * If any of {@code fields} or {@code embed} is provided, only the
+     * requested fields, the login of the owners and the identifier of their
+     * pets are read from the database, and the pets are only read if they are
+     * requested. In that case, {@code stream} is ignored, as the owners read
+     * are not kept in the persistence context.
+     * <p>
+     * The response is resumed with an {@code OK} response containing the list
+     * of owners stored in the application or the requested page. It is
+     * resumed with an {@link IllegalArgumentException} if {@code limit} is not
+     * between 1 and {@value #MAX_PAGE_SIZE} or if any of the fields or
+     * associations is not valid.
+     *
+     * @param after         the login of the last owner of the previous page.
+     *                      If {@code null}, the first page will be returned.
+     * @param limit         the maximum number of owners to return. If
+     *                      {@code null} and {@code after} is provided,
+     *                      {@value #DEFAULT_PAGE_SIZE} will be used.
+     * @param stream        if {@code true}, no page is requested and no fields
+     *                      are selected, owners will be written to the
+     *                      response as they are read from the database,
+     *                      instead of building the whole list in memory.
+     * @param fields        a comma separated list of the fields of the owners
+     *                      to return, like {@code login,role}. The fields of
+     *                      the pets can be selected with the {@code pets.}
+     *                      prefix, like {@code pets.name}, and {@code pets}
+     *                      selects all of them. If {@code null}, all the
+     *                      fields of the owners are returned.
+     * @param embed         a comma separated list of the associations to
+     *                      return with all their fields. Only {@code pets} is
+     *                      supported. If {@code fields} is provided and
+     *                      {@code embed} is {@code null}, pets are only
+     *                      returned if some of their fields are selected.
+     * @param asyncResponse the response, resumed when the owners are read.
+     */
+    @GET
+    public void listAsync(
+            @QueryParam("after") String after,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("stream") boolean stream,
+            @QueryParam("fields") String fields,
+            @QueryParam("embed") String embed,
+            @Suspended AsyncResponse asyncResponse
+    ) {
+        // The request URI is only available in the request thread
+        final UriBuilder requestUri = uriInfo.getRequestUriBuilder();
+
+        this.async.submit(asyncResponse, () -> this.listOwners(after, limit, stream, Fieldset.ofOwners(fields, embed), requestUri));
+    }
+
+    private Response listOwners(String after, Integer limit, boolean stream, Fieldset fieldset, UriBuilder requestUri) {
+        if (after == null && limit == null) {
+            if (fieldset != null) {
+                return Response.ok(this.service.list(fieldset.getFields(), fieldset.getPetFields())).build();
+            } else if (stream) {
+                return Response.ok(JsonStreamingOutput.<Owner>jsonArray(this.service::forEach)).build();
+            } else {
+                return Response.ok(this.service.list()).build();
+            }
+        }
+
+        final int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        final List<?> page;
+        final String lastLogin;
+        if (fieldset == null) {
+            final List<Owner> owners = this.service.list(after, pageSize);
+
+            page = owners;
+            lastLogin = owners.isEmpty() ? null : owners.getLast().getLogin();
+        } else {
+            final List<Map<String, Object>> owners = this.service.list(
+                    fieldset.getFields(), fieldset.getPetFields(), after, pageSize);
+
+            page = owners;
+            lastLogin = owners.isEmpty() ? null : (String) owners.getLast().get("login");
+        }
+
+        final Response.ResponseBuilder response = Response.ok(page);
+
+        if (page.size() == pageSize) {
+            final URI next = requestUri
+                    .replaceQueryParam("after", lastLogin)
+                    .replaceQueryParam("limit", pageSize)
+                    .build();
+
+            response.link(next, "next");
+        }
+
+        return response.build();
     }
 
     /**
-     * Returns the list of owners stored in the application.
+     * Returns the list of owners stored in the application as newline
+     * delimited JSON. Owners are written to the response as they are read from
+     * the database, by the thread that resumes the response.
+     * <p>
+     * The response is resumed with an {@code OK} response containing the
+     * owners stored in the application, one per line.
      *
-     * @return an {@code OK} response containing the list of owners stored in
-     * the application.
+     * @param asyncResponse the response, resumed when the owners are written.
      */
     @GET
-    public Response list() {
-        return Response.ok(this.service.list()).build();
+    @Produces(JsonStreamingOutput.APPLICATION_NDJSON)
+    public void listAsNdjsonAsync(@Suspended AsyncResponse asyncResponse) {
+        this.async.submit(asyncResponse, () -> Response.ok(JsonStreamingOutput.<Owner>ndjson(this.service::forEach)).build());
     }
 
     /**
      * Creates a new owner. This owner may include a list of pets, that will be
      * also created.
+     * <p>
+     * The response is resumed with a {@code CREATED} response with the URI of
+     * the new owner in the {@code Location} header. It is resumed with an
+     * {@link IllegalArgumentException} if owner is {@code null} or if an owner
+     * with the same login already exists.
      *
-     * @param ownerData a new owner to be stored.
-     * @return a {@code CREATED} response with the URI of the new owner in the
-     * {@code Location} header.
-     * @throws IllegalArgumentException if owner is {@code null} or if an owner
-     *                                  with the same login already exists.
+     * @param ownerData     a new owner to be stored.
+     * @param asyncResponse the response, resumed when the owner is stored.
      */
     @POST
-    public Response create(OwnerCreationData ownerData) {
+    public void createAsync(OwnerCreationData ownerData, @Suspended AsyncResponse asyncResponse) {
+        // The request URI is only available in the request thread
+        final UriBuilder ownersUri = uriInfo.getAbsolutePathBuilder();
+
+        this.async.submit(asyncResponse, () -> this.create(ownerData, ownersUri));
+    }
+
+    private Response create(OwnerCreationData ownerData, UriBuilder ownersUri) {
         if (ownerData == null) {
             throw new IllegalArgumentException("ownerData can't be null");
         }
 
         try {
             final Owner newOwner = this.service.create(ownerData.toOwner());
-            final URI ownerUri = uriInfo.getAbsolutePathBuilder().path(newOwner.getLogin()).build();
+            final URI ownerUri = ownersUri.path(newOwner.getLogin()).build();
 
             return Response.created(ownerUri).build();
         } catch (EntityExistsException eee) {
@@ -86,17 +248,79 @@ public class OwnerResource {
         }
     }
 
+    /**
+     * Imports a batch of owners, with their pets, from newline delimited JSON.
+     * Each line must contain an owner with its login, password and,
+     * optionally, a list of pets. Records are stored in chunks of
+     * {@value OwnerImporter#CHUNK_SIZE} owners, each one in its own
+     * transaction. Invalid records and owners that already exist are reported
+     * without aborting the import. The input is read by the thread that
+     * imports the owners.
+     * <p>
+     * The response is resumed with an {@code OK} response containing an
+     * {@link OwnerImportReport} with the number of owners imported and the
+     * errors of each record rejected. It is resumed with an
+     * {@link IllegalArgumentException} if {@code input} is {@code null}, and
+     * with an {@link UncheckedIOException} if an error happens while reading
+     * the input.
+     *
+     * @param input         the NDJSON document with the owners to import.
+     * @param asyncResponse the response, resumed when the owners are imported.
+     */
+    @Path("import")
+    @POST
+    @Consumes(JsonStreamingOutput.APPLICATION_NDJSON)
+    public void importOwnersAsync(InputStream input, @Suspended AsyncResponse asyncResponse) {
+        this.async.submit(asyncResponse, () -> {
+            try {
+                return this.importOwners(input);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        });
+    }
+
+    private Response importOwners(InputStream input) throws IOException {
+        if (input == null) throw new IllegalArgumentException("input can't be null");
+
+        final OwnerImporter importer = new OwnerImporter(this.service, OwnerImporter.CHUNK_SIZE, this.async.getManagedExecutor());
+        final OwnerImportReport report = importer.importFrom(new InputStreamReader(input, UTF_8));
+
+        return Response.ok(report).build();
+    }
+
     /**
      * Updates an owner. This owner may include a list of pets, that will be
      * also created or updated. If the owner does not exist it will be created.
+     * <p>
+     * If the request includes an {@code If-Match} header, the owner will only
+     * be updated if its tag matches the header. The version of the owner is
+     * checked again when it is stored, so concurrent updates are also
+     * rejected. The precondition is evaluated by the executor, as it reads
+     * the versions of the owner and its pets.
+     * <p>
+     * The response is resumed with an empty {@code OK} response, or a
+     * {@code PRECONDITION_FAILED} response if the owner has been modified. It
+     * is resumed with an {@link IllegalArgumentException} if {@code login} or
+     * {@code ownerData} are {@code null}.
      *
-     * @param ownerData an owner to be updated.
-     * @return an empty {@code OK} response.
-     * @throws IllegalArgumentException if owner is {@code null}.
+     * @param login         the login of the owner to be updated.
+     * @param ifMatch       the value of the {@code If-Match} header.
+     * @param ownerData     an owner to be updated.
+     * @param asyncResponse the response, resumed when the owner is updated.
      */
     @Path("{login}")
     @PUT
-    public Response update(@PathParam("login") String login, OwnerEditionData ownerData) {
+    public void updateAsync(
+            @PathParam("login") String login,
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+            OwnerEditionData ownerData,
+            @Suspended AsyncResponse asyncResponse
+    ) {
+        this.async.submit(asyncResponse, () -> this.update(login, ifMatch, ownerData));
+    }
+
+    private Response update(String login, String ifMatch, OwnerEditionData ownerData) {
         if (login == null) {
             throw new IllegalArgumentException("login can't be null");
         }
@@ -104,30 +328,99 @@ public class OwnerResource {
             throw new IllegalArgumentException("ownerData can't be null");
         }
 
+        EntityTag versionTag = null;
+        if (ifMatch != null) {
+            // Only the versions are read if the precondition fails
+            versionTag = this.getVersionTag(login);
+
+            if (!EntityTags.matchesStrongly(ifMatch, versionTag)) {
+                return Response.status(Response.Status.PRECONDITION_FAILED).build();
+            }
+        }
+
         final Owner owner = this.service.get(login);
 
+        if (versionTag != null && (owner == null || !versionTag.equals(versionTag(owner)))) {
+            return Response.status(Response.Status.PRECONDITION_FAILED).build();
+        }
+
         ownerData.assignData(owner);
 
-        this.service.update(owner);
+        try {
+            this.service.update(owner);
+        } catch (EJBException ejbe) {
+            if (ifMatch != null && isOptimisticLockFailure(ejbe)) {
+                return Response.status(Response.Status.PRECONDITION_FAILED).build();
+            } else {
+                throw ejbe;
+            }
+        }
 
         return Response.ok().build();
     }
 
     /**
-     * Deletes an owner.
+     * Deletes an owner. If the request includes an {@code If-Match} header,
+     * the owner will only be deleted if its tag matches the header. The tag is
+     * checked in the same transaction that deletes the owner, so the owner
+     * and its pets can not change between the check and the deletion.
+     * <p>
+     * The response is resumed with an empty {@code OK} response, or a
+     * {@code PRECONDITION_FAILED} response if the owner has been modified or,
+     * if {@code ifMatch} is a list of tags, if it does not exist. It is
+     * resumed with an {@link IllegalArgumentException} if {@code login} is
+     * {@code null} or, without a list of tags, if it does not identify a valid
+     * owner.
      *
-     * @param login the login of the owner to be deleted.
-     * @return an empty {@code OK} response.
-     * @throws IllegalArgumentException if {@code login} is {@code null} or if
-     *                                  it does not identify a valid owner.
+     * @param login         the login of the owner to be deleted.
+     * @param ifMatch       the value of the {@code If-Match} header.
+     * @param asyncResponse the response, resumed when the owner is deleted.
      */
     @Path("{login}")
     @DELETE
-    public Response delete(@PathParam("login") String login) {
+    public void deleteAsync(
+            @PathParam("login") String login,
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+            @Suspended AsyncResponse asyncResponse
+    ) {
+        this.async.submit(asyncResponse, () -> this.delete(login, ifMatch));
+    }
+
+    private Response delete(String login, String ifMatch) {
         if (login == null) throw new IllegalArgumentException("login can't be null");
 
-        this.service.remove(login);
+        if (ifMatch == null || EntityTags.isAny(ifMatch)) {
+            this.service.remove(login);
 
-        return Response.ok().build();
+            return Response.ok().build();
+        }
+
+        // If-Match uses the strong comparison, so weak tags never match
+        for (EntityTag tag : EntityTags.parse(ifMatch)) {
+            if (!tag.isWeak() && this.service.remove(login, tag.getValue())) {
+                return Response.ok().build();
+            }
+        }
+
+        return Response.status(Response.Status.PRECONDITION_FAILED).build();
+    }
+
+    private EntityTag getVersionTag(String login) {
+        final String tag = this.service.getVersionTag(login);
+
+        if (tag == null) throw new IllegalArgumentException("Owner not found: " + login);
+        else return new EntityTag(tag);
+    }
+
+    private static EntityTag versionTag(Owner owner) {
+        return new EntityTag(OwnerService.versionTagOf(owner));
+    }
+
+    private static boolean isOptimisticLockFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException) return true;
+        }
+
+        return false;
     }
 }
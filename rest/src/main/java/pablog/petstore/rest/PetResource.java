@@ -2,17 +2,24 @@ package pablog.petstore.rest;
 
 import jakarta.ejb.EJB;
 import jakarta.ejb.EJBAccessException;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityExistsException;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriBuilder;
 import jakarta.ws.rs.core.UriInfo;
 import pablog.petstore.domain.entities.Pet;
 import pablog.petstore.rest.entity.PetData;
 import pablog.petstore.service.PetService;
 
 import java.net.URI;
+import java.util.Set;
 
 /**
  * Resource that represents the pets in the application.
@@ -29,58 +36,139 @@ public class PetResource {
     @Context
     private UriInfo uriInfo;
 
+    @Inject
+    private AsyncExecutor async;
+
     /**
-     * Returns the owner identified by the login.
+     * Returns the pet identified by the id. The response includes the version
+     * of the pet as a strong {@code ETag}. If the request includes an
+     * {@code If-None-Match} header, only the version of the pet is read and,
+     * if it matches, a {@code NOT_MODIFIED} response is returned without
+     * loading the pet. Conditional requests are also evaluated by the
+     * executor, so the request thread never waits for the database.
+     * <p>
+     * The response is resumed with an {@code OK} response containing the
+     * {@link Pet} with the provided identifier, or a {@code NOT_MODIFIED}
+     * response if the pet has not changed. It is resumed with an
+     * {@link IllegalArgumentException} if there is no pet with the provided
+     * identifier, and with a {@link SecurityException} if the current owner
+     * does not own the pet.
      *
-     * @param id the identified of a pet.
-     * @return an {@code OK} response containing the {@link Pet} with the
-     * provided identifier.
-     * @throws SecurityException if the current owner does not own the pet.
+     * @param id            the identified of a pet.
+     * @param ifNoneMatch   the value of the {@code If-None-Match} header.
+     * @param asyncResponse the response, resumed when the pet is read.
      */
     @Path("{id}")
     @GET
-    public Response get(@PathParam("id") int id) throws SecurityException {
+    public void getAsync(
+            @PathParam("id") int id,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @Suspended AsyncResponse asyncResponse
+    ) {
+        this.async.submit(asyncResponse, () -> this.get(id, ifNoneMatch));
+    }
+
+    private Response get(int id, String ifNoneMatch) throws SecurityException {
         try {
+            if (ifNoneMatch != null) {
+                final EntityTag versionTag = versionTag(this.getVersion(id));
+
+                if (EntityTags.matchesWeakly(ifNoneMatch, versionTag)) return Response.notModified(versionTag).build();
+            }
+
             final Pet pet = this.service.get(id);
 
             if (pet == null) throw new IllegalArgumentException("Pet not found: " + id);
-            else return Response.ok(pet).build();
+            else return Response.ok(pet).tag(versionTag(pet.getVersion())).build();
         } catch (EJBAccessException eae) {
             throw new SecurityException(eae);
         }
     }
 
     /**
-     * Returns the complete list of pets of the current owner.
+     * Returns the complete list of pets of the current owner. If
+     * {@code fields} is provided, only the requested fields and the
+     * identifier of the pets are read from the database, and {@code stream}
+     * is ignored, as the pets read are not kept in the persistence context.
+     * <p>
+     * The response is resumed with an {@code OK} response containing the
+     * complete list of pets of the current owner. It is resumed with an
+     * {@link IllegalArgumentException} if any of the fields is not valid.
+     *
+     * @param stream        if {@code true} and no fields are selected, pets
+     *                      will be written to the response as they are read
+     *                      from the database, instead of building the whole
+     *                      list in memory.
+     * @param fields        a comma separated list of the fields of the pets to
+     *                      return, like {@code name,animal}. If {@code null},
+     *                      all the fields are returned.
+     * @param asyncResponse the response, resumed when the pets are read.
+     */
+    @GET
+    public void listAsync(
+            @QueryParam("stream") boolean stream,
+            @QueryParam("fields") String fields,
+            @Suspended AsyncResponse asyncResponse
+    ) {
+        this.async.submit(asyncResponse, () -> this.list(stream, fields));
+    }
+
+    private Response list(boolean stream, String fields) {
+        final Set<String> petFields = Fieldset.ofPets(fields);
+
+        if (petFields != null) {
+            return Response.ok(this.service.list(petFields)).build();
+        } else if (stream) {
+            return Response.ok(JsonStreamingOutput.<Pet>jsonArray(this.service::forEach)).build();
+        } else {
+            return Response.ok(this.service.list()).build();
+        }
+    }
+
+    /**
+     * Returns the complete list of pets of the current owner as newline
+     * delimited JSON. Pets are written to the response as they are read from
+     * the database, by the thread that resumes the response.
+     * <p>
+     * The response is resumed with an {@code OK} response containing the pets
+     * of the current owner, one per line.
      *
-     * @return an {@code OK} response containing the complete list of pets of
-     * the current owner.
+     * @param asyncResponse the response, resumed when the pets are written.
      */
     @GET
-    public Response list() {
-        return Response.ok(this.service.list()).build();
+    @Produces(JsonStreamingOutput.APPLICATION_NDJSON)
+    public void listAsNdjsonAsync(@Suspended AsyncResponse asyncResponse) {
+        this.async.submit(asyncResponse, () -> Response.ok(JsonStreamingOutput.<Pet>ndjson(this.service::forEach)).build());
     }
 
     /**
      * Creates a new pet owned by the current user.
+     * <p>
+     * The response is resumed with a {@code CREATED} response with the URI of
+     * the new pet in the {@code Location} header. It is resumed with an
+     * {@link IllegalArgumentException} if pet is {@code null} or if a pet with
+     * the same identifier already exists, and with a
+     * {@link SecurityException} if the pet already has an owner, and it is not
+     * the current user.
      *
-     * @param petData a new owner to be stored.
-     * @return a {@code CREATED} response with the URI of the new pet in the
-     * {@code Location} header.
-     * @throws IllegalArgumentException if pet is {@code null} or if a pet with
-     *                                  the same identifier already exists.
-     * @throws SecurityException        if the pet already has an owner, and it
-     *                                  is not the current user. If the pet has no
-     *                                  owner, this exception will never be thrown.
+     * @param petData       a new pet to be stored.
+     * @param asyncResponse the response, resumed when the pet is stored.
      */
     @POST
-    public Response create(PetData petData) throws SecurityException {
+    public void createAsync(PetData petData, @Suspended AsyncResponse asyncResponse) {
+        // The request URI is only available in the request thread
+        final UriBuilder petsUri = uriInfo.getAbsolutePathBuilder();
+
+        this.async.submit(asyncResponse, () -> this.create(petData, petsUri));
+    }
+
+    private Response create(PetData petData, UriBuilder petsUri) {
         if (petData == null) throw new IllegalArgumentException("pet can't be null");
 
         try {
             final Pet pet = this.service.create(petData.toPet());
 
-            final URI petUri = uriInfo.getAbsolutePathBuilder().path(Integer.toString(pet.getId())).build();
+            final URI petUri = petsUri.path(Integer.toString(pet.getId())).build();
 
             return Response.created(petUri).build();
         } catch (EntityExistsException eee) {
@@ -91,48 +179,113 @@ public class PetResource {
     }
 
     /**
-     * Updates the information of a pet. If the pet is not stored, it will be created.
+     * Updates the information of a pet. If the request includes an
+     * {@code If-Match} header, the pet will only be updated if its version
+     * matches the header, and the response will include the new version of
+     * the pet as its {@code ETag}. The precondition is evaluated by the
+     * executor, as it reads the version of the pet.
+     * <p>
+     * The response is resumed with an empty {@code OK} response, or a
+     * {@code PRECONDITION_FAILED} response if the pet has been modified. It is
+     * resumed with an {@link IllegalArgumentException} if pet is {@code null}
+     * or if there is no pet with the provided identifier, and with a
+     * {@link SecurityException} if the pet's owner is not the current user.
      *
-     * @param id      the identifier of the pet to be modified.
-     * @param petData a pet to be updated.
-     * @return an empty {@code OK} response.
-     * @throws IllegalArgumentException if pet is {@code null} of it has no owner.
-     * @throws SecurityException        if the pet's owner is not the current user.
+     * @param id            the identifier of the pet to be modified.
+     * @param ifMatch       the value of the {@code If-Match} header.
+     * @param petData       a pet to be updated.
+     * @param asyncResponse the response, resumed when the pet is updated.
      */
     @Path("{id}")
     @PUT
-    public Response update(@PathParam("id") int id, PetData petData) throws SecurityException {
+    public void updateAsync(
+            @PathParam("id") int id,
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+            PetData petData,
+            @Suspended AsyncResponse asyncResponse
+    ) {
+        this.async.submit(asyncResponse, () -> this.update(id, ifMatch, petData));
+    }
+
+    private Response update(int id, String ifMatch, PetData petData) throws SecurityException {
         if (petData == null) throw new IllegalArgumentException("pet can't be null");
 
         try {
-            final Pet pet = this.service.get(id);
-            petData.assignData(pet);
+            if (ifMatch == null) {
+                if (this.service.update(id, petData.toPet())) return Response.ok().build();
+                else throw new IllegalArgumentException("Pet not found: " + id);
+            }
 
-            this.service.update(pet);
+            final long version = this.getVersion(id);
 
-            return Response.ok().build();
+            if (!EntityTags.matchesStrongly(ifMatch, versionTag(version))) {
+                return Response.status(Response.Status.PRECONDITION_FAILED).build();
+            } else if (this.service.update(id, petData.toPet(), version)) {
+                return Response.ok().tag(versionTag(version + 1)).build();
+            } else {
+                return Response.status(Response.Status.PRECONDITION_FAILED).build();
+            }
         } catch (EJBAccessException eae) {
             throw new SecurityException(eae);
         }
     }
 
     /**
-     * Deletes a pet.
+     * Deletes a pet. If the request includes an {@code If-Match} header, the
+     * pet will only be deleted if its version matches the header. The
+     * precondition is evaluated by the executor, as it reads the version of
+     * the pet.
+     * <p>
+     * The response is resumed with an empty {@code OK} response, or a
+     * {@code PRECONDITION_FAILED} response if the pet has been modified. It is
+     * resumed with an {@link IllegalArgumentException} if there is no pet with
+     * the provided identifier, and with a {@link SecurityException} if the
+     * pet's owner is not the current user.
      *
-     * @param id the identifier of the pet to be deleted.
-     * @return an empty {@code OK} response.
-     * @throws IllegalArgumentException if there is no pet with the provided identifier.
-     * @throws SecurityException        if the pet's owner is not the current user.
+     * @param id            the identifier of the pet to be deleted.
+     * @param ifMatch       the value of the {@code If-Match} header.
+     * @param asyncResponse the response, resumed when the pet is deleted.
      */
     @Path("{id}")
     @DELETE
-    public Response delete(@PathParam("id") int id) throws SecurityException {
+    public void deleteAsync(
+            @PathParam("id") int id,
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+            @Suspended AsyncResponse asyncResponse
+    ) {
+        this.async.submit(asyncResponse, () -> this.delete(id, ifMatch));
+    }
+
+    private Response delete(int id, String ifMatch) throws SecurityException {
         try {
-            this.service.remove(id);
+            if (ifMatch == null) {
+                this.service.remove(id);
 
-            return Response.ok().build();
+                return Response.ok().build();
+            }
+
+            final long version = this.getVersion(id);
+
+            if (!EntityTags.matchesStrongly(ifMatch, versionTag(version))) {
+                return Response.status(Response.Status.PRECONDITION_FAILED).build();
+            } else if (this.service.remove(id, version)) {
+                return Response.ok().build();
+            } else {
+                return Response.status(Response.Status.PRECONDITION_FAILED).build();
+            }
         } catch (EJBAccessException eae) {
             throw new SecurityException(eae);
         }
     }
+
+    private long getVersion(int id) {
+        final Long version = this.service.getVersion(id);
+
+        if (version == null) throw new IllegalArgumentException("Pet not found: " + id);
+        else return version;
+    }
+
+    private static EntityTag versionTag(long version) {
+        return new EntityTag(Long.toString(version));
+    }
 }
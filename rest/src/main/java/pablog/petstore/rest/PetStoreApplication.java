@@ -17,8 +17,15 @@ public class PetStoreApplication extends Application {
         classes.add(OwnerResource.class);
         classes.add(PetResource.class);
         classes.add(UserResource.class);
+        classes.add(AdminResource.class);
+        classes.add(SearchResource.class);
         // Providers
         classes.add(CORSFilter.class);
+        classes.add(CompressionInterceptor.class);
+        classes.add(EntityJsonWriter.class);
+        classes.add(EntityJsonReader.class);
+        classes.add(LatencyFilter.class);
+        classes.add(OrmStatisticsFilter.class);
         classes.add(IllegalArgumentExceptionMapper.class);
         classes.add(SecurityExceptionMapper.class);
         return classes;
@@ -0,0 +1,92 @@
+package pablog.petstore.rest;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the latency statistics of the endpoints in the Prometheus text
+ * exposition format (version 0.0.4).
+ * <p>
+ * Latencies are exposed as a summary, in seconds, with the 0.5, 0.9, 0.99 and
+ * 0.999 quantiles, and the number of responses as a counter labelled with the
+ * status code.
+ */
+final class PrometheusFormat {
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    static final String DURATION_METRIC = "petstore_http_request_duration_seconds";
+    static final String RESPONSES_METRIC = "petstore_http_responses_total";
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private PrometheusFormat() {
+    }
+
+    /**
+     * Writes the latency statistics of a list of endpoints.
+     *
+     * @param endpoints the latency statistics of the endpoints.
+     * @return the statistics in the Prometheus text format.
+     */
+    static String format(List<EndpointLatency> endpoints) {
+        final StringBuilder text = new StringBuilder();
+
+        text.append("# HELP ").append(DURATION_METRIC).append(" Latency of the REST requests, in seconds.\n");
+        text.append("# TYPE ").append(DURATION_METRIC).append(" summary\n");
+        for (EndpointLatency endpoint : endpoints) {
+            appendQuantile(text, endpoint, "0.5", endpoint.getP50Nanos());
+            appendQuantile(text, endpoint, "0.9", endpoint.getP90Nanos());
+            appendQuantile(text, endpoint, "0.99", endpoint.getP99Nanos());
+            appendQuantile(text, endpoint, "0.999", endpoint.getP999Nanos());
+
+            text.append(DURATION_METRIC).append("_sum");
+            appendLabels(text, endpoint).append('}').append(' ')
+                    .append(endpoint.getSumNanos() / NANOS_PER_SECOND).append('\n');
+
+            text.append(DURATION_METRIC).append("_count");
+            appendLabels(text, endpoint).append('}').append(' ')
+                    .append(endpoint.getCount()).append('\n');
+        }
+
+        text.append("# HELP ").append(RESPONSES_METRIC).append(" Number of REST responses sent.\n");
+        text.append("# TYPE ").append(RESPONSES_METRIC).append(" counter\n");
+        for (EndpointLatency endpoint : endpoints) {
+            for (Map.Entry<Integer, Long> status : endpoint.getStatusCounts().entrySet()) {
+                text.append(RESPONSES_METRIC);
+                appendLabels(text, endpoint).append(",status=\"").append(status.getKey()).append("\"} ")
+                        .append(status.getValue()).append('\n');
+            }
+        }
+
+        return text.toString();
+    }
+
+    private static void appendQuantile(StringBuilder text, EndpointLatency endpoint, String quantile, long nanos) {
+        text.append(DURATION_METRIC);
+        appendLabels(text, endpoint).append(",quantile=\"").append(quantile).append("\"} ")
+                .append(nanos / NANOS_PER_SECOND).append('\n');
+    }
+
+    // Leaves the label set open, so more labels can be appended
+    private static StringBuilder appendLabels(StringBuilder text, EndpointLatency endpoint) {
+        text.append("{method=\"");
+        appendEscaped(text, endpoint.getMethod());
+        text.append("\",path=\"");
+        appendEscaped(text, endpoint.getPath());
+
+        return text.append('"');
+    }
+
+    private static void appendEscaped(StringBuilder text, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            switch (c) {
+                case '\\' -> text.append("\\\\");
+                case '"' -> text.append("\\\"");
+                case '\n' -> text.append("\\n");
+                default -> text.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package pablog.petstore.rest;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.annotation.WebFilter;
+import pablog.petstore.domain.persistence.StatementCounter;
+import pablog.petstore.service.RequestStatistics;
+import pablog.petstore.service.StatementBudget;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Binds a new {@link RequestStatistics} and a new
+ * {@link StatementCounter.Scope} to the thread that serves each REST request,
+ * so the N+1 selects and the statements of the request can be checked. Both
+ * are also stored as request attributes, and the {@link AsyncExecutor} binds
+ * them to the threads that serve the request asynchronously.
+ * <p>
+ * The budget of statements of a request is the sum of the
+ * {@link StatementBudget}s of the service methods it invokes.
+ * <p>
+ * The binder is configured with the following system properties:
+ * <ul>
+ *   <li>{@value #N_PLUS_ONE_THRESHOLD_PROPERTY}: number of times a collection
+ *   role can be loaded in a request before it is reported as a suspected N+1
+ *   select. 0 disables the detection. Defaults to
+ *   {@value #DEFAULT_N_PLUS_ONE_THRESHOLD}.</li>
+ *   <li>{@value #STATEMENT_GUARD_PROPERTY}: what to do with the requests that
+ *   exceed their statement budget. {@code off} does not count statements,
+ *   {@code log} logs a warning when the request finishes and {@code reject}
+ *   rejects the statement that exceeds the budget, failing the request.
+ *   Defaults to {@code log}.</li>
+ * </ul>
+ */
+@WebFilter(urlPatterns = "/api/*", asyncSupported = true)
+public class RequestStatisticsBinder implements Filter {
+    public static final String N_PLUS_ONE_THRESHOLD_PROPERTY = "petstore.orm.n-plus-one.threshold";
+    public static final String STATEMENT_GUARD_PROPERTY = "petstore.statements.guard";
+
+    // Request attributes where the statistics and the statements of the request are stored
+    static final String STATISTICS_ATTRIBUTE = RequestStatistics.class.getName();
+    static final String STATEMENTS_ATTRIBUTE = StatementCounter.Scope.class.getName();
+
+    private static final int DEFAULT_N_PLUS_ONE_THRESHOLD = 10;
+
+    /**
+     * Actions taken with the requests that exceed their statement budget.
+     */
+    enum StatementGuard {
+        OFF, LOG, REJECT
+    }
+
+    private final int nPlusOneThreshold;
+    private final StatementGuard statementGuard;
+
+    public RequestStatisticsBinder() {
+        this(
+                Integer.getInteger(N_PLUS_ONE_THRESHOLD_PROPERTY, DEFAULT_N_PLUS_ONE_THRESHOLD),
+                StatementGuard.valueOf(System.getProperty(STATEMENT_GUARD_PROPERTY, "log").toUpperCase(Locale.ROOT))
+        );
+    }
+
+    RequestStatisticsBinder(int nPlusOneThreshold, StatementGuard statementGuard) {
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.statementGuard = statementGuard;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (this.statementGuard == StatementGuard.OFF) {
+            this.bindStatistics(request, response, chain);
+            return;
+        }
+
+        try (StatementCounter.Scope statements = StatementCounter.open()) {
+            if (this.statementGuard == StatementGuard.REJECT) statements.enforce();
+
+            request.setAttribute(STATEMENTS_ATTRIBUTE, statements);
+
+            this.bindStatistics(request, response, chain);
+        }
+    }
+
+    private void bindStatistics(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (this.nPlusOneThreshold <= 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final RequestStatistics statistics = new RequestStatistics(this.nPlusOneThreshold);
+        request.setAttribute(STATISTICS_ATTRIBUTE, statistics);
+
+        final RequestStatistics.Binding binding = statistics.bind();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            binding.close();
+        }
+    }
+}
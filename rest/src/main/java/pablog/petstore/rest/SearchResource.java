@@ -0,0 +1,253 @@
+package pablog.petstore.rest;
+
+import jakarta.ejb.EJB;
+import jakarta.ejb.EJBAccessException;
+import jakarta.ejb.EJBException;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriBuilder;
+import jakarta.ws.rs.core.UriInfo;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.search.Suggestion;
+import pablog.petstore.service.PetSearch;
+import pablog.petstore.service.PetSearchResult;
+import pablog.petstore.service.PetSearchService;
+import pablog.petstore.service.SuggestionService;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Resource that searches the entities of the application.
+ */
+@Path("search")
+@Produces(MediaType.APPLICATION_JSON)
+public class SearchResource {
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int DEFAULT_SUGGESTIONS = 10;
+    static final int MAX_SUGGESTIONS = 100;
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ISO_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    @EJB
+    private PetSearchService petSearch;
+
+    @EJB
+    private SuggestionService suggestionService;
+
+    @Context
+    private UriInfo uriInfo;
+
+    @Inject
+    private AsyncExecutor async;
+
+    /**
+     * Returns a page of the pets that meet the provided criteria. Every
+     * criterion is optional. Administrators can search the pets of every
+     * owner, while owners can only search their own pets. If there may be
+     * more pets after the returned page, the response will include a
+     * {@code Link} header with the {@code next} relation pointing to the next
+     * page.
+     * <p>
+     * The response is resumed with an {@code OK} response containing the pets
+     * of the page. It is resumed with an {@link IllegalArgumentException} if
+     * any of the criteria or the cursor is not valid or if {@code limit} is
+     * not between 1 and {@value #MAX_PAGE_SIZE}, and with a
+     * {@link SecurityException} if an owner searches the pets of another
+     * owner.
+     *
+     * @param animal        the type of animal of the pets.
+     * @param bornAfter     the first birth date of the pets, inclusive, as an
+     *                      ISO date or date-time. Date-times without zone and
+     *                      dates are in UTC.
+     * @param bornBefore    the date before which the pets were born,
+     *                      exclusive, in the same format as
+     *                      {@code bornAfter}.
+     * @param name          the prefix of the names of the pets.
+     * @param owner         the login of the owner of the pets.
+     * @param sort          the property used to sort the pets: {@code id},
+     *                      {@code name} or {@code birth}, preceded by
+     *                      {@code -} for descending order. If {@code null},
+     *                      pets are sorted by identifier.
+     * @param cursor        the cursor of the page, provided in the link to the
+     *                      next page. If {@code null}, the first page will be
+     *                      returned.
+     * @param limit         the maximum number of pets to return. If
+     *                      {@code null}, {@value #DEFAULT_PAGE_SIZE} will be
+     *                      used.
+     * @param asyncResponse the response, resumed when the pets are read.
+     */
+    @Path("pets")
+    @GET
+    public void searchPetsAsync(
+            @QueryParam("animal") String animal,
+            @QueryParam("bornAfter") String bornAfter,
+            @QueryParam("bornBefore") String bornBefore,
+            @QueryParam("name") String name,
+            @QueryParam("owner") String owner,
+            @QueryParam("sort") String sort,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("limit") Integer limit,
+            @Suspended AsyncResponse asyncResponse
+    ) {
+        // The request URI is only available in the request thread
+        final UriBuilder requestUri = uriInfo.getRequestUriBuilder();
+
+        this.async.submit(asyncResponse,
+                () -> this.searchPets(animal, bornAfter, bornBefore, name, owner, sort, cursor, limit, requestUri));
+    }
+
+    /**
+     * Returns the owner logins and pet names that contain a text, ignoring
+     * case, for typeahead fields. Texts of one or two characters only find
+     * the terms that start with them. Terms that start with the text are
+     * returned first and, then, terms are sorted alphabetically. Suggestions
+     * are served from memory, without accessing the database, so the response
+     * is resumed in the request thread. Only administrators can request
+     * suggestions.
+     * <p>
+     * The response is resumed with an {@code OK} response containing the list
+     * of {@link Suggestion}s. It is resumed with an
+     * {@link IllegalArgumentException} if {@code text} is {@code null}, if
+     * {@code type} is not valid or if {@code limit} is not between 1 and
+     * {@value #MAX_SUGGESTIONS}, and with a {@link SecurityException} if the
+     * current user is not an administrator.
+     *
+     * @param text          the text to find.
+     * @param type          the kind of terms to return: {@code owner} or
+     *                      {@code pet}. If {@code null}, both logins and pet
+     *                      names are returned.
+     * @param limit         the maximum number of terms to return. If
+     *                      {@code null}, {@value #DEFAULT_SUGGESTIONS} will be
+     *                      used.
+     * @param asyncResponse the response, resumed with the suggestions.
+     */
+    @Path("suggest")
+    @GET
+    public void suggestAsync(
+            @QueryParam("q") String text,
+            @QueryParam("type") String type,
+            @QueryParam("limit") Integer limit,
+            @Suspended AsyncResponse asyncResponse
+    ) {
+        this.async.resume(asyncResponse, () -> this.suggest(text, type, limit));
+    }
+
+    private Response suggest(String text, String type, Integer limit) {
+        if (text == null) throw new IllegalArgumentException("q can't be null");
+
+        final int maxSuggestions = limit == null ? DEFAULT_SUGGESTIONS : limit;
+        if (maxSuggestions < 1 || maxSuggestions > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SUGGESTIONS);
+        }
+
+        final Suggestion.Kind kind = parseKind(type);
+
+        try {
+            return Response.ok(this.suggestionService.suggest(text, kind, maxSuggestions)).build();
+        } catch (EJBAccessException eae) {
+            throw new SecurityException(eae);
+        }
+    }
+
+    private Response searchPets(
+            String animal, String bornAfter, String bornBefore, String name, String owner,
+            String sort, String cursor, Integer limit, UriBuilder requestUri
+    ) {
+        final int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        final PetSearch search = new PetSearch();
+        search.setAnimal(parseAnimal(animal));
+        search.setBornAfter(parseDate("bornAfter", bornAfter));
+        search.setBornBefore(parseDate("bornBefore", bornBefore));
+        search.setNamePrefix(name);
+        search.setOwner(owner);
+        search.setCursor(cursor);
+        search.setLimit(pageSize);
+
+        if (sort != null) {
+            final boolean descending = sort.startsWith("-");
+
+            search.setDescending(descending);
+            search.setSort(parseSort(descending ? sort.substring(1) : sort));
+        }
+
+        final PetSearchResult result;
+        try {
+            result = this.petSearch.search(search);
+        } catch (EJBAccessException eae) {
+            throw new SecurityException(eae);
+        } catch (EJBException ejbe) {
+            // Invalid cursors are only detected by the service
+            if (ejbe.getCause() instanceof IllegalArgumentException iae) throw iae;
+            else throw ejbe;
+        }
+
+        final Response.ResponseBuilder response = Response.ok(result.getPets());
+
+        if (result.getNextCursor() != null) {
+            response.link(requestUri.replaceQueryParam("cursor", result.getNextCursor()).build(), "next");
+        }
+
+        return response.build();
+    }
+
+    private static AnimalType parseAnimal(String animal) {
+        if (animal == null) return null;
+
+        try {
+            return AnimalType.valueOf(animal.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException iae) {
+            throw new IllegalArgumentException("Invalid animal: " + animal);
+        }
+    }
+
+    private static Suggestion.Kind parseKind(String type) {
+        if (type == null) return null;
+
+        try {
+            return Suggestion.Kind.valueOf(type.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException iae) {
+            throw new IllegalArgumentException("Invalid type: " + type);
+        }
+    }
+
+    private static PetSearch.Sort parseSort(String sort) {
+        try {
+            return PetSearch.Sort.valueOf(sort.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException iae) {
+            throw new IllegalArgumentException("Invalid sort: " + sort);
+        }
+    }
+
+    private static Date parseDate(String parameter, String value) {
+        if (value == null) return null;
+
+        try {
+            if (value.indexOf('T') < 0) {
+                return Date.from(LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant());
+            } else {
+                return Date.from(Instant.from(DATE_TIME_FORMATTER.parse(value)));
+            }
+        } catch (DateTimeParseException dtpe) {
+            throw new IllegalArgumentException("Invalid " + parameter + ": " + value);
+        }
+    }
+}
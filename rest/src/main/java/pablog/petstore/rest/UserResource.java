@@ -2,9 +2,12 @@ package pablog.petstore.rest;
 
 import jakarta.ejb.EJB;
 import jakarta.ejb.EJBAccessException;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import pablog.petstore.domain.entities.User;
@@ -17,8 +20,26 @@ public class UserResource {
     @EJB
     private UserService service;
 
+    @Inject
+    private AsyncExecutor async;
+
+    /**
+     * Returns the credentials of the current user.
+     * <p>
+     * The response is resumed with an {@code OK} response containing the
+     * {@link UserCredentials} of the current user. It is resumed with a
+     * {@link SecurityException} if the current user is not an owner or an
+     * administrator.
+     *
+     * @param asyncResponse the response, resumed when the credentials of the
+     *                      current user are read.
+     */
     @GET
-    public Response getCredentials() {
+    public void getCredentialsAsync(@Suspended AsyncResponse asyncResponse) {
+        this.async.submit(asyncResponse, this::getCredentials);
+    }
+
+    private Response getCredentials() {
         try {
             final User currentUser = this.service.getCurrentUser();
 
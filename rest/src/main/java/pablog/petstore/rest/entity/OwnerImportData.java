@@ -0,0 +1,41 @@
+package pablog.petstore.rest.entity;
+
+import pablog.petstore.domain.entities.Owner;
+import pablog.petstore.domain.entities.Pet;
+
+import java.io.Serial;
+import java.util.List;
+
+public class OwnerImportData extends OwnerCreationData {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private List<PetData> pets;
+
+    protected OwnerImportData() {
+    }
+
+    public OwnerImportData(String login, String password, List<PetData> pets) {
+        super(login, password);
+        this.pets = pets;
+    }
+
+    public List<PetData> getPets() {
+        return pets;
+    }
+
+    public void setPets(List<PetData> pets) {
+        this.pets = pets;
+    }
+
+    @Override
+    public Owner toOwner() {
+        if (this.pets == null) {
+            return super.toOwner();
+        } else {
+            return new Owner(this.getLogin(), this.getPassword(), this.pets.stream()
+                    .map(PetData::toPet)
+                    .toArray(Pet[]::new));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package pablog.petstore.rest.entity;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OwnerImportReport implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private int imported;
+    private final List<RecordError> errors;
+
+    public OwnerImportReport() {
+        this.errors = new ArrayList<>();
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getFailed() {
+        return errors.size();
+    }
+
+    public List<RecordError> getErrors() {
+        return errors;
+    }
+
+    public void addImported(int count) {
+        this.imported += count;
+    }
+
+    public void addError(long line, String login, String message) {
+        this.errors.add(new RecordError(line, login, message));
+    }
+
+    public static class RecordError implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final long line;
+        private final String login;
+        private final String message;
+
+        public RecordError(long line, String login, String message) {
+            this.line = line;
+            this.login = login;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getLogin() {
+            return login;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -28,14 +28,26 @@ public class PetData implements Serializable {
         return name;
     }
 
+    public void setName(String name) {
+        this.name = name;
+    }
+
     public AnimalType getAnimal() {
         return animal;
     }
 
+    public void setAnimal(AnimalType animal) {
+        this.animal = animal;
+    }
+
     public Date getBirth() {
         return birth;
     }
 
+    public void setBirth(Date birth) {
+        this.birth = birth;
+    }
+
     public Pet assignData(Pet pet) {
         pet.setName(this.name);
         pet.setAnimal(this.animal);
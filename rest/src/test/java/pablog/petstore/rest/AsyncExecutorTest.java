@@ -0,0 +1,169 @@
+package pablog.petstore.rest;
+
+import jakarta.enterprise.concurrent.ContextService;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.TimeoutHandler;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static pablog.petstore.http.util.HasHttpStatus.hasHttpStatus;
+
+class AsyncExecutorTest {
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private ContextService contextService;
+    private ExecutorService threads;
+    private AsyncResponse asyncResponse;
+
+    private AsyncExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        contextService = mock(ContextService.class);
+        when(contextService.contextualRunnable(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        threads = Executors.newVirtualThreadPerTaskExecutor();
+        asyncResponse = mock(AsyncResponse.class);
+
+        executor = new AsyncExecutor(contextService, threads, TIMEOUT_SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    void testSubmit() {
+        final Thread caller = Thread.currentThread();
+
+        executor.submit(asyncResponse, () -> Thread.currentThread() == caller ? "caller" : "executor");
+
+        verify(asyncResponse, timeout(1000)).resume("executor");
+        verify(asyncResponse).setTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        verify(contextService).contextualRunnable(any());
+    }
+
+    @Test
+    void testSubmitException() {
+        final IllegalArgumentException exception = new IllegalArgumentException();
+
+        executor.submit(asyncResponse, () -> {
+            throw exception;
+        });
+
+        verify(asyncResponse, timeout(1000)).resume(exception);
+    }
+
+    @Test
+    void testSubmitWithoutTimeout() {
+        executor = new AsyncExecutor(contextService, threads, 0);
+
+        executor.submit(asyncResponse, () -> "result");
+
+        verify(asyncResponse, timeout(1000)).resume("result");
+        verify(asyncResponse, never()).setTimeout(anyLong(), any());
+    }
+
+    @Test
+    void testSubmitTimeout() {
+        executor.submit(asyncResponse, () -> "result");
+
+        final ArgumentCaptor<TimeoutHandler> handler = ArgumentCaptor.forClass(TimeoutHandler.class);
+        verify(asyncResponse).setTimeoutHandler(handler.capture());
+
+        final AsyncResponse timedOut = mock(AsyncResponse.class);
+        handler.getValue().handleTimeout(timedOut);
+
+        verify(timedOut).resume(argThat((Response response) ->
+                hasHttpStatus(Response.Status.SERVICE_UNAVAILABLE).matches(response)));
+    }
+
+    @Test
+    void testSubmitTimeoutCancelsTask() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        executor.submit(asyncResponse, () -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException ie) {
+                interrupted.countDown();
+            }
+            return "result";
+        });
+
+        final ArgumentCaptor<TimeoutHandler> handler = ArgumentCaptor.forClass(TimeoutHandler.class);
+        verify(asyncResponse).setTimeoutHandler(handler.capture());
+        assertThat(started.await(1, TimeUnit.SECONDS), is(true));
+
+        handler.getValue().handleTimeout(mock(AsyncResponse.class));
+
+        assertThat(interrupted.await(1, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    void testSubmitAfterTimeoutSkipsTask() {
+        when(asyncResponse.isDone()).thenReturn(true);
+        final AtomicBoolean ran = new AtomicBoolean();
+
+        executor.submit(asyncResponse, () -> {
+            ran.set(true);
+            return "result";
+        });
+
+        verify(asyncResponse, after(200).never()).resume(any(Object.class));
+        assertThat(ran.get(), is(false));
+    }
+
+    @Test
+    void testSubmitRejected() {
+        threads.shutdown();
+
+        executor.submit(asyncResponse, () -> "result");
+
+        verify(asyncResponse).resume(argThat((Response response) ->
+                hasHttpStatus(Response.Status.SERVICE_UNAVAILABLE).matches(response)));
+    }
+
+    @Test
+    void testResume() {
+        final Thread caller = Thread.currentThread();
+
+        executor.resume(asyncResponse, () -> Thread.currentThread() == caller);
+
+        verify(asyncResponse).resume(true);
+    }
+
+    @Test
+    void testResumeException() {
+        final SecurityException exception = new SecurityException();
+
+        executor.resume(asyncResponse, () -> {
+            throw exception;
+        });
+
+        verify(asyncResponse).resume(exception);
+    }
+}
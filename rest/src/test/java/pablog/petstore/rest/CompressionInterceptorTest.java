@@ -0,0 +1,265 @@
+package pablog.petstore.rest;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pablog.petstore.rest.CompressionInterceptor.Encoding;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CompressionInterceptorTest {
+    private static final int MIN_SIZE = 256;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private CompressionInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new CompressionInterceptor(MIN_SIZE, Deflater.DEFAULT_COMPRESSION, 2, clock::incrementAndGet);
+    }
+
+    @Test
+    void testNegotiate() {
+        assertThat(CompressionInterceptor.negotiate("gzip, deflate"), is(Encoding.GZIP));
+        assertThat(CompressionInterceptor.negotiate("deflate"), is(Encoding.DEFLATE));
+        assertThat(CompressionInterceptor.negotiate("gzip;q=0.5, deflate"), is(Encoding.DEFLATE));
+        assertThat(CompressionInterceptor.negotiate("GZIP"), is(Encoding.GZIP));
+        assertThat(CompressionInterceptor.negotiate("*"), is(Encoding.GZIP));
+        assertThat(CompressionInterceptor.negotiate("gzip;q=0, *"), is(Encoding.DEFLATE));
+    }
+
+    @Test
+    void testNegotiateNotAccepted() {
+        assertThat(CompressionInterceptor.negotiate(null), is(nullValue()));
+        assertThat(CompressionInterceptor.negotiate("identity"), is(nullValue()));
+        assertThat(CompressionInterceptor.negotiate("br"), is(nullValue()));
+        assertThat(CompressionInterceptor.negotiate("gzip;q=0, deflate;q=0"), is(nullValue()));
+        assertThat(CompressionInterceptor.negotiate("*;q=0"), is(nullValue()));
+    }
+
+    @Test
+    void testFilter() {
+        final ContainerRequestContext request = mock(ContainerRequestContext.class);
+        final ContainerResponseContext response = mock(ContainerResponseContext.class);
+        final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+
+        when(request.getHeaderString(HttpHeaders.ACCEPT_ENCODING)).thenReturn("gzip, deflate");
+        when(response.hasEntity()).thenReturn(true);
+        when(response.getHeaders()).thenReturn(headers);
+
+        interceptor.filter(request, response);
+
+        assertThat(headers.getFirst(HttpHeaders.VARY), is(HttpHeaders.ACCEPT_ENCODING));
+        verify(request).setProperty(anyString(), eq(Encoding.GZIP));
+    }
+
+    @Test
+    void testFilterWithoutEntity() {
+        final ContainerRequestContext request = mock(ContainerRequestContext.class);
+        final ContainerResponseContext response = mock(ContainerResponseContext.class);
+
+        when(response.hasEntity()).thenReturn(false);
+
+        interceptor.filter(request, response);
+
+        verify(request, never()).setProperty(anyString(), any());
+    }
+
+    @Test
+    void testAroundWriteToGzip() throws IOException {
+        final byte[] body = jsonBody(100);
+        final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+
+        final byte[] written = write(Encoding.GZIP, headers, body);
+
+        assertThat(headers.getFirst(HttpHeaders.CONTENT_ENCODING), is("gzip"));
+        assertThat(written.length, is(lessThan(body.length)));
+        assertThat(readAll(new GZIPInputStream(new ByteArrayInputStream(written))), is(body));
+
+        final CompressionStatistics statistics = interceptor.getStatistics();
+        assertThat(statistics.getCompressedCount(), is(1L));
+        assertThat(statistics.getBytesIn(), is((long) body.length));
+        assertThat(statistics.getBytesOut(), is((long) written.length));
+        assertThat(statistics.getBytesSaved(), is((long) (body.length - written.length)));
+        assertThat(statistics.getCpuTimeNanos(), is(greaterThan(0L)));
+    }
+
+    @Test
+    void testThreadCpuClockOnVirtualThread() throws InterruptedException {
+        final LongSupplier cpuClock = CompressionInterceptor.threadCpuClock();
+        final AtomicLong elapsed = new AtomicLong();
+
+        Thread.ofVirtual().start(() -> {
+            final long start = cpuClock.getAsLong();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+            elapsed.set(cpuClock.getAsLong() - start);
+        }).join();
+
+        assertThat(elapsed.get(), is(greaterThan(0L)));
+    }
+
+    @Test
+    void testAroundWriteToDeflate() throws IOException {
+        final byte[] body = jsonBody(100);
+        final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+
+        final byte[] written = write(Encoding.DEFLATE, headers, body);
+
+        assertThat(headers.getFirst(HttpHeaders.CONTENT_ENCODING), is("deflate"));
+        assertThat(readAll(new InflaterInputStream(new ByteArrayInputStream(written))), is(body));
+        assertThat(interceptor.getStatistics().getCompressedCount(), is(1L));
+    }
+
+    @Test
+    void testAroundWriteToBelowMinSize() throws IOException {
+        final byte[] body = jsonBody(1);
+        final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+
+        final byte[] written = write(Encoding.GZIP, headers, body);
+
+        assertThat(headers.containsKey(HttpHeaders.CONTENT_ENCODING), is(false));
+        assertThat(written, is(body));
+        assertThat(interceptor.getStatistics().getCompressedCount(), is(0L));
+        assertThat(interceptor.getStatistics().getUncompressedCount(), is(1L));
+    }
+
+    @Test
+    void testAroundWriteToTagsEncoding() throws IOException {
+        final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        headers.putSingle(HttpHeaders.ETAG, new EntityTag("3"));
+
+        write(Encoding.GZIP, headers, jsonBody(100));
+
+        assertThat(headers.getFirst(HttpHeaders.ETAG), is(new EntityTag("3-gzip")));
+    }
+
+    @Test
+    void testAroundWriteToBelowMinSizeKeepsTag() throws IOException {
+        final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        headers.putSingle(HttpHeaders.ETAG, new EntityTag("3"));
+
+        write(Encoding.GZIP, headers, "[]".getBytes(UTF_8));
+
+        assertThat(headers.getFirst(HttpHeaders.ETAG), is(new EntityTag("3")));
+    }
+
+    @Test
+    void testAroundWriteToNotNegotiated() throws IOException {
+        final byte[] body = jsonBody(100);
+        final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+
+        final byte[] written = write(null, headers, body);
+
+        assertThat(headers.containsKey(HttpHeaders.CONTENT_ENCODING), is(false));
+        assertThat(written, is(body));
+        assertThat(interceptor.getStatistics().getUncompressedCount(), is(0L));
+    }
+
+    @Test
+    void testAroundWriteToReusesDeflaters() throws IOException {
+        final byte[] body = jsonBody(100);
+
+        for (int i = 0; i < 3; i++) {
+            final byte[] written = write(Encoding.GZIP, new MultivaluedHashMap<>(), body);
+
+            assertThat(readAll(new GZIPInputStream(new ByteArrayInputStream(written))), is(body));
+        }
+
+        assertThat(interceptor.getStatistics().getCompressedCount(), is(3L));
+    }
+
+    @Test
+    void testDeflaterPool() {
+        final DeflaterPool pool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true, 1);
+
+        final Deflater first = pool.acquire();
+        final Deflater second = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+
+        assertThat(pool.size(), is(1));
+        assertThat(pool.acquire(), is(sameInstance(first)));
+    }
+
+    private byte[] write(Encoding encoding, MultivaluedMap<String, Object> headers, byte[] body) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final AtomicReference<OutputStream> stream = new AtomicReference<>(output);
+        final WriterInterceptorContext context = mock(WriterInterceptorContext.class);
+
+        when(context.getProperty(anyString())).thenReturn(encoding);
+        when(context.getHeaders()).thenReturn(headers);
+        when(context.getOutputStream()).thenAnswer(invocation -> stream.get());
+        doAnswer(invocation -> {
+            stream.set(invocation.getArgument(0));
+            return null;
+        }).when(context).setOutputStream(any());
+        doAnswer(invocation -> {
+            final OutputStream entityStream = stream.get();
+            entityStream.write(body, 0, body.length / 2);
+            entityStream.flush();
+            entityStream.write(body, body.length / 2, body.length - body.length / 2);
+            return null;
+        }).when(context).proceed();
+
+        interceptor.aroundWriteTo(context);
+
+        assertThat(stream.get(), is(sameInstance(output)));
+
+        return output.toByteArray();
+    }
+
+    private static byte[] jsonBody(int pets) {
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < pets; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"animal\":\"CAT\",\"birth\":\"2000-01-01T00:00:00Z[UTC]\",\"id\":")
+                    .append(i)
+                    .append(",\"name\":\"Pet")
+                    .append(i)
+                    .append("\"}");
+        }
+
+        return json.append(']').toString().getBytes(UTF_8);
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        try (input) {
+            return input.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package pablog.petstore.rest;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.rest.entity.OwnerCreationData;
+import pablog.petstore.rest.entity.OwnerEditionData;
+import pablog.petstore.rest.entity.PetData;
+
+import java.io.ByteArrayInputStream;
+import java.lang.annotation.Annotation;
+import java.util.Date;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EntityJsonReaderTest {
+    private static Jsonb jsonb;
+
+    private final EntityJsonReader reader = new EntityJsonReader();
+
+    @BeforeAll
+    static void setUpJsonb() {
+        jsonb = JsonbBuilder.create();
+    }
+
+    @AfterAll
+    static void tearDownJsonb() throws Exception {
+        jsonb.close();
+    }
+
+    @Test
+    void testReadPetDataWrittenByJsonb() {
+        final PetData data = new PetData("Pepecat", AnimalType.CAT, new Date(946684861123L));
+
+        final PetData read = read(PetData.class, jsonb.toJson(data));
+
+        assertThat(read.getName(), is(data.getName()));
+        assertThat(read.getAnimal(), is(data.getAnimal()));
+        assertThat(read.getBirth(), is(data.getBirth()));
+    }
+
+    @Test
+    void testReadDateWithoutZone() {
+        final PetData read = read(PetData.class, "{\"birth\":\"2000-01-01T00:01:01\"}");
+
+        assertThat(read.getBirth(), is(new Date(946684861000L)));
+        assertThat(read.getName(), is(nullValue()));
+        assertThat(read.getAnimal(), is(nullValue()));
+    }
+
+    @Test
+    void testReadOwnerData() {
+        final OwnerCreationData creation = read(OwnerCreationData.class,
+                "{\"login\":\"pepe\",\"ignored\":{\"a\":[1,{\"b\":2}]},\"password\":\"pe\\\"pe\",\"other\":[1,2]}");
+        final OwnerEditionData edition = read(OwnerEditionData.class, "{\"password\":\"pepepass\",\"login\":\"pepe\"}");
+
+        assertThat(creation.getLogin(), is("pepe"));
+        assertThat(creation.getPassword(), is("pe\"pe"));
+        assertThat(edition.getPassword(), is("pepepass"));
+    }
+
+    @Test
+    void testReadNull() {
+        assertThat(read(PetData.class, "null"), is(nullValue()));
+    }
+
+    @Test
+    void testReadInvalidDocuments() {
+        assertThrows(BadRequestException.class, () -> read(PetData.class, "{\"name\":"));
+        assertThrows(BadRequestException.class, () -> read(PetData.class, "[]"));
+        assertThrows(BadRequestException.class, () -> read(PetData.class, "{\"animal\":\"COW\"}"));
+        assertThrows(BadRequestException.class, () -> read(PetData.class, "{\"birth\":\"yesterday\"}"));
+        assertThrows(BadRequestException.class, () -> read(OwnerCreationData.class, "{\"login\":1}"));
+    }
+
+    @Test
+    void testIsReadable() {
+        final Annotation[] annotations = new Annotation[0];
+
+        assertThat(reader.isReadable(PetData.class, PetData.class, annotations, MediaType.APPLICATION_JSON_TYPE), is(true));
+        assertThat(reader.isReadable(OwnerCreationData.class, OwnerCreationData.class, annotations, MediaType.APPLICATION_JSON_TYPE), is(true));
+        assertThat(reader.isReadable(OwnerEditionData.class, OwnerEditionData.class, annotations, MediaType.APPLICATION_JSON_TYPE), is(true));
+        assertThat(reader.isReadable(String.class, String.class, annotations, MediaType.APPLICATION_JSON_TYPE), is(false));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T read(Class<T> type, String json) {
+        return (T) reader.readFrom((Class<Object>) (Class<?>) type, type, new Annotation[0], MediaType.APPLICATION_JSON_TYPE,
+                new MultivaluedHashMap<>(), new ByteArrayInputStream(json.getBytes(UTF_8)));
+    }
+}
@@ -0,0 +1,198 @@
+package pablog.petstore.rest;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.entities.Owner;
+import pablog.petstore.domain.entities.Pet;
+import pablog.petstore.rest.entity.OwnerImportReport;
+import pablog.petstore.rest.entity.UserCredentials;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static pablog.petstore.domain.entities.OwnersDataset.existentOwner;
+import static pablog.petstore.domain.entities.OwnersDataset.existentPet;
+import static pablog.petstore.domain.entities.OwnersDataset.owners;
+import static pablog.petstore.domain.entities.OwnersDataset.pets;
+
+class EntityJsonWriterTest {
+    private static Jsonb jsonb;
+
+    private final EntityJsonWriter writer = new EntityJsonWriter();
+
+    @BeforeAll
+    static void setUpJsonb() {
+        jsonb = JsonbBuilder.create();
+    }
+
+    @AfterAll
+    static void tearDownJsonb() throws Exception {
+        jsonb.close();
+    }
+
+    @Test
+    void testWriteOwnerAsJsonb() throws IOException {
+        assertWritesAsJsonb(existentOwner(), Owner.class, Owner.class);
+    }
+
+    @Test
+    void testWriteOwnerWithoutPetsAsJsonb() throws IOException {
+        assertWritesAsJsonb(new Owner("lorena", "lorenapass"), Owner.class, Owner.class);
+    }
+
+    @Test
+    void testWritePetAsJsonb() throws IOException {
+        assertWritesAsJsonb(existentPet(), Pet.class, Pet.class);
+    }
+
+    @Test
+    void testWriteCredentialsAsJsonb() throws IOException {
+        assertWritesAsJsonb(new UserCredentials(existentOwner()), UserCredentials.class, UserCredentials.class);
+    }
+
+    @Test
+    void testWriteListsAsJsonb() throws IOException {
+        final List<Owner> owners = asList(owners());
+        final List<Pet> pets = asList(pets());
+
+        assertWritesAsJsonb(owners, List.class, new GenericEntity<List<Owner>>(owners) {}.getType());
+        assertWritesAsJsonb(pets, List.class, new GenericEntity<List<Pet>>(pets) {}.getType());
+        assertWritesAsJsonb(new ArrayList<>(owners), ArrayList.class, ArrayList.class);
+        assertWritesAsJsonb(new ArrayList<>(), ArrayList.class, ArrayList.class);
+    }
+
+    @Test
+    void testWriteListOfOtherTypesAsJsonb() throws IOException {
+        final OwnerImportReport report = new OwnerImportReport();
+        report.addImported(2);
+        report.addError(3, "pepe", "duplicated login");
+
+        assertWritesAsJsonb(new ArrayList<>(asList(report, "text", 1, null)), ArrayList.class, ArrayList.class);
+    }
+
+    @Test
+    void testWriteEscapedStringsAsJsonb() throws IOException {
+        final Owner owner = new Owner("\"quoted\" \\ / \t\n\u0001 áéí € 🐶", "password");
+        new Pet("Ñandú \u007F\u0080߿ࠀ￿", AnimalType.BIRD, new Date(0), owner);
+
+        assertWritesAsJsonb(owner, Owner.class, Owner.class);
+    }
+
+    @Test
+    void testWriteDatesAsJsonb() throws IOException {
+        final long[] times = {0L, 1L, 10L, 100L, 999L, 946684861000L, 951782400000L, 951868799999L, 1709164800000L};
+
+        for (long time : times) {
+            assertWritesAsJsonb(new Pet("Pet", AnimalType.DOG, new Date(time)), Pet.class, Pet.class);
+        }
+    }
+
+    @Test
+    void testWriteTimestampsAsJsonb() throws IOException {
+        for (int nanos : new int[]{1, 10, 120000, 100000000, 123456789}) {
+            final Timestamp birth = new Timestamp(946684861000L);
+            birth.setNanos(nanos);
+
+            assertWritesAsJsonb(new Pet("Pet", AnimalType.DOG, birth), Pet.class, Pet.class);
+        }
+    }
+
+    @Test
+    void testWriteProjectionsAsJsonb() throws IOException {
+        final Map<String, Object> owner = new LinkedHashMap<>();
+        owner.put("login", "pepe");
+        owner.put("role", "OWNER");
+
+        assertWritesAsJsonb(owner, LinkedHashMap.class, LinkedHashMap.class);
+        assertWritesAsJsonb(new ArrayList<>(List.of(owner, Map.of("login", "ana"))), ArrayList.class, ArrayList.class);
+    }
+
+    @Test
+    void testWriteProjectionsAsEntities() throws IOException {
+        final Owner owner = existentOwner();
+        final Pet pet = owner.getPets().iterator().next();
+
+        final Map<String, Object> petFields = new LinkedHashMap<>();
+        petFields.put("animal", pet.getAnimal());
+        petFields.put("birth", new Timestamp(pet.getBirth().getTime()));
+        petFields.put("id", pet.getId());
+        petFields.put("name", pet.getName());
+
+        final Map<String, Object> ownerFields = new LinkedHashMap<>();
+        ownerFields.put("login", owner.getLogin());
+        ownerFields.put("password", owner.getPassword());
+        ownerFields.put("role", owner.getRole());
+        ownerFields.put("pets", List.of(petFields));
+
+        assertThat(write(petFields), is(write(pet)));
+        assertThat(write(ownerFields), is(write(owner)));
+    }
+
+    @Test
+    void testWriteNumbers() throws IOException {
+        for (long value : new long[]{0, 7, -7, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (JsonOutput json = new JsonOutput(output)) {
+                json.writeNumber(value);
+            }
+
+            assertThat(output.toString(UTF_8), is(Long.toString(value)));
+        }
+    }
+
+    @Test
+    void testWriteLargeList() throws IOException {
+        final Owner owner = new Owner("pepe", "pepepass");
+        for (int i = 0; i < 1000; i++) {
+            new Pet("Pet " + i, AnimalType.values()[i % AnimalType.values().length], new Date(i * 1000L), owner);
+        }
+
+        assertWritesAsJsonb(owner, Owner.class, Owner.class);
+    }
+
+    @Test
+    void testIsWriteable() {
+        final Annotation[] annotations = new Annotation[0];
+
+        assertThat(writer.isWriteable(Owner.class, Owner.class, annotations, MediaType.APPLICATION_JSON_TYPE), is(true));
+        assertThat(writer.isWriteable(Pet.class, Pet.class, annotations, MediaType.APPLICATION_JSON_TYPE), is(true));
+        assertThat(writer.isWriteable(List.class, new GenericEntity<List<Pet>>(List.of()) {}.getType(), annotations, MediaType.APPLICATION_JSON_TYPE), is(true));
+        assertThat(writer.isWriteable(ArrayList.class, ArrayList.class, annotations, MediaType.APPLICATION_JSON_TYPE), is(true));
+        assertThat(writer.isWriteable(List.class, new GenericEntity<List<String>>(List.of()) {}.getType(), annotations, MediaType.APPLICATION_JSON_TYPE), is(false));
+        assertThat(writer.isWriteable(OwnerImportReport.class, OwnerImportReport.class, annotations, MediaType.APPLICATION_JSON_TYPE), is(false));
+    }
+
+    private String write(Object value) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.writeTo(value, value.getClass(), value.getClass(), new Annotation[0], MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), output);
+
+        return output.toString(UTF_8);
+    }
+
+    private void assertWritesAsJsonb(Object value, Class<?> type, Type genericType) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.writeTo(value, type, genericType, new Annotation[0], MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), output);
+
+        assertThat(output.toString(UTF_8), is(jsonb.toJson(value)));
+        assertThat(output.toByteArray(), is(jsonb.toJson(value).getBytes(UTF_8)));
+    }
+}
@@ -0,0 +1,264 @@
+package pablog.petstore.rest;
+
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LatencyFilterTest {
+    private final AtomicLong clock = new AtomicLong();
+
+    private ResourceInfo resourceInfo;
+    private LatencyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        resourceInfo = mock(ResourceInfo.class);
+        filter = new LatencyFilter(resourceInfo, clock::get);
+    }
+
+    @Test
+    void testHistogramIndexes() {
+        for (long value = 0; value < 100_000; value++) {
+            final int index = LatencyHistogram.indexOf(value);
+
+            assertThat(LatencyHistogram.lowestValueOf(index), is(lessThanOrEqualTo(value)));
+            assertThat(LatencyHistogram.highestValueOf(index), is(greaterThanOrEqualTo(value)));
+        }
+
+        assertThat(LatencyHistogram.indexOf(LatencyHistogram.MAX_VALUE), is(LatencyHistogram.BUCKET_COUNT - 1));
+        assertThat(LatencyHistogram.highestValueOf(LatencyHistogram.BUCKET_COUNT - 1), is(LatencyHistogram.MAX_VALUE));
+    }
+
+    @Test
+    void testHistogramQuantiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        final long[] counts = histogram.counts();
+
+        assertWithinError(LatencyHistogram.valueAtQuantile(counts, 1000, 0.5), 500_000);
+        assertWithinError(LatencyHistogram.valueAtQuantile(counts, 1000, 0.9), 900_000);
+        assertWithinError(LatencyHistogram.valueAtQuantile(counts, 1000, 0.99), 990_000);
+        assertWithinError(LatencyHistogram.valueAtQuantile(counts, 1000, 0.999), 999_000);
+        assertThat(histogram.max(), is(1_000_000L));
+        assertThat(histogram.sum(), is(500_500_000L));
+    }
+
+    @Test
+    void testHistogramEmpty() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(LatencyHistogram.valueAtQuantile(histogram.counts(), 0, 0.99), is(0L));
+    }
+
+    @Test
+    void testFilterWithoutEntity() throws NoSuchMethodException {
+        final Method resourceMethod = PetResource.class.getMethod("getAsync", int.class, String.class, AsyncResponse.class);
+        when(resourceInfo.getResourceMethod()).thenReturn(resourceMethod);
+
+        final ContainerRequestContext request = request(HttpMethod.GET);
+
+        clock.set(1000);
+        filter.filter(request);
+        clock.set(3000);
+        filter.filter(request, response(304, false));
+
+        final List<EndpointLatency> statistics = filter.getStatistics();
+        assertThat(statistics, hasSize(1));
+
+        final EndpointLatency latency = statistics.getFirst();
+        assertThat(latency.getMethod(), is(HttpMethod.GET));
+        assertThat(latency.getPath(), is("/pets/{id}"));
+        assertThat(latency.getCount(), is(1L));
+        assertThat(latency.getSumNanos(), is(2000L));
+        assertThat(latency.getStatusCounts(), is(Map.of(304, 1L)));
+    }
+
+    @Test
+    void testFilterWithEntity() throws NoSuchMethodException, IOException {
+        final Method resourceMethod = PetResource.class.getMethod("listAsync", boolean.class, String.class, AsyncResponse.class);
+        when(resourceInfo.getResourceMethod()).thenReturn(resourceMethod);
+
+        final Map<String, Object> properties = new HashMap<>();
+        final ContainerRequestContext request = request(HttpMethod.GET, properties);
+
+        clock.set(1000);
+        filter.filter(request);
+        clock.set(2000);
+        filter.filter(request, response(200, true));
+
+        assertThat(filter.getStatistics().getFirst().getCount(), is(0L));
+
+        final WriterInterceptorContext writer = mock(WriterInterceptorContext.class);
+        when(writer.getProperty(anyString())).thenAnswer(invocation -> properties.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> {
+            clock.set(5000);
+            return null;
+        }).when(writer).proceed();
+
+        filter.aroundWriteTo(writer);
+
+        final EndpointLatency latency = filter.getStatistics().getFirst();
+        assertThat(latency.getPath(), is("/pets"));
+        assertThat(latency.getCount(), is(1L));
+        assertThat(latency.getSumNanos(), is(4000L));
+        assertThat(latency.getStatusCounts(), is(Map.of(200, 1L)));
+    }
+
+    @Test
+    void testFilterSharesEndpoints() throws NoSuchMethodException {
+        final Method json = PetResource.class.getMethod("listAsync", boolean.class, String.class, AsyncResponse.class);
+        final Method ndjson = PetResource.class.getMethod("listAsNdjsonAsync", AsyncResponse.class);
+
+        for (Method resourceMethod : List.of(json, ndjson)) {
+            when(resourceInfo.getResourceMethod()).thenReturn(resourceMethod);
+
+            final ContainerRequestContext request = request(HttpMethod.GET);
+            filter.filter(request);
+            filter.filter(request, response(500, false));
+        }
+
+        final List<EndpointLatency> statistics = filter.getStatistics();
+        assertThat(statistics, hasSize(1));
+        assertThat(statistics.getFirst().getCount(), is(2L));
+        assertThat(statistics.getFirst().getStatusCounts(), is(Map.of(500, 2L)));
+    }
+
+    @Test
+    void testFilterReusesStartTimes() throws NoSuchMethodException {
+        final Method resourceMethod = PetResource.class.getMethod("getAsync", int.class, String.class, AsyncResponse.class);
+        when(resourceInfo.getResourceMethod()).thenReturn(resourceMethod);
+
+        final Map<String, Object> first = new HashMap<>();
+        final Map<String, Object> second = new HashMap<>();
+        final ContainerRequestContext firstRequest = request(HttpMethod.GET, first);
+        final ContainerRequestContext secondRequest = request(HttpMethod.GET, second);
+
+        filter.filter(firstRequest);
+        filter.filter(secondRequest);
+        final Object firstStart = first.get(LatencyFilter.class.getName() + ".start");
+        final Object secondStart = second.get(LatencyFilter.class.getName() + ".start");
+
+        // Requests in progress never share a start time
+        assertThat(firstStart, is(not(sameInstance(secondStart))));
+
+        filter.filter(firstRequest, response(200, false));
+        filter.filter(secondRequest, response(200, false));
+
+        final Set<Object> reused = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < 4096; i++) {
+            final Map<String, Object> properties = new HashMap<>();
+            final ContainerRequestContext request = request(HttpMethod.GET, properties);
+
+            filter.filter(request);
+            reused.add(properties.get(LatencyFilter.class.getName() + ".start"));
+            filter.filter(request, response(200, false));
+        }
+
+        assertThat(reused, hasItem(sameInstance(firstStart)));
+        assertThat(filter.getStatistics().getFirst().getCount(), is(4098L));
+    }
+
+    @Test
+    void testFilterNotMatched() {
+        final ContainerRequestContext request = request(HttpMethod.GET);
+
+        filter.filter(request);
+        filter.filter(request, response(404, false));
+
+        assertThat(filter.getStatistics(), is(empty()));
+    }
+
+    @Test
+    void testPrometheusFormat() {
+        final EndpointLatency latency = new EndpointLatency(
+                HttpMethod.GET, "/owners/{login}",
+                3, 3_000_000, 1_500_000,
+                1_000_000, 1_500_000, 1_500_000, 1_500_000,
+                Map.of(200, 2L, 404, 1L)
+        );
+
+        final String text = PrometheusFormat.format(List.of(latency));
+
+        assertThat(text, containsString("# TYPE petstore_http_request_duration_seconds summary\n"));
+        assertThat(text, containsString(
+                "petstore_http_request_duration_seconds{method=\"GET\",path=\"/owners/{login}\",quantile=\"0.5\"} 0.001\n"
+        ));
+        assertThat(text, containsString(
+                "petstore_http_request_duration_seconds_sum{method=\"GET\",path=\"/owners/{login}\"} 0.003\n"
+        ));
+        assertThat(text, containsString(
+                "petstore_http_request_duration_seconds_count{method=\"GET\",path=\"/owners/{login}\"} 3\n"
+        ));
+        assertThat(text, containsString("# TYPE petstore_http_responses_total counter\n"));
+        assertThat(text, containsString(
+                "petstore_http_responses_total{method=\"GET\",path=\"/owners/{login}\",status=\"404\"} 1\n"
+        ));
+    }
+
+    private static void assertWithinError(long actual, long expected) {
+        final long error = expected / 32;
+
+        assertThat(actual, is(greaterThanOrEqualTo(expected - error)));
+        assertThat(actual, is(lessThanOrEqualTo(expected + error)));
+    }
+
+    private static ContainerRequestContext request(String method) {
+        return request(method, new HashMap<>());
+    }
+
+    private static ContainerRequestContext request(String method, Map<String, Object> properties) {
+        final ContainerRequestContext request = mock(ContainerRequestContext.class);
+
+        when(request.getMethod()).thenReturn(method);
+        when(request.getProperty(anyString())).thenAnswer(invocation -> properties.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> properties.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(request).setProperty(anyString(), any());
+        doAnswer(invocation -> properties.remove(invocation.<String>getArgument(0)))
+                .when(request).removeProperty(anyString());
+
+        return request;
+    }
+
+    private static ContainerResponseContext response(int status, boolean hasEntity) {
+        final ContainerResponseContext response = mock(ContainerResponseContext.class);
+
+        when(response.getStatus()).thenReturn(status);
+        when(response.hasEntity()).thenReturn(hasEntity);
+
+        return response;
+    }
+}
@@ -0,0 +1,110 @@
+package pablog.petstore.rest;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.UriInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pablog.petstore.domain.persistence.StatementCounter;
+import pablog.petstore.service.RequestStatistics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrmStatisticsFilterTest {
+    private Map<String, Object> properties;
+    private ContainerRequestContext request;
+    private ContainerResponseContext response;
+    private MultivaluedMap<String, Object> headers;
+
+    @BeforeEach
+    void setUp() {
+        properties = new HashMap<>();
+        request = mock(ContainerRequestContext.class);
+        response = mock(ContainerResponseContext.class);
+        headers = new MultivaluedHashMap<>();
+
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getUriInfo()).thenReturn(mock(UriInfo.class));
+        when(request.getProperty(anyString())).thenAnswer(invocation -> properties.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> properties.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(request).setProperty(anyString(), any());
+        when(response.getHeaders()).thenReturn(headers);
+    }
+
+    @Test
+    void testDebugStatisticsHeader() {
+        final OrmStatisticsFilter filter = new OrmStatisticsFilter(true);
+        final RequestStatistics requestStatistics = mock(RequestStatistics.class);
+        when(requestStatistics.getSuspectedNPlusOneRoles()).thenReturn(Set.of());
+        when(requestStatistics.getEntityLoadCount()).thenReturn(50L);
+        when(requestStatistics.getCollectionLoadCount()).thenReturn(1);
+        properties.put(RequestStatisticsBinder.STATISTICS_ATTRIBUTE, requestStatistics);
+
+        try (StatementCounter.Scope statements = StatementCounter.open()) {
+            statements.allow(3);
+            new StatementCounter().inspect("select 1");
+            new StatementCounter().inspect("select 2");
+            properties.put(RequestStatisticsBinder.STATEMENTS_ATTRIBUTE, statements);
+
+            filter.filter(request, response);
+        }
+
+        assertThat(headers.getFirst(OrmStatisticsFilter.STATISTICS_HEADER), is("statements=2, entity-loads=50, collection-loads=1"));
+        assertThat(headers.getFirst(OrmStatisticsFilter.STATEMENTS_HEADER), is("2/3"));
+    }
+
+    @Test
+    void testDebugStatisticsHeaderWithoutStatements() {
+        final OrmStatisticsFilter filter = new OrmStatisticsFilter(true);
+        final RequestStatistics requestStatistics = mock(RequestStatistics.class);
+        when(requestStatistics.getSuspectedNPlusOneRoles()).thenReturn(Set.of());
+        when(requestStatistics.getEntityLoadCount()).thenReturn(4L);
+        properties.put(RequestStatisticsBinder.STATISTICS_ATTRIBUTE, requestStatistics);
+
+        filter.filter(request, response);
+
+        assertThat(headers.getFirst(OrmStatisticsFilter.STATISTICS_HEADER), is("entity-loads=4, collection-loads=0"));
+        assertThat(headers.containsKey(OrmStatisticsFilter.STATEMENTS_HEADER), is(false));
+    }
+
+    @Test
+    void testNPlusOneHeader() {
+        final OrmStatisticsFilter filter = new OrmStatisticsFilter(true);
+        properties.put(RequestStatisticsBinder.STATISTICS_ATTRIBUTE, nPlusOne("pablog.petstore.domain.entities.Owner.pets"));
+
+        filter.filter(request, response);
+
+        assertThat(headers.getFirst(OrmStatisticsFilter.N_PLUS_ONE_HEADER), is("pablog.petstore.domain.entities.Owner.pets"));
+    }
+
+    @Test
+    void testWithoutDebug() {
+        final OrmStatisticsFilter filter = new OrmStatisticsFilter(false);
+        properties.put(RequestStatisticsBinder.STATISTICS_ATTRIBUTE, nPlusOne("pablog.petstore.domain.entities.Owner.pets"));
+
+        filter.filter(request, response);
+
+        assertThat(headers.isEmpty(), is(true));
+    }
+
+    private static RequestStatistics nPlusOne(String role) {
+        final RequestStatistics requestStatistics = mock(RequestStatistics.class);
+
+        when(requestStatistics.getSuspectedNPlusOneRoles()).thenReturn(Set.of(role));
+        when(requestStatistics.getCollectionLoadCount(role)).thenReturn(11);
+
+        return requestStatistics;
+    }
+}
@@ -26,6 +26,7 @@ import org.junit.jupiter.api.*;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.ClientBuilder;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
@@ -131,6 +132,37 @@ class OwnerResourceRestTest {
         dbUnit.executeCleanupScripts("scripts/cleanup.sql", "scripts/cleanup-autoincrement.sql");
     }
 
+    @Test
+    @Order(7)
+    void beforeGetNotModified() throws Exception {
+        dbUnit.loadDataSet("owners.xml");
+    }
+
+    @Test
+    @Order(8)
+    @RunAsClient
+    void testGetNotModified() {
+        client = ClientBuilder.newClient();
+        final Response response = authorizedJsonRequestGet(deploymentUrl + BASE_PATH + EXISTENT_LOGIN);
+        final String etag = response.getHeaderString(HttpHeaders.ETAG);
+
+        final Response notModified = client.target(deploymentUrl + BASE_PATH + EXISTENT_LOGIN)
+                .request(MediaType.APPLICATION_JSON_TYPE)
+                .header("Authorization", BASIC_AUTHORIZATION)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .get();
+
+        assertThat(notModified, hasNotModifiedStatus());
+        assertThat(notModified.hasEntity(), is(false));
+    }
+
+    @Test
+    @Order(9)
+    void afterGetNotModified() throws Exception {
+        dbUnit.assertDataSet("owners.xml");
+        dbUnit.executeCleanupScripts("scripts/cleanup.sql", "scripts/cleanup-autoincrement.sql");
+    }
+
     @Test
     @Order(10)
     void beforeList() throws Exception {
@@ -220,6 +252,35 @@ class OwnerResourceRestTest {
         dbUnit.executeCleanupScripts("scripts/cleanup.sql", "scripts/cleanup-autoincrement.sql");
     }
 
+    @Test
+    @Order(33)
+    public void beforeUpdatePasswordStaleTag() throws Exception {
+        dbUnit.loadDataSet("owners.xml");
+    }
+
+    @Test
+    @Order(34)
+    @RunAsClient
+    void testUpdatePasswordStaleTag() {
+        client = ClientBuilder.newClient();
+        final OwnerEditionData ownerData = new OwnerEditionData(newPasswordForExistentOwner());
+
+        final Response response = client.target(deploymentUrl + BASE_PATH + EXISTENT_LOGIN)
+                .request(MediaType.APPLICATION_JSON_TYPE)
+                .header("Authorization", BASIC_AUTHORIZATION)
+                .header(HttpHeaders.IF_MATCH, "\"stale\"")
+                .put(json(ownerData));
+
+        assertThat(response, hasPreconditionFailedStatus());
+    }
+
+    @Test
+    @Order(35)
+    void afterUpdatePasswordStaleTag() throws Exception {
+        dbUnit.assertDataSet("owners.xml");
+        dbUnit.executeCleanupScripts("scripts/cleanup.sql", "scripts/cleanup-autoincrement.sql");
+    }
+
     @Test
     @Order(40)
     public void beforeDeleteWithoutPets() throws Exception {
@@ -4,33 +4,51 @@ import pablog.petstore.domain.entities.Owner;
 import pablog.petstore.domain.entities.OwnersDataset;
 import pablog.petstore.rest.entity.OwnerCreationData;
 import pablog.petstore.rest.entity.OwnerEditionData;
+import pablog.petstore.rest.entity.OwnerImportReport;
 import pablog.petstore.service.OwnerService;
+import pablog.petstore.service.PetService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.persistence.EntityExistsException;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriBuilder;
 import jakarta.ws.rs.core.UriInfo;
 
+import java.io.ByteArrayInputStream;
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static pablog.petstore.domain.entities.IsEqualToOwner.containsOwnersInAnyOrder;
 import static pablog.petstore.domain.entities.IsEqualToOwner.equalToOwner;
 import static pablog.petstore.domain.entities.OwnersDataset.*;
 import static pablog.petstore.http.util.HasHttpStatus.hasCreatedStatus;
+import static pablog.petstore.http.util.HasHttpStatus.hasNotModifiedStatus;
 import static pablog.petstore.http.util.HasHttpStatus.hasOkStatus;
+import static pablog.petstore.http.util.HasHttpStatus.hasPreconditionFailedStatus;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -48,23 +66,66 @@ class OwnerResourceUnitTest {
     @Mock
     private UriBuilder uriBuilder;
 
+    @Mock
+    private AsyncExecutor async;
+
     @Test
     void testGet() {
         final Owner owner = OwnersDataset.anyOwner();
 
         when(facade.get(owner.getLogin())).thenReturn(owner);
 
-        final Response response = resource.get(owner.getLogin());
+        final Response response = call(asyncResponse -> resource.getAsync(owner.getLogin(), null, asyncResponse));
 
         assertThat(response, hasOkStatus());
         assertThat(response.getEntity(), is(instanceOf(Owner.class)));
         assertThat((Owner) response.getEntity(), is(equalToOwner(owner)));
+        assertThat(response.getEntityTag(), is(new EntityTag(OwnerService.versionTagOf(owner))));
+        verify(facade).get(owner.getLogin());
+    }
+
+    @Test
+    void testGetNotModified() {
+        final Owner owner = OwnersDataset.anyOwner();
+        final String versionTag = OwnerService.versionTagOf(owner);
+
+        when(facade.getVersionTag(owner.getLogin())).thenReturn(versionTag);
+
+        final Response response = call(asyncResponse -> resource.getAsync(owner.getLogin(), '"' + versionTag + '"', asyncResponse));
+
+        assertThat(response, hasNotModifiedStatus());
+        verify(facade, never()).get(owner.getLogin());
+    }
+
+    @Test
+    void testGetNotModifiedCompressed() {
+        final Owner owner = OwnersDataset.anyOwner();
+        final String versionTag = OwnerService.versionTagOf(owner);
+
+        when(facade.getVersionTag(owner.getLogin())).thenReturn(versionTag);
+
+        final Response response = call(asyncResponse -> resource.getAsync(owner.getLogin(), '"' + versionTag + "-gzip\"", asyncResponse));
+
+        assertThat(response, hasNotModifiedStatus());
+        verify(facade, never()).get(owner.getLogin());
+    }
+
+    @Test
+    void testGetModified() {
+        final Owner owner = OwnersDataset.anyOwner();
+
+        when(facade.getVersionTag(owner.getLogin())).thenReturn(OwnerService.versionTagOf(owner));
+        when(facade.get(owner.getLogin())).thenReturn(owner);
+
+        final Response response = call(asyncResponse -> resource.getAsync(owner.getLogin(), "\"stale\"", asyncResponse));
+
+        assertThat(response, hasOkStatus());
         verify(facade).get(owner.getLogin());
     }
 
     @Test
     void testGetNull() {
-        assertThrows(IllegalArgumentException.class, () -> resource.get(null));
+        assertThrows(IllegalArgumentException.class, () -> call(asyncResponse -> resource.getAsync(null, null, asyncResponse)));
     }
 
     @Test
@@ -73,7 +134,7 @@ class OwnerResourceUnitTest {
 
         when(facade.get(login)).thenReturn(null);
 
-        assertThrows(IllegalArgumentException.class, () -> resource.get(login));
+        assertThrows(IllegalArgumentException.class, () -> call(asyncResponse -> resource.getAsync(login, null, asyncResponse)));
     }
 
     @Test
@@ -83,7 +144,7 @@ class OwnerResourceUnitTest {
 
         when(facade.list()).thenReturn(asList(owners));
 
-        final Response response = resource.list();
+        final Response response = call(asyncResponse -> resource.listAsync(null, null, false, null, null, asyncResponse));
 
         assertThat(response, hasOkStatus());
         assertThat(response.getEntity(), is(instanceOf(List.class)));
@@ -96,7 +157,7 @@ class OwnerResourceUnitTest {
     void testListEmpty() {
         when(facade.list()).thenReturn(emptyList());
 
-        final Response response = resource.list();
+        final Response response = call(asyncResponse -> resource.listAsync(null, null, false, null, null, asyncResponse));
 
         assertThat(response, hasOkStatus());
         assertThat(response.getEntity(), is(instanceOf(List.class)));
@@ -104,6 +165,155 @@ class OwnerResourceUnitTest {
         verify(facade).list();
     }
 
+    @Test
+    void testListStream() {
+        final Response response = call(asyncResponse -> resource.listAsync(null, null, true, null, null, asyncResponse));
+
+        assertThat(response, hasOkStatus());
+        assertThat(response.getEntity(), is(instanceOf(JsonStreamingOutput.class)));
+    }
+
+    @Test
+    void testImportOwners() throws Exception {
+        final String input = String.join("\n",
+                "{\"login\":\"jacinto\",\"password\":\"jacintopass\",\"pets\":[" +
+                        "{\"name\":\"Jacintocat\",\"animal\":\"CAT\",\"birth\":\"2000-01-01T00:00:01Z\"}]}",
+                "{\"login\":\"short\",\"password\":\"pass\"}",
+                "not json",
+                "",
+                "{\"login\":\"jacinto\",\"password\":\"jacintopass\"}",
+                "{\"login\":\"" + existentLogin() + "\",\"password\":\"" + existentPassword() + "\"}"
+        );
+
+        final ManagedExecutorService managedExecutor = mock(ManagedExecutorService.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(managedExecutor).execute(any());
+
+        when(async.getManagedExecutor()).thenReturn(managedExecutor);
+        when(facade.importOwners(any())).thenReturn(Set.of(existentLogin()));
+
+        final Response response = call(asyncResponse -> resource.importOwnersAsync(new ByteArrayInputStream(input.getBytes(UTF_8)), asyncResponse));
+
+        assertThat(response, hasOkStatus());
+        assertThat(response.getEntity(), is(instanceOf(OwnerImportReport.class)));
+
+        final OwnerImportReport report = (OwnerImportReport) response.getEntity();
+        assertThat(report.getImported(), is(1));
+        assertThat(report.getFailed(), is(4));
+        assertThat(
+                report.getErrors().stream().map(OwnerImportReport.RecordError::getLine).toList(),
+                is(List.of(2L, 3L, 5L, 6L))
+        );
+    }
+
+    @Test
+    void testImportOwnersNull() {
+        assertThrows(IllegalArgumentException.class, () -> call(asyncResponse -> resource.importOwnersAsync(null, asyncResponse)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testListPage() throws Exception {
+        final List<Owner> page = asList(owners()).subList(0, 2);
+        final String lastLogin = page.getLast().getLogin();
+        final URI nextUri = new URI("http://host/api/owners?after=" + lastLogin + "&limit=2");
+
+        when(facade.list(null, 2)).thenReturn(page);
+        when(uriInfo.getRequestUriBuilder()).thenReturn(uriBuilder);
+        when(uriBuilder.replaceQueryParam("after", lastLogin)).thenReturn(uriBuilder);
+        when(uriBuilder.replaceQueryParam("limit", 2)).thenReturn(uriBuilder);
+        when(uriBuilder.build()).thenReturn(nextUri);
+
+        final Response response = call(asyncResponse -> resource.listAsync(null, 2, false, null, null, asyncResponse));
+
+        assertThat(response, hasOkStatus());
+        assertThat((List<Owner>) response.getEntity(), containsOwnersInAnyOrder(page));
+        assertThat(response.getLink("next").getUri(), is(equalTo(nextUri)));
+        verify(facade).list(null, 2);
+    }
+
+    @Test
+    void testListLastPage() {
+        final String after = anyLogin();
+        final List<Owner> page = asList(owners()).subList(0, 1);
+
+        when(facade.list(after, OwnerResource.DEFAULT_PAGE_SIZE)).thenReturn(page);
+
+        final Response response = call(asyncResponse -> resource.listAsync(after, null, false, null, null, asyncResponse));
+
+        assertThat(response, hasOkStatus());
+        assertThat(response.getLink("next"), is(nullValue()));
+        verify(facade).list(after, OwnerResource.DEFAULT_PAGE_SIZE);
+    }
+
+    @Test
+    void testListInvalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> call(asyncResponse -> resource.listAsync(null, 0, false, null, null, asyncResponse)));
+        assertThrows(IllegalArgumentException.class, () -> call(asyncResponse -> resource.listAsync(null, OwnerResource.MAX_PAGE_SIZE + 1, false, null, null, asyncResponse)));
+    }
+
+    @Test
+    void testListFields() {
+        final List<Map<String, Object>> owners = List.of(Map.of("login", "ana", "role", "OWNER"));
+
+        when(facade.list(Set.of("login", "role"), null)).thenReturn(owners);
+
+        final Response response = call(asyncResponse -> resource.listAsync(null, null, true, "login, role", null, asyncResponse));
+
+        assertThat(response, hasOkStatus());
+        assertSame(owners, response.getEntity());
+        verify(facade, never()).list();
+        verify(facade, never()).forEach(any());
+    }
+
+    @Test
+    void testListFieldsOfPets() {
+        when(facade.list(Set.of("login"), Set.of("name", "animal"))).thenReturn(List.of());
+
+        final Response response = call(asyncResponse -> resource.listAsync(null, null, false, "login,pets.name,pets.animal", null, asyncResponse));
+
+        assertThat(response, hasOkStatus());
+        verify(facade).list(Set.of("login"), Set.of("name", "animal"));
+    }
+
+    @Test
+    void testListEmbedPets() {
+        when(facade.list(Set.copyOf(OwnerService.FIELDS), Set.copyOf(PetService.FIELDS))).thenReturn(List.of());
+
+        final Response response = call(asyncResponse -> resource.listAsync(null, null, false, null, "pets", asyncResponse));
+
+        assertThat(response, hasOkStatus());
+        verify(facade).list(Set.copyOf(OwnerService.FIELDS), Set.copyOf(PetService.FIELDS));
+    }
+
+    @Test
+    void testListFieldsPage() throws Exception {
+        final List<Map<String, Object>> page = List.of(Map.of("login", "ana"), Map.of("login", "juan"));
+        final URI nextUri = new URI("http://host/api/owners?fields=login&after=juan&limit=2");
+
+        when(facade.list(Set.of("login"), null, null, 2)).thenReturn(page);
+        when(uriInfo.getRequestUriBuilder()).thenReturn(uriBuilder);
+        when(uriBuilder.replaceQueryParam("after", "juan")).thenReturn(uriBuilder);
+        when(uriBuilder.replaceQueryParam("limit", 2)).thenReturn(uriBuilder);
+        when(uriBuilder.build()).thenReturn(nextUri);
+
+        final Response response = call(asyncResponse -> resource.listAsync(null, 2, false, "login", null, asyncResponse));
+
+        assertThat(response, hasOkStatus());
+        assertSame(page, response.getEntity());
+        assertThat(response.getLink("next").getUri(), is(equalTo(nextUri)));
+        verify(facade, never()).list(null, 2);
+    }
+
+    @Test
+    void testListInvalidFields() {
+        assertThrows(IllegalArgumentException.class, () -> call(asyncResponse -> resource.listAsync(null, null, false, "login,version", null, asyncResponse)));
+        assertThrows(IllegalArgumentException.class, () -> call(asyncResponse -> resource.listAsync(null, null, false, "pets.owner", null, asyncResponse)));
+        assertThrows(IllegalArgumentException.class, () -> call(asyncResponse -> resource.listAsync(null, null, false, null, "owner", asyncResponse)));
+    }
+
     @Test
     void testCreate() throws Exception {
         final OwnerCreationData newOwner = new OwnerCreationData(newOwnerLogin(), newOwnerPassword());
@@ -116,7 +326,7 @@ class OwnerResourceUnitTest {
         when(uriBuilder.path(newOwner.getLogin())).thenReturn(uriBuilder);
         when(uriBuilder.build()).thenReturn(mockUri);
 
-        final Response response = resource.create(newOwner);
+        final Response response = call(asyncResponse -> resource.createAsync(newOwner, asyncResponse));
 
         assertThat(response, hasCreatedStatus());
         assertThat(response.getHeaderString("Location"), is(equalTo(mockUri.toString())));
@@ -125,7 +335,7 @@ class OwnerResourceUnitTest {
 
     @Test
     void testCreateNull() {
-        assertThrows(IllegalArgumentException.class, () -> resource.create(null));
+        assertThrows(IllegalArgumentException.class, () -> call(asyncResponse -> resource.createAsync(null, asyncResponse)));
     }
 
     @Test
@@ -134,7 +344,7 @@ class OwnerResourceUnitTest {
 
         when(facade.create(any(Owner.class))).thenThrow(new EntityExistsException());
 
-        assertThrows(IllegalArgumentException.class, () -> resource.create(existentOwner));
+        assertThrows(IllegalArgumentException.class, () -> call(asyncResponse -> resource.createAsync(existentOwner, asyncResponse)));
     }
 
     @Test
@@ -148,30 +358,115 @@ class OwnerResourceUnitTest {
         when(facade.get(owner.getLogin())).thenReturn(owner);
         when(facade.update(any(Owner.class))).thenReturn(owner);
 
-        final Response response = resource.update(owner.getLogin(), ownerData);
+        final Response response = call(asyncResponse -> resource.updateAsync(owner.getLogin(), null, ownerData, asyncResponse));
 
         assertThat(response, hasOkStatus());
         verify(facade).get(owner.getLogin());
         verify(facade).update(any(Owner.class));
     }
 
+    @Test
+    void testUpdateIfMatch() {
+        final Owner owner = existentOwner();
+        final String versionTag = OwnerService.versionTagOf(owner);
+        final OwnerEditionData ownerData = new OwnerEditionData(newPasswordForExistentOwner());
+
+        when(facade.getVersionTag(owner.getLogin())).thenReturn(versionTag);
+        when(facade.get(owner.getLogin())).thenReturn(owner);
+        when(facade.update(any(Owner.class))).thenReturn(owner);
+
+        final Response response = call(asyncResponse -> resource.updateAsync(owner.getLogin(), '"' + versionTag + '"', ownerData, asyncResponse));
+
+        assertThat(response, hasOkStatus());
+        verify(facade).update(any(Owner.class));
+    }
+
+    @Test
+    void testUpdatePreconditionFailed() {
+        final Owner owner = existentOwner();
+        final OwnerEditionData ownerData = new OwnerEditionData(newPasswordForExistentOwner());
+
+        when(facade.getVersionTag(owner.getLogin())).thenReturn(OwnerService.versionTagOf(owner));
+
+        final Response response = call(asyncResponse -> resource.updateAsync(owner.getLogin(), "\"stale\"", ownerData, asyncResponse));
+
+        assertThat(response, hasPreconditionFailedStatus());
+        verify(facade, never()).get(owner.getLogin());
+        verify(facade, never()).update(any(Owner.class));
+    }
+
     @Test
     void testUpdateNullLogin() {
-        assertThrows(IllegalArgumentException.class, () -> resource.update(null, null));
+        assertThrows(IllegalArgumentException.class, () -> call(asyncResponse -> resource.updateAsync(null, null, null, asyncResponse)));
     }
 
     @Test
     void testDelete() {
         final String login = anyLogin();
 
-        final Response response = resource.delete(login);
+        final Response response = call(asyncResponse -> resource.deleteAsync(login, null, asyncResponse));
 
         assertThat(response, hasOkStatus());
         verify(facade).remove(login);
     }
 
+    @Test
+    void testDeleteIfMatch() {
+        final String login = anyLogin();
+
+        when(facade.remove(login, "0-0-0")).thenReturn(true);
+
+        final Response response = call(asyncResponse -> resource.deleteAsync(login, "\"0-0-0\"", asyncResponse));
+
+        assertThat(response, hasOkStatus());
+        verify(facade, never()).remove(login);
+    }
+
+    @Test
+    void testDeleteIfMatchCompressed() {
+        final String login = anyLogin();
+
+        when(facade.remove(login, "0-0-0")).thenReturn(true);
+
+        final Response response = call(asyncResponse -> resource.deleteAsync(login, "\"0-0-0-deflate\"", asyncResponse));
+
+        assertThat(response, hasOkStatus());
+    }
+
+    @Test
+    void testDeletePreconditionFailed() {
+        final String login = anyLogin();
+
+        when(facade.remove(login, "stale")).thenReturn(false);
+
+        final Response response = call(asyncResponse -> resource.deleteAsync(login, "\"stale\"", asyncResponse));
+
+        assertThat(response, hasPreconditionFailedStatus());
+        verify(facade, never()).remove(login);
+    }
+
     @Test
     void testDeleteNull() {
-        assertThrows(IllegalArgumentException.class, () -> resource.delete(null));
+        assertThrows(IllegalArgumentException.class, () -> call(asyncResponse -> resource.deleteAsync(null, null, asyncResponse)));
+    }
+
+    // Runs the asynchronous tasks in the test thread, so their exceptions are
+    // thrown to the test
+    private Response call(Consumer<AsyncResponse> method) {
+        doAnswer(invocation -> {
+            final AsyncResponse asyncResponse = invocation.getArgument(0);
+            final Supplier<?> task = invocation.getArgument(1);
+
+            asyncResponse.resume(task.get());
+            return null;
+        }).when(async).submit(any(), any());
+
+        final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        method.accept(asyncResponse);
+
+        final ArgumentCaptor<Object> response = ArgumentCaptor.forClass(Object.class);
+        verify(asyncResponse).resume(response.capture());
+
+        return (Response) response.getValue();
     }
 }
@@ -0,0 +1,196 @@
+package pablog.petstore.rest;
+
+import jakarta.ejb.EJBAccessException;
+import jakarta.ejb.EJBException;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriBuilder;
+import jakarta.ws.rs.core.UriInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.entities.Pet;
+import pablog.petstore.domain.search.Suggestion;
+import pablog.petstore.service.PetSearch;
+import pablog.petstore.service.PetSearchResult;
+import pablog.petstore.service.PetSearchService;
+import pablog.petstore.service.SuggestionService;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static pablog.petstore.domain.entities.OwnersDataset.pets;
+import static pablog.petstore.http.util.HasHttpStatus.hasOkStatus;
+
+@ExtendWith(MockitoExtension.class)
+class SearchResourceUnitTest {
+    @InjectMocks
+    private SearchResource resource;
+
+    @Mock
+    private PetSearchService petSearch;
+
+    @Mock
+    private SuggestionService suggestionService;
+
+    @Mock
+    private UriInfo uriInfo;
+
+    @Mock
+    private UriBuilder uriBuilder;
+
+    @Mock
+    private AsyncExecutor async;
+
+    @Test
+    void testSearchPets() {
+        final List<Pet> pets = asList(pets());
+        final ArgumentCaptor<PetSearch> search = ArgumentCaptor.forClass(PetSearch.class);
+
+        when(petSearch.search(search.capture())).thenReturn(new PetSearchResult(pets, null));
+
+        final Response response = searchPets(
+                "cat", "2000-01-01", "2000-01-02T12:00:00Z", "Ma", "juan", "-birth", null, 10);
+
+        assertThat(response, hasOkStatus());
+        assertSame(pets, response.getEntity());
+        assertThat(response.getLink("next"), is(nullValue()));
+        assertThat(search.getValue().getAnimal(), is(AnimalType.CAT));
+        assertThat(search.getValue().getBornAfter(), is(new Date(946684800000L)));
+        assertThat(search.getValue().getBornBefore(), is(new Date(946814400000L)));
+        assertThat(search.getValue().getNamePrefix(), is("Ma"));
+        assertThat(search.getValue().getOwner(), is("juan"));
+        assertThat(search.getValue().getSort(), is(PetSearch.Sort.BIRTH));
+        assertThat(search.getValue().isDescending(), is(true));
+        assertThat(search.getValue().getLimit(), is(10));
+    }
+
+    @Test
+    void testSearchPetsWithNextPage() throws Exception {
+        final URI nextUri = new URI("http://host/api/search/pets?cursor=next");
+
+        when(petSearch.search(any(PetSearch.class))).thenReturn(new PetSearchResult(List.of(), "next"));
+        when(uriInfo.getRequestUriBuilder()).thenReturn(uriBuilder);
+        when(uriBuilder.replaceQueryParam("cursor", "next")).thenReturn(uriBuilder);
+        when(uriBuilder.build()).thenReturn(nextUri);
+
+        final Response response = searchPets(null, null, null, null, null, null, null, null);
+
+        assertThat(response.getLink("next").getUri(), is(equalTo(nextUri)));
+        verify(petSearch).search(any(PetSearch.class));
+    }
+
+    @Test
+    void testSearchPetsInvalidCriteria() {
+        assertThrows(IllegalArgumentException.class, () -> searchPets("cow", null, null, null, null, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> searchPets(null, "yesterday", null, null, null, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> searchPets(null, null, null, null, null, "owner", null, null));
+        assertThrows(IllegalArgumentException.class, () -> searchPets(null, null, null, null, null, null, null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> searchPets(null, null, null, null, null, null, null, SearchResource.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void testSearchPetsInvalidCursor() {
+        when(petSearch.search(any(PetSearch.class)))
+                .thenThrow(new EJBException(new IllegalArgumentException("Invalid cursor: x")));
+
+        assertThrows(IllegalArgumentException.class, () -> searchPets(null, null, null, null, null, null, "x", null));
+    }
+
+    @Test
+    void testSearchPetsOfOtherOwner() {
+        when(petSearch.search(any(PetSearch.class))).thenThrow(new EJBAccessException());
+
+        assertThrows(SecurityException.class, () -> searchPets(null, null, null, null, "ana", null, null, null));
+    }
+
+    @Test
+    void testSuggest() {
+        final List<Suggestion> suggestions = List.of(new Suggestion(Suggestion.Kind.PET, "Max", 2));
+
+        when(suggestionService.suggest("ma", Suggestion.Kind.PET, 5)).thenReturn(suggestions);
+
+        final Response response = suggest("ma", "pet", 5);
+
+        assertThat(response, hasOkStatus());
+        assertSame(suggestions, response.getEntity());
+    }
+
+    @Test
+    void testSuggestDefaultLimit() {
+        when(suggestionService.suggest("ma", null, SearchResource.DEFAULT_SUGGESTIONS)).thenReturn(List.of());
+
+        assertThat(suggest("ma", null, null), hasOkStatus());
+    }
+
+    @Test
+    void testSuggestInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> suggest(null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> suggest("ma", "cow", null));
+        assertThrows(IllegalArgumentException.class, () -> suggest("ma", null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> suggest("ma", null, SearchResource.MAX_SUGGESTIONS + 1));
+    }
+
+    @Test
+    void testSuggestAsOwner() {
+        when(suggestionService.suggest("ma", null, SearchResource.DEFAULT_SUGGESTIONS)).thenThrow(new EJBAccessException());
+
+        assertThrows(SecurityException.class, () -> suggest("ma", null, null));
+    }
+
+    private Response searchPets(
+            String animal, String bornAfter, String bornBefore, String name, String owner,
+            String sort, String cursor, Integer limit
+    ) {
+        doAnswer(SearchResourceUnitTest::resumeWithTask).when(async).submit(any(), any());
+
+        return call(asyncResponse -> resource.searchPetsAsync(
+                animal, bornAfter, bornBefore, name, owner, sort, cursor, limit, asyncResponse));
+    }
+
+    private Response suggest(String text, String type, Integer limit) {
+        doAnswer(SearchResourceUnitTest::resumeWithTask).when(async).resume(any(), any());
+
+        return call(asyncResponse -> resource.suggestAsync(text, type, limit, asyncResponse));
+    }
+
+    private static Object resumeWithTask(InvocationOnMock invocation) {
+        final AsyncResponse asyncResponse = invocation.getArgument(0);
+        final Supplier<?> task = invocation.getArgument(1);
+
+        asyncResponse.resume(task.get());
+        return null;
+    }
+
+    private static Response call(Consumer<AsyncResponse> method) {
+        final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        method.accept(asyncResponse);
+
+        final ArgumentCaptor<Object> response = ArgumentCaptor.forClass(Object.class);
+        verify(asyncResponse).resume(response.capture());
+
+        return (Response) response.getValue();
+    }
+}
@@ -8,11 +8,14 @@ dependencies {
     compileOnly(libs.jakarta.inject.api)
     compileOnly(libs.jakarta.cdi.api)
     compileOnly(libs.jakarta.annotation.api)
+    compileOnly(libs.jakarta.concurrency.api)
     compileOnly(libs.jakarta.servlet.api)
 
     // Jakarta APIs for test compilation
     testImplementation(platform(libs.jakarta.bom))
     testImplementation(libs.jakarta.security.enterprise.api)
+    testImplementation(libs.jakarta.servlet.api)
+    testImplementation(libs.jakarta.concurrency.api)
 
     // JUnit 5
     testImplementation(platform(libs.junit.bom))
@@ -0,0 +1,53 @@
+package pablog.petstore.security;
+
+import java.util.logging.Level;
+
+/**
+ * Events recorded in the {@link AccessLog}, with the level they are logged
+ * at.
+ */
+public enum AccessEvent {
+    /**
+     * A request received by the application.
+     */
+    REQUEST(Level.INFO),
+    /**
+     * A request authenticated with a Basic {@code Authorization} header or
+     * with the principal of the session. As every request of an authenticated
+     * caller records it, it is only logged at {@code FINE}.
+     */
+    AUTHENTICATED(Level.FINE),
+    /**
+     * A successful form login.
+     */
+    LOGIN(Level.INFO),
+    /**
+     * A login that failed because of invalid credentials or an unexpected
+     * error.
+     */
+    LOGIN_FAILED(Level.WARNING),
+    /**
+     * An unauthenticated request to a protected page redirected to the login
+     * page.
+     */
+    LOGIN_REDIRECT(Level.FINE),
+    /**
+     * A logout.
+     */
+    LOGOUT(Level.INFO);
+
+    private final Level level;
+
+    AccessEvent(Level level) {
+        this.level = level;
+    }
+
+    /**
+     * Returns the level the event is logged at.
+     *
+     * @return the level the event is logged at.
+     */
+    public Level getLevel() {
+        return level;
+    }
+}
@@ -0,0 +1,460 @@
+package pablog.petstore.security;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Structured log of the requests received and of the authentication events,
+ * written asynchronously.
+ * <p>
+ * Events are stored in a preallocated ring buffer and written to the
+ * {@value #LOGGER_NAME} logger by a background thread, created by the default
+ * {@link ManagedThreadFactory} of the container, so the threads that serve the
+ * requests neither format the messages nor wait for the handlers of the
+ * logger. The writer blocks while the buffer is empty and is woken up by the
+ * next event recorded. When the buffer is full, new events are dropped instead
+ * of blocking the request. Events whose level is below the configured level are
+ * discarded before reading anything from the request, so a disabled event
+ * costs a comparison.
+ * <p>
+ * Each request is identified by a correlation ID, taken from the
+ * {@value #CORRELATION_ID_HEADER} header of the request when it is valid or
+ * generated otherwise. The ID is sent back in the same header and written
+ * with every event of the request.
+ * <p>
+ * The log is configured with the following system properties:
+ * <ul>
+ *   <li>{@value #LEVEL_PROPERTY}: minimum level of the events recorded.
+ *   {@code OFF} disables the log. Defaults to {@code INFO}.</li>
+ *   <li>{@value #SAMPLE_RATE_PROPERTY}: ratio, between 0 and 1, of the events
+ *   below {@code WARNING} that are recorded. Warnings are never sampled.
+ *   Defaults to {@code 1}.</li>
+ *   <li>{@value #CAPACITY_PROPERTY}: number of events the buffer can store,
+ *   rounded up to a power of two. Defaults to {@value #DEFAULT_CAPACITY}.</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class AccessLog {
+    public static final String LEVEL_PROPERTY = "petstore.access-log.level";
+    public static final String SAMPLE_RATE_PROPERTY = "petstore.access-log.sample-rate";
+    public static final String CAPACITY_PROPERTY = "petstore.access-log.capacity";
+
+    public static final String LOGGER_NAME = "pablog.petstore.access";
+    public static final String CORRELATION_ID_HEADER = "X-Request-ID";
+
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int MAX_CORRELATION_ID_LENGTH = 64;
+
+    // Request attribute where the correlation ID of the request is stored
+    private static final String CORRELATION_ID_ATTRIBUTE = AccessLog.class.getName() + ".correlationId";
+
+    // Generated IDs are a random prefix, unique to this instance of the application, and a counter
+    private static final String CORRELATION_ID_PREFIX = Integer.toHexString(new SecureRandom().nextInt() | 0x10000000) + "-";
+    private static final AtomicLong CORRELATION_IDS = new AtomicLong();
+
+    private final Logger logger;
+    private final int level;
+    private final double sampleRate;
+    private final LongSupplier clock;
+
+    private final Slot[] slots;
+    private final int mask;
+    // Sequence of the next event to be recorded
+    private final AtomicLong head;
+    // Sequence of the next event to be written. Only advanced by the writer
+    private volatile long tail;
+    private final Object drainLock;
+
+    private final LongAdder recorded;
+    private final LongAdder written;
+    private final LongAdder dropped;
+    private final LongAdder sampledOut;
+
+    @Resource
+    private ManagedThreadFactory managedThreadFactory;
+
+    private volatile Thread writer;
+    // Set by the writer before blocking, so only then the threads that record events wake it up
+    private volatile boolean writerWaiting;
+
+    public AccessLog() {
+        this(
+                Logger.getLogger(LOGGER_NAME),
+                Level.parse(System.getProperty(LEVEL_PROPERTY, Level.INFO.getName())),
+                Double.parseDouble(System.getProperty(SAMPLE_RATE_PROPERTY, "1")),
+                Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY),
+                System::currentTimeMillis
+        );
+    }
+
+    AccessLog(Logger logger, Level level, double sampleRate, int capacity, LongSupplier clock) {
+        if (sampleRate < 0d || sampleRate > 1d)
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1");
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+
+        this.logger = logger;
+        this.level = level.intValue();
+        this.sampleRate = sampleRate;
+        this.clock = clock;
+
+        final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            this.slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.head = new AtomicLong();
+        this.drainLock = new Object();
+
+        this.recorded = new LongAdder();
+        this.written = new LongAdder();
+        this.dropped = new LongAdder();
+        this.sampledOut = new LongAdder();
+    }
+
+    /**
+     * Starts the thread that writes the events to the log.
+     */
+    @PostConstruct
+    void start() {
+        this.start(this.managedThreadFactory != null
+                ? this.managedThreadFactory
+                : Thread.ofPlatform().daemon().factory());
+    }
+
+    /**
+     * Starts the thread that writes the events to the log.
+     *
+     * @param threadFactory the factory of the thread.
+     */
+    synchronized void start(ThreadFactory threadFactory) {
+        if (this.writer == null && this.isEnabled()) {
+            final Thread thread = threadFactory.newThread(this::write);
+            thread.setName("petstore-access-log");
+
+            this.writer = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the thread that writes the events to the log, writing the events
+     * still stored in the buffer.
+     */
+    @PreDestroy
+    synchronized void stop() {
+        if (this.writer != null) {
+            this.writer.interrupt();
+            try {
+                this.writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.writer = null;
+        }
+
+        this.drain();
+    }
+
+    /**
+     * Checks if any event is recorded.
+     *
+     * @return {@code true} if the log is enabled for some event.
+     * {@code false} otherwise.
+     */
+    public boolean isEnabled() {
+        return this.level <= Level.WARNING.intValue();
+    }
+
+    /**
+     * Checks if an event is recorded, without sampling.
+     *
+     * @param event the event.
+     * @return {@code true} if the level of the event is enabled.
+     * {@code false} otherwise.
+     */
+    public boolean isEnabled(AccessEvent event) {
+        return event.getLevel().intValue() >= this.level;
+    }
+
+    /**
+     * Returns the correlation ID of a request, assigning one if the request
+     * does not have it yet. The ID is taken from the
+     * {@value #CORRELATION_ID_HEADER} header of the request if it is valid, or
+     * generated otherwise, and it is sent back in the same header of the
+     * response.
+     *
+     * @param request  the request.
+     * @param response the response of the request. May be {@code null} if the
+     *                 header should not be sent.
+     * @return the correlation ID of the request.
+     */
+    public String correlationId(HttpServletRequest request, HttpServletResponse response) {
+        if (request.getAttribute(CORRELATION_ID_ATTRIBUTE) instanceof String correlationId) {
+            return correlationId;
+        }
+
+        String correlationId = request.getHeader(CORRELATION_ID_HEADER);
+        if (!isValidCorrelationId(correlationId)) {
+            correlationId = generateCorrelationId();
+        }
+
+        request.setAttribute(CORRELATION_ID_ATTRIBUTE, correlationId);
+        if (response != null) {
+            response.setHeader(CORRELATION_ID_HEADER, correlationId);
+        }
+
+        return correlationId;
+    }
+
+    /**
+     * Records an event of a request, if its level is enabled and it is not
+     * discarded by sampling.
+     *
+     * @param event     the event.
+     * @param request   the request.
+     * @param principal the name of the caller. May be {@code null}.
+     * @param detail    additional information of the event, such as the
+     *                  authentication mechanism used. May be {@code null}.
+     */
+    public void log(AccessEvent event, HttpServletRequest request, String principal, String detail) {
+        if (!this.isEnabled(event) || this.isSampledOut(event)) return;
+
+        this.publish(event, this.correlationId(request, null), principal, request.getMethod(), request.getRequestURI(), detail);
+    }
+
+    /**
+     * Records an event, if its level is enabled and it is not discarded by
+     * sampling.
+     *
+     * @param event         the event.
+     * @param correlationId the correlation ID of the request. May be
+     *                      {@code null}.
+     * @param principal     the name of the caller. May be {@code null}.
+     * @param method        the HTTP method of the request. May be
+     *                      {@code null}.
+     * @param uri           the URI of the request. May be {@code null}.
+     * @param detail        additional information of the event. May be
+     *                      {@code null}.
+     */
+    void log(AccessEvent event, String correlationId, String principal, String method, String uri, String detail) {
+        if (!this.isEnabled(event) || this.isSampledOut(event)) return;
+
+        this.publish(event, correlationId, principal, method, uri, detail);
+    }
+
+    /**
+     * Returns the usage statistics of the log.
+     *
+     * @return the usage statistics of the log.
+     */
+    public AccessLogStatistics getStatistics() {
+        return new AccessLogStatistics(
+                this.recorded.sum(),
+                this.written.sum(),
+                this.dropped.sum(),
+                this.sampledOut.sum(),
+                (int) (this.head.get() - this.tail),
+                this.slots.length
+        );
+    }
+
+    /**
+     * Writes the events stored in the buffer to the log.
+     *
+     * @return the number of events written.
+     */
+    int drain() {
+        synchronized (this.drainLock) {
+            return this.drainEvents();
+        }
+    }
+
+    private int drainEvents() {
+        long next = this.tail;
+        int count = 0;
+
+        while (true) {
+            final Slot slot = this.slots[(int) (next & this.mask)];
+            if (slot.sequence != next) break;
+
+            final LogRecord record = slot.toLogRecord();
+            slot.clear();
+            // Releases the slot, so it can be reused before the record is written
+            this.tail = ++next;
+
+            this.logger.log(record);
+            count++;
+        }
+
+        if (count > 0) this.written.add(count);
+
+        return count;
+    }
+
+    static boolean isValidCorrelationId(String correlationId) {
+        if (correlationId == null || correlationId.isEmpty() || correlationId.length() > MAX_CORRELATION_ID_LENGTH)
+            return false;
+
+        for (int i = 0; i < correlationId.length(); i++) {
+            final char c = correlationId.charAt(i);
+
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_' || c == '.'))
+                return false;
+        }
+
+        return true;
+    }
+
+    static String generateCorrelationId() {
+        return CORRELATION_ID_PREFIX + Long.toString(CORRELATION_IDS.incrementAndGet(), 36);
+    }
+
+    private boolean isSampledOut(AccessEvent event) {
+        if (this.sampleRate >= 1d || event.getLevel().intValue() >= Level.WARNING.intValue()) return false;
+
+        if (this.sampleRate == 0d || ThreadLocalRandom.current().nextDouble() >= this.sampleRate) {
+            this.sampledOut.increment();
+            return true;
+        }
+
+        return false;
+    }
+
+    private void publish(AccessEvent event, String correlationId, String principal, String method, String uri, String detail) {
+        long sequence;
+        do {
+            sequence = this.head.get();
+
+            if (sequence - this.tail >= this.slots.length) {
+                this.dropped.increment();
+                return;
+            }
+        } while (!this.head.compareAndSet(sequence, sequence + 1));
+
+        final Slot slot = this.slots[(int) (sequence & this.mask)];
+        slot.timestamp = this.clock.getAsLong();
+        slot.event = event;
+        slot.correlationId = correlationId;
+        slot.principal = principal;
+        slot.method = method;
+        slot.uri = uri;
+        slot.detail = detail;
+        // Publishes the event to the writer
+        slot.sequence = sequence;
+
+        this.recorded.increment();
+
+        // The writer checks the buffer again after announcing it waits, so this event is never missed
+        if (this.writerWaiting) {
+            final Thread thread = this.writer;
+            if (thread != null) LockSupport.unpark(thread);
+        }
+    }
+
+    private boolean isEmpty() {
+        final long next = this.tail;
+
+        return this.slots[(int) (next & this.mask)].sequence != next;
+    }
+
+    private void write() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (this.drain() == 0) {
+                    this.writerWaiting = true;
+                    if (this.isEmpty()) {
+                        LockSupport.park(this);
+                    }
+                    this.writerWaiting = false;
+                }
+            } catch (RuntimeException e) {
+                this.logger.log(Level.WARNING, "Error writing the access log", e);
+            }
+        }
+    }
+
+    /**
+     * Slot of the ring buffer. The fields are written by the thread that
+     * records the event before publishing it in {@code sequence}, and read by
+     * the writer after observing it.
+     */
+    private static final class Slot {
+        private volatile long sequence = -1;
+
+        private long timestamp;
+        private AccessEvent event;
+        private String correlationId;
+        private String principal;
+        private String method;
+        private String uri;
+        private String detail;
+
+        private LogRecord toLogRecord() {
+            final StringBuilder message = new StringBuilder(128).append("event=").append(this.event.name());
+            appendField(message, "id", this.correlationId);
+            appendField(message, "principal", this.principal);
+            appendField(message, "method", this.method);
+            appendField(message, "uri", this.uri);
+            appendField(message, "detail", this.detail);
+
+            final LogRecord record = new LogRecord(this.event.getLevel(), message.toString());
+            record.setInstant(Instant.ofEpochMilli(this.timestamp));
+            record.setLoggerName(LOGGER_NAME);
+
+            return record;
+        }
+
+        private void clear() {
+            this.event = null;
+            this.correlationId = null;
+            this.principal = null;
+            this.method = null;
+            this.uri = null;
+            this.detail = null;
+        }
+
+        private static void appendField(StringBuilder message, String name, String value) {
+            if (value == null) return;
+
+            message.append(' ').append(name).append('=');
+
+            boolean quote = value.isEmpty();
+            for (int i = 0; i < value.length() && !quote; i++) {
+                final char c = value.charAt(i);
+                quote = Character.isWhitespace(c) || Character.isISOControl(c) || c == '"' || c == '=';
+            }
+
+            if (quote) {
+                message.append('"');
+                for (int i = 0; i < value.length(); i++) {
+                    final char c = value.charAt(i);
+                    if (c == '"' || c == '\\') message.append('\\');
+                    message.append(Character.isISOControl(c) ? ' ' : c);
+                }
+                message.append('"');
+            } else {
+                message.append(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package pablog.petstore.security;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Snapshot of the usage statistics of the {@link AccessLog}.
+ */
+public class AccessLogStatistics implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final long recordedCount;
+    private final long writtenCount;
+    private final long droppedCount;
+    private final long sampledOutCount;
+    private final int pending;
+    private final int capacity;
+
+    public AccessLogStatistics(long recordedCount, long writtenCount, long droppedCount, long sampledOutCount, int pending, int capacity) {
+        this.recordedCount = recordedCount;
+        this.writtenCount = writtenCount;
+        this.droppedCount = droppedCount;
+        this.sampledOutCount = sampledOutCount;
+        this.pending = pending;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the number of events stored in the buffer.
+     *
+     * @return the number of events stored in the buffer.
+     */
+    public long getRecordedCount() {
+        return recordedCount;
+    }
+
+    /**
+     * Returns the number of events written to the log.
+     *
+     * @return the number of events written to the log.
+     */
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    /**
+     * Returns the number of events discarded because the buffer was full.
+     *
+     * @return the number of events discarded because the buffer was full.
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Returns the number of events discarded by sampling.
+     *
+     * @return the number of events discarded by sampling.
+     */
+    public long getSampledOutCount() {
+        return sampledOutCount;
+    }
+
+    /**
+     * Returns the number of events stored in the buffer that have not been
+     * written yet.
+     *
+     * @return the number of events waiting to be written.
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * Returns the maximum number of events the buffer can store.
+     *
+     * @return the capacity of the buffer.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,341 @@
+package pablog.petstore.security;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.security.enterprise.identitystore.CredentialValidationResult;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static jakarta.security.enterprise.identitystore.CredentialValidationResult.Status.VALID;
+
+/**
+ * Bounded cache of the valid results of validating an {@code Authorization}
+ * header, so that clients repeating the same header are not validated against
+ * the identity store on every request.
+ * <p>
+ * Headers are not stored: results are keyed by an HMAC of the header computed
+ * with a random key generated at startup. Results expire after a time to live
+ * and are invalidated when a {@link CredentialsChangedEvent} is observed.
+ * <p>
+ * Every result lives for the same time, so results expire in the order they
+ * are cached. That order is kept in a queue, and each result cached first
+ * removes the expired results at its head and, if the cache is still full,
+ * the oldest one, so making room does not traverse the cache. The keys of the
+ * results are also indexed by login, so invalidating a user only removes its
+ * results.
+ * <p>
+ * The cache is configured with the following system properties:
+ * <ul>
+ *   <li>{@value #TTL_PROPERTY}: time to live of the results, in seconds. 0
+ *   disables the cache. Defaults to {@value #DEFAULT_TTL_SECONDS}.</li>
+ *   <li>{@value #MAX_ENTRIES_PROPERTY}: maximum number of results cached.
+ *   Defaults to {@value #DEFAULT_MAX_ENTRIES}.</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class AuthenticationCache {
+    public static final String TTL_PROPERTY = "petstore.auth-cache.ttl-seconds";
+    public static final String MAX_ENTRIES_PROPERTY = "petstore.auth-cache.max-entries";
+
+    private static final long DEFAULT_TTL_SECONDS = 60;
+    private static final int DEFAULT_MAX_ENTRIES = 10000;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final SecretKey key;
+    private final ThreadLocal<Hmac> macs;
+
+    private final ConcurrentMap<Key, Entry> entries;
+    private final ConcurrentMap<String, Set<Key>> keysByLogin;
+    // Entries in the order they were cached. May hold entries already removed
+    private final Queue<Entry> insertionOrder;
+    // Incremented on each invalidation, so results validated before it are not cached
+    private final AtomicLong generation;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LongAdder invalidations;
+
+    public AuthenticationCache() {
+        this(
+                Duration.ofSeconds(Long.getLong(TTL_PROPERTY, DEFAULT_TTL_SECONDS)),
+                Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES),
+                System::nanoTime
+        );
+    }
+
+    AuthenticationCache(Duration ttl, int maxEntries, LongSupplier clock) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+
+        final byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.key = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> new Hmac(this.createMac()));
+
+        this.entries = new ConcurrentHashMap<>();
+        this.keysByLogin = new ConcurrentHashMap<>();
+        this.insertionOrder = new ArrayDeque<>();
+        this.generation = new AtomicLong();
+
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        this.invalidations = new LongAdder();
+    }
+
+    /**
+     * Returns the result of validating an {@code Authorization} header. If a
+     * valid result for the same header is cached, it is returned. Otherwise,
+     * the header is validated with {@code validation} and the result is
+     * cached if it is valid.
+     *
+     * @param authorization the value of the {@code Authorization} header.
+     * @param validation    the validation of the credentials of the header
+     *                      against the identity store.
+     * @return the result of validating the header.
+     */
+    public CredentialValidationResult validate(String authorization, Supplier<CredentialValidationResult> validation) {
+        if (!this.isEnabled()) {
+            this.misses.increment();
+            return validation.get();
+        }
+
+        final Key entryKey = this.macs.get().keyOf(authorization);
+        final Entry entry = this.entries.get(entryKey);
+
+        if (entry != null) {
+            if (entry.expiresAt() - this.clock.getAsLong() > 0) {
+                this.hits.increment();
+                return entry.result();
+            } else if (this.remove(entry)) {
+                this.evictions.increment();
+            }
+        }
+
+        this.misses.increment();
+
+        final long validationGeneration = this.generation.get();
+        final CredentialValidationResult result = validation.get();
+
+        if (result.getStatus() == VALID) {
+            final Entry cached = new Entry(entryKey, loginKey(result.getCallerPrincipal().getName()), result,
+                    this.clock.getAsLong() + this.ttlNanos);
+
+            this.put(cached);
+
+            // The credentials could have changed during the validation
+            if (this.generation.get() != validationGeneration) {
+                this.remove(cached);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes the cached results of a user.
+     *
+     * @param login the login of the user.
+     */
+    public void invalidate(String login) {
+        this.invalidateAll(List.of(login));
+    }
+
+    /**
+     * Removes the cached results of several users. The cost depends on the
+     * number of results of those users, not on the size of the cache.
+     *
+     * @param logins the logins of the users.
+     */
+    public void invalidateAll(Collection<String> logins) {
+        this.generation.incrementAndGet();
+
+        for (String login : logins) {
+            this.keysByLogin.computeIfPresent(loginKey(login), (key, keys) -> {
+                for (Key entryKey : keys) {
+                    if (this.entries.remove(entryKey) != null) this.invalidations.increment();
+                }
+
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Removes all the cached results.
+     */
+    public void clear() {
+        this.generation.incrementAndGet();
+        this.entries.clear();
+        this.keysByLogin.clear();
+
+        synchronized (this.insertionOrder) {
+            this.insertionOrder.clear();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the usage statistics of this cache.
+     *
+     * @return a snapshot of the usage statistics of this cache.
+     */
+    public AuthenticationCacheStatistics getStatistics() {
+        return new AuthenticationCacheStatistics(
+                this.hits.sum(),
+                this.misses.sum(),
+                this.evictions.sum(),
+                this.invalidations.sum(),
+                this.entries.size()
+        );
+    }
+
+    void onCredentialsChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) CredentialsChangedEvent event) {
+        this.invalidateAll(event.getLogins());
+    }
+
+    private boolean isEnabled() {
+        return this.ttlNanos > 0 && this.maxEntries > 0;
+    }
+
+    // Results are only cached after validating a header against the identity
+    // store, so the queue is locked on misses but never on hits
+    private void put(Entry entry) {
+        synchronized (this.insertionOrder) {
+            final long now = this.clock.getAsLong();
+
+            for (Entry head; (head = this.insertionOrder.peek()) != null; ) {
+                final boolean removed = this.entries.get(head.key()) != head;
+                final boolean expired = head.expiresAt() - now <= 0;
+                if (!removed && !expired && this.entries.size() < this.maxEntries) break;
+
+                this.insertionOrder.poll();
+                if (this.remove(head)) this.evictions.increment();
+            }
+
+            this.insertionOrder.add(entry);
+        }
+
+        // Entries of a login are only changed while its keys are computed, so
+        // the index always holds the keys of the entries cached. A header
+        // always authenticates the same login, so it never moves between
+        // logins
+        this.keysByLogin.compute(entry.login(), (login, keys) -> {
+            if (keys == null) keys = ConcurrentHashMap.newKeySet();
+
+            this.entries.put(entry.key(), entry);
+            keys.add(entry.key());
+            return keys;
+        });
+    }
+
+    private boolean remove(Entry entry) {
+        final boolean[] removed = new boolean[1];
+
+        this.keysByLogin.computeIfPresent(entry.login(), (login, keys) -> {
+            if (this.entries.remove(entry.key(), entry)) {
+                keys.remove(entry.key());
+                removed[0] = true;
+            }
+
+            return keys.isEmpty() ? null : keys;
+        });
+
+        return removed[0];
+    }
+
+    // Logins are compared as the database does
+    private static String loginKey(String login) {
+        return login.toLowerCase(Locale.ROOT);
+    }
+
+    private Mac createMac() {
+        try {
+            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(this.key);
+
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(HMAC_ALGORITHM + " algorithm not available", e);
+        }
+    }
+
+    private record Entry(Key key, String login, CredentialValidationResult result, long expiresAt) {
+    }
+
+    // The first 128 bits of the HMAC of a header
+    private record Key(long high, long low) {
+    }
+
+    /**
+     * HMAC of the headers computed by a thread. Headers are fed to the MAC
+     * through a reusable buffer, so computing a key does not create
+     * intermediate arrays nor strings.
+     */
+    private static final class Hmac {
+        private final Mac mac;
+        private final ByteBuffer input;
+        private final byte[] output;
+
+        private Hmac(Mac mac) {
+            this.mac = mac;
+            this.input = ByteBuffer.allocate(1024);
+            this.output = new byte[mac.getMacLength()];
+        }
+
+        private Key keyOf(String authorization) {
+            // Each char is fed as its two UTF-16 bytes, so distinct headers have distinct inputs
+            for (int i = 0; i < authorization.length(); i++) {
+                if (this.input.remaining() < Character.BYTES) {
+                    this.input.flip();
+                    this.mac.update(this.input);
+                    this.input.clear();
+                }
+                this.input.putChar(authorization.charAt(i));
+            }
+            this.input.flip();
+            this.mac.update(this.input);
+            this.input.clear();
+
+            try {
+                this.mac.doFinal(this.output, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(HMAC_ALGORITHM + " could not be computed", e);
+            }
+
+            return new Key(this.longAt(0), this.longAt(Long.BYTES));
+        }
+
+        private long longAt(int offset) {
+            long value = 0;
+            for (int i = offset; i < offset + Long.BYTES; i++) {
+                value = value << 8 | this.output[i] & 0xFF;
+            }
+
+            return value;
+        }
+    }
+}
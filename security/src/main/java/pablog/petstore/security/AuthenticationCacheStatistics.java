@@ -0,0 +1,89 @@
+package pablog.petstore.security;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Snapshot of the usage statistics of the {@link AuthenticationCache}.
+ */
+public class AuthenticationCacheStatistics implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long invalidationCount;
+    private final int size;
+
+    public AuthenticationCacheStatistics(long hitCount, long missCount, long evictionCount, long invalidationCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.invalidationCount = invalidationCount;
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of requests authenticated with a cached result.
+     *
+     * @return the number of requests authenticated with a cached result.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of requests that had to be validated against the
+     * identity store.
+     *
+     * @return the number of requests that had to be validated against the
+     * identity store.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of results removed because they expired or the
+     * cache was full.
+     *
+     * @return the number of results removed because they expired or the
+     * cache was full.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the number of results removed because the credentials of their
+     * user changed.
+     *
+     * @return the number of results removed because the credentials of their
+     * user changed.
+     */
+    public long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    /**
+     * Returns the number of results currently cached.
+     *
+     * @return the number of results currently cached.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the ratio of requests authenticated with a cached result.
+     *
+     * @return the ratio of requests authenticated with a cached result, or 0
+     * if no request was authenticated.
+     */
+    public double getHitRatio() {
+        final long lookups = hitCount + missCount;
+
+        return lookups == 0 ? 0d : (double) hitCount / lookups;
+    }
+}
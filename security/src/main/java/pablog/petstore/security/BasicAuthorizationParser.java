@@ -0,0 +1,203 @@
+package pablog.petstore.security;
+
+import jakarta.security.enterprise.credential.Password;
+import jakarta.security.enterprise.credential.UsernamePasswordCredential;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Parser of {@code Authorization} headers of the Basic scheme. Headers are
+ * decoded into buffers owned by the thread, so parsing a header does not
+ * allocate memory: the credentials are only copied out of the buffers when
+ * {@link #username()}, {@link #password()} or {@link #toCredential()} are
+ * called.
+ * <p>
+ * Instances are not thread-safe and must be obtained with
+ * {@link #forCurrentThread()}. Buffers should be cleared with
+ * {@link #clear()} once the credentials are no longer needed.
+ */
+public final class BasicAuthorizationParser {
+    /**
+     * Maximum length of the encoded credentials. Longer headers are rejected,
+     * so the buffers of each thread are bounded.
+     */
+    public static final int MAX_ENCODED_LENGTH = 4096;
+
+    private static final String SCHEME = "Basic ";
+    private static final int INVALID = -1;
+    private static final int PADDING = -2;
+    private static final byte[] BASE64_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_VALUES, (byte) INVALID);
+
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+        BASE64_VALUES['='] = (byte) PADDING;
+    }
+
+    private static final ThreadLocal<BasicAuthorizationParser> PARSERS =
+            ThreadLocal.withInitial(BasicAuthorizationParser::new);
+
+    private final byte[] bytes;
+    private final char[] chars;
+    private int length;
+    private int colon;
+
+    private BasicAuthorizationParser() {
+        this.bytes = new byte[MAX_ENCODED_LENGTH / 4 * 3];
+        this.chars = new char[this.bytes.length];
+    }
+
+    /**
+     * Returns the parser of the current thread.
+     *
+     * @return the parser of the current thread.
+     */
+    public static BasicAuthorizationParser forCurrentThread() {
+        return PARSERS.get();
+    }
+
+    /**
+     * Parses an {@code Authorization} header. If it is a valid header of the
+     * Basic scheme, its credentials will be available until the next call to
+     * this method or to {@link #clear()}.
+     *
+     * @param header the value of the {@code Authorization} header. May be
+     *               {@code null}.
+     * @return {@code true} if the header contains Basic credentials.
+     * {@code false} otherwise.
+     */
+    public boolean parse(String header) {
+        this.clear();
+
+        if (header == null || !header.regionMatches(true, 0, SCHEME, 0, SCHEME.length())) {
+            return false;
+        }
+
+        int start = SCHEME.length();
+        int end = header.length();
+        while (start < end && Character.isWhitespace(header.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(header.charAt(end - 1))) end--;
+
+        if (end - start > MAX_ENCODED_LENGTH) {
+            return false;
+        }
+
+        final int decoded = decodeBase64(header, start, end, this.bytes);
+        if (decoded < 0) {
+            return false;
+        }
+
+        this.length = Utf8.decode(this.bytes, decoded, this.chars);
+        if (this.length < 0) {
+            // Malformed input is rare, so it is replaced as String does
+            final String token = new String(this.bytes, 0, decoded, StandardCharsets.UTF_8);
+            this.length = token.length();
+            token.getChars(0, this.length, this.chars, 0);
+        }
+        Arrays.fill(this.bytes, 0, decoded, (byte) 0);
+
+        for (int i = 0; i < this.length; i++) {
+            if (this.chars[i] == ':') {
+                this.colon = i;
+                return true;
+            }
+        }
+
+        this.clear();
+        return false;
+    }
+
+    /**
+     * Returns the username of the last header parsed.
+     *
+     * @return the username of the last header parsed.
+     * @throws IllegalStateException if no header has been parsed successfully.
+     */
+    public String username() {
+        this.checkParsed();
+
+        return new String(this.chars, 0, this.colon);
+    }
+
+    /**
+     * Returns a copy of the password of the last header parsed.
+     *
+     * @return a copy of the password of the last header parsed.
+     * @throws IllegalStateException if no header has been parsed successfully.
+     */
+    public char[] password() {
+        this.checkParsed();
+
+        return Arrays.copyOfRange(this.chars, this.colon + 1, this.length);
+    }
+
+    /**
+     * Returns the credentials of the last header parsed.
+     *
+     * @return the credentials of the last header parsed.
+     * @throws IllegalStateException if no header has been parsed successfully.
+     */
+    public UsernamePasswordCredential toCredential() {
+        return new UsernamePasswordCredential(this.username(), new Password(this.password()));
+    }
+
+    /**
+     * Clears the credentials of the last header parsed from the buffers.
+     */
+    public void clear() {
+        Arrays.fill(this.chars, 0, this.length, '\0');
+        this.length = 0;
+        this.colon = INVALID;
+    }
+
+    private void checkParsed() {
+        if (this.colon == INVALID) {
+            throw new IllegalStateException("No credentials parsed");
+        }
+    }
+
+    // Decodes as Base64.getDecoder() does: padding is optional, but nothing
+    // can follow it. Returns the number of bytes decoded, or -1 if the input
+    // is not valid.
+    private static int decodeBase64(String src, int start, int end, byte[] dst) {
+        int written = 0;
+        int bits = 0;
+        int bitCount = 0;
+        int padding = 0;
+
+        for (int i = start; i < end; i++) {
+            final char c = src.charAt(i);
+            final int value = c < BASE64_VALUES.length ? BASE64_VALUES[c] : INVALID;
+
+            if (value == INVALID) {
+                return INVALID;
+            } else if (value == PADDING) {
+                padding++;
+            } else if (padding > 0) {
+                return INVALID;
+            } else {
+                bits = bits << 6 | value;
+                bitCount += 6;
+
+                if (bitCount >= 8) {
+                    bitCount -= 8;
+                    dst[written++] = (byte) (bits >> bitCount);
+                    bits &= (1 << bitCount) - 1;
+                }
+            }
+        }
+
+        final int quantum = (end - start - padding) % 4;
+        if (quantum == 1
+                || (padding > 0 && (padding != 4 - quantum || quantum == 0))) {
+            return INVALID;
+        }
+
+        return written;
+    }
+}
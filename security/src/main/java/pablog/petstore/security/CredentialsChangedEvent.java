@@ -0,0 +1,51 @@
+package pablog.petstore.security;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * CDI event fired when the credentials of one or more users change or the
+ * users are removed, so that any state derived from the previous credentials
+ * is discarded.
+ */
+public final class CredentialsChangedEvent implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 2L;
+
+    private final List<String> logins;
+
+    /**
+     * Creates a new event for a user.
+     *
+     * @param login the login of the user whose credentials changed.
+     * @throws NullPointerException if {@code login} is {@code null}.
+     */
+    public CredentialsChangedEvent(String login) {
+        this.logins = List.of(requireNonNull(login, "login can't be null"));
+    }
+
+    /**
+     * Creates a new event for several users, so removing many users fires a
+     * single event.
+     *
+     * @param logins the logins of the users whose credentials changed.
+     * @throws NullPointerException if {@code logins} is {@code null} or
+     *                              contains {@code null}.
+     */
+    public CredentialsChangedEvent(Collection<String> logins) {
+        this.logins = List.copyOf(requireNonNull(logins, "logins can't be null"));
+    }
+
+    /**
+     * Returns the logins of the users whose credentials changed.
+     *
+     * @return the logins of the users whose credentials changed.
+     */
+    public List<String> getLogins() {
+        return logins;
+    }
+}
@@ -12,16 +12,13 @@ import jakarta.security.enterprise.identitystore.IdentityStoreHandler;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
-import java.nio.charset.StandardCharsets;
 import java.security.Principal;
-import java.util.Base64;
-import java.util.Optional;
-import java.util.logging.Logger;
 
 import static jakarta.security.enterprise.identitystore.CredentialValidationResult.Status.VALID;
 
 /**
  * Single authentication mechanism for the EAR: Basic auth for /api/**, form auth for JSF pages.
+ * Every request and authentication event is recorded in the {@link AccessLog}.
  */
 @ApplicationScoped
 public class HybridAuthenticationMechanism implements HttpAuthenticationMechanism {
@@ -33,16 +30,24 @@ public class HybridAuthenticationMechanism implements HttpAuthenticationMechanis
     @Inject
     IdentityStoreHandler identityStoreHandler;
 
-    private static final Logger LOG = Logger.getLogger(HybridAuthenticationMechanism.class.getName());
+    @Inject
+    AuthenticationCache authenticationCache;
+
+    @Inject
+    AccessLog accessLog;
 
     @Override
     public AuthenticationStatus validateRequest(HttpServletRequest request,
                                                 HttpServletResponse response,
                                                 HttpMessageContext context) {
-        LOG.info(String.format("validateRequest - URI: %s, Principal: %s, Method: %s",
-                request.getRequestURI(),
-                context.getCallerPrincipal(),
-                request.getMethod()));
+        if (accessLog.isEnabled()) {
+            accessLog.correlationId(request, response);
+
+            if (accessLog.isEnabled(AccessEvent.REQUEST)) {
+                Principal caller = context.getCallerPrincipal();
+                accessLog.log(AccessEvent.REQUEST, request, caller == null ? null : caller.getName(), null);
+            }
+        }
 
         // Let CORS preflight through without auth.
         if ("OPTIONS".equalsIgnoreCase(request.getMethod())) {
@@ -69,16 +74,34 @@ public class HybridAuthenticationMechanism implements HttpAuthenticationMechanis
         }
 
         String authHeader = request.getHeader("Authorization");
-        Optional<UsernamePasswordCredential> credential = parseBasicHeader(authHeader);
+        BasicAuthorizationParser parser = BasicAuthorizationParser.forCurrentThread();
 
-        if (credential.isEmpty()) {
-            response.setHeader("WWW-Authenticate", BASIC_CHALLENGE);
-            return context.responseUnauthorized();
-        }
+        try {
+            if (!parser.parse(authHeader)) {
+                if (authHeader != null) {
+                    accessLog.log(AccessEvent.LOGIN_FAILED, request, null, "basic: malformed header");
+                }
+
+                response.setHeader("WWW-Authenticate", BASIC_CHALLENGE);
+                return context.responseUnauthorized();
+            }
 
-        CredentialValidationResult result = identityStoreHandler.validate(credential.get());
-        if (result.getStatus() == VALID) {
-            return context.notifyContainerAboutLogin(result);
+            // Clients usually repeat the same header, so valid results are cached
+            CredentialValidationResult result = authenticationCache.validate(
+                    authHeader, () -> identityStoreHandler.validate(parser.toCredential()));
+            if (result.getStatus() == VALID) {
+                if (accessLog.isEnabled(AccessEvent.AUTHENTICATED)) {
+                    accessLog.log(AccessEvent.AUTHENTICATED, request, result.getCallerPrincipal().getName(), "basic");
+                }
+
+                return context.notifyContainerAboutLogin(result);
+            }
+
+            if (accessLog.isEnabled(AccessEvent.LOGIN_FAILED)) {
+                accessLog.log(AccessEvent.LOGIN_FAILED, request, parser.username(), "basic");
+            }
+        } finally {
+            parser.clear();
         }
 
         response.setHeader("WWW-Authenticate", BASIC_CHALLENGE);
@@ -89,7 +112,9 @@ public class HybridAuthenticationMechanism implements HttpAuthenticationMechanis
         // CRITICAL: Check for existing authenticated principal from session FIRST
         Principal principal = request.getUserPrincipal();
         if (principal != null) {
-            LOG.info(String.format("Found existing principal in session: %s", principal.getName()));
+            if (accessLog.isEnabled(AccessEvent.AUTHENTICATED)) {
+                accessLog.log(AccessEvent.AUTHENTICATED, request, principal.getName(), "session");
+            }
             // User is already authenticated via session, just inform the container
             return context.notifyContainerAboutLogin(principal, context.getGroups());
         }
@@ -99,7 +124,7 @@ public class HybridAuthenticationMechanism implements HttpAuthenticationMechanis
         if (incoming instanceof UsernamePasswordCredential upc) {
             CredentialValidationResult result = identityStoreHandler.validate(upc);
             if (result.getStatus() == VALID) {
-                LOG.info(String.format("Form login successful for user: %s", result.getCallerPrincipal().getName()));
+                accessLog.log(AccessEvent.LOGIN, request, result.getCallerPrincipal().getName(), "form");
 
                 // Register the session
                 context.setRegisterSession(result.getCallerPrincipal().getName(), result.getCallerGroups());
@@ -109,13 +134,13 @@ public class HybridAuthenticationMechanism implements HttpAuthenticationMechanis
                         result.getCallerGroups()
                 );
             }
-            LOG.info("Credential validation failed");
+            accessLog.log(AccessEvent.LOGIN_FAILED, request, upc.getCaller(), "form");
             return context.responseUnauthorized();
         }
 
         // Redirect unauthenticated users hitting protected JSF pages to the login page.
         if (context.isProtected() && !isLoginRequest(request)) {
-            LOG.info("Redirecting unauthenticated user to login page");
+            accessLog.log(AccessEvent.LOGIN_REDIRECT, request, null, null);
             return context.redirect(request.getContextPath() + LOGIN_PAGE);
         }
 
@@ -127,29 +152,4 @@ public class HybridAuthenticationMechanism implements HttpAuthenticationMechanis
         String contextPath = request.getContextPath();
         return uri.equals(contextPath + LOGIN_PAGE) || uri.equals(contextPath + LOGIN_PAGE + "?faces-redirect=true");
     }
-
-    private Optional<UsernamePasswordCredential> parseBasicHeader(String authHeader) {
-        if (authHeader == null || !authHeader.regionMatches(true, 0, "Basic ", 0, 6)) {
-            return Optional.empty();
-        }
-
-        String base64 = authHeader.substring(6).trim();
-        byte[] decoded;
-        try {
-            decoded = Base64.getDecoder().decode(base64);
-        } catch (IllegalArgumentException ex) {
-            return Optional.empty();
-        }
-
-        String token = new String(decoded, StandardCharsets.UTF_8);
-        int colon = token.indexOf(':');
-        if (colon < 0) {
-            return Optional.empty();
-        }
-
-        String username = token.substring(0, colon);
-        String password = token.substring(colon + 1);
-        return Optional.of(new UsernamePasswordCredential(username, password));
-    }
 }
-
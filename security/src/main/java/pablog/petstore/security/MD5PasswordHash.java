@@ -3,9 +3,10 @@ package pablog.petstore.security;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.security.enterprise.identitystore.PasswordHash;
 
-import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.HexFormat;
 import java.util.Map;
 
@@ -15,11 +16,30 @@ import java.util.Map;
  * This matches the password hashing strategy used in the User entity.
  * Passwords are hashed using MD5 and stored as uppercase hexadecimal strings.
  * <p>
+ * Verification hashes the password straight from its chars, reusing a digester
+ * and buffers owned by the thread, and compares the digest with the stored hash
+ * in constant time.
+ * <p>
  * Note: MD5 is used here for compatibility with the existing User entity.
  * For production systems, consider using stronger algorithms like PBKDF2, bcrypt, or Argon2.
  */
 @ApplicationScoped
 public class MD5PasswordHash implements PasswordHash {
+    private static final int DIGEST_LENGTH = 16;
+    private static final int HASH_LENGTH = DIGEST_LENGTH * 2;
+    private static final HexFormat HEX = HexFormat.of().withUpperCase();
+
+    // Only uppercase digits are valid, as stored hashes are uppercase
+    private static final int[] HEX_VALUES = new int[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, -1);
+        for (int i = 0; i < 16; i++) {
+            HEX_VALUES["0123456789ABCDEF".charAt(i)] = i;
+        }
+    }
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
 
     @Override
     public void initialize(Map<String, String> parameters) {
@@ -28,19 +48,78 @@ public class MD5PasswordHash implements PasswordHash {
 
     @Override
     public String generate(char[] password) {
-        try {
-            MessageDigest digester = MessageDigest.getInstance("MD5");
-            String passwordStr = new String(password);
-            byte[] hash = digester.digest(passwordStr.getBytes(StandardCharsets.UTF_8));
-            return HexFormat.of().formatHex(hash).toUpperCase();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("MD5 algorithm not found", e);
-        }
+        final Buffers buffers = BUFFERS.get();
+
+        return HEX.formatHex(buffers.digest(password, 0, password.length), 0, DIGEST_LENGTH);
     }
 
+    /**
+     * Verifies a password against a hash. No memory is allocated unless the
+     * password is longer than any other password verified before by the
+     * current thread.
+     *
+     * @param password       the password.
+     * @param hashedPassword the stored hash, as an uppercase hexadecimal string.
+     * @return {@code true} if the password matches the hash. {@code false}
+     * otherwise.
+     */
     @Override
     public boolean verify(char[] password, String hashedPassword) {
-        String generatedHash = generate(password);
-        return generatedHash.equals(hashedPassword);
+        if (hashedPassword == null || hashedPassword.length() != HASH_LENGTH) {
+            return false;
+        }
+
+        final byte[] digest = BUFFERS.get().digest(password, 0, password.length);
+
+        // Every digit is compared, so the time does not depend on the matching prefix
+        int difference = 0;
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            final int high = hexValue(hashedPassword.charAt(i * 2));
+            final int low = hexValue(hashedPassword.charAt(i * 2 + 1));
+
+            difference |= (high | low) & 0x100;
+            difference |= (digest[i] & 0xFF) ^ (high << 4 | low);
+        }
+
+        return difference == 0;
+    }
+
+    // Returns 0x100 or higher for chars that are not uppercase hex digits
+    private static int hexValue(char c) {
+        return c < HEX_VALUES.length ? HEX_VALUES[c] & 0x1FF : 0x100;
+    }
+
+    private static final class Buffers {
+        private final MessageDigest digester;
+        private final byte[] digest;
+        private byte[] bytes;
+
+        private Buffers() {
+            try {
+                this.digester = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("MD5 algorithm not found", e);
+            }
+            this.digest = new byte[DIGEST_LENGTH];
+            this.bytes = new byte[64 * Utf8.MAX_BYTES_PER_CHAR];
+        }
+
+        private byte[] digest(char[] password, int offset, int length) {
+            if (this.bytes.length < length * Utf8.MAX_BYTES_PER_CHAR) {
+                this.bytes = new byte[length * Utf8.MAX_BYTES_PER_CHAR];
+            }
+
+            final int encoded = Utf8.encode(password, offset, length, this.bytes);
+            try {
+                this.digester.update(this.bytes, 0, encoded);
+                this.digester.digest(this.digest, 0, DIGEST_LENGTH);
+
+                return this.digest;
+            } catch (DigestException e) {
+                throw new IllegalStateException("MD5 digest could not be computed", e);
+            } finally {
+                Arrays.fill(this.bytes, 0, encoded, (byte) 0);
+            }
+        }
     }
 }
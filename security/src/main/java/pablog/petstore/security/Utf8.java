@@ -0,0 +1,132 @@
+package pablog.petstore.security;
+
+/**
+ * UTF-8 conversion between char and byte arrays, so that credentials can be
+ * converted into reusable buffers without creating intermediate strings.
+ * Unpaired surrogates are encoded as {@link String} does, while malformed
+ * bytes are left to {@link String} to be decoded.
+ */
+final class Utf8 {
+    /**
+     * Maximum number of bytes needed to encode a char.
+     */
+    static final int MAX_BYTES_PER_CHAR = 3;
+
+    private static final byte REPLACEMENT_BYTE = '?';
+
+    private Utf8() {
+    }
+
+    /**
+     * Encodes chars into UTF-8. {@code dst} must have room for
+     * {@code length * }{@value #MAX_BYTES_PER_CHAR} bytes.
+     *
+     * @param src    the chars to encode.
+     * @param offset the position of the first char to encode.
+     * @param length the number of chars to encode.
+     * @param dst    the array where the bytes are written, from its start.
+     * @return the number of bytes written.
+     */
+    static int encode(char[] src, int offset, int length, byte[] dst) {
+        final int end = offset + length;
+        int written = 0;
+
+        for (int i = offset; i < end; i++) {
+            final char c = src[i];
+
+            if (c < 0x80) {
+                dst[written++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[written++] = (byte) (0xC0 | c >> 6);
+                dst[written++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(src[i + 1])) {
+                final int codePoint = Character.toCodePoint(c, src[++i]);
+                dst[written++] = (byte) (0xF0 | codePoint >> 18);
+                dst[written++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                dst[written++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                dst[written++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                dst[written++] = REPLACEMENT_BYTE;
+            } else {
+                dst[written++] = (byte) (0xE0 | c >> 12);
+                dst[written++] = (byte) (0x80 | c >> 6 & 0x3F);
+                dst[written++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+
+        return written;
+    }
+
+    /**
+     * Decodes UTF-8 bytes into chars. {@code dst} must have room for
+     * {@code length} chars.
+     *
+     * @param src    the bytes to decode.
+     * @param length the number of bytes to decode, from the start of
+     *               {@code src}.
+     * @param dst    the array where the chars are written, from its start.
+     * @return the number of chars written, or -1 if the bytes are not valid
+     * UTF-8.
+     */
+    static int decode(byte[] src, int length, char[] dst) {
+        int written = 0;
+        int i = 0;
+
+        while (i < length) {
+            final int b = src[i++] & 0xFF;
+
+            if (b < 0x80) {
+                dst[written++] = (char) b;
+                continue;
+            }
+
+            final int continuationBytes;
+            int codePoint;
+            if (b >= 0xC2 && b <= 0xDF) {
+                continuationBytes = 1;
+                codePoint = b & 0x1F;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                continuationBytes = 2;
+                codePoint = b & 0x0F;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                continuationBytes = 3;
+                codePoint = b & 0x07;
+            } else {
+                return -1;
+            }
+
+            int read = 0;
+            while (read < continuationBytes && i < length && isContinuation(b, read, src[i] & 0xFF)) {
+                codePoint = codePoint << 6 | src[i++] & 0x3F;
+                read++;
+            }
+
+            if (read < continuationBytes) {
+                return -1;
+            } else if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                dst[written++] = Character.highSurrogate(codePoint);
+                dst[written++] = Character.lowSurrogate(codePoint);
+            } else {
+                dst[written++] = (char) codePoint;
+            }
+        }
+
+        return written;
+    }
+
+    // Second bytes are restricted, so overlong forms, surrogates and code
+    // points above U+10FFFF are rejected
+    private static boolean isContinuation(int lead, int position, int b) {
+        if (position == 0) {
+            switch (lead) {
+                case 0xE0: return b >= 0xA0 && b <= 0xBF;
+                case 0xED: return b >= 0x80 && b <= 0x9F;
+                case 0xF0: return b >= 0x90 && b <= 0xBF;
+                case 0xF4: return b >= 0x80 && b <= 0x8F;
+                default: break;
+            }
+        }
+
+        return (b & 0xC0) == 0x80;
+    }
+}
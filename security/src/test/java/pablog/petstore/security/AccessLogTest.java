@@ -0,0 +1,213 @@
+package pablog.petstore.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogTest {
+
+    private final List<LogRecord> records = new CopyOnWriteArrayList<>();
+
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.ALL);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    @Test
+    void testEventsAreWrittenWhenDrained() {
+        AccessLog log = new AccessLog(logger, Level.INFO, 1d, 4, () -> 1000L);
+
+        log.log(AccessEvent.REQUEST, "id-1", "pepe", "GET", "/api/owners", null);
+
+        assertTrue(records.isEmpty());
+        assertEquals(1, log.drain());
+        assertEquals(1, records.size());
+        assertEquals("event=REQUEST id=id-1 principal=pepe method=GET uri=/api/owners", records.get(0).getMessage());
+        assertEquals(Level.INFO, records.get(0).getLevel());
+        assertEquals(Instant.ofEpochMilli(1000L), records.get(0).getInstant());
+    }
+
+    @Test
+    void testValuesWithWhitespaceAreQuoted() {
+        AccessLog log = new AccessLog(logger, Level.INFO, 1d, 4, () -> 0L);
+
+        log.log(AccessEvent.LOGIN_FAILED, null, "pe\"pe", null, null, "bad\ncredentials");
+        log.drain();
+
+        assertEquals("event=LOGIN_FAILED principal=\"pe\\\"pe\" detail=\"bad credentials\"", records.get(0).getMessage());
+    }
+
+    @Test
+    void testEventsBelowLevelAreDiscarded() {
+        AccessLog log = new AccessLog(logger, Level.WARNING, 1d, 4, () -> 0L);
+
+        assertFalse(log.isEnabled(AccessEvent.REQUEST));
+        assertTrue(log.isEnabled(AccessEvent.LOGIN_FAILED));
+
+        log.log(AccessEvent.REQUEST, "id", null, "GET", "/", null);
+        log.log(AccessEvent.LOGIN_FAILED, "id", "pepe", "POST", "/login.xhtml", "form");
+
+        assertEquals(1, log.drain());
+        assertEquals(1, log.getStatistics().getRecordedCount());
+        assertEquals(0, log.getStatistics().getSampledOutCount());
+    }
+
+    @Test
+    void testLogOff() {
+        AccessLog log = new AccessLog(logger, Level.OFF, 1d, 4, () -> 0L);
+
+        assertFalse(log.isEnabled());
+        for (AccessEvent event : AccessEvent.values()) {
+            assertFalse(log.isEnabled(event));
+        }
+    }
+
+    @Test
+    void testSamplingDoesNotDiscardWarnings() {
+        AccessLog log = new AccessLog(logger, Level.ALL, 0d, 4, () -> 0L);
+
+        log.log(AccessEvent.REQUEST, "id", null, "GET", "/", null);
+        log.log(AccessEvent.LOGIN_FAILED, "id", "pepe", "GET", "/", "basic");
+
+        assertEquals(1, log.drain());
+        assertEquals(AccessEvent.LOGIN_FAILED.getLevel(), records.get(0).getLevel());
+        assertEquals(1, log.getStatistics().getSampledOutCount());
+    }
+
+    @Test
+    void testEventsAreDroppedWhenBufferIsFull() {
+        AccessLog log = new AccessLog(logger, Level.INFO, 1d, 2, () -> 0L);
+
+        log.log(AccessEvent.REQUEST, "1", null, "GET", "/", null);
+        log.log(AccessEvent.REQUEST, "2", null, "GET", "/", null);
+        log.log(AccessEvent.REQUEST, "3", null, "GET", "/", null);
+
+        AccessLogStatistics statistics = log.getStatistics();
+        assertEquals(2, statistics.getRecordedCount());
+        assertEquals(1, statistics.getDroppedCount());
+        assertEquals(2, statistics.getPending());
+
+        assertEquals(2, log.drain());
+        log.log(AccessEvent.REQUEST, "4", null, "GET", "/", null);
+        assertEquals(1, log.drain());
+
+        assertEquals(3, records.size());
+        assertTrue(records.get(2).getMessage().contains("id=4"));
+        assertEquals(3, log.getStatistics().getWrittenCount());
+        assertEquals(0, log.getStatistics().getPending());
+    }
+
+    @Test
+    void testCapacityIsRoundedToPowerOfTwo() {
+        assertEquals(8, new AccessLog(logger, Level.INFO, 1d, 5, () -> 0L).getStatistics().getCapacity());
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new AccessLog(logger, Level.INFO, 1.5d, 4, () -> 0L));
+        assertThrows(IllegalArgumentException.class, () -> new AccessLog(logger, Level.INFO, 1d, 0, () -> 0L));
+    }
+
+    @Test
+    void testConcurrentProducers() throws Exception {
+        AccessLog log = new AccessLog(logger, Level.INFO, 1d, 1024, () -> 0L);
+        log.start();
+
+        int threads = 4;
+        int events = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int j = 0; j < events; j++) {
+                        log.log(AccessEvent.REQUEST, "id", null, "GET", "/", null);
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        log.stop();
+
+        AccessLogStatistics statistics = log.getStatistics();
+        assertEquals(threads * events, statistics.getRecordedCount() + statistics.getDroppedCount());
+        assertEquals(statistics.getRecordedCount(), records.size());
+        assertEquals(0, statistics.getPending());
+    }
+
+    @Test
+    void testWriterWakesUpWhenEventsAreRecorded() throws Exception {
+        AccessLog log = new AccessLog(logger, Level.INFO, 1d, 4, () -> 0L);
+        log.start(Thread.ofPlatform().daemon().factory());
+        try {
+            for (int i = 1; i <= 3; i++) {
+                // The writer is blocked on the empty buffer before each event
+                Thread.sleep(50);
+                log.log(AccessEvent.REQUEST, "id", null, "GET", "/", null);
+
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (records.size() < i && System.nanoTime() < deadline) {
+                    Thread.sleep(1);
+                }
+                assertEquals(i, records.size());
+            }
+        } finally {
+            log.stop();
+        }
+
+        assertEquals(0, log.getStatistics().getPending());
+    }
+
+    @Test
+    void testCorrelationIds() {
+        assertTrue(AccessLog.isValidCorrelationId("3f2a-9c_1.b"));
+        assertFalse(AccessLog.isValidCorrelationId(null));
+        assertFalse(AccessLog.isValidCorrelationId(""));
+        assertFalse(AccessLog.isValidCorrelationId("id with spaces"));
+        assertFalse(AccessLog.isValidCorrelationId("x".repeat(65)));
+
+        String first = AccessLog.generateCorrelationId();
+        String second = AccessLog.generateCorrelationId();
+        assertNotEquals(first, second);
+        assertTrue(AccessLog.isValidCorrelationId(first));
+    }
+}
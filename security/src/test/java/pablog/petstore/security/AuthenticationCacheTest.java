@@ -0,0 +1,173 @@
+package pablog.petstore.security;
+
+import jakarta.security.enterprise.identitystore.CredentialValidationResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static jakarta.security.enterprise.identitystore.CredentialValidationResult.INVALID_RESULT;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthenticationCacheTest {
+
+    private static final String PEPE_HEADER = "Basic cGVwZTpwZXBlcGFzcw==";
+    private static final String JUAN_HEADER = "Basic anVhbjpqdWFucGFzcw==";
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger validations = new AtomicInteger();
+
+    private AuthenticationCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new AuthenticationCache(Duration.ofSeconds(60), 2, clock::get);
+    }
+
+    @Test
+    void testValidateCachesValidResults() {
+        CredentialValidationResult first = cache.validate(PEPE_HEADER, valid("pepe"));
+        CredentialValidationResult second = cache.validate(PEPE_HEADER, valid("pepe"));
+
+        assertSame(first, second);
+        assertEquals(1, validations.get());
+        assertEquals(1, cache.getStatistics().getHitCount());
+        assertEquals(1, cache.getStatistics().getMissCount());
+        assertEquals(0.5, cache.getStatistics().getHitRatio());
+    }
+
+    @Test
+    void testValidateDoesNotCacheInvalidResults() {
+        cache.validate(PEPE_HEADER, invalid());
+        cache.validate(PEPE_HEADER, invalid());
+
+        assertEquals(2, validations.get());
+        assertEquals(0, cache.getStatistics().getSize());
+    }
+
+    @Test
+    void testValidateExpiredResult() {
+        cache.validate(PEPE_HEADER, valid("pepe"));
+        clock.addAndGet(Duration.ofSeconds(61).toNanos());
+        cache.validate(PEPE_HEADER, valid("pepe"));
+
+        assertEquals(2, validations.get());
+        assertEquals(1, cache.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    void testValidateFullCache() {
+        cache.validate(PEPE_HEADER, valid("pepe"));
+        cache.validate(JUAN_HEADER, valid("juan"));
+        cache.validate("Basic YW5hOmFuYXBhc3M=", valid("ana"));
+
+        assertEquals(2, cache.getStatistics().getSize());
+        assertEquals(1, cache.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    void testValidateFullCacheEvictsOldestResult() {
+        cache.validate(PEPE_HEADER, valid("pepe"));
+        cache.validate(JUAN_HEADER, valid("juan"));
+        cache.validate("Basic YW5hOmFuYXBhc3M=", valid("ana"));
+        cache.validate(JUAN_HEADER, valid("juan"));
+
+        assertEquals(3, validations.get());
+        assertEquals(1, cache.getStatistics().getHitCount());
+    }
+
+    @Test
+    void testValidateFullCacheEvictsExpiredResultsFirst() {
+        cache.validate(PEPE_HEADER, valid("pepe"));
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        cache.validate(JUAN_HEADER, valid("juan"));
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        cache.validate("Basic YW5hOmFuYXBhc3M=", valid("ana"));
+
+        assertEquals(2, cache.getStatistics().getSize());
+        assertEquals(1, cache.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    void testInvalidate() {
+        cache.validate(PEPE_HEADER, valid("pepe"));
+        cache.validate(JUAN_HEADER, valid("juan"));
+
+        cache.invalidate("pepe");
+        cache.validate(PEPE_HEADER, valid("pepe"));
+        cache.validate(JUAN_HEADER, valid("juan"));
+
+        assertEquals(3, validations.get());
+        assertEquals(1, cache.getStatistics().getInvalidationCount());
+    }
+
+    @Test
+    void testInvalidateDuringValidation() {
+        cache.validate(PEPE_HEADER, () -> {
+            cache.invalidate("pepe");
+            return valid("pepe").get();
+        });
+
+        assertEquals(0, cache.getStatistics().getSize());
+    }
+
+    @Test
+    void testCredentialsChangedEvent() {
+        cache.validate(PEPE_HEADER, valid("pepe"));
+
+        cache.onCredentialsChanged(new CredentialsChangedEvent("pepe"));
+
+        assertEquals(0, cache.getStatistics().getSize());
+    }
+
+    @Test
+    void testCredentialsChangedEventWithSeveralLogins() {
+        cache.validate(PEPE_HEADER, valid("pepe"));
+        cache.validate(JUAN_HEADER, valid("juan"));
+
+        cache.onCredentialsChanged(new CredentialsChangedEvent(List.of("PEPE", "juan", "unknown")));
+
+        assertEquals(0, cache.getStatistics().getSize());
+        assertEquals(2, cache.getStatistics().getInvalidationCount());
+    }
+
+    @Test
+    void testClear() {
+        cache.validate(PEPE_HEADER, valid("pepe"));
+        cache.validate(JUAN_HEADER, valid("juan"));
+
+        cache.clear();
+
+        assertEquals(0, cache.getStatistics().getSize());
+    }
+
+    @Test
+    void testDisabled() {
+        cache = new AuthenticationCache(Duration.ZERO, 2, clock::get);
+
+        cache.validate(PEPE_HEADER, valid("pepe"));
+        cache.validate(PEPE_HEADER, valid("pepe"));
+
+        assertEquals(2, validations.get());
+        assertEquals(0, cache.getStatistics().getSize());
+    }
+
+    private Supplier<CredentialValidationResult> valid(String login) {
+        return () -> {
+            validations.incrementAndGet();
+            return new CredentialValidationResult(login, Set.of("OWNER"));
+        };
+    }
+
+    private Supplier<CredentialValidationResult> invalid() {
+        return () -> {
+            validations.incrementAndGet();
+            return INVALID_RESULT;
+        };
+    }
+}
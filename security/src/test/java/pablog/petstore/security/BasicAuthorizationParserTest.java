@@ -0,0 +1,124 @@
+package pablog.petstore.security;
+
+import jakarta.security.enterprise.credential.UsernamePasswordCredential;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BasicAuthorizationParserTest {
+
+    private final BasicAuthorizationParser parser = BasicAuthorizationParser.forCurrentThread();
+
+    @AfterEach
+    void tearDown() {
+        parser.clear();
+    }
+
+    @Test
+    void testParse() {
+        assertTrue(parser.parse("Basic cGVwZTpwZXBlcGFzcw=="));
+
+        assertEquals("pepe", parser.username());
+        assertArrayEquals("pepepass".toCharArray(), parser.password());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "basic cGVwZTpwZXBlcGFzcw==",
+            "Basic   cGVwZTpwZXBlcGFzcw==  ",
+            "Basic cGVwZTpwZXBlcGFzcw"
+    })
+    void testParseLenientFormats(String header) {
+        assertTrue(parser.parse(header));
+
+        assertEquals("pepe", parser.username());
+        assertArrayEquals("pepepass".toCharArray(), parser.password());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "Bearer cGVwZTpwZXBlcGFzcw==",
+            "Basic ",
+            "Basic cGVwZTpwZXBlcGFzcw=",
+            "Basic cGVwZTpwZXBlcGFzcw===",
+            "Basic cGVwZTpw=ZXBlcGFzcw",
+            "Basic cGVwZTpwZXBlcGFzc",
+            "Basic cGVwZTpwZXBl*GFzcw==",
+            "Basic cGVwZXBlcGVwYXNz"
+    })
+    void testParseInvalidHeaders(String header) {
+        assertFalse(parser.parse(header));
+        assertThrows(IllegalStateException.class, parser::username);
+    }
+
+    @Test
+    void testParseNull() {
+        assertFalse(parser.parse(null));
+    }
+
+    @Test
+    void testParseTooLong() {
+        String credentials = "pepe:" + "a".repeat(BasicAuthorizationParser.MAX_ENCODED_LENGTH);
+
+        assertFalse(parser.parse("Basic " + encode(credentials)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "pepe:",
+            "pepe:pass:with:colons",
+            "pépe:contraseña",
+            "日本:パスワード",
+            "pepe:emoji-😀"
+    })
+    void testParseMatchesStringDecoding(String credentials) {
+        assertTrue(parser.parse("Basic " + encode(credentials)));
+
+        int colon = credentials.indexOf(':');
+        assertEquals(credentials.substring(0, colon), parser.username());
+        assertArrayEquals(credentials.substring(colon + 1).toCharArray(), parser.password());
+    }
+
+    @Test
+    void testParseMalformedUtf8() {
+        byte[] credentials = {'p', 'e', 'p', 'e', ':', (byte) 0xC3, 'x', (byte) 0xFF};
+        String header = "Basic " + Base64.getEncoder().encodeToString(credentials);
+        String expected = new String(credentials, StandardCharsets.UTF_8);
+
+        assertTrue(parser.parse(header));
+
+        assertEquals("pepe", parser.username());
+        assertArrayEquals(expected.substring(5).toCharArray(), parser.password());
+    }
+
+    @Test
+    void testToCredential() {
+        assertTrue(parser.parse("Basic cGVwZTpwZXBlcGFzcw=="));
+
+        UsernamePasswordCredential credential = parser.toCredential();
+
+        assertEquals("pepe", credential.getCaller());
+        assertEquals("pepepass", credential.getPasswordAsString());
+    }
+
+    @Test
+    void testClear() {
+        assertTrue(parser.parse("Basic cGVwZTpwZXBlcGFzcw=="));
+
+        parser.clear();
+
+        assertThrows(IllegalStateException.class, parser::password);
+        assertThrows(IllegalStateException.class, parser::username);
+    }
+
+    private static String encode(String credentials) {
+        return Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -160,4 +160,24 @@ class MD5PasswordHashTest {
         assertEquals(32, hash.length());
         assertTrue(passwordHash.verify(longPassword, hash));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should hash non-ASCII passwords as UTF-8")
+    void testVerifyUnicodePassword() {
+        char[] password = "contraseña-日本語-\uD83D\uDE00".toCharArray();
+
+        assertTrue(passwordHash.verify(password, "BD5202F8526827BEEC800A31F780F8CC"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "5F4DCC3B5AA765D61D8327DEB882CF9", "5F4DCC3B5AA765D61D8327DEB882CF99A", "5F4DCC3B5AA765D61D8327DEB882CFGG"})
+    @DisplayName("Should reject hashes that are not 32 uppercase hex digits")
+    void testVerifyMalformedHash(String hash) {
+        assertFalse(passwordHash.verify("password".toCharArray(), hash));
+    }
+
+    @Test
+    void testVerifyNullHash() {
+        assertFalse(passwordHash.verify("password".toCharArray(), null));
+    }
+}
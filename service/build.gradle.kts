@@ -11,7 +11,9 @@ dependencies {
     compileOnly(libs.jakarta.transaction.api)
     compileOnly(libs.jakarta.annotation.api)
     compileOnly(libs.jakarta.cdi.api)
+    compileOnly(libs.jakarta.interceptor.api)
     compileOnly(libs.jakarta.security.enterprise.api)
+    compileOnly(libs.hibernate.core)
 
     // Jakarta APIs for test compilation
     testImplementation(platform(libs.jakarta.bom))
@@ -22,6 +24,7 @@ dependencies {
     testCompileOnly(libs.jakarta.annotation.api)
     testCompileOnly(libs.jakarta.cdi.api)
     testCompileOnly(libs.jakarta.security.enterprise.api)
+    testCompileOnly(libs.hibernate.core)
 
     // JUnit 5
     testImplementation(platform(libs.junit.bom))
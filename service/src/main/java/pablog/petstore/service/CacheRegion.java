@@ -0,0 +1,87 @@
+package pablog.petstore.service;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Usage statistics of a second-level or query cache region.
+ */
+public class CacheRegion implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final long hitCount;
+    private final long missCount;
+    private final long putCount;
+    private final long elementCount;
+
+    public CacheRegion(String name, long hitCount, long missCount, long putCount, long elementCount) {
+        this.name = name;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.elementCount = elementCount;
+    }
+
+    /**
+     * Returns the name of the region.
+     *
+     * @return the name of the region.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of lookups that found the element in the region.
+     *
+     * @return the number of lookups that found the element in the region.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find the element in the
+     * region.
+     *
+     * @return the number of lookups that did not find the element in the
+     * region.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of times an element was put into the region. Since
+     * elements may be replaced or evicted, this is not the size of the region.
+     *
+     * @return the number of times an element was put into the region.
+     */
+    public long getPutCount() {
+        return putCount;
+    }
+
+    /**
+     * Returns the number of elements currently held in memory by the region,
+     * or a negative value if the cache provider does not report it.
+     *
+     * @return the number of elements currently held in memory by the region.
+     */
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * Returns the ratio of lookups that found the element in the region.
+     *
+     * @return the ratio of lookups that found the element in the region, or
+     * 0 if there were no lookups.
+     */
+    public double getHitRatio() {
+        final long lookups = hitCount + missCount;
+
+        return lookups == 0 ? 0d : (double) hitCount / lookups;
+    }
+}
@@ -0,0 +1,87 @@
+package pablog.petstore.service;
+
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ejb.Stateless;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * EJB for the second-level and query caches. Only administrators have access
+ * to this class.
+ */
+@Stateless
+@RolesAllowed("ADMIN")
+@StatementBudget(0)
+public class CacheService {
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
+    /**
+     * Returns the usage statistics of every cache region, sorted by name.
+     * Statistics are accumulated since the application started.
+     *
+     * @return the usage statistics of every cache region.
+     */
+    public List<CacheRegion> getRegions() {
+        final Statistics statistics = sessionFactory().getStatistics();
+
+        return Stream.of(statistics.getSecondLevelCacheRegionNames())
+                .map(name -> toCacheRegion(name, statistics.getCacheRegionStatistics(name)))
+                .filter(Objects::nonNull)
+                .sorted(comparing(CacheRegion::getName))
+                .toList();
+    }
+
+    /**
+     * Removes all the elements stored in the cache regions.
+     */
+    public void evictAll() {
+        sessionFactory().getCache().evictAllRegions();
+    }
+
+    /**
+     * Removes all the elements stored in a cache region.
+     *
+     * @param name the name of the region.
+     * @return {@code true} if the region exists and its elements were removed.
+     * {@code false} if there is no region with the provided name.
+     * @throws IllegalArgumentException if {@code name} is {@code null}.
+     */
+    public boolean evict(String name) {
+        if (name == null)
+            throw new IllegalArgumentException("name can't be null");
+
+        final SessionFactory sessionFactory = sessionFactory();
+        if (sessionFactory.getStatistics().getCacheRegionStatistics(name) == null) {
+            return false;
+        } else {
+            sessionFactory.getCache().evictRegion(name);
+            return true;
+        }
+    }
+
+    private SessionFactory sessionFactory() {
+        return emf.unwrap(SessionFactory.class);
+    }
+
+    private static CacheRegion toCacheRegion(String name, CacheRegionStatistics statistics) {
+        if (statistics == null) return null;
+
+        return new CacheRegion(
+                name,
+                statistics.getHitCount(),
+                statistics.getMissCount(),
+                statistics.getPutCount(),
+                statistics.getElementCountInMemory()
+        );
+    }
+}
@@ -0,0 +1,83 @@
+package pablog.petstore.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.statistics.FacetCounters;
+import pablog.petstore.domain.statistics.FacetCounts;
+import pablog.petstore.domain.statistics.Facets;
+
+import java.util.Date;
+import java.util.stream.Stream;
+
+/**
+ * EJB for the aggregated counts of owners and pets shown in the dashboards.
+ * Only administrators have access to this class.
+ * <p>
+ * On startup, the {@link Facets} counters are loaded from the database. Then,
+ * they are kept in sync by the entity listeners of the owners and pets and by
+ * the bulk operations of the services, so reading the counts never accesses
+ * the database.
+ */
+@Singleton
+@Startup
+@LocalBean
+@Lock(LockType.READ)
+@RolesAllowed("ADMIN")
+public class FacetService {
+    private static final String FETCH_SIZE = "org.hibernate.fetchSize";
+    private static final int LOAD_FETCH_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @PostConstruct
+    void start() {
+        this.rebuild();
+    }
+
+    /**
+     * Returns the number of owners and pets, the number of pets of each type
+     * of animal and in each range of age, and the number of owners with each
+     * range of number of pets.
+     *
+     * @return the current counts.
+     */
+    public FacetCounts getCounts() {
+        return Facets.counters().snapshot();
+    }
+
+    /**
+     * Loads new counters from the database and replaces the current ones with
+     * them. Counts are served from the current counters while the new ones
+     * are loaded.
+     */
+    public void rebuild() {
+        Facets.rebuild(this::load);
+    }
+
+    private void load(FacetCounters counters) {
+        try (Stream<String> logins = em.createQuery("SELECT o.login FROM Owner o", String.class)
+                .setHint(FETCH_SIZE, LOAD_FETCH_SIZE)
+                .getResultStream()) {
+            logins.forEach(counters::putOwner);
+        }
+
+        try (Stream<Tuple> pets = em.createQuery("SELECT p.id, p.owner.login, p.animal, p.birth FROM Pet p", Tuple.class)
+                .setHint(FETCH_SIZE, LOAD_FETCH_SIZE)
+                .getResultStream()) {
+            pets.forEach(pet -> counters.putPet(
+                    pet.get(0, Integer.class), pet.get(1, String.class),
+                    pet.get(2, AnimalType.class), pet.get(3, Date.class)
+            ));
+        }
+    }
+}
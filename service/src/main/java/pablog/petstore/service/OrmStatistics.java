@@ -0,0 +1,242 @@
+package pablog.petstore.service;
+
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Snapshot of the statistics of the persistence unit, accumulated since the
+ * application started or since they were last cleared.
+ */
+public class OrmStatistics implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final long prepareStatementCount;
+    private final long queryExecutionCount;
+    private final long queryExecutionMaxTime;
+    private final long entityLoadCount;
+    private final long entityFetchCount;
+    private final long collectionLoadCount;
+    private final long collectionFetchCount;
+    private final long secondLevelCacheHitCount;
+    private final long secondLevelCacheMissCount;
+    private final long queryCacheHitCount;
+    private final long queryCacheMissCount;
+    private final long transactionCount;
+    private final Map<String, Long> collectionFetchCountsByRole;
+
+    public OrmStatistics(
+            long prepareStatementCount, long queryExecutionCount, long queryExecutionMaxTime,
+            long entityLoadCount, long entityFetchCount,
+            long collectionLoadCount, long collectionFetchCount,
+            long secondLevelCacheHitCount, long secondLevelCacheMissCount,
+            long queryCacheHitCount, long queryCacheMissCount,
+            long transactionCount,
+            Map<String, Long> collectionFetchCountsByRole
+    ) {
+        this.prepareStatementCount = prepareStatementCount;
+        this.queryExecutionCount = queryExecutionCount;
+        this.queryExecutionMaxTime = queryExecutionMaxTime;
+        this.entityLoadCount = entityLoadCount;
+        this.entityFetchCount = entityFetchCount;
+        this.collectionLoadCount = collectionLoadCount;
+        this.collectionFetchCount = collectionFetchCount;
+        this.secondLevelCacheHitCount = secondLevelCacheHitCount;
+        this.secondLevelCacheMissCount = secondLevelCacheMissCount;
+        this.queryCacheHitCount = queryCacheHitCount;
+        this.queryCacheMissCount = queryCacheMissCount;
+        this.transactionCount = transactionCount;
+        this.collectionFetchCountsByRole = Collections.unmodifiableMap(new TreeMap<>(collectionFetchCountsByRole));
+    }
+
+    /**
+     * Creates a snapshot of the statistics of a session factory.
+     *
+     * @param statistics the statistics of the session factory.
+     * @return a snapshot of the statistics.
+     */
+    static OrmStatistics of(Statistics statistics) {
+        final Map<String, Long> collectionFetchCounts = new TreeMap<>();
+        for (String role : statistics.getCollectionRoleNames()) {
+            final CollectionStatistics collectionStatistics = statistics.getCollectionStatistics(role);
+
+            if (collectionStatistics != null && collectionStatistics.getFetchCount() > 0) {
+                collectionFetchCounts.put(role, collectionStatistics.getFetchCount());
+            }
+        }
+
+        return new OrmStatistics(
+                statistics.getPrepareStatementCount(),
+                statistics.getQueryExecutionCount(),
+                statistics.getQueryExecutionMaxTime(),
+                statistics.getEntityLoadCount(),
+                statistics.getEntityFetchCount(),
+                statistics.getCollectionLoadCount(),
+                statistics.getCollectionFetchCount(),
+                statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(),
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(),
+                statistics.getTransactionCount(),
+                collectionFetchCounts
+        );
+    }
+
+    /**
+     * Returns the number of JDBC statements prepared.
+     *
+     * @return the number of JDBC statements prepared.
+     */
+    public long getPrepareStatementCount() {
+        return prepareStatementCount;
+    }
+
+    /**
+     * Returns the number of JPQL and native queries executed.
+     *
+     * @return the number of queries executed.
+     */
+    public long getQueryExecutionCount() {
+        return queryExecutionCount;
+    }
+
+    /**
+     * Returns the execution time of the slowest query.
+     *
+     * @return the execution time of the slowest query, in milliseconds.
+     */
+    public long getQueryExecutionMaxTime() {
+        return queryExecutionMaxTime;
+    }
+
+    /**
+     * Returns the number of entities loaded.
+     *
+     * @return the number of entities loaded.
+     */
+    public long getEntityLoadCount() {
+        return entityLoadCount;
+    }
+
+    /**
+     * Returns the number of entities fetched from the database with their own
+     * statement, e.g. lazy associations.
+     *
+     * @return the number of entities fetched.
+     */
+    public long getEntityFetchCount() {
+        return entityFetchCount;
+    }
+
+    /**
+     * Returns the number of collections loaded.
+     *
+     * @return the number of collections loaded.
+     */
+    public long getCollectionLoadCount() {
+        return collectionLoadCount;
+    }
+
+    /**
+     * Returns the number of collections fetched from the database with their
+     * own statement, not counting the ones fetched with a join.
+     *
+     * @return the number of collections fetched.
+     */
+    public long getCollectionFetchCount() {
+        return collectionFetchCount;
+    }
+
+    /**
+     * Returns the number of lookups that found the element in a second-level
+     * cache region.
+     *
+     * @return the number of second-level cache hits.
+     */
+    public long getSecondLevelCacheHitCount() {
+        return secondLevelCacheHitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find the element in a
+     * second-level cache region.
+     *
+     * @return the number of second-level cache misses.
+     */
+    public long getSecondLevelCacheMissCount() {
+        return secondLevelCacheMissCount;
+    }
+
+    /**
+     * Returns the ratio of second-level cache lookups that found the element.
+     *
+     * @return the second-level cache hit ratio, or 0 if there were no
+     * lookups.
+     */
+    public double getSecondLevelCacheHitRatio() {
+        return ratio(secondLevelCacheHitCount, secondLevelCacheMissCount);
+    }
+
+    /**
+     * Returns the number of queries whose results were found in the query
+     * cache.
+     *
+     * @return the number of query cache hits.
+     */
+    public long getQueryCacheHitCount() {
+        return queryCacheHitCount;
+    }
+
+    /**
+     * Returns the number of cacheable queries whose results were not found in
+     * the query cache.
+     *
+     * @return the number of query cache misses.
+     */
+    public long getQueryCacheMissCount() {
+        return queryCacheMissCount;
+    }
+
+    /**
+     * Returns the ratio of cacheable queries whose results were found in the
+     * query cache.
+     *
+     * @return the query cache hit ratio, or 0 if there were no lookups.
+     */
+    public double getQueryCacheHitRatio() {
+        return ratio(queryCacheHitCount, queryCacheMissCount);
+    }
+
+    /**
+     * Returns the number of transactions completed.
+     *
+     * @return the number of transactions completed.
+     */
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    /**
+     * Returns the number of collections fetched from the database for each
+     * collection role (e.g. {@code pablog.petstore.domain.entities.Owner.pets}).
+     * Roles that were never fetched are not included.
+     *
+     * @return the number of collections fetched, indexed by role, in
+     * ascending order of role.
+     */
+    public Map<String, Long> getCollectionFetchCountsByRole() {
+        return collectionFetchCountsByRole;
+    }
+
+    private static double ratio(long hits, long misses) {
+        final long lookups = hits + misses;
+
+        return lookups == 0 ? 0d : (double) hits / lookups;
+    }
+}
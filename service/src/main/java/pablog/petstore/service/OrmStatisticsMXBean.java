@@ -0,0 +1,19 @@
+package pablog.petstore.service;
+
+/**
+ * Management interface of the statistics of the persistence unit, registered
+ * in the platform MBean server as {@value OrmStatisticsMonitor#OBJECT_NAME}.
+ */
+public interface OrmStatisticsMXBean {
+    /**
+     * Returns a snapshot of the statistics of the persistence unit.
+     *
+     * @return a snapshot of the statistics of the persistence unit.
+     */
+    OrmStatistics getStatistics();
+
+    /**
+     * Resets all the statistics of the persistence unit.
+     */
+    void clear();
+}
@@ -0,0 +1,85 @@
+package pablog.petstore.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Exposes the statistics of the persistence unit, which must be enabled with
+ * the {@code hibernate.generate_statistics} property.
+ * <p>
+ * On startup, the statistics are registered in the platform MBean server as
+ * {@value #OBJECT_NAME}, and a listener that counts the collections
+ * initialized and the entities loaded for each {@link RequestStatistics} is
+ * added to the persistence unit. This class has no role restrictions, as the statistics do not contain
+ * application data, so the REST layer can read them in any request.
+ */
+@Singleton
+@Startup
+@LocalBean
+@Lock(LockType.READ)
+public class OrmStatisticsMonitor implements OrmStatisticsMXBean {
+    public static final String OBJECT_NAME = "pablog.petstore:type=OrmStatistics";
+
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
+    @PostConstruct
+    void start() {
+        final EventListenerRegistry listeners = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        final RequestStatisticsListener listener = new RequestStatisticsListener();
+
+        listeners.appendListeners(EventType.INIT_COLLECTION, listener);
+        listeners.appendListeners(EventType.POST_LOAD, listener);
+
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Error registering the ORM statistics MBean", e);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            // The MBean was already unregistered
+        }
+    }
+
+    @Override
+    public OrmStatistics getStatistics() {
+        return OrmStatistics.of(sessionFactory().getStatistics());
+    }
+
+    @Override
+    public void clear() {
+        sessionFactory().getStatistics().clear();
+    }
+
+    private SessionFactory sessionFactory() {
+        return emf.unwrap(SessionFactory.class);
+    }
+}
@@ -2,14 +2,32 @@ package pablog.petstore.service;
 
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
 import pablog.petstore.domain.entities.Owner;
 import pablog.petstore.domain.entities.Pet;
+import pablog.petstore.domain.persistence.StatementCounter;
+import pablog.petstore.domain.search.Suggestions;
+import pablog.petstore.domain.statistics.Facets;
+import pablog.petstore.security.CredentialsChangedEvent;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * EJB for the Owners. Only administrators have access to this class.
@@ -19,12 +37,47 @@ import java.util.List;
 @Stateless
 @RolesAllowed("ADMIN")
 public class OwnerService {
+    private static final String FETCH_GRAPH = "jakarta.persistence.fetchgraph";
+    private static final String FETCH_SIZE = "org.hibernate.fetchSize";
+    private static final int STREAM_FETCH_SIZE = 100;
+    private static final String CACHEABLE = "org.hibernate.cacheable";
+    private static final String CACHE_REGION = "org.hibernate.cacheRegion";
+    private static final int REMOVE_BLOCK_SIZE = 1000;
+    // Same as the hibernate.jdbc.batch_size of the persistence unit
+    private static final int BATCH_SIZE = 50;
+
+    /**
+     * Name of the query cache region of the owners found by pet name.
+     */
+    public static final String OWNERS_BY_PET_NAME_REGION = "petstore.query.owners-by-pet-name";
+
+    /**
+     * Name of the query cache region of the logins of the owners found by pet
+     * name.
+     */
+    public static final String LOGINS_BY_PET_NAME_REGION = "petstore.query.logins-by-pet-name";
+
+    /**
+     * Fields of the owners that can be selected in a projection, in the order
+     * they are returned. The {@code login} is always selected.
+     */
+    public static final List<String> FIELDS = List.of("login", "password", "role");
+
+    /**
+     * Name of the field that contains the pets of each owner in a projection.
+     */
+    public static final String PETS_FIELD = "pets";
+
     @PersistenceContext
     private EntityManager em;
 
+    @Inject
+    private Event<CredentialsChangedEvent> credentialsChanged;
+
     /**
      * Returns the owner identified by {@code login}. If there is no owner with
-     * the specified login, {@code null} will be returned.
+     * the specified login, {@code null} will be returned. The pets of the
+     * owner are fetched in the same query.
      *
      * @param login the login of an owner.
      * @return the owner with the provided login or {@code null} if there is no
@@ -32,37 +85,323 @@ public class OwnerService {
      * @throws IllegalArgumentException if {@code login} is {@code null} or it
      *                                  does not identify a valid owner.
      */
+    @StatementBudget(1)
     public Owner get(String login) {
-        return em.find(Owner.class, login);
+        return em.find(Owner.class, login, withPets());
+    }
+
+    /**
+     * Returns a tag that identifies the version of an owner and its pets,
+     * reading only the versions of the owner and of its pets. The tag changes
+     * whenever the owner is updated or any of its pets is created, updated or
+     * deleted, and it is equal to {@link #versionTagOf(Owner)} for the same
+     * state.
+     *
+     * @param login the login of an owner.
+     * @return the version tag of the owner or {@code null} if there is no
+     * owner with the specified login.
+     * @throws IllegalArgumentException if {@code login} is {@code null}.
+     */
+    @StatementBudget(1)
+    public String getVersionTag(String login) {
+        if (login == null)
+            throw new IllegalArgumentException("login can't be null");
+
+        final List<Object[]> versions = em.createQuery(
+                        "SELECT o.version, p.id, p.version FROM Owner o LEFT JOIN o.pets p WHERE o.login = :login",
+                        Object[].class)
+                .setParameter("login", login)
+                .getResultList();
+
+        if (versions.isEmpty())
+            return null;
+
+        int petCount = 0;
+        long petsHash = 0;
+        for (Object[] row : versions) {
+            if (row[1] != null) {
+                petCount++;
+                petsHash += petHash((Integer) row[1], (Long) row[2]);
+            }
+        }
+
+        return versionTag((Long) versions.getFirst()[0], petCount, petsHash);
     }
 
     /**
-     * Returns the complete list of owners.
+     * Returns the tag that identifies the version of an owner and its pets.
+     * The pets of the owner must be loaded.
+     *
+     * @param owner an owner.
+     * @return the version tag of the owner.
+     * @throws IllegalArgumentException if {@code owner} is {@code null}.
+     * @see #getVersionTag(String)
+     */
+    public static String versionTagOf(Owner owner) {
+        if (owner == null)
+            throw new IllegalArgumentException("owner can't be null");
+
+        long petsHash = 0;
+        for (Pet pet : owner.getPets()) {
+            petsHash += petHash(pet.getId(), pet.getVersion());
+        }
+
+        return versionTag(owner.getVersion(), owner.getPets().size(), petsHash);
+    }
+
+    /**
+     * Returns the complete list of owners. The pets of the owners are fetched
+     * in the same query because every caller of this method uses them once
+     * the transaction has finished (the REST API writes them in the response
+     * and the JSF views show how many pets each owner has), so loading the
+     * owners without them would fail when the pets are accessed. Callers that
+     * do not need the pets should use {@link #list(Set, Set)}, which only
+     * reads the fields requested.
      *
      * @return the complete list of owners.
      */
+    @StatementBudget(1)
     public List<Owner> list() {
         return em.createQuery("SELECT o FROM Owner o", Owner.class)
+                .setHint(FETCH_GRAPH, petsGraph())
                 .getResultList();
     }
 
     /**
-     * Returns the list of owners that have a pet with the specified name.
+     * Traverses all the owners sorted by login, passing each one, with its
+     * pets, to {@code action} as soon as it is read from the database. Owners
+     * are detached once processed, so the memory used does not depend on the
+     * number of owners.
+     *
+     * @param action the action to perform on each owner.
+     * @throws IllegalArgumentException if {@code action} is {@code null}.
+     */
+    @StatementBudget(1)
+    public void forEach(Consumer<? super Owner> action) {
+        if (action == null)
+            throw new IllegalArgumentException("action can't be null");
+
+        final String query = "SELECT o FROM Owner o LEFT JOIN FETCH o.pets ORDER BY o.login";
+
+        try (Stream<Owner> owners = em.createQuery(query, Owner.class)
+                .setHint(FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            owners.forEach(owner -> {
+                action.accept(owner);
+                em.detach(owner);
+            });
+        }
+    }
+
+    /**
+     * Returns a page of owners sorted by login. The page starts right after
+     * the owner identified by {@code after} (keyset pagination), so the cost of
+     * retrieving a page does not depend on its position in the list. The
+     * pets of the owners are fetched with a second query.
+     *
+     * @param after the login of the last owner of the previous page. If
+     *              {@code null}, the first page will be returned.
+     * @param limit the maximum number of owners to return.
+     * @return the page of owners sorted by login. The list will be empty if
+     * there are no owners after the provided login.
+     * @throws IllegalArgumentException if {@code limit} is not positive.
+     */
+    @StatementBudget(2)
+    public List<Owner> list(String after, int limit) {
+        if (limit <= 0)
+            throw new IllegalArgumentException("limit must be positive");
+
+        // The page is selected without pets, as limiting a query that fetches
+        // a collection would be done in memory. Pets are fetched afterward.
+        final TypedQuery<String> query;
+        if (after == null) {
+            query = em.createQuery("SELECT o.login FROM Owner o ORDER BY o.login", String.class);
+        } else {
+            query = em.createQuery("SELECT o.login FROM Owner o WHERE o.login > :after ORDER BY o.login", String.class)
+                    .setParameter("after", after);
+        }
+
+        final List<String> logins = query.setMaxResults(limit)
+                .getResultList();
+
+        if (logins.isEmpty()) {
+            return List.of();
+        } else {
+            return em.createQuery("SELECT o FROM Owner o WHERE o.login IN :logins ORDER BY o.login", Owner.class)
+                    .setParameter("logins", logins)
+                    .setHint(FETCH_GRAPH, petsGraph())
+                    .getResultList();
+        }
+    }
+
+    /**
+     * Returns a projection of the complete list of owners sorted by login.
+     * Only the requested fields and the login are read from the database, and
+     * no owner or pet is loaded into the persistence context. The pets are
+     * only read, with a second query, if any of their fields is requested.
+     *
+     * @param fields    the fields of the owners to return. Valid fields are
+     *                  listed in {@link #FIELDS}.
+     * @param petFields the fields of the pets to return in the
+     *                  {@value #PETS_FIELD} field of each owner. Valid fields
+     *                  are listed in {@link PetService#FIELDS}. If
+     *                  {@code null}, pets will not be returned.
+     * @return the owners as maps of their fields, in the order of
+     * {@link #FIELDS} and followed by their pets, if requested.
+     * @throws IllegalArgumentException if {@code fields} is {@code null} or if
+     *                                  any field is not valid.
+     */
+    @StatementBudget(2)
+    public List<Map<String, Object>> list(Set<String> fields, Set<String> petFields) {
+        final List<String> attributes = Projections.attributes(fields, FIELDS, "login");
+
+        final List<Map<String, Object>> owners = em.createQuery(
+                        Projections.select(null, "o", attributes) + " FROM Owner o ORDER BY o.login", Tuple.class)
+                .getResultList().stream()
+                .map(owner -> Projections.toMap(owner, attributes, 0))
+                .toList();
+
+        if (petFields != null && !owners.isEmpty()) {
+            this.addPets(owners, petFields, false);
+        }
+
+        return owners;
+    }
+
+    /**
+     * Returns a page of a projection of the owners sorted by login. The page
+     * is selected as in {@link #list(String, int)}, but only the requested
+     * fields and the login are read from the database, and no owner or pet is
+     * loaded into the persistence context. The pets are only read, with a
+     * second query, if any of their fields is requested.
+     *
+     * @param fields    the fields of the owners to return. Valid fields are
+     *                  listed in {@link #FIELDS}.
+     * @param petFields the fields of the pets to return in the
+     *                  {@value #PETS_FIELD} field of each owner. Valid fields
+     *                  are listed in {@link PetService#FIELDS}. If
+     *                  {@code null}, pets will not be returned.
+     * @param after     the login of the last owner of the previous page. If
+     *                  {@code null}, the first page will be returned.
+     * @param limit     the maximum number of owners to return.
+     * @return the page of owners as maps of their fields, in the order of
+     * {@link #FIELDS} and followed by their pets, if requested.
+     * @throws IllegalArgumentException if {@code fields} is {@code null}, if
+     *                                  any field is not valid or if
+     *                                  {@code limit} is not positive.
+     */
+    @StatementBudget(2)
+    public List<Map<String, Object>> list(Set<String> fields, Set<String> petFields, String after, int limit) {
+        if (limit <= 0)
+            throw new IllegalArgumentException("limit must be positive");
+
+        final List<String> attributes = Projections.attributes(fields, FIELDS, "login");
+        final String select = Projections.select(null, "o", attributes);
+
+        final TypedQuery<Tuple> query;
+        if (after == null) {
+            query = em.createQuery(select + " FROM Owner o ORDER BY o.login", Tuple.class);
+        } else {
+            query = em.createQuery(select + " FROM Owner o WHERE o.login > :after ORDER BY o.login", Tuple.class)
+                    .setParameter("after", after);
+        }
+
+        final List<Map<String, Object>> owners = query.setMaxResults(limit)
+                .getResultList().stream()
+                .map(owner -> Projections.toMap(owner, attributes, 0))
+                .toList();
+
+        if (petFields != null && !owners.isEmpty()) {
+            this.addPets(owners, petFields, true);
+        }
+
+        return owners;
+    }
+
+    private void addPets(List<Map<String, Object>> owners, Set<String> petFields, boolean onlyTheseOwners) {
+        final List<String> attributes = Projections.attributes(petFields, PetService.FIELDS, "id");
+
+        final Map<String, List<Map<String, Object>>> petsByOwner = HashMap.newHashMap(owners.size());
+        for (Map<String, Object> owner : owners) {
+            final List<Map<String, Object>> pets = new ArrayList<>();
+
+            owner.put(PETS_FIELD, pets);
+            petsByOwner.put((String) owner.get("login"), pets);
+        }
+
+        // The login of the owner is the foreign key of the pet, so no join is needed
+        final String select = Projections.select("p.owner.login", "p", attributes);
+
+        final TypedQuery<Tuple> query;
+        if (onlyTheseOwners) {
+            query = em.createQuery(select + " FROM Pet p WHERE p.owner.login IN :logins ORDER BY p.id", Tuple.class)
+                    .setParameter("logins", petsByOwner.keySet());
+        } else {
+            query = em.createQuery(select + " FROM Pet p ORDER BY p.id", Tuple.class);
+        }
+
+        try (Stream<Tuple> pets = query.getResultStream()) {
+            pets.forEach(pet -> {
+                final List<Map<String, Object>> ownerPets = petsByOwner.get((String) pet.get(0));
+
+                // Owners created after the first query are not included
+                if (ownerPets != null) ownerPets.add(Projections.toMap(pet, attributes, 1));
+            });
+        }
+    }
+
+    /**
+     * Returns the list of owners that have a pet with the specified name. Each
+     * owner is returned only once, even if it has several pets with that
+     * name. The result is stored in the query cache.
      *
      * @param petName a pet's name.
      * @return the list of owners that have a pet with the specified name. The
      * list may be empty if any owner has a pet with the specified name.
      * @throws IllegalArgumentException if {@code petName} is {@code null}.
      */
+    @StatementBudget(1)
     public List<Owner> findByPetName(String petName) {
         if (petName == null)
             throw new IllegalArgumentException("petName can't be null");
 
-        final String query = "SELECT o FROM Owner o JOIN o.pets p " +
-                "WHERE p.name = :petName";
+        // The subquery is resolved with the (name, owner) index of pets
+        final String query = "SELECT o FROM Owner o " +
+                "WHERE EXISTS (SELECT p FROM Pet p WHERE p.owner = o AND p.name = :petName)";
 
         return em.createQuery(query, Owner.class)
                 .setParameter("petName", petName)
+                .setHint(FETCH_GRAPH, petsGraph())
+                .setHint(CACHEABLE, true)
+                .setHint(CACHE_REGION, OWNERS_BY_PET_NAME_REGION)
+                .getResultList();
+    }
+
+    /**
+     * Returns the logins of the owners that have a pet with the specified
+     * name, sorted alphabetically. This is a projection of
+     * {@link #findByPetName(String)} that reads only the (name, owner) index
+     * of pets, without loading any owner or pet. The result is stored in the
+     * query cache.
+     *
+     * @param petName a pet's name.
+     * @return the logins of the owners that have a pet with the specified
+     * name. The list may be empty if any owner has a pet with the specified
+     * name.
+     * @throws IllegalArgumentException if {@code petName} is {@code null}.
+     */
+    @StatementBudget(1)
+    public List<String> findLoginsByPetName(String petName) {
+        if (petName == null)
+            throw new IllegalArgumentException("petName can't be null");
+
+        final String query = "SELECT DISTINCT p.owner.login FROM Pet p " +
+                "WHERE p.name = :petName ORDER BY p.owner.login";
+
+        return em.createQuery(query, String.class)
+                .setParameter("petName", petName)
+                .setHint(CACHEABLE, true)
+                .setHint(CACHE_REGION, LOGINS_BY_PET_NAME_REGION)
                 .getResultList();
     }
 
@@ -76,38 +415,204 @@ public class OwnerService {
      * @throws EntityExistsException    if an owner with the same login already
      *                                  exists.
      */
+    @StatementBudget(1)
     public Owner create(Owner owner) {
         if (owner == null)
             throw new IllegalArgumentException("owner can't be null");
 
+        StatementCounter.allow(batches(owner.getPets().size()));
+
         this.em.persist(owner);
 
         return owner;
     }
 
+    /**
+     * Creates a batch of new owners and their pets. Owners whose login is
+     * already in use are skipped. The owners and pets are inserted using JDBC
+     * batches and they are detached once stored.
+     * <p>
+     * All the owners are inserted in the same transaction.
+     *
+     * @param owners the new owners to be stored.
+     * @return the logins of the owners that were not stored because their
+     * login is already in use. The set will be empty if all the owners were
+     * stored.
+     * @throws IllegalArgumentException if {@code owners} is {@code null} or
+     *                                  contains {@code null} values.
+     */
+    @StatementBudget(1)
+    public Set<String> importOwners(List<Owner> owners) {
+        if (owners == null || owners.contains(null))
+            throw new IllegalArgumentException("owners can't be null");
+
+        if (owners.isEmpty()) return Set.of();
+
+        final List<String> logins = owners.stream()
+                .map(Owner::getLogin)
+                .toList();
+        final Set<String> existing = new HashSet<>(
+                em.createQuery("SELECT u.login FROM User u WHERE u.login IN :logins", String.class)
+                        .setParameter("logins", logins)
+                        .getResultList()
+        );
+
+        int ownersStored = 0;
+        int petsStored = 0;
+        for (Owner owner : owners) {
+            if (!existing.contains(owner.getLogin())) {
+                this.em.persist(owner);
+
+                ownersStored++;
+                petsStored += owner.getPets().size();
+            }
+        }
+        // Inserts are ordered, so owners and pets are sent in separate batches
+        StatementCounter.allow(batches(ownersStored) + batches(petsStored));
+
+        this.em.flush();
+        this.em.clear();
+
+        return existing;
+    }
+
     /**
      * Updates a new owner. If the owner is not stored, it will be persisted.
+     * As the password of the owner may have changed, a
+     * {@link CredentialsChangedEvent} is fired.
      *
      * @param owner an owner to be updated.
      * @return the updated owner.
      * @throws IllegalArgumentException if {@code owner} is {@code null}.
      */
+    @StatementBudget(3)
     public Owner update(Owner owner) {
         if (owner == null)
             throw new IllegalArgumentException("owner can't be null");
 
-        return em.merge(owner);
+        // The owner and its pets are loaded as merging them would, so the
+        // pets that will be deleted are known. Pets are inserted, updated and
+        // deleted in batches
+        final Owner stored = em.find(Owner.class, owner.getLogin());
+        final int storedPets = stored == null ? 0 : stored.getPets().size();
+        StatementCounter.allow(2 * batches(owner.getPets().size()) + batches(storedPets));
+
+        final Owner updated = em.merge(owner);
+        this.credentialsChanged.fire(new CredentialsChangedEvent(updated.getLogin()));
+
+        return updated;
     }
 
     /**
-     * Deletes an owner.
+     * Deletes an owner and its pets with two set-based statements, without
+     * loading them. A {@link CredentialsChangedEvent} is fired, so the owner
+     * can not be authenticated anymore.
      *
      * @param login the login of the owner to be deleted.
      * @throws IllegalArgumentException if {@code login} is {@code null} or if
      *                                  it does not identify a valid owner.
      */
+    @StatementBudget(2)
     public void remove(String login) {
-        em.remove(this.get(login));
+        if (login == null)
+            throw new IllegalArgumentException("login can't be null");
+
+        if (this.delete(List.of(login)) == 0)
+            throw new IllegalArgumentException("Owner not found: " + login);
+
+        this.ownersRemoved(List.of(login));
+    }
+
+    /**
+     * Deletes an owner and its pets only if the version tag of the owner is
+     * still {@code versionTag}, checking it and deleting them in the same
+     * transaction. The owner and its pets are locked while the tag is
+     * computed, so they can not change, and no pet can be added to the owner,
+     * before they are deleted. A {@link CredentialsChangedEvent} is fired if
+     * the owner is deleted.
+     *
+     * @param login      the login of the owner to be deleted.
+     * @param versionTag the expected version tag of the owner, as returned by
+     *                   {@link #getVersionTag(String)}.
+     * @return {@code true} if the owner was deleted. {@code false} if there is
+     * no owner with the provided login or if its version tag has changed.
+     * @throws IllegalArgumentException if {@code login} or {@code versionTag}
+     *                                  are {@code null}.
+     */
+    @StatementBudget(4)
+    public boolean remove(String login, String versionTag) {
+        if (login == null)
+            throw new IllegalArgumentException("login can't be null");
+        if (versionTag == null)
+            throw new IllegalArgumentException("versionTag can't be null");
+
+        final Owner owner = em.find(Owner.class, login, LockModeType.PESSIMISTIC_WRITE);
+        if (owner == null)
+            return false;
+
+        final List<Pet> pets = em.createQuery("SELECT p FROM Pet p WHERE p.owner = :owner", Pet.class)
+                .setParameter("owner", owner)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+
+        long petsHash = 0;
+        for (Pet pet : pets) {
+            petsHash += petHash(pet.getId(), pet.getVersion());
+        }
+
+        if (!versionTag.equals(versionTag(owner.getVersion(), pets.size(), petsHash)))
+            return false;
+
+        this.delete(List.of(login));
+        this.ownersRemoved(List.of(login));
+
+        return true;
+    }
+
+    /**
+     * Deletes several owners and their pets in the same transaction. For each
+     * block of logins, the logins of the existing owners are read and, if
+     * there is any, their pets are deleted with a single {@code DELETE}
+     * statement followed by another one for the owners, so neither owners nor
+     * pets are loaded. Hibernate evicts the
+     * cached users, pets and pets of owners affected by these statements.
+     * <p>
+     * A single {@link CredentialsChangedEvent} is fired with the owners
+     * deleted, so they can not be authenticated anymore. Logins that do not
+     * identify an owner are not notified.
+     *
+     * @param logins the logins of the owners to be deleted. Logins that do not
+     *               identify an owner are ignored.
+     * @return the number of owners deleted.
+     * @throws IllegalArgumentException if {@code logins} is {@code null} or
+     *                                  contains {@code null} values.
+     */
+    @StatementBudget(0)
+    public int removeAll(Collection<String> logins) {
+        if (logins == null || logins.contains(null))
+            throw new IllegalArgumentException("logins can't be null");
+
+        final List<String> uniqueLogins = List.copyOf(new LinkedHashSet<>(logins));
+        // Each block reads the existing logins and deletes pets and owners
+        StatementCounter.allow(3L * blocks(uniqueLogins.size(), REMOVE_BLOCK_SIZE));
+
+        final List<String> removed = new ArrayList<>();
+        for (int i = 0; i < uniqueLogins.size(); i += REMOVE_BLOCK_SIZE) {
+            final List<String> block = uniqueLogins.subList(i, Math.min(i + REMOVE_BLOCK_SIZE, uniqueLogins.size()));
+
+            final List<String> existing = em.createQuery("SELECT o.login FROM Owner o WHERE o.login IN :logins", String.class)
+                    .setParameter("logins", block)
+                    .getResultList();
+
+            if (!existing.isEmpty()) {
+                this.delete(existing);
+                removed.addAll(existing);
+            }
+        }
+
+        this.ownersRemoved(removed);
+
+        return removed.size();
     }
 
     /**
@@ -118,7 +623,58 @@ public class OwnerService {
      * @throws IllegalArgumentException if {@code login} is {@code null} or it
      *                                  does not identify a valid owner.
      */
+    @StatementBudget(1)
     public List<Pet> getPets(String login) {
         return new ArrayList<>(this.get(login).getPets());
     }
+
+    private static String versionTag(long ownerVersion, int petCount, long petsHash) {
+        return ownerVersion + "-" + petCount + "-" + Long.toHexString(petsHash);
+    }
+
+    private static long batches(int rows) {
+        return blocks(rows, BATCH_SIZE);
+    }
+
+    private static long blocks(int elements, int blockSize) {
+        return (elements + blockSize - 1) / blockSize;
+    }
+
+    // Deletes the pets and then the owners with two set-based statements
+    private int delete(List<String> logins) {
+        em.createQuery("DELETE FROM Pet p WHERE p.owner.login IN :logins")
+                .setParameter("logins", logins)
+                .executeUpdate();
+
+        return em.createQuery("DELETE FROM Owner o WHERE o.login IN :logins")
+                .setParameter("logins", logins)
+                .executeUpdate();
+    }
+
+    // Bulk deletes do not notify the entity listeners that maintain the
+    // suggestions index and the facet counters
+    private void ownersRemoved(List<String> logins) {
+        if (!logins.isEmpty()) this.credentialsChanged.fire(new CredentialsChangedEvent(logins));
+
+        Suggestions.afterCommit(index -> logins.forEach(index::removeOwner));
+        Facets.afterCommit(counters -> logins.forEach(counters::removeOwner));
+    }
+
+    // The hashes of the pets are added, so the tag does not depend on the
+    // order in which pets are read
+    private static long petHash(int id, long version) {
+        long hash = ((long) id << 32) ^ version;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+
+        return hash ^ (hash >>> 31);
+    }
+
+    private EntityGraph<?> petsGraph() {
+        return em.getEntityGraph(Owner.WITH_PETS);
+    }
+
+    private Map<String, Object> withPets() {
+        return Map.of(FETCH_GRAPH, petsGraph());
+    }
 }
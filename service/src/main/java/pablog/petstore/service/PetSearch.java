@@ -0,0 +1,225 @@
+package pablog.petstore.service;
+
+import pablog.petstore.domain.entities.AnimalType;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Criteria of a search of pets. Every criterion is optional, and a search
+ * without criteria returns every pet that the caller has access to. The pets
+ * found are returned in pages sorted by one of their properties.
+ */
+public class PetSearch implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Properties that can be used to sort the pets found. Pets with the same
+     * value are sorted by identifier.
+     */
+    public enum Sort {
+        ID, NAME, BIRTH
+    }
+
+    private AnimalType animal;
+    private Date bornAfter;
+    private Date bornBefore;
+    private String namePrefix;
+    private String owner;
+    private Sort sort = Sort.ID;
+    private boolean descending;
+    private String cursor;
+    private int limit = 100;
+
+    /**
+     * Returns the type of animal of the pets to find.
+     *
+     * @return the type of animal of the pets to find or {@code null} if pets
+     * of any type are searched.
+     */
+    public AnimalType getAnimal() {
+        return animal;
+    }
+
+    /**
+     * Sets the type of animal of the pets to find.
+     *
+     * @param animal the type of animal of the pets to find. If {@code null},
+     *               pets of any type will be found.
+     */
+    public void setAnimal(AnimalType animal) {
+        this.animal = animal;
+    }
+
+    /**
+     * Returns the first birth date of the pets to find, inclusive.
+     *
+     * @return the first birth date of the pets to find or {@code null} if
+     * there is no lower limit.
+     */
+    public Date getBornAfter() {
+        return bornAfter;
+    }
+
+    /**
+     * Sets the first birth date of the pets to find, inclusive.
+     *
+     * @param bornAfter the first birth date of the pets to find. If
+     *                  {@code null}, there will be no lower limit.
+     */
+    public void setBornAfter(Date bornAfter) {
+        this.bornAfter = bornAfter;
+    }
+
+    /**
+     * Returns the date before which the pets to find were born, exclusive.
+     *
+     * @return the date before which the pets to find were born or
+     * {@code null} if there is no upper limit.
+     */
+    public Date getBornBefore() {
+        return bornBefore;
+    }
+
+    /**
+     * Sets the date before which the pets to find were born, exclusive.
+     *
+     * @param bornBefore the date before which the pets to find were born. If
+     *                   {@code null}, there will be no upper limit.
+     */
+    public void setBornBefore(Date bornBefore) {
+        this.bornBefore = bornBefore;
+    }
+
+    /**
+     * Returns the prefix of the names of the pets to find.
+     *
+     * @return the prefix of the names of the pets to find or {@code null} if
+     * pets with any name are searched.
+     */
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    /**
+     * Sets the prefix of the names of the pets to find. The prefix is
+     * matched literally, so it may contain wildcard characters.
+     *
+     * @param namePrefix the prefix of the names of the pets to find. If
+     *                   {@code null}, pets with any name will be found.
+     */
+    public void setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    /**
+     * Returns the login of the owner of the pets to find.
+     *
+     * @return the login of the owner of the pets to find or {@code null} if
+     * the pets of any owner are searched.
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Sets the login of the owner of the pets to find.
+     *
+     * @param owner the login of the owner of the pets to find. If
+     *              {@code null}, the pets of any owner the caller has access
+     *              to will be found.
+     */
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Returns the property used to sort the pets found.
+     *
+     * @return the property used to sort the pets found.
+     */
+    public Sort getSort() {
+        return sort;
+    }
+
+    /**
+     * Sets the property used to sort the pets found. By default, pets are
+     * sorted by identifier.
+     *
+     * @param sort the property used to sort the pets found.
+     * @throws IllegalArgumentException if {@code sort} is {@code null}.
+     */
+    public void setSort(Sort sort) {
+        if (sort == null)
+            throw new IllegalArgumentException("sort can't be null");
+
+        this.sort = sort;
+    }
+
+    /**
+     * Checks if the pets found are sorted in descending order.
+     *
+     * @return {@code true} if the pets found are sorted in descending order.
+     * {@code false} if they are sorted in ascending order.
+     */
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Sets the order of the pets found. By default, pets are sorted in
+     * ascending order.
+     *
+     * @param descending {@code true} to sort the pets found in descending
+     *                   order.
+     */
+    public void setDescending(boolean descending) {
+        this.descending = descending;
+    }
+
+    /**
+     * Returns the cursor of the page to return.
+     *
+     * @return the cursor returned with the previous page or {@code null} if
+     * the first page is requested.
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Sets the cursor of the page to return.
+     *
+     * @param cursor the cursor returned with the previous page, obtained with
+     *               the same criteria. If {@code null}, the first page will be
+     *               returned.
+     */
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * Returns the maximum number of pets of each page.
+     *
+     * @return the maximum number of pets of each page.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Sets the maximum number of pets of each page. By default, pages have up
+     * to 100 pets.
+     *
+     * @param limit the maximum number of pets of each page.
+     * @throws IllegalArgumentException if {@code limit} is not positive.
+     */
+    public void setLimit(int limit) {
+        if (limit <= 0)
+            throw new IllegalArgumentException("limit must be positive");
+
+        this.limit = limit;
+    }
+}
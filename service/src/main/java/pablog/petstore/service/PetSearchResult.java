@@ -0,0 +1,50 @@
+package pablog.petstore.service;
+
+import pablog.petstore.domain.entities.Pet;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A page of the pets found by a {@link PetSearch}.
+ */
+public class PetSearchResult implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final List<Pet> pets;
+    private final String nextCursor;
+
+    /**
+     * Creates a new page of pets.
+     *
+     * @param pets       the pets of the page.
+     * @param nextCursor the cursor of the next page or {@code null} if this
+     *                   is the last page.
+     */
+    public PetSearchResult(List<Pet> pets, String nextCursor) {
+        this.pets = pets;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Returns the pets of the page.
+     *
+     * @return the pets of the page.
+     */
+    public List<Pet> getPets() {
+        return pets;
+    }
+
+    /**
+     * Returns the cursor of the next page. The cursor must be used with the
+     * same criteria used to obtain this page.
+     *
+     * @return the cursor of the next page or {@code null} if this is the last
+     * page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
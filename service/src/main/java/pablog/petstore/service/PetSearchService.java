@@ -0,0 +1,246 @@
+package pablog.petstore.service;
+
+import jakarta.annotation.Resource;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ejb.EJBAccessException;
+import jakarta.ejb.SessionContext;
+import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.ParameterExpression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.entities.Pet;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * EJB for the search of pets. Administrators can search the pets of every
+ * owner, while owners can only search their own pets.
+ * <p>
+ * Searches are built as criteria queries whose values are always bound as
+ * parameters, so every search with the same combination of criteria and
+ * sort reuses the same compiled plan. The pets are returned in pages using
+ * keyset pagination on the sort property and the identifier, so the cost of
+ * retrieving a page does not depend on its position.
+ */
+@Stateless
+@RolesAllowed({"ADMIN", "OWNER"})
+public class PetSearchService {
+    private static final char LIKE_ESCAPE = '\\';
+    private static final String FETCH_GRAPH = "jakarta.persistence.fetchgraph";
+
+    @Inject
+    private Principal currentUser;
+
+    @Resource
+    private SessionContext context;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Returns a page of the pets that meet the criteria of {@code search}.
+     * The owners of the pets are not loaded, as pets are returned without
+     * them. If the caller is an owner, only their own pets are searched.
+     *
+     * @param search the criteria of the search.
+     * @return a page of the pets that meet the criteria and the cursor of the
+     * next page, if there may be more pets.
+     * @throws IllegalArgumentException if {@code search} is {@code null} or
+     *                                  if its cursor is not valid.
+     * @throws EJBAccessException       if an owner searches the pets of
+     *                                  another owner.
+     */
+    @StatementBudget(1)
+    public PetSearchResult search(PetSearch search) {
+        if (search == null)
+            throw new IllegalArgumentException("search can't be null");
+
+        final String owner = this.ownerOf(search);
+        final Cursor after = search.getCursor() == null ? null : Cursor.decode(search);
+
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Pet> criteria = cb.createQuery(Pet.class);
+        final Root<Pet> pet = criteria.from(Pet.class);
+
+        final Path<Integer> id = pet.get("id");
+        final Path<String> name = pet.get("name");
+        final Path<Date> birth = pet.get("birth");
+
+        final List<Predicate> predicates = new ArrayList<>();
+        final List<Binding<?>> bindings = new ArrayList<>();
+
+        if (owner != null) {
+            predicates.add(cb.equal(pet.get("owner").get("login"), bind(cb, bindings, String.class, owner)));
+        }
+        if (search.getAnimal() != null) {
+            predicates.add(cb.equal(pet.get("animal"), bind(cb, bindings, AnimalType.class, search.getAnimal())));
+        }
+        if (search.getBornAfter() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(birth, bind(cb, bindings, Date.class, search.getBornAfter())));
+        }
+        if (search.getBornBefore() != null) {
+            predicates.add(cb.lessThan(birth, bind(cb, bindings, Date.class, search.getBornBefore())));
+        }
+        if (search.getNamePrefix() != null) {
+            final String pattern = escapeLike(search.getNamePrefix()) + "%";
+
+            predicates.add(cb.like(name, bind(cb, bindings, String.class, pattern), LIKE_ESCAPE));
+        }
+        if (after != null) {
+            final ParameterExpression<Integer> lastId = bind(cb, bindings, Integer.class, after.id());
+
+            predicates.add(switch (search.getSort()) {
+                case ID -> search.isDescending() ? cb.lessThan(id, lastId) : cb.greaterThan(id, lastId);
+                case NAME -> after(cb, name, bind(cb, bindings, String.class, after.name()), id, lastId, search.isDescending());
+                case BIRTH -> after(cb, birth, bind(cb, bindings, Date.class, after.birth()), id, lastId, search.isDescending());
+            });
+        }
+
+        final List<Order> order = new ArrayList<>(2);
+        switch (search.getSort()) {
+            case NAME -> order.add(order(cb, name, search.isDescending()));
+            case BIRTH -> order.add(order(cb, birth, search.isDescending()));
+            case ID -> {
+                // The identifier is always the last sort property
+            }
+        }
+        order.add(order(cb, id, search.isDescending()));
+
+        criteria.select(pet)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(order);
+
+        // An empty fetch graph leaves the owners as unloaded references
+        final TypedQuery<Pet> query = em.createQuery(criteria)
+                .setHint(FETCH_GRAPH, em.createEntityGraph(Pet.class));
+        for (Binding<?> binding : bindings) {
+            binding.bind(query);
+        }
+
+        // One more pet is read to know if there is a next page
+        final List<Pet> pets = query.setMaxResults(search.getLimit() + 1)
+                .getResultList();
+
+        if (pets.size() > search.getLimit()) {
+            final List<Pet> page = pets.subList(0, search.getLimit());
+
+            return new PetSearchResult(new ArrayList<>(page), Cursor.encode(search, page.getLast()));
+        } else {
+            return new PetSearchResult(pets, null);
+        }
+    }
+
+    private String ownerOf(PetSearch search) {
+        if (context.isCallerInRole("ADMIN")) {
+            return search.getOwner();
+        }
+
+        final String login = currentUser.getName();
+        if (search.getOwner() != null && !search.getOwner().equals(login))
+            throw new EJBAccessException("Only administrators can search the pets of other owners");
+
+        return login;
+    }
+
+    private static <T> ParameterExpression<T> bind(CriteriaBuilder cb, List<Binding<?>> bindings, Class<T> type, T value) {
+        final ParameterExpression<T> parameter = cb.parameter(type, "p" + bindings.size());
+
+        bindings.add(new Binding<>(parameter, value));
+
+        return parameter;
+    }
+
+    private static <T extends Comparable<? super T>> Predicate after(
+            CriteriaBuilder cb, Path<T> sortKey, ParameterExpression<T> value,
+            Path<Integer> id, ParameterExpression<Integer> lastId, boolean descending
+    ) {
+        if (descending) {
+            return cb.or(cb.lessThan(sortKey, value), cb.and(cb.equal(sortKey, value), cb.lessThan(id, lastId)));
+        } else {
+            return cb.or(cb.greaterThan(sortKey, value), cb.and(cb.equal(sortKey, value), cb.greaterThan(id, lastId)));
+        }
+    }
+
+    private static Order order(CriteriaBuilder cb, Path<?> path, boolean descending) {
+        return descending ? cb.desc(path) : cb.asc(path);
+    }
+
+    private static String escapeLike(String value) {
+        final StringBuilder escaped = new StringBuilder(value.length() + 4);
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) escaped.append(LIKE_ESCAPE);
+            escaped.append(c);
+        }
+
+        return escaped.toString();
+    }
+
+    private record Binding<T>(ParameterExpression<T> parameter, T value) {
+        void bind(TypedQuery<?> query) {
+            query.setParameter(parameter, value);
+        }
+    }
+
+    /**
+     * Position of the last pet of a page: its identifier and the value of the
+     * sort property. Cursors are encoded with the sort and order of the
+     * search, so they can not be used with a different one.
+     */
+    private record Cursor(int id, String name, Date birth) {
+        static String encode(PetSearch search, Pet last) {
+            final String value = switch (search.getSort()) {
+                case ID -> "";
+                case NAME -> last.getName();
+                case BIRTH -> Long.toString(last.getBirth().getTime());
+            };
+
+            final String cursor = prefix(search) + last.getId() + ":" + value;
+
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(UTF_8));
+        }
+
+        static Cursor decode(PetSearch search) {
+            try {
+                final String cursor = new String(Base64.getUrlDecoder().decode(search.getCursor()), UTF_8);
+                final String prefix = prefix(search);
+
+                if (!cursor.startsWith(prefix))
+                    throw new IllegalArgumentException("Cursor of a different sort: " + search.getCursor());
+
+                final int separator = cursor.indexOf(':', prefix.length());
+                final int id = Integer.parseInt(cursor.substring(prefix.length(), separator));
+                final String value = cursor.substring(separator + 1);
+
+                return switch (search.getSort()) {
+                    case ID -> new Cursor(id, null, null);
+                    case NAME -> new Cursor(id, value, null);
+                    case BIRTH -> new Cursor(id, null, new Date(Long.parseLong(value)));
+                };
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + search.getCursor(), e);
+            }
+        }
+
+        private static String prefix(PetSearch search) {
+            return (search.isDescending() ? "-" : "") + search.getSort() + ":";
+        }
+    }
+}
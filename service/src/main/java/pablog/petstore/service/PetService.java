@@ -6,11 +6,20 @@ import jakarta.ejb.Stateless;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import pablog.petstore.domain.entities.AnimalType;
 import pablog.petstore.domain.entities.Owner;
 import pablog.petstore.domain.entities.Pet;
+import pablog.petstore.domain.search.Suggestions;
+import pablog.petstore.domain.statistics.Facets;
 
 import java.security.Principal;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * EJB for the Pets. Only owners have access to this class, and only to their
@@ -21,6 +30,27 @@ import java.util.List;
 @Stateless
 @RolesAllowed("OWNER")
 public class PetService {
+    private static final String FETCH_SIZE = "org.hibernate.fetchSize";
+    private static final int STREAM_FETCH_SIZE = 100;
+    private static final String CACHEABLE = "org.hibernate.cacheable";
+    private static final String CACHE_REGION = "org.hibernate.cacheRegion";
+
+    /**
+     * Name of the query cache region of the pets of each owner.
+     */
+    public static final String PETS_BY_OWNER_REGION = "petstore.query.pets-by-owner";
+
+    /**
+     * Fields of the pets that can be selected in a projection, in the order
+     * they are returned. The {@code id} is always selected.
+     */
+    public static final List<String> FIELDS = List.of("animal", "birth", "id", "name");
+
+    // Bulk updates do not increase the version by themselves
+    private static final String UPDATE_PET = "UPDATE Pet p "
+            + "SET p.name = :name, p.animal = :animal, p.birth = :birth, p.version = p.version + 1 "
+            + "WHERE p.id = :id AND p.owner = :owner";
+
     @Inject
     private Principal currentOwner;
 
@@ -30,37 +60,134 @@ public class PetService {
     /**
      * Returns a pet identified by the provided id. If an owner tries to access
      * a pet that does now own, an {@link EJBAccessException} will be thrown.
+     * <p>
+     * The pet is read with a single statement restricted to the pets of the
+     * current owner. The existence of the pet is only checked when no pet is
+     * found.
      *
      * @param id the identified of a pet.
      * @return a pet identified by the provided identifier or {@code null} if no
      * pet exists with the provided identifier.
      * @throws EJBAccessException if the current owner does not own the pet.
      */
+    @StatementBudget(2)
     public Pet get(int id) {
-        final Pet pet = em.find(Pet.class, id);
+        final List<Pet> pets = em.createQuery(
+                        "SELECT p FROM Pet p JOIN FETCH p.owner WHERE p.id = :id AND p.owner.login = :login", Pet.class)
+                .setParameter("id", id)
+                .setParameter("login", currentOwner.getName())
+                .getResultList();
 
-        if (pet == null) {
-            return null;
-        } else if (pet.getOwner().getLogin().equals(this.currentOwner.getName())) {
-            return pet;
+        if (!pets.isEmpty()) {
+            return pets.getFirst();
+        } else if (this.exists(id)) {
+            throw new EJBAccessException("Pet's owner is not the current principal");
         } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the version of a pet of the current owner, reading only the
+     * version column. This allows checking whether a copy of the pet is still
+     * up-to-date without loading it.
+     *
+     * @param id the identifier of a pet.
+     * @return the version of the pet or {@code null} if no pet exists with the
+     * provided identifier.
+     * @throws EJBAccessException if the current owner does not own the pet.
+     */
+    @StatementBudget(2)
+    public Long getVersion(int id) {
+        final List<Long> versions = em.createQuery(
+                        "SELECT p.version FROM Pet p WHERE p.id = :id AND p.owner.login = :login", Long.class)
+                .setParameter("id", id)
+                .setParameter("login", currentOwner.getName())
+                .getResultList();
+
+        if (!versions.isEmpty()) {
+            return versions.getFirst();
+        } else if (this.exists(id)) {
             throw new EJBAccessException("Pet's owner is not the current principal");
+        } else {
+            return null;
         }
     }
 
     /**
-     * Returns the complete list of pets of the current owner.
+     * Returns the complete list of pets of the current owner. The result is
+     * stored in the query cache.
      *
      * @return the complete list of pets of the current owner.
      */
+    @StatementBudget(1)
     public List<Pet> list() {
         return em.createQuery("SELECT p FROM Pet p WHERE p.owner.login = :login", Pet.class)
                 .setParameter("login", currentOwner.getName())
+                .setHint(CACHEABLE, true)
+                .setHint(CACHE_REGION, PETS_BY_OWNER_REGION)
                 .getResultList();
     }
 
     /**
-     * Creates a new pet owned by the current user.
+     * Returns a projection of the pets of the current owner sorted by
+     * identifier. Only the requested fields and the identifier are read from
+     * the database, and no pet is loaded into the persistence context. The
+     * result is stored in the query cache.
+     *
+     * @param fields the fields of the pets to return. Valid fields are listed
+     *               in {@link #FIELDS}.
+     * @return the pets of the current owner as maps of their fields, in the
+     * order of {@link #FIELDS}.
+     * @throws IllegalArgumentException if {@code fields} is {@code null} or if
+     *                                  any field is not valid.
+     */
+    @StatementBudget(1)
+    public List<Map<String, Object>> list(Set<String> fields) {
+        final List<String> attributes = Projections.attributes(fields, FIELDS, "id");
+
+        final String query = Projections.select(null, "p", attributes)
+                + " FROM Pet p WHERE p.owner.login = :login ORDER BY p.id";
+
+        return em.createQuery(query, Tuple.class)
+                .setParameter("login", currentOwner.getName())
+                .setHint(CACHEABLE, true)
+                .setHint(CACHE_REGION, PETS_BY_OWNER_REGION)
+                .getResultList().stream()
+                .map(pet -> Projections.toMap(pet, attributes, 0))
+                .toList();
+    }
+
+    /**
+     * Traverses the pets of the current owner sorted by identifier, passing
+     * each one to {@code action} as soon as it is read from the database. Pets
+     * are detached once processed, so the memory used does not depend on the
+     * number of pets.
+     *
+     * @param action the action to perform on each pet.
+     * @throws IllegalArgumentException if {@code action} is {@code null}.
+     */
+    @StatementBudget(1)
+    public void forEach(Consumer<? super Pet> action) {
+        if (action == null)
+            throw new IllegalArgumentException("action can't be null");
+
+        try (Stream<Pet> pets = em.createQuery("SELECT p FROM Pet p WHERE p.owner.login = :login ORDER BY p.id", Pet.class)
+                .setParameter("login", currentOwner.getName())
+                .setHint(FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            pets.forEach(pet -> {
+                action.accept(pet);
+                em.detach(pet);
+            });
+        }
+    }
+
+    /**
+     * Creates a new pet owned by the current user. The pet is always attached
+     * to a reference of the current owner, replacing the owner it may have, so
+     * neither the owner nor its pets are loaded to insert it and the owner
+     * provided is never stored.
      *
      * @param pet a new pet to be stored.
      * @return the persistent version of the pet created.
@@ -70,18 +197,20 @@ public class PetService {
      * @throws IllegalArgumentException if a pet with the same identifier
      *                                  already exists.
      */
+    @StatementBudget(1)
     public Pet create(Pet pet) {
-        final Owner owner = em.find(Owner.class, currentOwner.getName());
+        if (pet.getOwner() != null) {
+            if (!pet.getOwner().getLogin().equals(currentOwner.getName()))
+                throw new EJBAccessException("Pet's owner is not the current principal");
 
-        if (pet.getOwner() != null && !pet.getOwner().getLogin().equals(owner.getLogin())) {
-            throw new EJBAccessException("Pet's owner is not the current principal");
-        } else {
-            pet.setOwner(owner);
+            // The owner provided may be transient or detached, so it is replaced
+            pet.setOwner(null);
+        }
 
-            this.em.persist(pet);
+        pet.attachTo(this.currentOwnerReference());
+        this.em.persist(pet);
 
-            return pet;
-        }
+        return pet;
     }
 
     /**
@@ -93,6 +222,7 @@ public class PetService {
      * @throws IllegalArgumentException if the pet has no owner.
      * @throws EJBAccessException       if the pet's owner is not the current user.
      */
+    @StatementBudget(2)
     public Pet update(Pet pet) {
         if (pet.getOwner() == null)
             throw new IllegalArgumentException("Pet must have an owner");
@@ -105,17 +235,148 @@ public class PetService {
     }
 
     /**
-     * Deletes a pet.
+     * Updates the name, animal and birth of a pet of the current owner with a
+     * single statement, without loading the pet. The version of the pet is
+     * increased. The existence of the pet is only checked when no pet is
+     * updated.
+     *
+     * @param id   the identifier of the pet to be updated.
+     * @param data a pet with the new values.
+     * @return {@code true} if the pet was updated. {@code false} if there is
+     * no pet with the provided identifier.
+     * @throws IllegalArgumentException if {@code data} is {@code null}.
+     * @throws EJBAccessException       if the pet's owner is not the current user.
+     */
+    @StatementBudget(2)
+    public boolean update(int id, Pet data) {
+        if (data == null)
+            throw new IllegalArgumentException("data can't be null");
+
+        final int updated = em.createQuery(UPDATE_PET)
+                .setParameter("name", data.getName())
+                .setParameter("animal", data.getAnimal())
+                .setParameter("birth", data.getBirth())
+                .setParameter("id", id)
+                .setParameter("owner", this.currentOwnerReference())
+                .executeUpdate();
+
+        if (updated > 0) {
+            this.petUpdated(id, data);
+            return true;
+        } else if (this.exists(id)) {
+            throw new EJBAccessException("Pet's owner is not the current principal");
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Updates the name, animal and birth of a pet of the current owner only if
+     * its version is still {@code version}, with a single statement. The
+     * version of the pet is increased.
+     *
+     * @param id      the identifier of the pet to be updated.
+     * @param data    a pet with the new values.
+     * @param version the expected version of the pet.
+     * @return {@code true} if the pet was updated. {@code false} if there is
+     * no pet of the current owner with the provided identifier and version.
+     * @throws IllegalArgumentException if {@code data} is {@code null}.
+     */
+    @StatementBudget(1)
+    public boolean update(int id, Pet data, long version) {
+        if (data == null)
+            throw new IllegalArgumentException("data can't be null");
+
+        final boolean updated = em.createQuery(UPDATE_PET + " AND p.version = :version")
+                .setParameter("name", data.getName())
+                .setParameter("animal", data.getAnimal())
+                .setParameter("birth", data.getBirth())
+                .setParameter("id", id)
+                .setParameter("owner", this.currentOwnerReference())
+                .setParameter("version", version)
+                .executeUpdate() > 0;
+
+        if (updated) this.petUpdated(id, data);
+
+        return updated;
+    }
+
+    /**
+     * Deletes a pet with a single statement, without loading the pet. The
+     * existence of the pet is only checked when no pet is deleted.
      *
      * @param id the identifier of the pet to be deleted.
      * @throws IllegalArgumentException if there is no pet with the provided
      *                                  identifier.
      * @throws EJBAccessException       if the pet's owner is not the current user.
      */
+    @StatementBudget(2)
     public void remove(int id) {
-        final Pet pet = this.get(id);
-        pet.setOwner(null);
+        final int deleted = em.createQuery("DELETE FROM Pet p WHERE p.id = :id AND p.owner = :owner")
+                .setParameter("id", id)
+                .setParameter("owner", this.currentOwnerReference())
+                .executeUpdate();
+
+        if (deleted == 0) {
+            if (this.exists(id)) {
+                throw new EJBAccessException("Pet's owner is not the current principal");
+            } else {
+                throw new IllegalArgumentException("Pet not found: " + id);
+            }
+        }
+
+        petRemoved(id);
+    }
+
+    /**
+     * Deletes a pet of the current owner only if its version is still
+     * {@code version}, with a single statement.
+     *
+     * @param id      the identifier of the pet to be deleted.
+     * @param version the expected version of the pet.
+     * @return {@code true} if the pet was deleted. {@code false} if there is
+     * no pet of the current owner with the provided identifier and version.
+     */
+    @StatementBudget(1)
+    public boolean remove(int id, long version) {
+        final boolean deleted = em.createQuery("DELETE FROM Pet p WHERE p.id = :id AND p.owner = :owner AND p.version = :version")
+                .setParameter("id", id)
+                .setParameter("owner", this.currentOwnerReference())
+                .setParameter("version", version)
+                .executeUpdate() > 0;
+
+        if (deleted) petRemoved(id);
+
+        return deleted;
+    }
+
+    // Bulk statements do not notify the entity listeners that maintain the
+    // suggestions index and the facet counters
+    private void petUpdated(int id, Pet data) {
+        final String owner = currentOwner.getName();
+        final String name = data.getName();
+        final AnimalType animal = data.getAnimal();
+        final Date birth = data.getBirth();
+
+        Suggestions.afterCommit(index -> index.putPet(id, name, owner));
+        Facets.afterCommit(counters -> counters.putPet(id, owner, animal, birth));
+    }
+
+    private static void petRemoved(int id) {
+        Suggestions.afterCommit(index -> index.removePet(id));
+        Facets.afterCommit(counters -> counters.removePet(id));
+    }
+
+    // Only the identifier of the reference is used, so the owner is not loaded
+    private Owner currentOwnerReference() {
+        return em.getReference(Owner.class, currentOwner.getName());
+    }
 
-        em.remove(pet);
+    private boolean exists(int id) {
+        return !em.createQuery("SELECT p.id FROM Pet p WHERE p.id = :id", Integer.class)
+                .setParameter("id", id)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
     }
 }
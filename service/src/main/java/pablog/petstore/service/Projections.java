@@ -0,0 +1,90 @@
+package pablog.petstore.service;
+
+import jakarta.persistence.Tuple;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Utility methods to build projections of entities that select only the
+ * requested fields. The selectable fields of each entity are a fixed list of
+ * attribute names, so the requested fields can be safely used to build JPQL
+ * queries.
+ */
+final class Projections {
+    private Projections() {
+    }
+
+    /**
+     * Resolves the attributes selected by a projection. The identifier is
+     * always selected, and the attributes are returned in the order of the
+     * selectable ones, regardless of the order in which they were requested.
+     *
+     * @param requested  the requested fields.
+     * @param selectable the fields that can be selected, in the order they
+     *                   will be returned.
+     * @param identifier the identifier of the entity.
+     * @return the attributes to select.
+     * @throws IllegalArgumentException if {@code requested} is {@code null} or
+     *                                  if any of the requested fields is not
+     *                                  selectable.
+     */
+    static List<String> attributes(Set<String> requested, List<String> selectable, String identifier) {
+        if (requested == null)
+            throw new IllegalArgumentException("fields can't be null");
+
+        for (String field : requested) {
+            if (!selectable.contains(field))
+                throw new IllegalArgumentException("Unknown field: " + field);
+        }
+
+        final List<String> attributes = new ArrayList<>(selectable.size());
+        for (String field : selectable) {
+            if (field.equals(identifier) || requested.contains(field)) {
+                attributes.add(field);
+            }
+        }
+
+        return attributes;
+    }
+
+    /**
+     * Builds the select clause of a projection.
+     *
+     * @param prefix     the path that precedes the attributes, like the alias
+     *                   of the entity or a path of the entity, that will be
+     *                   selected before them.
+     * @param alias      the alias of the entity.
+     * @param attributes the attributes to select.
+     * @return the select clause.
+     */
+    static String select(String prefix, String alias, List<String> attributes) {
+        return attributes.stream()
+                .map(attribute -> alias + "." + attribute)
+                .collect(joining(", ", "SELECT " + (prefix == null ? "" : prefix + ", "), ""));
+    }
+
+    /**
+     * Converts a row of a projection to a map of its attributes, in the order
+     * they were selected.
+     *
+     * @param tuple      the row of the projection.
+     * @param attributes the attributes selected.
+     * @param offset     the position of the first attribute in the row.
+     * @return a map of the attributes.
+     */
+    static Map<String, Object> toMap(Tuple tuple, List<String> attributes, int offset) {
+        final Map<String, Object> row = LinkedHashMap.newLinkedHashMap(attributes.size() + 1);
+
+        for (int i = 0; i < attributes.size(); i++) {
+            row.put(attributes.get(i), tuple.get(offset + i));
+        }
+
+        return row;
+    }
+}
@@ -0,0 +1,147 @@
+package pablog.petstore.service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persistence work done while serving a single request, used to detect
+ * N+1 selects.
+ * <p>
+ * An instance is bound to the threads that serve the request with
+ * {@link #bind()}. While it is bound, every entity loaded by the persistence
+ * unit is counted, and every collection initialized is counted by role (e.g.
+ * {@code pablog.petstore.domain.entities.Owner.pets}). A role initialized
+ * more times than the threshold of the instance is reported as a suspected
+ * N+1 select, i.e. a collection loaded once for each element of a previous
+ * query instead of being fetched together with it.
+ */
+public final class RequestStatistics {
+    private static final ThreadLocal<RequestStatistics> CURRENT = new ThreadLocal<>();
+
+    private final int nPlusOneThreshold;
+    private final Map<String, AtomicInteger> collectionLoads;
+    private final LongAdder entityLoads;
+
+    /**
+     * Creates new statistics for a request.
+     *
+     * @param nPlusOneThreshold number of times a collection role can be
+     *                          initialized in a request before it is reported
+     *                          as a suspected N+1 select.
+     * @throws IllegalArgumentException if {@code nPlusOneThreshold} is not
+     *                                  positive.
+     */
+    public RequestStatistics(int nPlusOneThreshold) {
+        if (nPlusOneThreshold <= 0)
+            throw new IllegalArgumentException("nPlusOneThreshold must be positive");
+
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.collectionLoads = new ConcurrentHashMap<>();
+        this.entityLoads = new LongAdder();
+    }
+
+    /**
+     * Returns the statistics bound to the current thread.
+     *
+     * @return the statistics bound to the current thread or {@code null} if
+     * there are none.
+     */
+    public static RequestStatistics current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds these statistics to the current thread until the returned binding
+     * is closed, which restores the statistics previously bound.
+     *
+     * @return the binding of the statistics to the current thread.
+     */
+    public Binding bind() {
+        final RequestStatistics previous = CURRENT.get();
+        CURRENT.set(this);
+
+        return () -> {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        };
+    }
+
+    void collectionLoaded(String role) {
+        this.collectionLoads.computeIfAbsent(role, key -> new AtomicInteger()).incrementAndGet();
+    }
+
+    void entityLoaded() {
+        this.entityLoads.increment();
+    }
+
+    /**
+     * Returns the number of entities loaded while these statistics were bound,
+     * either from the database or from the second-level cache.
+     *
+     * @return the number of entities loaded.
+     */
+    public long getEntityLoadCount() {
+        return this.entityLoads.sum();
+    }
+
+    /**
+     * Returns the number of collections of any role initialized while these
+     * statistics were bound.
+     *
+     * @return the number of collections initialized.
+     */
+    public int getCollectionLoadCount() {
+        int count = 0;
+        for (AtomicInteger roleCount : this.collectionLoads.values()) {
+            count += roleCount.get();
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the number of times the collections of a role have been
+     * initialized while these statistics were bound.
+     *
+     * @param role the collection role.
+     * @return the number of times the collections of the role have been
+     * initialized.
+     */
+    public int getCollectionLoadCount(String role) {
+        final AtomicInteger count = this.collectionLoads.get(role);
+
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Returns the collection roles initialized more times than the threshold.
+     *
+     * @return the collection roles suspected of N+1 selects, in ascending
+     * order. The set is empty if there are none.
+     */
+    public Set<String> getSuspectedNPlusOneRoles() {
+        final Set<String> roles = new TreeSet<>();
+        this.collectionLoads.forEach((role, count) -> {
+            if (count.get() > this.nPlusOneThreshold) roles.add(role);
+        });
+
+        return Collections.unmodifiableSet(roles);
+    }
+
+    /**
+     * Binding of the statistics to a thread.
+     */
+    @FunctionalInterface
+    public interface Binding extends AutoCloseable {
+        /**
+         * Unbinds the statistics from the thread.
+         */
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,30 @@
+package pablog.petstore.service;
+
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+
+/**
+ * Counts the collections initialized and the entities loaded in the
+ * {@link RequestStatistics} bound to the current thread, if any.
+ */
+final class RequestStatisticsListener implements InitializeCollectionEventListener, PostLoadEventListener {
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) {
+        final RequestStatistics statistics = RequestStatistics.current();
+
+        if (statistics != null) {
+            statistics.collectionLoaded(event.getCollection().getRole());
+        }
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        final RequestStatistics statistics = RequestStatistics.current();
+
+        if (statistics != null) {
+            statistics.entityLoaded();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package pablog.petstore.service;
+
+import jakarta.enterprise.util.Nonbinding;
+import jakarta.interceptor.InterceptorBinding;
+import pablog.petstore.domain.persistence.StatementCounter;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maximum number of SQL statements that a service method may prepare,
+ * including the ones sent when its transaction is committed.
+ * <p>
+ * Each time an annotated method is invoked, its budget is added to the
+ * {@link StatementCounter.Scope} bound to the current thread, if any, by the
+ * {@link StatementBudgetInterceptor}. This way, the budget of a request is
+ * the sum of the budgets of the service methods it invokes.
+ * <p>
+ * The budget of a method whose statements depend on the data it processes,
+ * like the number of pets stored or of logins deleted, only covers its fixed
+ * statements. The method adds the rest with
+ * {@link StatementCounter#allow(long)}, derived from the sizes of the JDBC
+ * batches and of the blocks it uses.
+ */
+@Documented
+@InterceptorBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface StatementBudget {
+    /**
+     * Returns the maximum number of statements.
+     *
+     * @return the maximum number of statements.
+     */
+    @Nonbinding
+    int value();
+}
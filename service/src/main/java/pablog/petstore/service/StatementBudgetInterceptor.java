@@ -0,0 +1,32 @@
+package pablog.petstore.service;
+
+import jakarta.annotation.Priority;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+import pablog.petstore.domain.persistence.StatementCounter;
+
+/**
+ * Adds the {@link StatementBudget} of the service methods invoked to the
+ * {@link StatementCounter.Scope} bound to the current thread.
+ */
+@Interceptor
+@StatementBudget(0)
+@Priority(Interceptor.Priority.APPLICATION)
+public class StatementBudgetInterceptor {
+    @AroundInvoke
+    public Object allowStatements(InvocationContext context) throws Exception {
+        final StatementCounter.Scope scope = StatementCounter.current();
+
+        if (scope != null) {
+            StatementBudget budget = context.getMethod().getAnnotation(StatementBudget.class);
+            if (budget == null) {
+                budget = context.getMethod().getDeclaringClass().getAnnotation(StatementBudget.class);
+            }
+
+            if (budget != null) scope.allow(budget.value());
+        }
+
+        return context.proceed();
+    }
+}
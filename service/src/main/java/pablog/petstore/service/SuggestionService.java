@@ -0,0 +1,91 @@
+package pablog.petstore.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ejb.LocalBean;
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import pablog.petstore.domain.search.Suggestion;
+import pablog.petstore.domain.search.Suggestions;
+import pablog.petstore.domain.search.TermIndex;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * EJB for the typeahead suggestions of owner logins and pet names. Only
+ * administrators have access to this class.
+ * <p>
+ * On startup, the {@link Suggestions} index is loaded from the database.
+ * Then, it is kept in sync by the entity listeners of the owners and pets
+ * and by the bulk operations of the services, so suggestions never access
+ * the database.
+ */
+@Singleton
+@Startup
+@LocalBean
+@Lock(LockType.READ)
+@RolesAllowed("ADMIN")
+public class SuggestionService {
+    private static final String FETCH_SIZE = "org.hibernate.fetchSize";
+    private static final int LOAD_FETCH_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @PostConstruct
+    void start() {
+        this.rebuild();
+    }
+
+    /**
+     * Returns the owner logins and pet names that contain a text, ignoring
+     * case. Texts of one or two characters only find the terms that start
+     * with them. Terms that start with the text are returned first and, then,
+     * terms are sorted alphabetically.
+     *
+     * @param text  the text to find.
+     * @param kind  the kind of terms to return. If {@code null}, both logins
+     *              and pet names are returned.
+     * @param limit the maximum number of terms to return.
+     * @return the terms found, sorted from best to worst.
+     * @throws IllegalArgumentException if {@code text} is {@code null} or if
+     *                                  {@code limit} is not positive.
+     */
+    public List<Suggestion> suggest(String text, Suggestion.Kind kind, int limit) {
+        if (text == null)
+            throw new IllegalArgumentException("text can't be null");
+        if (limit <= 0)
+            throw new IllegalArgumentException("limit must be positive");
+
+        return Suggestions.index().suggest(text, kind, limit);
+    }
+
+    /**
+     * Loads a new index from the database and replaces the current one with
+     * it. Suggestions are served from the current index while the new one is
+     * loaded.
+     */
+    public void rebuild() {
+        Suggestions.rebuild(this::load);
+    }
+
+    private void load(TermIndex index) {
+        try (Stream<String> logins = em.createQuery("SELECT o.login FROM Owner o", String.class)
+                .setHint(FETCH_SIZE, LOAD_FETCH_SIZE)
+                .getResultStream()) {
+            logins.forEach(index::putOwner);
+        }
+
+        try (Stream<Tuple> pets = em.createQuery("SELECT p.id, p.name, p.owner.login FROM Pet p", Tuple.class)
+                .setHint(FETCH_SIZE, LOAD_FETCH_SIZE)
+                .getResultStream()) {
+            pets.forEach(pet -> index.putPet(pet.get(0, Integer.class), pet.get(1, String.class), pet.get(2, String.class)));
+        }
+    }
+}
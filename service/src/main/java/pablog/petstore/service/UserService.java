@@ -23,6 +23,7 @@ public class UserService {
      *
      * @return the entity with the information of the current user.
      */
+    @StatementBudget(1)
     public User getCurrentUser() {
         return this.em.find(User.class, this.principal.getName());
     }
@@ -0,0 +1,153 @@
+package pablog.petstore.service;
+
+import jakarta.ejb.EJB;
+import jakarta.ejb.EJBAccessException;
+import jakarta.ejb.EJBTransactionRolledbackException;
+import jakarta.inject.Inject;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit5.ArquillianExtension;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.resolver.impl.gradle.Gradle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import pablog.petstore.domain.entities.Owner;
+import pablog.petstore.domain.entities.OwnersDataset;
+import pablog.petstore.domain.entities.User;
+import pablog.petstore.service.util.security.RoleCaller;
+import pablog.petstore.service.util.security.TestPrincipal;
+import pablog.petstore.tests.dbunit.DBUnitHelper;
+
+import java.io.File;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static pablog.petstore.domain.entities.OwnersDataset.existentLogin;
+import static pablog.petstore.domain.entities.OwnersDataset.petNameWithMultipleOwners;
+
+@ExtendWith(ArquillianExtension.class)
+public class CacheServiceIntegrationTest {
+
+    @Inject
+    private CacheService facade;
+
+    @Inject
+    private OwnerService ownerService;
+
+    @EJB(beanName = "admin-caller")
+    private RoleCaller asAdmin;
+
+    @EJB(beanName = "owner-caller")
+    private RoleCaller asOwner;
+
+    @Inject
+    private DBUnitHelper dbUnit;
+
+    @Deployment
+    public static Archive<?> createDeployment() {
+        Archive<?>[] archives = Gradle.resolver()
+                .forProjectDirectory(".")
+                .importRuntimeAndTestDependencies()
+                .resolve()
+                .asList(JavaArchive.class).toArray(new Archive[0]);
+
+        return ShrinkWrap.create(WebArchive.class, "test.war")
+                .addClasses(CacheService.class, CacheRegion.class, OwnerService.class, PetService.class, Projections.class, OwnersDataset.class)
+                .addPackage(RoleCaller.class.getPackage())
+                .addPackage(Owner.class.getPackage())
+                .addPackage(DBUnitHelper.class.getPackage())
+                .addPackage(TestPrincipal.class.getPackage())
+                .addAsLibraries(archives)
+                .addAsResource(new File("../tests/src/main/resources/"), "")
+                .addAsResource("test-persistence.xml", "META-INF/persistence.xml")
+                .addAsWebInfResource("beans.xml", "beans.xml");
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dbUnit.loadDataSet("owners.xml");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dbUnit.executeCleanupScripts("scripts/cleanup.sql", "scripts/cleanup-autoincrement.sql");
+    }
+
+    @Test
+    void testGetRegionsCountsEntityHits() {
+        final long hits = regionOf(User.CACHE_REGION).getHitCount();
+
+        asAdmin.call(() -> ownerService.get(existentLogin()));
+        asAdmin.call(() -> ownerService.get(existentLogin()));
+
+        assertThat(regionOf(User.CACHE_REGION).getHitCount(), is(greaterThan(hits)));
+    }
+
+    @Test
+    void testGetRegionsCountsQueryHits() {
+        asAdmin.call(() -> ownerService.findByPetName(petNameWithMultipleOwners()));
+        final long hits = regionOf(OwnerService.OWNERS_BY_PET_NAME_REGION).getHitCount();
+
+        asAdmin.call(() -> ownerService.findByPetName(petNameWithMultipleOwners()));
+
+        assertThat(regionOf(OwnerService.OWNERS_BY_PET_NAME_REGION).getHitCount(), is(greaterThan(hits)));
+    }
+
+    @Test
+    void testEvictAll() {
+        asAdmin.call(() -> ownerService.get(existentLogin()));
+        final long misses = regionOf(User.CACHE_REGION).getMissCount();
+
+        asAdmin.run(facade::evictAll);
+        asAdmin.call(() -> ownerService.get(existentLogin()));
+
+        assertThat(regionOf(User.CACHE_REGION).getMissCount(), is(greaterThan(misses)));
+    }
+
+    @Test
+    void testEvict() {
+        asAdmin.call(() -> ownerService.get(existentLogin()));
+        final CacheRegion region = regionOf(User.CACHE_REGION);
+
+        final boolean evicted = asAdmin.call(() -> facade.evict(region.getName()));
+        asAdmin.call(() -> ownerService.get(existentLogin()));
+
+        assertThat(evicted, is(true));
+        assertThat(regionOf(User.CACHE_REGION).getMissCount(), is(greaterThan(region.getMissCount())));
+    }
+
+    @Test
+    void testEvictNonExistentRegion() {
+        assertThat(asAdmin.call(() -> facade.evict("non-existent")), is(false));
+    }
+
+    @Test
+    void testEvictNull() {
+        var exception = assertThrows(
+                EJBTransactionRolledbackException.class,
+                () -> asAdmin.call(() -> facade.evict(null))
+        );
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+    }
+
+    @Test
+    void testGetRegionsAsOwner() {
+        assertThrows(EJBAccessException.class, () -> asOwner.call(() -> facade.getRegions()));
+    }
+
+    // Region names may be qualified by the container with the name of the
+    // persistence unit
+    private CacheRegion regionOf(String name) {
+        return asAdmin.call(() -> facade.getRegions()).stream()
+                .filter(region -> region.getName().endsWith(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Cache region not found: " + name));
+    }
+}
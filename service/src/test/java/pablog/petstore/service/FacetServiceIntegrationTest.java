@@ -0,0 +1,149 @@
+package pablog.petstore.service;
+
+import jakarta.ejb.EJB;
+import jakarta.ejb.EJBAccessException;
+import jakarta.inject.Inject;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit5.container.annotation.ArquillianTest;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.resolver.impl.gradle.Gradle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.entities.OwnersDataset;
+import pablog.petstore.domain.entities.Pet;
+import pablog.petstore.domain.statistics.FacetCounts;
+import pablog.petstore.service.util.security.RoleCaller;
+import pablog.petstore.service.util.security.TestPrincipal;
+import pablog.petstore.tests.dbunit.DBUnitHelper;
+import pablog.petstore.tests.jpa.HibernateStatistics;
+
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ArquillianTest
+class FacetServiceIntegrationTest {
+
+    @Inject
+    private FacetService facade;
+
+    @Inject
+    private OwnerService ownerService;
+
+    @Inject
+    private PetService petService;
+
+    @EJB(beanName = "admin-caller")
+    private RoleCaller asAdmin;
+
+    @EJB(beanName = "owner-caller")
+    private RoleCaller asOwner;
+
+    @Inject
+    private TestPrincipal principal;
+
+    @Inject
+    private DBUnitHelper dbUnit;
+
+    @Inject
+    private HibernateStatistics statistics;
+
+    @Deployment
+    static Archive<?> createDeployment() {
+        Archive<?>[] archives = Gradle.resolver()
+                .forProjectDirectory(".")
+                .importRuntimeAndTestDependencies()
+                .resolve()
+                .asList(JavaArchive.class).toArray(new Archive[0]);
+
+        return ShrinkWrap.create(WebArchive.class, "test.war")
+                .addClasses(FacetService.class, OwnerService.class, PetService.class, Projections.class, OwnersDataset.class)
+                .addPackage(RoleCaller.class.getPackage())
+                .addPackage(Pet.class.getPackage())
+                .addPackage(DBUnitHelper.class.getPackage())
+                .addPackage(HibernateStatistics.class.getPackage())
+                .addPackage(TestPrincipal.class.getPackage())
+                .addAsLibraries(archives)
+                .addAsResource(new File("../tests/src/main/resources/"), "")
+                .addAsResource("test-persistence.xml", "META-INF/persistence.xml")
+                .addAsWebInfResource("beans.xml", "beans.xml");
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dbUnit.loadDataSet("owners.xml");
+
+        // The dataset is loaded without the entity manager
+        asAdmin.run(facade::rebuild);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dbUnit.executeCleanupScripts("scripts/cleanup.sql", "scripts/cleanup-autoincrement.sql");
+    }
+
+    @Test
+    void testGetCounts() {
+        statistics.clear();
+
+        final FacetCounts counts = asAdmin.call(facade::getCounts);
+
+        assertThat(counts.getOwners(), is(4L));
+        assertThat(counts.getPets(), is(6L));
+        assertThat(counts.getPetsByAnimal(), is(Map.of(AnimalType.CAT, 3L, AnimalType.DOG, 2L, AnimalType.BIRD, 1L)));
+        assertThat(List.copyOf(counts.getOwnersByPetCount().values()), contains(1L, 1L, 1L, 1L, 0L, 0L, 0L));
+        assertThat(counts.getPetsByAge().get("16+"), is(6L));
+        assertThat(statistics.getPrepareStatementCount(), is(0L));
+    }
+
+    @Test
+    void testGetCountsAsOwner() {
+        assertThrows(EJBAccessException.class, () -> asOwner.call(facade::getCounts));
+    }
+
+    @Test
+    void testCountsAfterBulkUpdate() {
+        principal.setName(OwnersDataset.OWNER_WITH_PETS_LOGIN);
+
+        asOwner.call(() -> petService.update(3, new Pet("Juandog", AnimalType.BIRD, new Date(946684861000L))));
+
+        final FacetCounts counts = asAdmin.call(facade::getCounts);
+        assertThat(counts.getPets(), is(6L));
+        assertThat(counts.getPetsByAnimal().get(AnimalType.DOG), is(1L));
+        assertThat(counts.getPetsByAnimal().get(AnimalType.BIRD), is(2L));
+    }
+
+    @Test
+    void testCountsAfterBulkRemove() {
+        principal.setName(OwnersDataset.OWNER_WITH_PETS_LOGIN);
+
+        asOwner.run(() -> petService.remove(3));
+
+        final FacetCounts counts = asAdmin.call(facade::getCounts);
+        assertThat(counts.getPets(), is(5L));
+        assertThat(counts.getPetsByAnimal().get(AnimalType.DOG), is(1L));
+        assertThat(counts.getOwnersByPetCount().get("1"), is(2L));
+        assertThat(counts.getOwnersByPetCount().get("2"), is(0L));
+    }
+
+    @Test
+    void testCountsAfterRemovingOwner() {
+        asAdmin.run(() -> ownerService.remove("ana"));
+
+        final FacetCounts counts = asAdmin.call(facade::getCounts);
+        assertThat(counts.getOwners(), is(3L));
+        assertThat(counts.getPets(), is(3L));
+        assertThat(counts.getOwnersByPetCount().get("3-5"), is(0L));
+    }
+}
@@ -19,6 +19,7 @@ import pablog.petstore.service.util.security.TestPrincipal;
 import pablog.petstore.tests.dbunit.DBUnitHelper;
 
 import java.io.File;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static pablog.petstore.domain.entities.OwnersDataset.*;
@@ -41,7 +42,7 @@ class OwnerServiceIllegalAccessIntegrationTest {
                 .asList(JavaArchive.class).toArray(new Archive[0]);
 
         return ShrinkWrap.create(WebArchive.class, "test.war")
-                .addClasses(OwnerService.class, OwnersDataset.class)
+                .addClasses(OwnerService.class, PetService.class, Projections.class, OwnersDataset.class)
                 .addPackage(RoleCaller.class.getPackage())
                 .addPackage(Owner.class.getPackage())
                 .addPackage(DBUnitHelper.class.getPackage())
@@ -57,6 +58,11 @@ class OwnerServiceIllegalAccessIntegrationTest {
         assertThrows(EJBAccessException.class, () -> facade.get(existentLogin()));
     }
 
+    @Test
+    void testGetVersionTagNoRole() {
+        assertThrows(EJBAccessException.class, () -> facade.getVersionTag(existentLogin()));
+    }
+
     @Test
     void testListNoRole() {
         assertThrows(EJBAccessException.class, () -> facade.list());
@@ -82,6 +88,11 @@ class OwnerServiceIllegalAccessIntegrationTest {
         assertThrows(EJBAccessException.class, () -> facade.remove(existentLogin()));
     }
 
+    @Test
+    void testRemoveAllNoRole() {
+        assertThrows(EJBAccessException.class, () -> facade.removeAll(List.of(existentLogin())));
+    }
+
     @Test
     void testGetPetsNoRole() {
         assertThrows(EJBAccessException.class, () -> facade.getPets(existentLogin()));
@@ -92,6 +103,11 @@ class OwnerServiceIllegalAccessIntegrationTest {
         assertThrows(EJBAccessException.class, () -> asOwner.run(() -> facade.get(existentLogin())));
     }
 
+    @Test
+    void testGetVersionTagRoleOwner() {
+        assertThrows(EJBAccessException.class, () -> asOwner.run(() -> facade.getVersionTag(existentLogin())));
+    }
+
     @Test
     void testListRoleOwner() {
         assertThrows(EJBAccessException.class, () -> asOwner.run(() -> facade.list()));
@@ -117,6 +133,11 @@ class OwnerServiceIllegalAccessIntegrationTest {
         assertThrows(EJBAccessException.class, () -> asOwner.run(() -> facade.remove(existentLogin())));
     }
 
+    @Test
+    void testRemoveAllRoleOwner() {
+        assertThrows(EJBAccessException.class, () -> asOwner.run(() -> facade.removeAll(List.of(existentLogin()))));
+    }
+
     @Test
     void testGetPetsRoleOwner() {
         assertThrows(EJBAccessException.class, () -> asOwner.run(() -> facade.getPets(existentLogin())));
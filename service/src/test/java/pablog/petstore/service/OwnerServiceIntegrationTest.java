@@ -15,19 +15,28 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import pablog.petstore.domain.entities.AnimalType;
 import pablog.petstore.domain.entities.Owner;
 import pablog.petstore.domain.entities.OwnersDataset;
 import pablog.petstore.domain.entities.Pet;
 import pablog.petstore.service.util.security.RoleCaller;
 import pablog.petstore.service.util.security.TestPrincipal;
 import pablog.petstore.tests.dbunit.DBUnitHelper;
+import pablog.petstore.tests.jpa.HibernateStatistics;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import static java.util.Arrays.stream;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
@@ -50,6 +59,9 @@ public class OwnerServiceIntegrationTest {
     @Inject
     private DBUnitHelper dbUnit;
 
+    @Inject
+    private HibernateStatistics statistics;
+
     @Deployment
     public static Archive<?> createDeployment() {
         Archive<?>[] archives = Gradle.resolver()
@@ -59,10 +71,11 @@ public class OwnerServiceIntegrationTest {
                 .asList(JavaArchive.class).toArray(new Archive[0]);
 
         return ShrinkWrap.create(WebArchive.class, "test.war")
-                .addClasses(OwnerService.class, OwnersDataset.class)
+                .addClasses(OwnerService.class, PetService.class, Projections.class, OwnersDataset.class)
                 .addPackage(RoleCaller.class.getPackage())
                 .addPackage(Owner.class.getPackage())
                 .addPackage(DBUnitHelper.class.getPackage())
+                .addPackage(HibernateStatistics.class.getPackage())
                 .addPackage(TestPrincipal.class.getPackage())
                 .addAsLibraries(archives)
                 .addAsResource(new File("../tests/src/main/resources/"), "")
@@ -107,6 +120,60 @@ public class OwnerServiceIntegrationTest {
         dbUnit.assertDataSet("owners.xml");
     }
 
+    @Test
+    void testGetVersionTag() throws Exception {
+        final String login = ownerWithPets().getLogin();
+
+        final String versionTag = asAdmin.call(() -> facade.getVersionTag(login));
+        final Owner owner = asAdmin.call(() -> facade.get(login));
+
+        assertThat(versionTag, is(OwnerService.versionTagOf(owner)));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testGetVersionTagWithoutPets() throws Exception {
+        final String login = ownerWithoutPets().getLogin();
+
+        final String versionTag = asAdmin.call(() -> facade.getVersionTag(login));
+        final Owner owner = asAdmin.call(() -> facade.get(login));
+
+        assertThat(versionTag, is(OwnerService.versionTagOf(owner)));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testGetVersionTagChangesOnUpdate() throws Exception {
+        final Owner existentOwner = existentOwner();
+        final String versionTag = asAdmin.call(() -> facade.getVersionTag(existentOwner.getLogin()));
+
+        existentOwner.changePassword(newPasswordForExistentOwner());
+        asAdmin.run(() -> facade.update(existentOwner));
+
+        final String updatedVersionTag = asAdmin.call(() -> facade.getVersionTag(existentOwner.getLogin()));
+
+        assertThat(updatedVersionTag.equals(versionTag), is(false));
+        dbUnit.assertDataSet("owners-update-password.xml");
+    }
+
+    @Test
+    void testGetVersionTagNonExistent() throws Exception {
+        final String versionTag = asAdmin.call(() -> facade.getVersionTag(nonExistentLogin()));
+
+        assertThat(versionTag, is(nullValue()));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testGetVersionTagNull() throws Exception {
+        var exception = assertThrows(
+                EJBTransactionRolledbackException.class,
+                () -> asAdmin.call(() -> facade.getVersionTag(null))
+        );
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        dbUnit.assertDataSet("owners.xml");
+    }
+
     @Test
     void testList() throws Exception {
         final List<Owner> actualOwners = asAdmin.call(() -> facade.list());
@@ -115,6 +182,127 @@ public class OwnerServiceIntegrationTest {
         dbUnit.assertDataSet("owners.xml");
     }
 
+    @Test
+    void testListStatementCount() throws Exception {
+        asAdmin.run(() -> IntStream.range(0, 1000)
+                .mapToObj(i -> new Owner(String.format("owner%04d", i), "ownerpass",
+                        new Pet("Pet" + i, AnimalType.DOG, new Date(946684861000L))))
+                .forEach(facade::create));
+        statistics.clear();
+
+        final List<Owner> actualOwners = asAdmin.call(() -> facade.list());
+
+        assertThat(actualOwners, hasSize(owners().length + 1000));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+        assertThat(statistics.getCollectionFetchCount(), is(0L));
+    }
+
+    @Test
+    void testListPageStatementCount() throws Exception {
+        statistics.clear();
+
+        final List<Owner> actualOwners = asAdmin.call(() -> facade.list(null, 2));
+
+        assertThat(actualOwners, hasSize(2));
+        assertThat(statistics.getPrepareStatementCount(), is(2L));
+        assertThat(statistics.getCollectionFetchCount(), is(0L));
+    }
+
+    @Test
+    void testListPage() throws Exception {
+        final List<Owner> firstPage = asAdmin.call(() -> facade.list(null, 2));
+        final List<Owner> secondPage = asAdmin.call(() -> facade.list(firstPage.getLast().getLogin(), 2));
+        final List<Owner> lastPage = asAdmin.call(() -> facade.list(secondPage.getLast().getLogin(), 2));
+
+        assertThat(firstPage, contains(equalToOwner(ownerWithLogin("ana")), equalToOwner(ownerWithLogin("juan"))));
+        assertThat(secondPage, contains(equalToOwner(ownerWithLogin("lorena")), equalToOwner(ownerWithLogin("pepe"))));
+        assertThat(lastPage, is(empty()));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testListPageInvalidLimit() throws Exception {
+        var exception = assertThrows(
+                EJBTransactionRolledbackException.class,
+                () -> asAdmin.call(() -> facade.list(null, 0))
+        );
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testListFields() throws Exception {
+        final List<Map<String, Object>> actualOwners = asAdmin.call(() -> facade.list(Set.of("role"), null));
+
+        assertThat(actualOwners, is(List.<Map<String, Object>>of(
+                Map.of("login", "ana", "role", "OWNER"),
+                Map.of("login", "juan", "role", "OWNER"),
+                Map.of("login", "lorena", "role", "OWNER"),
+                Map.of("login", "pepe", "role", "OWNER")
+        )));
+        assertThat(List.copyOf(actualOwners.getFirst().keySet()), contains("login", "role"));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testListFieldsWithPets() throws Exception {
+        statistics.clear();
+
+        final List<Map<String, Object>> actualOwners = asAdmin.call(() -> facade.list(Set.of(), Set.of("name")));
+
+        assertThat(actualOwners, is(List.<Map<String, Object>>of(
+                Map.of("login", "ana", "pets", List.of(
+                        Map.of("id", 4, "name", "Anacat"),
+                        Map.of("id", 5, "name", "Max"),
+                        Map.of("id", 6, "name", "Anabird")
+                )),
+                Map.of("login", "juan", "pets", List.of(
+                        Map.of("id", 2, "name", "Max"),
+                        Map.of("id", 3, "name", "Juandog")
+                )),
+                Map.of("login", "lorena", "pets", List.of()),
+                Map.of("login", "pepe", "pets", List.of(Map.of("id", 1, "name", "Pepecat")))
+        )));
+        assertThat(statistics.getPrepareStatementCount(), is(2L));
+        assertThat(statistics.getEntityLoadCount(), is(0L));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testListFieldsPage() throws Exception {
+        final Set<String> fields = Set.of("login");
+        final Set<String> petFields = Set.of("animal");
+
+        final List<Map<String, Object>> firstPage = asAdmin.call(() -> facade.list(fields, petFields, null, 2));
+        final List<Map<String, Object>> lastPage = asAdmin.call(() -> facade.list(fields, petFields, "lorena", 2));
+
+        assertThat(firstPage, is(List.<Map<String, Object>>of(
+                Map.of("login", "ana", "pets", List.of(
+                        Map.of("animal", AnimalType.CAT, "id", 4),
+                        Map.of("animal", AnimalType.DOG, "id", 5),
+                        Map.of("animal", AnimalType.BIRD, "id", 6)
+                )),
+                Map.of("login", "juan", "pets", List.of(
+                        Map.of("animal", AnimalType.CAT, "id", 2),
+                        Map.of("animal", AnimalType.DOG, "id", 3)
+                ))
+        )));
+        assertThat(lastPage, is(List.<Map<String, Object>>of(
+                Map.of("login", "pepe", "pets", List.of(Map.of("animal", AnimalType.CAT, "id", 1)))
+        )));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testListInvalidFields() throws Exception {
+        var exception = assertThrows(
+                EJBTransactionRolledbackException.class,
+                () -> asAdmin.call(() -> facade.list(Set.of("version"), null))
+        );
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        dbUnit.assertDataSet("owners.xml");
+    }
+
     @Test
     void testFindByPetName() throws Exception {
         final String petName = petNameWithSingleOwner();
@@ -136,6 +324,21 @@ public class OwnerServiceIntegrationTest {
         dbUnit.assertDataSet("owners.xml");
     }
 
+    @Test
+    void testFindByPetNameSeveralPetsWithName() throws Exception {
+        final String petName = petNameWithMultipleOwners();
+        final Owner newOwner = new Owner(newOwnerLogin(), newOwnerPassword(),
+                new Pet(petName, AnimalType.CAT, new Date(946684861000L)),
+                new Pet(petName, AnimalType.DOG, new Date(946684861000L)));
+        asAdmin.call(() -> facade.create(newOwner));
+
+        final List<Owner> actualOwners = asAdmin.call(() -> facade.findByPetName(petName));
+        final Owner[] expectedOwners = Stream.concat(stream(ownersOf(petName)), Stream.of(newOwner))
+                .toArray(Owner[]::new);
+
+        assertThat(actualOwners, containsOwnersInAnyOrder(expectedOwners));
+    }
+
     @Test
     void testFindByPetNameNoPet() throws Exception {
         final String nonExistentPet = nonExistentPetName();
@@ -155,6 +358,38 @@ public class OwnerServiceIntegrationTest {
         dbUnit.assertDataSet("owners.xml");
     }
 
+    @Test
+    void testFindLoginsByPetName() throws Exception {
+        final String petName = petNameWithMultipleOwners();
+        final String[] expectedLogins = stream(ownersOf(petName))
+                .map(Owner::getLogin)
+                .sorted()
+                .toArray(String[]::new);
+
+        final List<String> actualLogins = asAdmin.call(() -> facade.findLoginsByPetName(petName));
+
+        assertThat(actualLogins, contains(expectedLogins));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testFindLoginsByPetNameNoPet() throws Exception {
+        final List<String> actualLogins = asAdmin.call(() -> facade.findLoginsByPetName(nonExistentPetName()));
+
+        assertThat(actualLogins, is(empty()));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testFindLoginsByPetNameNull() throws Exception {
+        var exception = assertThrows(
+                EJBTransactionRolledbackException.class,
+                () -> asAdmin.run(() -> facade.findLoginsByPetName(null))
+        );
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        dbUnit.assertDataSet("owners.xml");
+    }
+
     @Test
     void testCreateWithoutPets() throws Exception {
         final Owner newOwner = newOwnerWithoutPets();
@@ -182,6 +417,35 @@ public class OwnerServiceIntegrationTest {
         dbUnit.assertDataSet("owners.xml");
     }
 
+    @Test
+    void testImportOwners() throws Exception {
+        final List<Owner> owners = List.of(newOwnerWithFreshPets(), existentOwner());
+
+        final Set<String> skipped = asAdmin.call(() -> facade.importOwners(owners));
+        final Owner imported = asAdmin.call(() -> facade.get(newOwnerLogin()));
+
+        assertThat(skipped, contains(existentLogin()));
+        assertThat(imported, is(equalToOwner(newOwnerWithPersistentPets())));
+    }
+
+    @Test
+    void testImportOwnersEmpty() throws Exception {
+        final Set<String> skipped = asAdmin.call(() -> facade.importOwners(List.of()));
+
+        assertThat(skipped, is(empty()));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testImportOwnersNull() throws Exception {
+        var exception = assertThrows(
+                EJBTransactionRolledbackException.class,
+                () -> asAdmin.call(() -> facade.importOwners(null))
+        );
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        dbUnit.assertDataSet("owners.xml");
+    }
+
     @Test
     void testCreateNull() throws Exception {
         var exception = assertThrows(
@@ -242,6 +506,35 @@ public class OwnerServiceIntegrationTest {
         dbUnit.assertDataSet("owners-remove-with-pets.xml");
     }
 
+    @Test
+    void testRemoveWithVersionTag() throws Exception {
+        final String login = ownerWithPets().getLogin();
+        final String versionTag = asAdmin.call(() -> facade.getVersionTag(login));
+
+        final boolean removed = asAdmin.call(() -> facade.remove(login, versionTag));
+
+        assertThat(removed, is(true));
+        dbUnit.assertDataSet("owners-remove-with-pets.xml");
+    }
+
+    @Test
+    void testRemoveWithStaleVersionTag() throws Exception {
+        final String login = ownerWithPets().getLogin();
+
+        final boolean removed = asAdmin.call(() -> facade.remove(login, "0-0-0"));
+
+        assertThat(removed, is(false));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testRemoveNonExistentOwnerWithVersionTag() throws Exception {
+        final boolean removed = asAdmin.call(() -> facade.remove(nonExistentLogin(), "0-0-0"));
+
+        assertThat(removed, is(false));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
     @Test
     void testRemoveNonExistentOwner() throws Exception {
         var exception = assertThrows(
@@ -252,6 +545,40 @@ public class OwnerServiceIntegrationTest {
         dbUnit.assertDataSet("owners.xml");
     }
 
+    @Test
+    void testRemoveAll() throws Exception {
+        final int removed = asAdmin.call(() -> facade.removeAll(List.of("juan", "ana", "lorena", "ana")));
+
+        assertThat(removed, is(3));
+        dbUnit.assertDataSet("owners-remove-many.xml");
+    }
+
+    @Test
+    void testRemoveAllIgnoresNonOwners() throws Exception {
+        final int removed = asAdmin.call(() -> facade.removeAll(List.of("jose", nonExistentLogin())));
+
+        assertThat(removed, is(0));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testRemoveAllEmpty() throws Exception {
+        final int removed = asAdmin.call(() -> facade.removeAll(List.of()));
+
+        assertThat(removed, is(0));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testRemoveAllNull() throws Exception {
+        var exception = assertThrows(
+                EJBTransactionRolledbackException.class,
+                () -> asAdmin.run(() -> facade.removeAll(null))
+        );
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        dbUnit.assertDataSet("owners.xml");
+    }
+
     @Test
     void testRemoveNull() throws Exception {
         var exception = assertThrows(
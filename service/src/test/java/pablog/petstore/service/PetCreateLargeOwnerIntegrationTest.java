@@ -0,0 +1,115 @@
+package pablog.petstore.service;
+
+import jakarta.ejb.EJB;
+import jakarta.inject.Inject;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit5.ArquillianExtension;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.resolver.impl.gradle.Gradle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.entities.Owner;
+import pablog.petstore.domain.entities.Pet;
+import pablog.petstore.service.util.security.RoleCaller;
+import pablog.petstore.service.util.security.TestPrincipal;
+import pablog.petstore.tests.dbunit.DBUnitHelper;
+import pablog.petstore.tests.jpa.HibernateStatistics;
+
+import java.io.File;
+import java.util.Date;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Checks that creating a pet for an owner with {@value #PET_COUNT} pets does
+ * not load the owner nor its pets. The caches are evicted before creating the
+ * pet, so every entity loaded would be read from the database.
+ */
+@ExtendWith(ArquillianExtension.class)
+public class PetCreateLargeOwnerIntegrationTest {
+    private static final Logger LOG = Logger.getLogger(PetCreateLargeOwnerIntegrationTest.class.getName());
+
+    private static final int PET_COUNT = 5000;
+    private static final String LOGIN = "shelter";
+
+    @Inject
+    private OwnerService ownerService;
+
+    @Inject
+    private PetService petService;
+
+    @EJB(beanName = "admin-caller")
+    private RoleCaller asAdmin;
+
+    @EJB(beanName = "owner-caller")
+    private RoleCaller asOwner;
+
+    @Inject
+    private TestPrincipal principal;
+
+    @Inject
+    private DBUnitHelper dbUnit;
+
+    @Inject
+    private HibernateStatistics statistics;
+
+    @Deployment
+    public static Archive<?> createDeployment() {
+        Archive<?>[] archives = Gradle.resolver()
+                .forProjectDirectory(".")
+                .importRuntimeAndTestDependencies()
+                .resolve()
+                .asList(JavaArchive.class).toArray(new Archive[0]);
+
+        return ShrinkWrap.create(WebArchive.class, "test.war")
+                .addClasses(OwnerService.class, PetService.class, Projections.class)
+                .addPackage(RoleCaller.class.getPackage())
+                .addPackage(Owner.class.getPackage())
+                .addPackage(DBUnitHelper.class.getPackage())
+                .addPackage(HibernateStatistics.class.getPackage())
+                .addPackage(TestPrincipal.class.getPackage())
+                .addAsLibraries(archives)
+                .addAsResource(new File("../tests/src/main/resources/"), "")
+                .addAsResource("benchmark-persistence.xml", "META-INF/persistence.xml")
+                .addAsWebInfResource("beans.xml", "beans.xml");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dbUnit.executeCleanupScripts("scripts/cleanup.sql", "scripts/cleanup-autoincrement.sql");
+    }
+
+    @Test
+    void testCreatePetForOwnerWithManyPets() {
+        asAdmin.call(() -> ownerService.create(ownerWithPets()));
+        dbUnit.evictCaches();
+
+        principal.setName(LOGIN);
+
+        statistics.clear();
+        asOwner.call(() -> petService.create(new Pet("New pet", AnimalType.CAT, new Date(946684861000L))));
+
+        LOG.info(() -> String.format("Creating a pet for an owner with %d pets: %d entities loaded, %d statements",
+                PET_COUNT, statistics.getEntityLoadCount(), statistics.getPrepareStatementCount()));
+
+        assertThat(statistics.getEntityLoadCount(), is(0L));
+        assertThat(statistics.getCollectionLoadCount(), is(0L));
+        assertThat(statistics.getEntityInsertCount(), is(1L));
+        assertThat(statistics.getPrepareStatementCount(), lessThan(5L));
+    }
+
+    private static Owner ownerWithPets() {
+        return new Owner(LOGIN, LOGIN + "pass", IntStream.range(0, PET_COUNT)
+                .mapToObj(i -> new Pet("Pet" + i, AnimalType.DOG, new Date(946684861000L)))
+                .toArray(Pet[]::new));
+    }
+}
@@ -0,0 +1,108 @@
+package pablog.petstore.service;
+
+import jakarta.ejb.EJB;
+import jakarta.inject.Inject;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit5.ArquillianExtension;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.resolver.impl.gradle.Gradle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.entities.Owner;
+import pablog.petstore.domain.entities.Pet;
+import pablog.petstore.service.util.jpa.UnbatchedAdminCaller;
+import pablog.petstore.service.util.security.RoleCaller;
+import pablog.petstore.service.util.security.TestPrincipal;
+import pablog.petstore.tests.dbunit.DBUnitHelper;
+import pablog.petstore.tests.jpa.HibernateStatistics;
+
+import java.io.File;
+import java.util.Date;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Compares the database round-trips needed to create an owner with
+ * {@value #PET_COUNT} pets when pets are inserted one by one, as happened with
+ * identity columns, and when they are inserted using JDBC batches. The
+ * production identifier generator is used, so this test does not use the
+ * test mapping file.
+ */
+@ExtendWith(ArquillianExtension.class)
+public class PetInsertBatchingIntegrationTest {
+    private static final Logger LOG = Logger.getLogger(PetInsertBatchingIntegrationTest.class.getName());
+
+    private static final int PET_COUNT = 500;
+
+    @Inject
+    private OwnerService facade;
+
+    @EJB(beanName = "admin-caller")
+    private RoleCaller asAdmin;
+
+    @EJB
+    private UnbatchedAdminCaller asAdminUnbatched;
+
+    @Inject
+    private DBUnitHelper dbUnit;
+
+    @Inject
+    private HibernateStatistics statistics;
+
+    @Deployment
+    public static Archive<?> createDeployment() {
+        Archive<?>[] archives = Gradle.resolver()
+                .forProjectDirectory(".")
+                .importRuntimeAndTestDependencies()
+                .resolve()
+                .asList(JavaArchive.class).toArray(new Archive[0]);
+
+        return ShrinkWrap.create(WebArchive.class, "test.war")
+                .addClasses(OwnerService.class, PetService.class, Projections.class)
+                .addPackage(RoleCaller.class.getPackage())
+                .addPackage(UnbatchedAdminCaller.class.getPackage())
+                .addPackage(Owner.class.getPackage())
+                .addPackage(DBUnitHelper.class.getPackage())
+                .addPackage(HibernateStatistics.class.getPackage())
+                .addPackage(TestPrincipal.class.getPackage())
+                .addAsLibraries(archives)
+                .addAsResource(new File("../tests/src/main/resources/"), "")
+                .addAsResource("benchmark-persistence.xml", "META-INF/persistence.xml")
+                .addAsWebInfResource("beans.xml", "beans.xml");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dbUnit.executeCleanupScripts("scripts/cleanup.sql", "scripts/cleanup-autoincrement.sql");
+    }
+
+    @Test
+    void testCreateOwnerWithManyPets() {
+        statistics.clear();
+        asAdminUnbatched.call(() -> facade.create(ownerWithPets("unbatched")));
+        final long unbatchedStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        asAdmin.call(() -> facade.create(ownerWithPets("batched")));
+        final long batchedStatements = statistics.getPrepareStatementCount();
+
+        LOG.info(() -> String.format("Statements to create an owner with %d pets: %d unbatched, %d batched",
+                PET_COUNT, unbatchedStatements, batchedStatements));
+
+        assertThat(batchedStatements, lessThan(unbatchedStatements / 10));
+    }
+
+    private static Owner ownerWithPets(String login) {
+        return new Owner(login, login + "pass", IntStream.range(0, PET_COUNT)
+                .mapToObj(i -> new Pet("Pet" + i, AnimalType.DOG, new Date(946684861000L)))
+                .toArray(Pet[]::new));
+    }
+}
@@ -0,0 +1,231 @@
+package pablog.petstore.service;
+
+import jakarta.ejb.EJB;
+import jakarta.ejb.EJBAccessException;
+import jakarta.ejb.EJBTransactionRolledbackException;
+import jakarta.inject.Inject;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit5.container.annotation.ArquillianTest;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.resolver.impl.gradle.Gradle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.entities.OwnersDataset;
+import pablog.petstore.domain.entities.Pet;
+import pablog.petstore.service.util.security.RoleCaller;
+import pablog.petstore.service.util.security.TestPrincipal;
+import pablog.petstore.tests.dbunit.DBUnitHelper;
+import pablog.petstore.tests.jpa.HibernateStatistics;
+
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ArquillianTest
+class PetSearchServiceIntegrationTest {
+
+    @Inject
+    private PetSearchService facade;
+
+    @EJB(beanName = "admin-caller")
+    private RoleCaller asAdmin;
+
+    @EJB(beanName = "owner-caller")
+    private RoleCaller asOwner;
+
+    @Inject
+    private TestPrincipal principal;
+
+    @Inject
+    private DBUnitHelper dbUnit;
+
+    @Inject
+    private HibernateStatistics statistics;
+
+    @Deployment
+    static Archive<?> createDeployment() {
+        Archive<?>[] archives = Gradle.resolver()
+                .forProjectDirectory(".")
+                .importRuntimeAndTestDependencies()
+                .resolve()
+                .asList(JavaArchive.class).toArray(new Archive[0]);
+
+        return ShrinkWrap.create(WebArchive.class, "test.war")
+                .addClasses(PetSearchService.class, PetSearch.class, PetSearchResult.class, OwnersDataset.class)
+                .addPackage(RoleCaller.class.getPackage())
+                .addPackage(Pet.class.getPackage())
+                .addPackage(DBUnitHelper.class.getPackage())
+                .addPackage(HibernateStatistics.class.getPackage())
+                .addPackage(TestPrincipal.class.getPackage())
+                .addAsLibraries(archives)
+                .addAsResource(new File("../tests/src/main/resources/"), "")
+                .addAsResource("test-persistence.xml", "META-INF/persistence.xml")
+                .addAsWebInfResource("beans.xml", "beans.xml");
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dbUnit.loadDataSet("owners.xml");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dbUnit.executeCleanupScripts("scripts/cleanup.sql", "scripts/cleanup-autoincrement.sql");
+    }
+
+    @Test
+    void testSearchWithoutCriteria() throws Exception {
+        statistics.clear();
+
+        final PetSearchResult result = asAdmin.call(() -> facade.search(new PetSearch()));
+
+        assertThat(ids(result), contains(1, 2, 3, 4, 5, 6));
+        assertThat(result.getNextCursor(), is(nullValue()));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testSearchByAnimal() throws Exception {
+        final PetSearch search = new PetSearch();
+        search.setAnimal(AnimalType.CAT);
+
+        assertThat(ids(asAdmin.call(() -> facade.search(search))), contains(1, 2, 4));
+    }
+
+    @Test
+    void testSearchByNamePrefix() throws Exception {
+        final PetSearch search = new PetSearch();
+        search.setNamePrefix("Ana");
+
+        assertThat(ids(asAdmin.call(() -> facade.search(search))), contains(4, 6));
+
+        search.setNamePrefix("%a");
+
+        assertThat(ids(asAdmin.call(() -> facade.search(search))), is(empty()));
+    }
+
+    @Test
+    void testSearchByOwner() throws Exception {
+        final PetSearch search = new PetSearch();
+        search.setOwner("ana");
+        search.setAnimal(AnimalType.DOG);
+
+        assertThat(ids(asAdmin.call(() -> facade.search(search))), contains(5));
+    }
+
+    @Test
+    void testSearchByBirth() throws Exception {
+        final Date birth = new Date(946684861000L);
+        final PetSearch search = new PetSearch();
+        search.setBornAfter(birth);
+
+        assertThat(ids(asAdmin.call(() -> facade.search(search))), contains(1, 2, 3, 4, 5, 6));
+
+        search.setBornAfter(null);
+        search.setBornBefore(birth);
+
+        assertThat(ids(asAdmin.call(() -> facade.search(search))), is(empty()));
+    }
+
+    @Test
+    void testSearchPagesSortedByName() throws Exception {
+        final PetSearch search = new PetSearch();
+        search.setSort(PetSearch.Sort.NAME);
+        search.setLimit(2);
+
+        final PetSearchResult firstPage = asAdmin.call(() -> facade.search(search));
+        search.setCursor(firstPage.getNextCursor());
+        final PetSearchResult secondPage = asAdmin.call(() -> facade.search(search));
+        search.setCursor(secondPage.getNextCursor());
+        final PetSearchResult thirdPage = asAdmin.call(() -> facade.search(search));
+
+        assertThat(ids(firstPage), contains(6, 4));
+        assertThat(ids(secondPage), contains(3, 2));
+        assertThat(ids(thirdPage), contains(5, 1));
+        assertThat(thirdPage.getNextCursor(), is(notNullValue()));
+
+        search.setCursor(thirdPage.getNextCursor());
+
+        final PetSearchResult lastPage = asAdmin.call(() -> facade.search(search));
+
+        assertThat(lastPage.getPets(), is(empty()));
+        assertThat(lastPage.getNextCursor(), is(nullValue()));
+    }
+
+    @Test
+    void testSearchPagesDescending() throws Exception {
+        final PetSearch search = new PetSearch();
+        search.setDescending(true);
+        search.setLimit(4);
+
+        final PetSearchResult firstPage = asAdmin.call(() -> facade.search(search));
+        search.setCursor(firstPage.getNextCursor());
+        final PetSearchResult lastPage = asAdmin.call(() -> facade.search(search));
+
+        assertThat(ids(firstPage), contains(6, 5, 4, 3));
+        assertThat(ids(lastPage), contains(2, 1));
+        assertThat(lastPage.getNextCursor(), is(nullValue()));
+    }
+
+    @Test
+    void testSearchAsOwner() throws Exception {
+        principal.setName(OwnersDataset.OWNER_WITH_PETS_LOGIN);
+
+        assertThat(ids(asOwner.call(() -> facade.search(new PetSearch()))), contains(2, 3));
+    }
+
+    @Test
+    void testSearchPetsOfOtherOwnerAsOwner() {
+        principal.setName(OwnersDataset.OWNER_WITH_PETS_LOGIN);
+
+        final PetSearch search = new PetSearch();
+        search.setOwner("ana");
+
+        assertThrows(EJBAccessException.class, () -> asOwner.call(() -> facade.search(search)));
+    }
+
+    @Test
+    void testSearchInvalidCursor() {
+        final PetSearch search = new PetSearch();
+        search.setCursor("invalid");
+
+        var exception = assertThrows(
+                EJBTransactionRolledbackException.class,
+                () -> asAdmin.call(() -> facade.search(search))
+        );
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+    }
+
+    @Test
+    void testSearchCursorOfOtherSort() throws Exception {
+        final PetSearch search = new PetSearch();
+        search.setLimit(1);
+        search.setCursor(asAdmin.call(() -> facade.search(search)).getNextCursor());
+        search.setSort(PetSearch.Sort.BIRTH);
+
+        var exception = assertThrows(
+                EJBTransactionRolledbackException.class,
+                () -> asAdmin.call(() -> facade.search(search))
+        );
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+    }
+
+    private static List<Integer> ids(PetSearchResult result) {
+        return result.getPets().stream().map(Pet::getId).toList();
+    }
+}
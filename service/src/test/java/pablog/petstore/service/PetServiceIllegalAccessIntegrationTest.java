@@ -53,7 +53,7 @@ class PetServiceIllegalAccessIntegrationTest {
 				.asList(JavaArchive.class).toArray(new Archive[0]);
 
 		return ShrinkWrap.create(WebArchive.class, "test.war")
-				.addClasses(PetService.class, OwnersDataset.class)
+				.addClasses(PetService.class, Projections.class, OwnersDataset.class)
 				.addPackage(RoleCaller.class.getPackage())
 				.addPackage(Pet.class.getPackage())
 				.addPackage(DBUnitHelper.class.getPackage())
@@ -79,6 +79,11 @@ class PetServiceIllegalAccessIntegrationTest {
 		assertThrows(EJBAccessException.class, () -> facade.get(existentPetId()));
 	}
 
+	@Test
+	void testGetVersionNoRole() {
+		assertThrows(EJBAccessException.class, () -> facade.getVersion(existentPetId()));
+	}
+
 	@Test
 	void testListNoRole() {
 		assertThrows(EJBAccessException.class, () -> facade.list());
@@ -94,6 +99,16 @@ class PetServiceIllegalAccessIntegrationTest {
 		assertThrows(EJBAccessException.class, () -> facade.update(anyPet()));
 	}
 
+	@Test
+	void testUpdateByIdNoRole() {
+		assertThrows(EJBAccessException.class, () -> facade.update(existentPetId(), anyPet()));
+	}
+
+	@Test
+	void testUpdateByIdAndVersionNoRole() {
+		assertThrows(EJBAccessException.class, () -> facade.update(existentPetId(), anyPet(), 0L));
+	}
+
 	@Test
 	void testRemoveNoRole() {
 		assertThrows(EJBAccessException.class, () -> facade.remove(existentPetId()));
@@ -104,6 +119,11 @@ class PetServiceIllegalAccessIntegrationTest {
 		assertThrows(EJBAccessException.class, () -> asAdmin.run(() -> facade.get(existentPetId())));
 	}
 
+	@Test
+	void testGetVersionRoleAdmin() {
+		assertThrows(EJBAccessException.class, () -> asAdmin.run(() -> facade.getVersion(existentPetId())));
+	}
+
 	@Test
 	void testListRoleAdmin() {
 		assertThrows(EJBAccessException.class, () -> asAdmin.run(() -> facade.list()));
@@ -119,6 +139,16 @@ class PetServiceIllegalAccessIntegrationTest {
 		assertThrows(EJBAccessException.class, () -> asAdmin.run(() -> facade.update(anyPet())));
 	}
 
+	@Test
+	void testUpdateByIdRoleAdmin() {
+		assertThrows(EJBAccessException.class, () -> asAdmin.run(() -> facade.update(existentPetId(), anyPet())));
+	}
+
+	@Test
+	void testUpdateByIdAndVersionRoleAdmin() {
+		assertThrows(EJBAccessException.class, () -> asAdmin.run(() -> facade.update(existentPetId(), anyPet(), 0L)));
+	}
+
 	@Test
 	void testRemoveRoleAdmin() {
 		assertThrows(EJBAccessException.class, () -> asAdmin.run(() -> facade.remove(existentPetId())));
@@ -26,10 +26,13 @@ import pablog.petstore.tests.dbunit.DBUnitHelper;
 import java.io.File;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -69,7 +72,7 @@ class PetServiceIntegrationTest {
                 .asList(JavaArchive.class).toArray(new Archive[0]);
 
         return ShrinkWrap.create(WebArchive.class, "test.war")
-                .addClasses(PetService.class, OwnersDataset.class)
+                .addClasses(PetService.class, Projections.class, OwnersDataset.class)
                 .addPackage(RoleCaller.class.getPackage())
                 .addPackage(Pet.class.getPackage())
                 .addPackage(DBUnitHelper.class.getPackage())
@@ -123,6 +126,42 @@ class PetServiceIntegrationTest {
         dbUnit.assertDataSet("owners.xml");
     }
 
+    @Test
+    void testGetVersion() throws Exception {
+        final Pet existentPet = existentPet();
+
+        principal.setName(existentPet.getOwner().getLogin());
+
+        final Long version = asOwner.call(() -> facade.getVersion(existentPet.getId()));
+
+        assertThat(version, is(0L));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testGetVersionBadId() throws Exception {
+        principal.setName(ownerWithoutPets().getLogin());
+
+        final Long version = asOwner.call(() -> facade.getVersion(nonExistentPetId()));
+
+        assertThat(version, is(nullValue()));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testGetVersionOthersPetId() throws Exception {
+        final int petId = anyPetOf(ownerWithPets()).getId();
+
+        principal.setName(ownerWithoutPets().getLogin());
+
+        var exception = assertThrows(
+                EJBTransactionRolledbackException.class,
+                () -> asOwner.run(() -> facade.getVersion(petId))
+        );
+        assertInstanceOf(EJBAccessException.class, exception.getCause());
+        dbUnit.assertDataSet("owners.xml");
+    }
+
     @Test
     void testList() throws Exception {
         final Owner ownerWithPets = ownerWithPets();
@@ -145,6 +184,20 @@ class PetServiceIntegrationTest {
         dbUnit.assertDataSet("owners.xml");
     }
 
+    @Test
+    void testListFields() throws Exception {
+        principal.setName(ownerWithPets().getLogin());
+
+        final List<Map<String, Object>> actualPets = asOwner.call(() -> facade.list(Set.of("name", "animal")));
+
+        assertThat(actualPets, is(List.<Map<String, Object>>of(
+                Map.of("animal", AnimalType.CAT, "id", 2, "name", "Max"),
+                Map.of("animal", AnimalType.DOG, "id", 3, "name", "Juandog")
+        )));
+        assertThat(List.copyOf(actualPets.getFirst().keySet()), contains("animal", "id", "name"));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
     @Test
     void testCreate() throws Exception {
         final Owner ownerWithoutPets = ownerWithoutPets();
@@ -167,6 +220,18 @@ class PetServiceIntegrationTest {
         dbUnit.assertDataSet("owners.xml", "owners-create-pet.xml");
     }
 
+    @Test
+    void testCreateDoesNotStoreOwnerProvided() throws Exception {
+        final Owner ownerWithoutPets = ownerWithoutPets();
+
+        principal.setName(ownerWithoutPets.getLogin());
+
+        final Pet pet = newPetWithOwner(new Owner(ownerWithoutPets.getLogin(), "changedpass"));
+
+        asOwner.call(() -> facade.create(pet));
+        dbUnit.assertDataSet("owners.xml", "owners-create-pet.xml");
+    }
+
     @Test
     void testCreateNullPet() throws Exception {
         principal.setName(ownerWithoutPets().getLogin());
@@ -243,6 +308,98 @@ class PetServiceIntegrationTest {
         dbUnit.assertDataSet("owners.xml");
     }
 
+    @Test
+    void testUpdateById() throws Exception {
+        final Pet existentPet = existentPet();
+
+        principal.setName(existentPet.getOwner().getLogin());
+
+        final Pet data = new Pet("UpdateName", AnimalType.BIRD, new Date(946771261000L));
+
+        final boolean updated = asOwner.call(() -> facade.update(existentPet.getId(), data));
+
+        assertThat(updated, is(true));
+        dbUnit.assertDataSet("owners-update-pet.xml");
+    }
+
+    @Test
+    void testUpdateByIdBadId() throws Exception {
+        principal.setName(ownerWithoutPets().getLogin());
+
+        final Pet data = new Pet("UpdateName", AnimalType.BIRD, new Date(946771261000L));
+
+        final boolean updated = asOwner.call(() -> facade.update(nonExistentPetId(), data));
+
+        assertThat(updated, is(false));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testUpdateByIdOthersPetId() throws Exception {
+        final int petId = anyPetOf(ownerWithPets()).getId();
+
+        principal.setName(ownerWithoutPets().getLogin());
+
+        final Pet data = new Pet("UpdateName", AnimalType.BIRD, new Date(946771261000L));
+
+        var exception = assertThrows(
+            EJBTransactionRolledbackException.class,
+            () -> asOwner.run(() -> facade.update(petId, data))
+        );
+        assertInstanceOf(EJBAccessException.class, exception.getCause());
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testUpdateByIdNullData() throws Exception {
+        principal.setName(ownerWithoutPets().getLogin());
+
+        assertThrows(EJBTransactionRolledbackException.class, () -> asOwner.run(() -> facade.update(existentPetId(), null)));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testUpdateByIdAndVersion() throws Exception {
+        final Pet existentPet = existentPet();
+
+        principal.setName(existentPet.getOwner().getLogin());
+
+        final Pet data = new Pet("UpdateName", AnimalType.BIRD, new Date(946771261000L));
+
+        final boolean updated = asOwner.call(() -> facade.update(existentPet.getId(), data, 0L));
+
+        assertThat(updated, is(true));
+        dbUnit.assertDataSet("owners-update-pet.xml");
+    }
+
+    @Test
+    void testUpdateByIdAndStaleVersion() throws Exception {
+        final Pet existentPet = existentPet();
+
+        principal.setName(existentPet.getOwner().getLogin());
+
+        final Pet data = new Pet("UpdateName", AnimalType.BIRD, new Date(946771261000L));
+
+        final boolean updated = asOwner.call(() -> facade.update(existentPet.getId(), data, 1L));
+
+        assertThat(updated, is(false));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
+    @Test
+    void testUpdateByIdAndVersionOthersPetId() throws Exception {
+        final int petId = anyPetOf(ownerWithPets()).getId();
+
+        principal.setName(ownerWithoutPets().getLogin());
+
+        final Pet data = new Pet("UpdateName", AnimalType.BIRD, new Date(946771261000L));
+
+        final boolean updated = asOwner.call(() -> facade.update(petId, data, 0L));
+
+        assertThat(updated, is(false));
+        dbUnit.assertDataSet("owners.xml");
+    }
+
     @Test
     void testRemove() throws Exception {
         final Pet existentPet = existentPet();
@@ -271,4 +428,28 @@ class PetServiceIntegrationTest {
         assertThrows(EJBTransactionRolledbackException.class, () -> asOwner.run(() -> facade.remove(petId)));
         dbUnit.assertDataSet("owners.xml");
     }
+
+    @Test
+    void testRemoveByVersion() throws Exception {
+        final Pet existentPet = existentPet();
+
+        principal.setName(existentPet.getOwner().getLogin());
+
+        final boolean removed = asOwner.call(() -> facade.remove(existentPet.getId(), 0L));
+
+        assertThat(removed, is(true));
+        dbUnit.assertDataSet("owners-remove-pet.xml");
+    }
+
+    @Test
+    void testRemoveByStaleVersion() throws Exception {
+        final Pet existentPet = existentPet();
+
+        principal.setName(existentPet.getOwner().getLogin());
+
+        final boolean removed = asOwner.call(() -> facade.remove(existentPet.getId(), 1L));
+
+        assertThat(removed, is(false));
+        dbUnit.assertDataSet("owners.xml");
+    }
 }
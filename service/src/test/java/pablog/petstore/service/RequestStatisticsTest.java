@@ -0,0 +1,80 @@
+package pablog.petstore.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RequestStatisticsTest {
+    private static final String PETS = "pablog.petstore.domain.entities.Owner.pets";
+    private static final String OWNERS = "pablog.petstore.domain.entities.Pet.owner";
+
+    @Test
+    void testBind() {
+        final RequestStatistics outer = new RequestStatistics(1);
+        final RequestStatistics inner = new RequestStatistics(1);
+
+        assertThat(RequestStatistics.current(), is(nullValue()));
+
+        try (RequestStatistics.Binding ignored = outer.bind()) {
+            assertThat(RequestStatistics.current(), is(sameInstance(outer)));
+
+            try (RequestStatistics.Binding ignoredToo = inner.bind()) {
+                assertThat(RequestStatistics.current(), is(sameInstance(inner)));
+            }
+
+            assertThat(RequestStatistics.current(), is(sameInstance(outer)));
+        }
+
+        assertThat(RequestStatistics.current(), is(nullValue()));
+    }
+
+    @Test
+    void testCollectionLoaded() {
+        final RequestStatistics statistics = new RequestStatistics(2);
+
+        statistics.collectionLoaded(PETS);
+        statistics.collectionLoaded(PETS);
+        statistics.collectionLoaded(OWNERS);
+
+        assertThat(statistics.getCollectionLoadCount(PETS), is(2));
+        assertThat(statistics.getCollectionLoadCount(OWNERS), is(1));
+        assertThat(statistics.getCollectionLoadCount("unknown"), is(0));
+        assertThat(statistics.getCollectionLoadCount(), is(3));
+        assertThat(statistics.getSuspectedNPlusOneRoles(), is(empty()));
+    }
+
+    @Test
+    void testEntityLoaded() {
+        final RequestStatistics statistics = new RequestStatistics(1);
+
+        statistics.entityLoaded();
+        statistics.entityLoaded();
+
+        assertThat(statistics.getEntityLoadCount(), is(2L));
+        assertThat(statistics.getCollectionLoadCount(), is(0));
+    }
+
+    @Test
+    void testSuspectedNPlusOneRoles() {
+        final RequestStatistics statistics = new RequestStatistics(2);
+
+        for (int i = 0; i < 3; i++) {
+            statistics.collectionLoaded(PETS);
+        }
+        statistics.collectionLoaded(OWNERS);
+
+        assertThat(statistics.getSuspectedNPlusOneRoles(), is(Set.of(PETS)));
+    }
+
+    @Test
+    void testInvalidThreshold() {
+        assertThrows(IllegalArgumentException.class, () -> new RequestStatistics(0));
+    }
+}
@@ -0,0 +1,237 @@
+package pablog.petstore.service;
+
+import jakarta.ejb.EJB;
+import jakarta.inject.Inject;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit5.ArquillianExtension;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.resolver.impl.gradle.Gradle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.entities.Owner;
+import pablog.petstore.domain.entities.OwnersDataset;
+import pablog.petstore.domain.entities.Pet;
+import pablog.petstore.domain.persistence.StatementCounter;
+import pablog.petstore.service.util.security.RoleCaller;
+import pablog.petstore.service.util.security.TestPrincipal;
+import pablog.petstore.tests.dbunit.DBUnitHelper;
+import pablog.petstore.tests.jpa.StatementAssertions;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static pablog.petstore.domain.entities.OwnersDataset.anyPetOf;
+import static pablog.petstore.domain.entities.OwnersDataset.existentLogin;
+import static pablog.petstore.domain.entities.OwnersDataset.existentOwner;
+import static pablog.petstore.domain.entities.OwnersDataset.existentPet;
+import static pablog.petstore.domain.entities.OwnersDataset.newPasswordForExistentOwner;
+import static pablog.petstore.domain.entities.OwnersDataset.newPet;
+import static pablog.petstore.domain.entities.OwnersDataset.newOwnerWithFreshPets;
+import static pablog.petstore.domain.entities.OwnersDataset.nonExistentLogin;
+import static pablog.petstore.domain.entities.OwnersDataset.ownerWithPets;
+import static pablog.petstore.domain.entities.OwnersDataset.owners;
+import static pablog.petstore.domain.entities.OwnersDataset.petNameWithMultipleOwners;
+import static pablog.petstore.tests.jpa.StatementAssertions.assertStatementsAtMost;
+import static pablog.petstore.tests.jpa.StatementAssertions.assertWithinStatementBudget;
+
+/**
+ * Checks that the methods of {@link OwnerService} and {@link PetService}
+ * prepare no more statements than their {@link StatementBudget}, including the
+ * statements sent when their transaction is committed. Methods that store or
+ * delete many rows are checked with more rows than fit in a JDBC batch or a
+ * block.
+ */
+@ExtendWith(ArquillianExtension.class)
+public class StatementBudgetIntegrationTest {
+    private static final Date BIRTH = new Date(946684861000L);
+
+    @Inject
+    private OwnerService facade;
+
+    @Inject
+    private PetService petFacade;
+
+    @EJB(beanName = "admin-caller")
+    private RoleCaller asAdmin;
+
+    @EJB(beanName = "owner-caller")
+    private RoleCaller asOwner;
+
+    @Inject
+    private TestPrincipal principal;
+
+    @Inject
+    private DBUnitHelper dbUnit;
+
+    @Deployment
+    public static Archive<?> createDeployment() {
+        Archive<?>[] archives = Gradle.resolver()
+                .forProjectDirectory(".")
+                .importRuntimeAndTestDependencies()
+                .resolve()
+                .asList(JavaArchive.class).toArray(new Archive[0]);
+
+        return ShrinkWrap.create(WebArchive.class, "test.war")
+                .addClasses(OwnerService.class, PetService.class, Projections.class, StatementBudget.class, StatementBudgetInterceptor.class, OwnersDataset.class)
+                .addPackage(RoleCaller.class.getPackage())
+                .addPackage(Owner.class.getPackage())
+                .addPackage(DBUnitHelper.class.getPackage())
+                .addPackage(StatementAssertions.class.getPackage())
+                .addPackage(TestPrincipal.class.getPackage())
+                .addAsLibraries(archives)
+                .addAsResource(new File("../tests/src/main/resources/"), "")
+                .addAsResource("test-persistence.xml", "META-INF/persistence.xml")
+                .addAsWebInfResource("beans.xml", "beans.xml");
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dbUnit.loadDataSet("owners.xml");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dbUnit.executeCleanupScripts("scripts/cleanup.sql", "scripts/cleanup-autoincrement.sql");
+    }
+
+    @Test
+    void testListPreparesOneStatement() {
+        final List<Owner> owners = assertStatementsAtMost(1, () -> asAdmin.call(() -> facade.list()));
+
+        assertThat(owners.size(), is(owners().length));
+    }
+
+    @Test
+    void testBudgetIsAddedByEachInvocation() {
+        try (StatementCounter.Scope scope = StatementCounter.open()) {
+            asAdmin.call(() -> facade.get(existentLogin()));
+            asAdmin.call(() -> facade.list(null, 2));
+
+            assertThat(scope.getBudget(), is(3L));
+        }
+    }
+
+    @Test
+    void testReadsWithinBudget() {
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.get(existentLogin())));
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.getVersionTag(existentLogin())));
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.list()));
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.list(null, 2)));
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.findByPetName(petNameWithMultipleOwners())));
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.findLoginsByPetName(petNameWithMultipleOwners())));
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.getPets(existentLogin())));
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.list(Set.of("password"), Set.of("name"))));
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.list(Set.of("password"), Set.of("name"), null, 2)));
+        assertWithinStatementBudget(() -> {
+            asAdmin.run(() -> facade.forEach(owner -> owner.getLogin()));
+            return null;
+        });
+    }
+
+    @Test
+    void testCreateWithinBudget() {
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.create(newOwnerWithFreshPets())));
+    }
+
+    @Test
+    void testRemoveWithinBudget() {
+        assertWithinStatementBudget(() -> {
+            asAdmin.run(() -> facade.remove(existentLogin()));
+            return null;
+        });
+    }
+
+    @Test
+    void testImportOwnersWithinBudget() {
+        final List<Owner> owners = new ArrayList<>(List.of(existentOwner()));
+        for (int i = 0; i < 120; i++) {
+            owners.add(new Owner("import" + i, "importpass",
+                    new Pet("Importcat" + i, AnimalType.CAT, BIRTH),
+                    new Pet("Importdog" + i, AnimalType.DOG, BIRTH)
+            ));
+        }
+
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.importOwners(owners)));
+    }
+
+    @Test
+    void testUpdateWithinBudget() {
+        final Owner existentOwner = existentOwner();
+        existentOwner.changePassword(newPasswordForExistentOwner());
+
+        final Owner ownerWithPets = ownerWithPets();
+        ownerWithPets.removePet(anyPetOf(ownerWithPets));
+        for (int i = 0; i < 60; i++) {
+            ownerWithPets.addPet(new Pet("Updatecat" + i, AnimalType.CAT, BIRTH));
+        }
+
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.update(existentOwner)));
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.update(ownerWithPets)));
+    }
+
+    @Test
+    void testRemoveWithVersionTagWithinBudget() {
+        final String versionTag = asAdmin.call(() -> facade.getVersionTag(existentLogin()));
+
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.remove(existentLogin(), versionTag)));
+    }
+
+    @Test
+    void testRemoveAllWithinBudget() {
+        final List<String> logins = new ArrayList<>();
+        for (Owner owner : owners()) logins.add(owner.getLogin());
+        for (int i = 0; i < 1500; i++) logins.add(nonExistentLogin() + i);
+
+        assertWithinStatementBudget(() -> asAdmin.call(() -> facade.removeAll(logins)));
+    }
+
+    @Test
+    void testPetReadsWithinBudget() {
+        final Pet pet = existentPet();
+        principal.setName(pet.getOwner().getLogin());
+
+        assertWithinStatementBudget(() -> asOwner.call(() -> petFacade.get(pet.getId())));
+        assertWithinStatementBudget(() -> asOwner.call(() -> petFacade.getVersion(pet.getId())));
+        assertWithinStatementBudget(() -> asOwner.call(() -> petFacade.list()));
+        assertWithinStatementBudget(() -> asOwner.call(() -> petFacade.list(Set.of("name"))));
+        assertWithinStatementBudget(() -> {
+            asOwner.run(() -> petFacade.forEach(each -> each.getName()));
+            return null;
+        });
+    }
+
+    @Test
+    void testPetChangesWithinBudget() {
+        final Pet pet = existentPet();
+        principal.setName(pet.getOwner().getLogin());
+
+        assertWithinStatementBudget(() -> asOwner.call(() -> petFacade.create(newPet())));
+
+        pet.setName("Updated");
+        assertWithinStatementBudget(() -> asOwner.call(() -> petFacade.update(pet)));
+
+        final Pet data = new Pet("Rex", AnimalType.DOG, BIRTH);
+        assertWithinStatementBudget(() -> asOwner.call(() -> petFacade.update(pet.getId(), data)));
+
+        final long version = asOwner.call(() -> petFacade.getVersion(pet.getId()));
+        assertWithinStatementBudget(() -> asOwner.call(() -> petFacade.update(pet.getId(), data, version)));
+        assertWithinStatementBudget(() -> asOwner.call(() -> petFacade.remove(pet.getId(), version + 1)));
+
+        final Pet other = asOwner.call(() -> petFacade.create(newPet()));
+        assertWithinStatementBudget(() -> {
+            asOwner.run(() -> petFacade.remove(other.getId()));
+            return null;
+        });
+    }
+}
@@ -0,0 +1,135 @@
+package pablog.petstore.service;
+
+import jakarta.ejb.EJB;
+import jakarta.ejb.EJBAccessException;
+import jakarta.inject.Inject;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit5.container.annotation.ArquillianTest;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.resolver.impl.gradle.Gradle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pablog.petstore.domain.entities.AnimalType;
+import pablog.petstore.domain.entities.OwnersDataset;
+import pablog.petstore.domain.entities.Pet;
+import pablog.petstore.domain.search.Suggestion;
+import pablog.petstore.service.util.security.RoleCaller;
+import pablog.petstore.service.util.security.TestPrincipal;
+import pablog.petstore.tests.dbunit.DBUnitHelper;
+
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ArquillianTest
+class SuggestionServiceIntegrationTest {
+
+    @Inject
+    private SuggestionService facade;
+
+    @Inject
+    private OwnerService ownerService;
+
+    @Inject
+    private PetService petService;
+
+    @EJB(beanName = "admin-caller")
+    private RoleCaller asAdmin;
+
+    @EJB(beanName = "owner-caller")
+    private RoleCaller asOwner;
+
+    @Inject
+    private TestPrincipal principal;
+
+    @Inject
+    private DBUnitHelper dbUnit;
+
+    @Deployment
+    static Archive<?> createDeployment() {
+        Archive<?>[] archives = Gradle.resolver()
+                .forProjectDirectory(".")
+                .importRuntimeAndTestDependencies()
+                .resolve()
+                .asList(JavaArchive.class).toArray(new Archive[0]);
+
+        return ShrinkWrap.create(WebArchive.class, "test.war")
+                .addClasses(SuggestionService.class, OwnerService.class, PetService.class, Projections.class, OwnersDataset.class)
+                .addPackage(RoleCaller.class.getPackage())
+                .addPackage(Pet.class.getPackage())
+                .addPackage(DBUnitHelper.class.getPackage())
+                .addPackage(TestPrincipal.class.getPackage())
+                .addAsLibraries(archives)
+                .addAsResource(new File("../tests/src/main/resources/"), "")
+                .addAsResource("test-persistence.xml", "META-INF/persistence.xml")
+                .addAsWebInfResource("beans.xml", "beans.xml");
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dbUnit.loadDataSet("owners.xml");
+
+        // The dataset is loaded without the entity manager
+        asAdmin.run(facade::rebuild);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dbUnit.executeCleanupScripts("scripts/cleanup.sql", "scripts/cleanup-autoincrement.sql");
+    }
+
+    @Test
+    void testSuggest() {
+        assertThat(suggest("an", null), contains("OWNER:ana", "PET:Anabird", "PET:Anacat"));
+        assertThat(suggest("cat", Suggestion.Kind.PET), contains("PET:Anacat", "PET:Pepecat"));
+        assertThat(asAdmin.call(() -> facade.suggest("max", null, 10)).get(0).getCount(), is(2));
+    }
+
+    @Test
+    void testSuggestAsOwner() {
+        assertThrows(EJBAccessException.class, () -> asOwner.call(() -> facade.suggest("an", null, 10)));
+    }
+
+    @Test
+    void testSuggestAfterBulkUpdate() {
+        principal.setName(OwnersDataset.OWNER_WITH_PETS_LOGIN);
+
+        asOwner.call(() -> petService.update(3, new Pet("Rex", AnimalType.DOG, new Date(946684861000L))));
+
+        assertThat(suggest("juandog", null), is(empty()));
+        assertThat(suggest("re", null), contains("PET:Rex"));
+    }
+
+    @Test
+    void testSuggestAfterBulkRemove() {
+        principal.setName(OwnersDataset.OWNER_WITH_PETS_LOGIN);
+
+        asOwner.run(() -> petService.remove(3));
+
+        assertThat(suggest("juandog", null), is(empty()));
+    }
+
+    @Test
+    void testSuggestAfterRemovingOwner() {
+        asAdmin.run(() -> ownerService.remove("ana"));
+
+        assertThat(suggest("an", null), is(empty()));
+        assertThat(asAdmin.call(() -> facade.suggest("max", null, 10)).get(0).getCount(), is(1));
+    }
+
+    private List<String> suggest(String text, Suggestion.Kind kind) {
+        return asAdmin.call(() -> facade.suggest(text, kind, 10)).stream()
+                .map(Suggestion::toString)
+                .toList();
+    }
+}
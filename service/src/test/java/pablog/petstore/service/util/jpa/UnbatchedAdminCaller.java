@@ -0,0 +1,29 @@
+package pablog.petstore.service.util.jpa;
+
+import jakarta.annotation.security.PermitAll;
+import jakarta.annotation.security.RunAs;
+import jakarta.ejb.Stateless;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.util.function.Supplier;
+
+/**
+ * Calls a supplier as an administrator with JDBC batching disabled in the
+ * persistence context of the transaction, so each insert is sent to the
+ * database on its own.
+ */
+@Stateless
+@RunAs("ADMIN")
+@PermitAll
+public class UnbatchedAdminCaller {
+    @PersistenceContext
+    private EntityManager em;
+
+    public <V> V call(Supplier<V> supplier) {
+        em.unwrap(Session.class).setJdbcBatchSize(1);
+
+        return supplier.get();
+    }
+}
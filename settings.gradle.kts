@@ -6,4 +6,5 @@ include("jsf")
 include("rest")
 include("service")
 include("tests")
-include("security")
\ No newline at end of file
+include("security")
+include("benchmarks")
\ No newline at end of file
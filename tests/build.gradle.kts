@@ -9,6 +9,8 @@ dependencies {
     compileOnly(libs.jakarta.cdi.api)
     compileOnly(libs.jakarta.ws.rs.api)
     compileOnly(libs.jakarta.security.enterprise.api)
+    compileOnly(libs.jakarta.persistence.api)
+    compileOnly(libs.hibernate.core)
 
     implementation(libs.hamcrest)
     implementation(libs.dbunit)
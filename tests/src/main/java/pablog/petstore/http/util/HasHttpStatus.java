@@ -43,6 +43,14 @@ public class HasHttpStatus extends TypeSafeMatcher<Response> {
         return new HasHttpStatus(BAD_REQUEST);
     }
 
+    public static HasHttpStatus hasNotModifiedStatus() {
+        return new HasHttpStatus(NOT_MODIFIED);
+    }
+
+    public static HasHttpStatus hasPreconditionFailedStatus() {
+        return new HasHttpStatus(PRECONDITION_FAILED);
+    }
+
     @Override
     public void describeTo(Description description) {
         description.appendValue(this.status);
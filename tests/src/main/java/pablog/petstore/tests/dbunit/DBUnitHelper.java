@@ -2,6 +2,8 @@ package pablog.petstore.tests.dbunit;
 
 import jakarta.annotation.Resource;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
 import org.dbunit.DatabaseUnitException;
 import org.dbunit.database.DatabaseConfig;
 import org.dbunit.database.DatabaseConnection;
@@ -18,6 +20,7 @@ import org.dbunit.dataset.datatype.DataTypeException;
 import org.dbunit.dataset.xml.FlatXmlDataSetBuilder;
 import org.dbunit.ext.h2.H2DataTypeFactory;
 import org.dbunit.operation.DatabaseOperation;
+import org.hibernate.SessionFactory;
 
 import javax.sql.DataSource;
 import java.io.BufferedReader;
@@ -76,9 +79,15 @@ public class DBUnitHelper {
     /** Default schema name for H2 in WildFly */
     private static final String DEFAULT_SCHEMA = "PUBLIC";
 
+    /** Table used by the table generators. Each row is named after the table whose ids generates */
+    private static final String SEQUENCES_TABLE = "SEQUENCES";
+
     @Resource(lookup = "java:jboss/datasources/ExampleDS")
     private DataSource dataSource;
 
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
     private String schema = DEFAULT_SCHEMA;
 
     /**
@@ -92,8 +101,9 @@ public class DBUnitHelper {
     /**
      * Loads dataset files using CLEAN_INSERT operation.
      * This clears the tables involved and inserts the dataset data.
-     * After loading, identity columns are restarted to MAX(column)+1 to avoid
-     * collisions when Hibernate generates new IDs.
+     * After loading, identity columns and table generators are restarted to
+     * MAX(column)+1 to avoid collisions when Hibernate generates new IDs, and
+     * the second-level cache is cleared, as it does not see these changes.
      *
      * @param datasetFiles Dataset file names (relative to datasets/ directory)
      * @throws DatabaseUnitException if dataset loading fails
@@ -112,8 +122,10 @@ public class DBUnitHelper {
             IDataSet dataSet = buildDataSet(datasetFiles);
             DatabaseOperation.CLEAN_INSERT.execute(connection, dataSet);
             
-            // Restart identity columns for all tables in the dataset
+            // Restart identity columns and table generators for all tables in the dataset
             restartIdentityColumns(connection, dataSet);
+            restartTableGenerators(connection, dataSet);
+            evictCaches();
             
             LOGGER.fine("Dataset loaded successfully");
         } catch (SQLException e) {
@@ -160,6 +172,83 @@ public class DBUnitHelper {
         }
     }
 
+    /**
+     * Restarts the table generators of the tables in the dataset. If the
+     * sequences table exists, the row named after each dataset table with an
+     * {@code id} column is set to MAX(id)+1, creating it if needed.
+     *
+     * @param connection the database connection
+     * @param dataSet the dataset that was loaded
+     */
+    private void restartTableGenerators(IDatabaseConnection connection, IDataSet dataSet) {
+        try {
+            Connection jdbcConnection = connection.getConnection();
+
+            String tableQuery =
+                "SELECT COUNT(*) " +
+                "FROM INFORMATION_SCHEMA.TABLES " +
+                "WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?";
+
+            try (PreparedStatement ps = jdbcConnection.prepareStatement(tableQuery)) {
+                ps.setString(1, schema);
+                ps.setString(2, SEQUENCES_TABLE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next() || rs.getInt(1) == 0) {
+                        return;
+                    }
+                }
+            }
+
+            for (String table : dataSet.getTableNames()) {
+                if (hasIdColumn(dataSet, table)) {
+                    restartTableGeneratorFromMax(jdbcConnection, table);
+                }
+            }
+        } catch (SQLException | DataSetException e) {
+            LOGGER.log(Level.WARNING, "Could not restart table generators", e);
+        }
+    }
+
+    /**
+     * Checks if a dataset table has an {@code id} column.
+     */
+    private boolean hasIdColumn(IDataSet dataSet, String tableName) throws DataSetException {
+        for (Column column : dataSet.getTableMetaData(tableName).getColumns()) {
+            if (column.getColumnName().equalsIgnoreCase("id")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the next value of the table generator of a table to MAX(id)+1.
+     *
+     * @param connection the JDBC connection
+     * @param table the table name
+     */
+    private void restartTableGeneratorFromMax(Connection connection, String table) {
+        String mergeSql = "MERGE INTO " + SEQUENCES_TABLE + " (name, next_val) KEY (name) " +
+            "SELECT '" + table.toLowerCase() + "', COALESCE(MAX(id), 0) + 1 FROM " + table;
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(mergeSql);
+            LOGGER.fine(() -> "Restarted table generator for " + table);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Could not restart table generator for " + table, e);
+        }
+    }
+
+    /**
+     * Evicts all the regions of the second-level and query caches, if the
+     * deployment has a persistence unit. Caches are evicted automatically
+     * after loading datasets and executing cleanup scripts.
+     */
+    public void evictCaches() {
+        if (emf != null) {
+            emf.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        }
+    }
+
     /**
      * Checks if a table exists in the dataset.
      */
@@ -306,6 +395,7 @@ public class DBUnitHelper {
             for (String scriptFile : scriptFiles) {
                 executeScript(jdbcConnection, scriptFile);
             }
+            evictCaches();
             
             LOGGER.fine("Cleanup scripts executed successfully");
         } catch (SQLException | IOException e) {
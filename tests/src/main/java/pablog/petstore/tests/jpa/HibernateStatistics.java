@@ -0,0 +1,91 @@
+package pablog.petstore.tests.jpa;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+/**
+ * CDI-managed helper that exposes the Hibernate statistics of the test
+ * persistence unit, so integration tests can check how much work the
+ * persistence layer does for a given operation.
+ *
+ * <p>Statistics must be enabled in the persistence unit with the
+ * {@code hibernate.generate_statistics} property.</p>
+ *
+ * <p>Usage in tests:</p>
+ * <pre>
+ * {@literal @}Inject
+ * private HibernateStatistics statistics;
+ *
+ * {@literal @}Test
+ * void testList() throws Exception {
+ *     statistics.clear();
+ *     asAdmin.call(() -&gt; facade.list());
+ *     assertThat(statistics.getPrepareStatementCount(), is(1L));
+ * }
+ * </pre>
+ */
+@ApplicationScoped
+public class HibernateStatistics {
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
+    /**
+     * Resets all the counters.
+     */
+    public void clear() {
+        getStatistics().clear();
+    }
+
+    /**
+     * Returns the number of JDBC statements prepared since the last reset.
+     *
+     * @return the number of JDBC statements prepared.
+     */
+    public long getPrepareStatementCount() {
+        return getStatistics().getPrepareStatementCount();
+    }
+
+    /**
+     * Returns the number of collections fetched from the database since the
+     * last reset, not counting the ones fetched with a join.
+     *
+     * @return the number of collections fetched.
+     */
+    public long getCollectionFetchCount() {
+        return getStatistics().getCollectionFetchCount();
+    }
+
+    /**
+     * Returns the number of collections loaded since the last reset.
+     *
+     * @return the number of collections loaded.
+     */
+    public long getCollectionLoadCount() {
+        return getStatistics().getCollectionLoadCount();
+    }
+
+    /**
+     * Returns the number of entities loaded since the last reset.
+     *
+     * @return the number of entities loaded.
+     */
+    public long getEntityLoadCount() {
+        return getStatistics().getEntityLoadCount();
+    }
+
+    /**
+     * Returns the number of entities inserted since the last reset.
+     *
+     * @return the number of entities inserted.
+     */
+    public long getEntityInsertCount() {
+        return getStatistics().getEntityInsertCount();
+    }
+
+    private Statistics getStatistics() {
+        return emf.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,88 @@
+package pablog.petstore.tests.jpa;
+
+import pablog.petstore.domain.persistence.StatementCounter;
+
+import java.util.function.Supplier;
+
+/**
+ * Assertions on the number of SQL statements prepared by an action, counted
+ * by the {@link StatementCounter} configured in the persistence unit.
+ * Statements are counted in the thread that runs the test, so the action must
+ * invoke the services synchronously. The statements sent when the
+ * transaction is committed are included if the transaction ends within the
+ * action, e.g. when the services are invoked through a {@code RoleCaller}.
+ *
+ * <p>Usage in tests:</p>
+ * <pre>
+ * {@literal @}Test
+ * void testList() {
+ *     final List&lt;Owner&gt; owners = assertStatementsAtMost(1, () -&gt; asAdmin.call(() -&gt; facade.list()));
+ *
+ *     assertWithinStatementBudget(() -&gt; asAdmin.call(() -&gt; facade.get("pepe")));
+ * }
+ * </pre>
+ */
+public final class StatementAssertions {
+    private StatementAssertions() {
+    }
+
+    /**
+     * Returns the number of statements prepared by an action.
+     *
+     * @param action the action.
+     * @return the number of statements prepared.
+     */
+    public static long countStatements(Runnable action) {
+        try (StatementCounter.Scope scope = StatementCounter.open()) {
+            action.run();
+
+            return scope.getCount();
+        }
+    }
+
+    /**
+     * Runs an action and checks that it prepares at most {@code max}
+     * statements.
+     *
+     * @param max    the maximum number of statements.
+     * @param action the action.
+     * @param <T>    the type of the result of the action.
+     * @return the result of the action.
+     * @throws AssertionError if the action prepares more than {@code max}
+     *                        statements.
+     */
+    public static <T> T assertStatementsAtMost(long max, Supplier<T> action) {
+        try (StatementCounter.Scope scope = StatementCounter.open()) {
+            final T result = action.get();
+
+            if (scope.getCount() > max)
+                throw new AssertionError(String.format("Expected at most %d statements, but %d were prepared",
+                        max, scope.getCount()));
+
+            return result;
+        }
+    }
+
+    /**
+     * Runs an action and checks that it prepares at most the sum of the
+     * statement budgets of the service methods it invokes. The statement
+     * budget interceptor of the services must be deployed.
+     *
+     * @param action the action.
+     * @param <T>    the type of the result of the action.
+     * @return the result of the action.
+     * @throws AssertionError if the action prepares more statements than its
+     *                        budget.
+     */
+    public static <T> T assertWithinStatementBudget(Supplier<T> action) {
+        try (StatementCounter.Scope scope = StatementCounter.open()) {
+            final T result = action.get();
+
+            if (scope.isOverBudget())
+                throw new AssertionError(String.format("Expected at most %d statements (budget), but %d were prepared",
+                        scope.getBudget(), scope.getCount()));
+
+            return result;
+        }
+    }
+}
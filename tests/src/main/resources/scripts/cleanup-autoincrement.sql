@@ -1 +1 @@
-ALTER TABLE pets ALTER COLUMN id RESTART WITH 1;
\ No newline at end of file
+DELETE FROM sequences;
\ No newline at end of file